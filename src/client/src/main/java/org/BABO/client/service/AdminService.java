@@ -34,7 +34,7 @@ import java.util.concurrent.CompletableFuture;
  * <ul>
  *   <li>{@code GET /api/auth/admin/users} - Lista tutti gli utenti</li>
  *   <li>{@code DELETE /api/auth/admin/users/{userId}} - Elimina utente specifico</li>
- *   <li>{@code GET /api/auth/admin/books} - Lista tutti i libri</li>
+ *   <li>{@code GET /api/auth/admin/books} - Lista tutti i libri (anche a pagine con {@code limit}/{@code after})</li>
  *   <li>{@code POST /api/auth/admin/books} - Aggiunge nuovo libro</li>
  *   <li>{@code DELETE /api/auth/admin/books/{isbn}} - Elimina libro</li>
  *   <li>{@code GET /api/auth/admin/ratings} - Lista tutte le recensioni</li>
@@ -336,6 +336,71 @@ public class AdminService {
         });
     }
 
+    /**
+     * Recupera una singola pagina del catalogo per l'area amministrativa.
+     * <p>
+     * Le pagine sono ordinate per titolo e ISBN. Il cursore restituito in
+     * {@link AdminBooksResponse#getNextCursor()} va passato come {@code after} alla
+     * chiamata successiva; è {@code null} quando il catalogo è stato letto per intero.
+     * </p>
+     *
+     * @param adminEmail l'indirizzo email dell'amministratore che richiede l'operazione
+     * @param after il cursore della pagina precedente, o {@code null} per la prima pagina
+     * @param limit il numero massimo di libri della pagina
+     * @return un {@link CompletableFuture} che si risolve con {@link AdminBooksResponse}
+     *         contenente i libri della pagina e il cursore successivo
+     * @throws IllegalArgumentException se adminEmail è {@code null}
+     */
+    public CompletableFuture<AdminBooksResponse> getBooksPageAsync(String adminEmail, String after, int limit) {
+        if (adminEmail == null) {
+            throw new IllegalArgumentException("L'email dell'amministratore non può essere null");
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                HttpUrl.Builder urlBuilder = HttpUrl.parse(SERVER_BASE_URL + "/admin/books")
+                        .newBuilder()
+                        .addQueryParameter("adminEmail", adminEmail)
+                        .addQueryParameter("limit", String.valueOf(limit));
+                if (after != null) {
+                    urlBuilder.addQueryParameter("after", after);
+                }
+
+                Request request = new Request.Builder()
+                        .url(urlBuilder.build())
+                        .get()
+                        .build();
+
+                try (Response response = httpClient.newCall(request).execute()) {
+                    if (response.body() != null) {
+                        String jsonResponse = response.body().string();
+                        Map<String, Object> responseMap = objectMapper.readValue(
+                                jsonResponse, new TypeReference<Map<String, Object>>() {}
+                        );
+
+                        if (response.isSuccessful()) {
+                            List<Book> books = objectMapper.convertValue(
+                                    responseMap.get("books"), new TypeReference<List<Book>>() {}
+                            );
+                            String nextCursor = (String) responseMap.get("nextCursor");
+                            return new AdminBooksResponse(true, "Libri recuperati con successo", books, nextCursor);
+                        } else {
+                            String message = (String) responseMap.get("message");
+                            System.out.println("Errore server: " + message);
+                            return new AdminBooksResponse(false, message, null);
+                        }
+                    }
+                }
+
+                return new AdminBooksResponse(false, "Risposta vuota dal server", null);
+
+            } catch (Exception e) {
+                System.err.println("Errore recupero pagina libri: " + e.getMessage());
+                return new AdminBooksResponse(false, "Errore di connessione: " + e.getMessage(), null);
+            }
+        });
+    }
+
     /**
      * Aggiunge un nuovo libro al catalogo del sistema.
      * <p>
@@ -724,6 +789,9 @@ public class AdminService {
         /** Lista dei libri restituiti dall'operazione (può essere null) */
         private final List<Book> books;
 
+        /** Cursore della pagina successiva, null se non ci sono altre pagine */
+        private final String nextCursor;
+
         /**
          * Costruttore per creare una risposta delle operazioni sui libri.
          *
@@ -732,9 +800,22 @@ public class AdminService {
          * @param books lista dei libri (può essere null per operazioni che non restituiscono dati)
          */
         public AdminBooksResponse(boolean success, String message, List<Book> books) {
+            this(success, message, books, null);
+        }
+
+        /**
+         * Costruttore per creare una risposta contenente una pagina di libri.
+         *
+         * @param success true se l'operazione è riuscita, false altrimenti
+         * @param message messaggio descrittivo dell'operazione
+         * @param books lista dei libri della pagina
+         * @param nextCursor cursore della pagina successiva, null se questa è l'ultima
+         */
+        public AdminBooksResponse(boolean success, String message, List<Book> books, String nextCursor) {
             this.success = success;
             this.message = message;
             this.books = books;
+            this.nextCursor = nextCursor;
         }
 
         /**
@@ -763,6 +844,15 @@ public class AdminService {
         public List<Book> getBooks() {
             return books;
         }
+
+        /**
+         * Ottiene il cursore da usare per richiedere la pagina successiva.
+         *
+         * @return il cursore, o null se non ci sono altre pagine
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
     }
 
     /**
@@ -1,5 +1,8 @@
 package org.BABO.client.service;
 
+import org.BABO.shared.dto.Book.BookDetailsResponse;
+import org.BABO.shared.dto.Book.BookPageResponse;
+import org.BABO.shared.dto.Book.HomeFeedResponse;
 import org.BABO.shared.model.Book;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,6 +26,8 @@ import java.util.concurrent.CompletableFuture;
  *   <li>Supporto per operazioni asincrone tramite CompletableFuture</li>
  *   <li>Gestione automatica del fallback in caso di server non disponibile</li>
  *   <li>Timeout configurati per connessione e lettura</li>
+ *   <li>Richieste condizionali (ETag) per gli elenchi di libri: se i dati non sono cambiati
+ *       il server risponde 304 e viene riusata l'ultima risposta ricevuta</li>
  *   <li>Logging dettagliato delle operazioni</li>
  * </ul>
  *
@@ -30,10 +35,10 @@ import java.util.concurrent.CompletableFuture;
  * <pre>{@code
  * BookService bookService = new BookService();
  *
- * // Caricamento asincrono di tutti i libri
- * bookService.getAllBooksAsync()
- *     .thenAccept(books -> {
- *         System.out.println("Caricati " + books.size() + " libri");
+ * // Caricamento asincrono della prima pagina del catalogo
+ * bookService.getBooksPageAsync(null)
+ *     .thenAccept(page -> {
+ *         System.out.println("Caricati " + page.getBooks().size() + " libri");
  *     });
  *
  * // Ricerca sincrona per titolo
@@ -57,12 +62,18 @@ public class BookService {
     /** URL base del server per le API REST */
     private static final String SERVER_BASE_URL = "http://localhost:8080/api";
 
+    /** Numero di libri richiesti per ogni pagina del catalogo */
+    private static final int PAGE_SIZE = 100;
+
     /** Client HTTP per le richieste al server */
     private final OkHttpClient httpClient;
 
     /** Mapper JSON per serializzazione/deserializzazione */
     private final ObjectMapper objectMapper;
 
+    /** Ultime risposte degli elenchi di libri, riusate quando il server risponde 304 */
+    private final ConditionalResponseCache responseCache = new ConditionalResponseCache();
+
     /**
      * Costruttore del servizio che inizializza il client HTTP e l'ObjectMapper.
      * <p>
@@ -94,8 +105,8 @@ public class BookService {
     public boolean isServerAvailable() {
         try {
             Request request = new Request.Builder()
-                    .url(SERVER_BASE_URL + "/books")
-                    .head() // Solo un HEAD request per verificare
+                    .url(SERVER_BASE_URL + "/books?limit=1")
+                    .head() // Solo un HEAD request per verificare, su una pagina minima
                     .build();
 
             try (Response response = httpClient.newCall(request).execute()) {
@@ -108,54 +119,94 @@ public class BookService {
     }
 
     /**
-     * Recupera tutti i libri dal server in modo asincrono.
+     * Recupera una pagina del catalogo dal server in modo asincrono.
      * <p>
-     * Se il server non è disponibile o si verifica un errore, restituisce
-     * automaticamente una lista di libri di fallback per garantire che
-     * l'applicazione rimanga funzionale.
+     * Il catalogo non viene mai scaricato per intero: l'interfaccia richiede la pagina
+     * successiva, passando il cursore {@link BookPageResponse#getNextCursor()} della pagina
+     * precedente, solo quando l'utente ne ha bisogno (scorrimento o pulsante "Carica altri").
+     * </p>
+     * <p>
+     * Se il server non è disponibile o si verifica un errore sulla prima pagina, restituisce
+     * una pagina con i libri di fallback e senza cursore, per garantire che l'applicazione
+     * rimanga funzionale. Un errore sulle pagine successive restituisce una pagina vuota.
      * </p>
      *
-     * @return un {@link CompletableFuture} che si risolve con la lista di tutti i libri
-     * @see #getAllBooks()
+     * @param after il cursore della pagina precedente, o {@code null} per la prima pagina
+     * @return un {@link CompletableFuture} che si risolve con la pagina di libri
+     * @see #getBooksPage(String, int)
      * @see #getFallbackBooks()
      */
-    public CompletableFuture<List<Book>> getAllBooksAsync() {
+    public CompletableFuture<BookPageResponse> getBooksPageAsync(String after) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return getAllBooks();
+                BookPageResponse page = getBooksPage(after, PAGE_SIZE);
+                System.out.println("Caricati " + page.getBooks().size() + " libri dal server");
+                return page;
             } catch (Exception e) {
                 System.err.println("Errore durante il recupero dei libri: " + e.getMessage());
-                return getFallbackBooks();
+                return new BookPageResponse(after == null ? getFallbackBooks() : new ArrayList<>(), null);
             }
         });
     }
 
     /**
-     * Recupera tutti i libri dal server in modo sincrono.
+     * Recupera una singola pagina del catalogo dal server.
      * <p>
-     * Esegue una richiesta GET all'endpoint {@code /api/books} e deserializza
-     * la risposta JSON in una lista di oggetti {@link Book}.
+     * Esegue una richiesta GET all'endpoint {@code /api/books} con i parametri
+     * {@code limit} e {@code after}. Il cursore restituito nella pagina va passato
+     * alla chiamata successiva per proseguire la lettura.
      * </p>
      *
-     * @return la lista di tutti i libri disponibili sul server
+     * @param after il cursore della pagina precedente, o {@code null} per la prima pagina
+     * @param limit il numero massimo di libri della pagina
+     * @return la pagina di libri con il cursore della pagina successiva
      * @throws IOException se si verifica un errore durante la richiesta HTTP
-     *                     o nella deserializzazione della risposta
      */
-    public List<Book> getAllBooks() throws IOException {
-        Request request = new Request.Builder()
-                .url(SERVER_BASE_URL + "/books")
-                .get()
-                .build();
+    public BookPageResponse getBooksPage(String after, int limit) throws IOException {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(SERVER_BASE_URL + "/books")
+                .newBuilder()
+                .addQueryParameter("limit", String.valueOf(limit));
+        if (after != null) {
+            urlBuilder.addQueryParameter("after", after);
+        }
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        String jsonResponse = getJson(urlBuilder.build());
+        return objectMapper.readValue(jsonResponse, BookPageResponse.class);
+    }
+
+    /**
+     * Esegue una richiesta GET condizionale e restituisce il corpo JSON della risposta.
+     * <p>
+     * Se è disponibile una copia della risposta precedente, la richiesta include il suo ETag
+     * nell'intestazione {@code If-None-Match}: quando il server risponde 304 (dati non
+     * cambiati) viene restituita la copia, senza scaricare di nuovo l'elenco.
+     * </p>
+     *
+     * @param url l'URL completo della richiesta
+     * @return il corpo JSON, ricevuto o memorizzato
+     * @throws IOException se la richiesta fallisce o il server risponde con un errore
+     */
+    private String getJson(HttpUrl url) throws IOException {
+        String key = url.toString();
+        ConditionalResponseCache.Entry cached = responseCache.get(key);
+
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(url)
+                .get();
+        if (cached != null) {
+            requestBuilder.header("If-None-Match", cached.getEtag());
+        }
+
+        try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+            if (response.code() == 304 && cached != null) {
+                return cached.getBody();
+            }
             if (response.isSuccessful() && response.body() != null) {
                 String jsonResponse = response.body().string();
-                List<Book> books = objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
-                System.out.println("Caricati " + books.size() + " libri dal server");
-                return books;
-            } else {
-                throw new IOException("Errore nella risposta del server: " + response.code());
+                responseCache.put(key, response.header("ETag"), jsonResponse);
+                return jsonResponse;
             }
+            throw new IOException("Errore nella risposta del server: " + response.code());
         }
     }
 
@@ -189,6 +240,59 @@ public class BookService {
         }
     }
 
+    /**
+     * Recupera i dettagli di più libri con una sola richiesta al server.
+     * <p>
+     * I libri vengono restituiti nell'ordine degli ISBN indicati; gli ISBN non presenti
+     * nel catalogo vengono omessi.
+     * </p>
+     *
+     * @param isbns gli ISBN dei libri da recuperare
+     * @return la lista dei libri trovati
+     * @throws IOException se si verifica un errore durante la richiesta HTTP
+     */
+    public List<Book> getBooksByIsbns(List<String> isbns) throws IOException {
+        if (isbns == null || isbns.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String requestBody = objectMapper.writeValueAsString(isbns);
+        Request request = new Request.Builder()
+                .url(SERVER_BASE_URL + "/books/batch")
+                .post(RequestBody.create(requestBody, MediaType.get("application/json")))
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                String jsonResponse = response.body().string();
+                return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
+            } else {
+                throw new IOException("Errore nella risposta del server: " + response.code());
+            }
+        }
+    }
+
+    /**
+     * Recupera in modo asincrono i dettagli di più libri con una sola richiesta al server.
+     * <p>
+     * In caso di errore, restituisce una lista vuota anziché propagare l'eccezione.
+     * </p>
+     *
+     * @param isbns gli ISBN dei libri da recuperare
+     * @return un {@link CompletableFuture} che si risolve con la lista dei libri trovati
+     * @see #getBooksByIsbns(List)
+     */
+    public CompletableFuture<List<Book>> getBooksByIsbnsAsync(List<String> isbns) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getBooksByIsbns(isbns);
+            } catch (Exception e) {
+                System.err.println("Errore nel recupero multiplo dei libri: " + e.getMessage());
+                return new ArrayList<>();
+            }
+        });
+    }
+
     /**
      * Ricerca libri in modo asincrono utilizzando una query generica.
      * <p>
@@ -293,65 +397,132 @@ public class BookService {
     }
 
     /**
-     * Ricerca libri per categoria in modo asincrono.
+     * Recupera una pagina dei libri di una categoria in modo asincrono.
      * <p>
      * Permette di filtrare i libri per una specifica categoria. La ricerca
      * è case-insensitive e supporta match esatti sul nome della categoria.
+     * Come per il catalogo, la pagina successiva va richiesta passando il cursore
+     * {@link BookPageResponse#getNextCursor()} solo quando serve mostrarla.
      * </p>
      *
      * @param categoryName il nome della categoria da cercare
-     * @return un {@link CompletableFuture} che si risolve con la lista dei libri della categoria
+     * @param after il cursore della pagina precedente, o {@code null} per la prima pagina
+     * @return un {@link CompletableFuture} che si risolve con la pagina dei libri della categoria;
+     *         in caso di errore la pagina è vuota e senza cursore
      */
-    public CompletableFuture<List<Book>> searchBooksByCategoryAsync(String categoryName) {
+    public CompletableFuture<BookPageResponse> searchBooksByCategoryAsync(String categoryName, String after) {
         System.out.println("Client: Ricerca libri per categoria: " + categoryName);
 
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpUrl url = HttpUrl.parse(SERVER_BASE_URL + "/books/category")
+                HttpUrl.Builder urlBuilder = HttpUrl.parse(SERVER_BASE_URL + "/books/category")
                         .newBuilder()
                         .addQueryParameter("name", categoryName)
-                        .build();
-
-                System.out.println("[DEBUG] URL categoria: " + url.toString());
-
-                Request request = new Request.Builder()
-                        .url(url)
-                        .get()
-                        .build();
-
-                try (Response response = httpClient.newCall(request).execute()) {
-                    System.out.println("[DEBUG] Response categoria: " + response.code());
-
-                    if (response.isSuccessful() && response.body() != null) {
-                        String jsonResponse = response.body().string();
-                        List<Book> books = objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
-
-                        System.out.println("Trovati " + books.size() + " libri per categoria: " + categoryName);
-
-                        // Debug: mostra le categorie trovate
-                        if (!books.isEmpty()) {
-                            System.out.println("Prime categorie trovate:");
-                            for (int i = 0; i < Math.min(3, books.size()); i++) {
-                                Book book = books.get(i);
-                                System.out.println("  - " + book.getTitle() + " (Cat: " + book.getCategory() + ")");
-                            }
-                        }
-
-                        return books;
-                    } else {
-                        String errorBody = response.body() != null ? response.body().string() : "No body";
-                        System.out.println("Errore server categoria " + response.code() + ": " + errorBody);
-                        return new ArrayList<>();
-                    }
+                        .addQueryParameter("limit", String.valueOf(PAGE_SIZE));
+                if (after != null) {
+                    urlBuilder.addQueryParameter("after", after);
                 }
+
+                String jsonResponse = getJson(urlBuilder.build());
+                BookPageResponse page = objectMapper.readValue(jsonResponse, BookPageResponse.class);
+
+                System.out.println("Trovati " + page.getBooks().size() + " libri per categoria: " + categoryName);
+                return page;
             } catch (Exception e) {
                 System.err.println("Errore ricerca categoria: " + e.getMessage());
-                e.printStackTrace();
-                return new ArrayList<>();
+                return new BookPageResponse(new ArrayList<>(), null);
+            }
+        });
+    }
+
+    /**
+     * Recupera tutte le sezioni della home con una sola richiesta, in modo asincrono.
+     * <p>
+     * Le sezioni (in evidenza, consigliati, nuove uscite e classifiche) sono costruite dal
+     * server a partire dalla stessa istantanea del catalogo. In caso di errore il future si
+     * risolve con {@code null} e il chiamante può ricorrere alle richieste delle singole sezioni.
+     * </p>
+     *
+     * @return un {@link CompletableFuture} che si risolve con le sezioni della home, o {@code null}
+     * @see #getHomeFeed()
+     */
+    public CompletableFuture<HomeFeedResponse> getHomeFeedAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getHomeFeed();
+            } catch (Exception e) {
+                System.err.println("Errore durante il recupero della home: " + e.getMessage());
+                return null;
             }
         });
     }
 
+    /**
+     * Recupera tutte le sezioni della home con una sola richiesta, in modo sincrono.
+     *
+     * @return le sezioni della home
+     * @throws IOException se si verifica un errore durante la richiesta HTTP
+     */
+    public HomeFeedResponse getHomeFeed() throws IOException {
+        String jsonResponse = getJson(HttpUrl.parse(SERVER_BASE_URL + "/home"));
+        return objectMapper.readValue(jsonResponse, HomeFeedResponse.class);
+    }
+
+    /**
+     * Recupera con una sola richiesta tutti i dati della finestra di dettaglio di un libro, in
+     * modo asincrono.
+     * <p>
+     * La risposta include statistiche, recensioni e raccomandazioni del libro e, se è indicato
+     * un utente, la sua valutazione e il possesso del libro. Le sezioni non disponibili valgono
+     * {@code null}; in caso di errore il future si risolve con {@code null} e il chiamante può
+     * ricorrere alle richieste dedicate.
+     * </p>
+     *
+     * @param isbn l'ISBN del libro
+     * @param username l'utente che apre la finestra, {@code null} se non autenticato
+     * @return un {@link CompletableFuture} che si risolve con i dati del libro, o {@code null}
+     * @see #getBookDetails(String, String)
+     */
+    public CompletableFuture<BookDetailsResponse> getBookDetailsAsync(String isbn, String username) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getBookDetails(isbn, username);
+            } catch (Exception e) {
+                System.err.println("Errore durante il recupero dei dettagli del libro: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Recupera tutti i dati della finestra di dettaglio di un libro, in modo sincrono.
+     *
+     * @param isbn l'ISBN del libro
+     * @param username l'utente che apre la finestra, {@code null} se non autenticato
+     * @return i dati del libro
+     * @throws IOException se si verifica un errore durante la richiesta HTTP
+     */
+    public BookDetailsResponse getBookDetails(String isbn, String username) throws IOException {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(SERVER_BASE_URL + "/books").newBuilder()
+                .addPathSegment(isbn)
+                .addPathSegment("details");
+        if (username != null && !username.trim().isEmpty()) {
+            urlBuilder.addQueryParameter("username", username);
+        }
+
+        Request request = new Request.Builder()
+                .url(urlBuilder.build())
+                .get()
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.isSuccessful() && response.body() != null) {
+                return objectMapper.readValue(response.body().string(), BookDetailsResponse.class);
+            }
+            throw new IOException("Errore nella risposta del server: " + response.code());
+        }
+    }
+
     /**
      * Recupera i libri in evidenza per la sezione home in modo asincrono.
      * <p>
@@ -380,19 +551,8 @@ public class BookService {
      * @throws IOException se si verifica un errore durante la richiesta HTTP
      */
     public List<Book> getFeaturedBooks() throws IOException {
-        Request request = new Request.Builder()
-                .url(SERVER_BASE_URL + "/books/featured")
-                .get()
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                String jsonResponse = response.body().string();
-                return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
-            } else {
-                throw new IOException("Errore nella risposta del server: " + response.code());
-            }
-        }
+        String jsonResponse = getJson(HttpUrl.parse(SERVER_BASE_URL + "/books/featured"));
+        return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
     }
 
     /**
@@ -423,19 +583,8 @@ public class BookService {
      * @throws IOException se si verifica un errore durante la richiesta HTTP
      */
     public List<Book> getSuggestedBooks() throws IOException {
-        Request request = new Request.Builder()
-                .url(SERVER_BASE_URL + "/books/free")
-                .get()
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                String jsonResponse = response.body().string();
-                return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
-            } else {
-                throw new IOException("Errore nella risposta del server: " + response.code());
-            }
-        }
+        String jsonResponse = getJson(HttpUrl.parse(SERVER_BASE_URL + "/books/free"));
+        return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
     }
 
     /**
@@ -466,19 +615,8 @@ public class BookService {
      * @throws IOException se si verifica un errore durante la richiesta HTTP
      */
     public List<Book> getNewReleases() throws IOException {
-        Request request = new Request.Builder()
-                .url(SERVER_BASE_URL + "/books/new-releases")
-                .get()
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                String jsonResponse = response.body().string();
-                return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
-            } else {
-                throw new IOException("Errore nella risposta del server: " + response.code());
-            }
-        }
+        String jsonResponse = getJson(HttpUrl.parse(SERVER_BASE_URL + "/books/new-releases"));
+        return objectMapper.readValue(jsonResponse, new TypeReference<List<Book>>() {});
     }
 
     /**
@@ -5,6 +5,7 @@ import org.BABO.shared.dto.Rating.RatingRequest;
 import org.BABO.shared.dto.Rating.RatingResponse;
 import org.BABO.shared.model.Book;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -107,6 +108,12 @@ public class ClientRatingService {
     /** Mapper JSON per serializzazione/deserializzazione */
     private final ObjectMapper objectMapper;
 
+    /**
+     * Ultime risposte delle classifiche, riusate quando il server risponde 304. Condivise tra
+     * le istanze del servizio perché le classifiche non dipendono dall'utente.
+     */
+    private static final ConditionalResponseCache rankingCache = new ConditionalResponseCache();
+
     /**
      * Costruttore del servizio per le valutazioni.
      * <p>
@@ -467,6 +474,44 @@ public class ClientRatingService {
         });
     }
 
+    /**
+     * Esegue una richiesta GET condizionale per una classifica e ne restituisce il corpo JSON.
+     * <p>
+     * Se è disponibile una copia della risposta precedente, la richiesta include il suo ETag
+     * in {@code If-None-Match}: quando il server risponde 304 (classifica non cambiata) viene
+     * restituita la copia, senza scaricare di nuovo l'elenco.
+     * </p>
+     *
+     * @param url l'URL completo della classifica
+     * @return il corpo JSON, ricevuto o memorizzato, o {@code null} se il server risponde con un errore
+     * @throws IOException se la richiesta fallisce
+     * @throws InterruptedException se il thread viene interrotto durante l'attesa
+     */
+    private String getRankingJson(String url) throws IOException, InterruptedException {
+        ConditionalResponseCache.Entry cached = rankingCache.get(url);
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .GET();
+        if (cached != null) {
+            requestBuilder.header("If-None-Match", cached.getEtag());
+        }
+
+        HttpResponse<String> response = httpClient.send(requestBuilder.build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() == 304 && cached != null) {
+            return cached.getBody();
+        }
+        if (response.statusCode() == 200) {
+            rankingCache.put(url, response.headers().firstValue("ETag").orElse(null), response.body());
+            return response.body();
+        }
+
+        System.out.println("Errore server: " + response.body());
+        return null;
+    }
+
     /**
      * Recupera la classifica dei libri più recensiti del sistema.
      * <p>
@@ -489,22 +534,15 @@ public class ClientRatingService {
             try {
                 String url = BASE_URL + "/most-reviewed-books";
 
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request,
-                        HttpResponse.BodyHandlers.ofString());
+                String json = getRankingJson(url);
 
-                if (response.statusCode() == 200) {
-                    Book[] booksArray = objectMapper.readValue(response.body(), Book[].class);
+                if (json != null) {
+                    Book[] booksArray = objectMapper.readValue(json, Book[].class);
                     List<Book> books = Arrays.asList(booksArray);
 
                     System.out.println("Libri più recensiti recuperati: " + books.size());
                     return books;
                 } else {
-                    System.out.println("Errore server: " + response.body());
                     return new ArrayList<>();
                 }
 
@@ -538,22 +576,15 @@ public class ClientRatingService {
             try {
                 String url = BASE_URL + "/best-rated-books";
 
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request,
-                        HttpResponse.BodyHandlers.ofString());
+                String json = getRankingJson(url);
 
-                if (response.statusCode() == 200) {
-                    Book[] booksArray = objectMapper.readValue(response.body(), Book[].class);
+                if (json != null) {
+                    Book[] booksArray = objectMapper.readValue(json, Book[].class);
                     List<Book> books = Arrays.asList(booksArray);
 
                     System.out.println("Libri meglio valutati recuperati: " + books.size());
                     return books;
                 } else {
-                    System.out.println("Errore server: " + response.body());
                     return new ArrayList<>();
                 }
 
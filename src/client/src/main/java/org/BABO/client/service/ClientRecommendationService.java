@@ -41,6 +41,7 @@ import java.util.concurrent.CompletableFuture;
  * <ul>
  *   <li>{@code POST /api/recommendations/add} - Aggiunge una nuova raccomandazione</li>
  *   <li>{@code GET /api/recommendations/book/{isbn}} - Recupera raccomandazioni per un libro</li>
+ *   <li>{@code GET /api/recommendations/book/{isbn}/top} - Classifica dei libri più consigliati per un libro</li>
  *   <li>{@code GET /api/recommendations/can-recommend/{username}/{isbn}} - Verifica permessi</li>
  *   <li>{@code GET /api/recommendations/user/{username}/book/{isbn}} - Raccomandazioni utente per libro</li>
  *   <li>{@code DELETE /api/recommendations/remove} - Rimuove una raccomandazione specifica</li>
@@ -249,6 +250,51 @@ public class ClientRecommendationService {
         });
     }
 
+    /**
+     * Recupera la classifica dei libri più consigliati per un libro specifico.
+     * <p>
+     * I libri sono restituiti in ordine di classifica, dal più consigliato; il numero di
+     * utenti che hanno consigliato ciascun libro è disponibile in
+     * {@link RecommendationResponse#getRecommendationCounts()}.
+     * </p>
+     *
+     * @param isbn il codice ISBN del libro target
+     * @param limit il numero massimo di libri (1-50)
+     * @return un {@link CompletableFuture} che si risolve con {@link RecommendationResponse}
+     *         contenente i libri più consigliati e i relativi conteggi
+     * @throws IllegalArgumentException se isbn è {@code null}
+     */
+    public CompletableFuture<RecommendationResponse> getTopBookRecommendationsAsync(String isbn, int limit) {
+        if (isbn == null) {
+            throw new IllegalArgumentException("L'ISBN non può essere null");
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                String url = BASE_URL + "/book/" + encodeUrl(isbn) + "/top?limit=" + limit;
+
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(url))
+                        .GET()
+                        .build();
+
+                HttpResponse<String> response = httpClient.send(request,
+                        HttpResponse.BodyHandlers.ofString());
+
+                if (response.statusCode() == 200) {
+                    return objectMapper.readValue(response.body(), RecommendationResponse.class);
+                } else {
+                    System.out.println("Errore server: " + response.body());
+                    return new RecommendationResponse(false, "Errore server: " + response.statusCode());
+                }
+
+            } catch (Exception e) {
+                System.err.println("Errore nel recupero classifica raccomandazioni: " + e.getMessage());
+                return new RecommendationResponse(false, "Errore di connessione: " + e.getMessage());
+            }
+        });
+    }
+
     /**
      * Verifica se un utente è autorizzato a creare raccomandazioni per un libro specifico.
      * <p>
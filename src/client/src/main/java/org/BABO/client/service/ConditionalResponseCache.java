@@ -0,0 +1,74 @@
+package org.BABO.client.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copie delle ultime risposte ricevute dal server, con il relativo ETag.
+ * <p>
+ * I servizi client inviano l'ETag memorizzato nell'intestazione {@code If-None-Match}: se i
+ * dati non sono cambiati il server risponde 304 senza corpo e il servizio riusa la copia
+ * memorizzata. Le copie sono indicizzate per URL completo (parametri inclusi) e le meno
+ * usate di recente vengono scartate oltre {@link #MAX_ENTRIES}.
+ * </p>
+ *
+ * @author BABO Team
+ * @version 1.0
+ * @since 1.0
+ */
+final class ConditionalResponseCache {
+
+    /** Numero massimo di risposte memorizzate */
+    static final int MAX_ENTRIES = 256;
+
+    /**
+     * Risposta memorizzata: ETag e corpo JSON.
+     */
+    static final class Entry {
+        private final String etag;
+        private final String body;
+
+        private Entry(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getBody() {
+            return body;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @param url l'URL della richiesta
+     * @return la risposta memorizzata, o {@code null} se non presente
+     */
+    synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    /**
+     * Memorizza una risposta 200. Le risposte senza ETag non vengono memorizzate.
+     *
+     * @param url l'URL della richiesta
+     * @param etag l'ETag restituito dal server, anche {@code null}
+     * @param body il corpo JSON della risposta
+     */
+    synchronized void put(String url, String etag, String body) {
+        if (etag == null || etag.isEmpty()) {
+            entries.remove(url);
+        } else {
+            entries.put(url, new Entry(etag, body));
+        }
+    }
+}
@@ -169,6 +169,28 @@ public class AdminPanel {
      */
     private ObservableList<Book> allBooksData;
 
+    /**
+     * Il numero di libri richiesti al server per ogni pagina del catalogo.
+     */
+    private static final int BOOKS_PAGE_SIZE = 100;
+
+    /**
+     * Il contatore dei caricamenti del catalogo, usato per scartare le pagine
+     * di un caricamento sostituito da uno più recente.
+     */
+    private int booksLoadGeneration;
+
+    /**
+     * Il cursore della pagina successiva del catalogo, {@code null} se sono state
+     * caricate tutte.
+     */
+    private String booksNextCursor;
+
+    /**
+     * Il pulsante che carica, su richiesta, la pagina successiva del catalogo.
+     */
+    private Button loadMoreBooksButton;
+
     /**
      * Il campo di testo utilizzato per l'inserimento della stringa di ricerca.
      */
@@ -947,22 +969,23 @@ public class AdminPanel {
     }
 
     /**
-     * Carica in modo asincrono l'intero catalogo di libri dal servizio di amministrazione.
+     * Carica in modo asincrono la prima pagina del catalogo dal servizio di amministrazione.
      * <p>
-     * Questo metodo avvia una richiesta non bloccante al servizio {@link AdminService} per
-     * recuperare tutti i libri presenti nel database. L'utilizzo di {@link CompletableFuture}
-     * garantisce che l'interfaccia utente rimanga reattiva durante l'operazione di rete.
+     * Il catalogo viene richiesto a pagine di {@link #BOOKS_PAGE_SIZE} libri tramite
+     * {@link AdminService#getBooksPageAsync(String, String, int)}. Le pagine successive
+     * vengono richieste solo quando l'amministratore preme "Carica altri", così che né il
+     * server né il client debbano mai tenere in una volta l'intero catalogo. L'utilizzo di
+     * {@link CompletableFuture} garantisce che l'interfaccia utente rimanga reattiva.
      * </p>
      * <p>
-     * Il metodo gestisce sia il successo che il fallimento della richiesta. In caso di successo,
-     * i dati vengono salvati nella lista locale {@code allBooksData} e poi copiati in
-     * {@code booksData} per la visualizzazione nella tabella. Infine, aggiorna il
-     * messaggio di stato e la UI per riflettere il risultato dell'operazione. Se si verifica
-     * un errore, sia dal servizio che di connessione, un messaggio di errore viene
+     * Se il caricamento viene riavviato (ad esempio con il pulsante di aggiornamento) mentre
+     * è ancora in corso, le pagine del caricamento precedente vengono ignorate. In caso di
+     * errore, sia dal servizio che di connessione, un messaggio di errore viene
      * visualizzato per fornire un feedback chiaro all'amministratore.
      * </p>
      *
-     * @see AdminService#getAllBooksAsync(String)
+     * @see #loadBooksPage(String, String, int)
+     * @see #loadMoreBooks()
      * @see Platform#runLater(Runnable)
      * @see #statusLabel
      * @see #booksData
@@ -975,20 +998,81 @@ public class AdminPanel {
 
         String adminEmail = authManager.getCurrentUser().getEmail();
 
-        adminService.getAllBooksAsync(adminEmail)
+        allBooksData.clear();
+        booksData.clear();
+        booksNextCursor = null;
+
+        loadBooksPage(adminEmail, null, ++booksLoadGeneration);
+    }
+
+    /**
+     * Carica la pagina successiva del catalogo, se ne esiste una.
+     * <p>
+     * I libri vengono accodati a quelli già presenti nella tabella; il filtro di ricerca
+     * corrente si applica anche ai nuovi libri.
+     * </p>
+     *
+     * @see #loadBooksPage(String, String, int)
+     */
+    private void loadMoreBooks() {
+        if (booksNextCursor == null) {
+            return;
+        }
+
+        statusLabel.setText("📚 Caricamento libri...");
+        statusLabel.setTextFill(Color.ORANGE);
+
+        String adminEmail = authManager.getCurrentUser().getEmail();
+        loadBooksPage(adminEmail, booksNextCursor, booksLoadGeneration);
+    }
+
+    /**
+     * Richiede una pagina del catalogo e ne memorizza il cursore della pagina successiva.
+     * <p>
+     * I libri della pagina vengono aggiunti a {@link #allBooksData} e, se soddisfano il
+     * filtro di ricerca corrente, anche a {@link #booksData}. Il pulsante "Carica altri"
+     * resta disabilitato durante la richiesta e viene riabilitato solo se esistono altre pagine.
+     * </p>
+     *
+     * @param adminEmail l'email dell'amministratore che esegue il caricamento
+     * @param cursor il cursore della pagina da richiedere, o {@code null} per la prima
+     * @param generation il caricamento a cui appartiene la richiesta
+     */
+    private void loadBooksPage(String adminEmail, String cursor, int generation) {
+        if (loadMoreBooksButton != null) {
+            loadMoreBooksButton.setDisable(true);
+        }
+
+        adminService.getBooksPageAsync(adminEmail, cursor, BOOKS_PAGE_SIZE)
                 .thenAccept(response -> Platform.runLater(() -> {
+                    if (generation != booksLoadGeneration) {
+                        return;
+                    }
+
                     if (response.isSuccess()) {
-                        allBooksData.clear();
-                        if (response.getBooks() != null) {
-                            allBooksData.addAll(response.getBooks());
-                        }
+                        List<Book> page = response.getBooks() != null ? response.getBooks() : List.of();
+                        allBooksData.addAll(page);
 
-                        booksData.clear();
-                        booksData.addAll(allBooksData);
+                        String searchText = searchField != null ? searchField.getText() : null;
+                        if (searchText == null || searchText.trim().isEmpty()) {
+                            booksData.addAll(page);
+                        } else {
+                            String lowerSearchText = searchText.toLowerCase().trim();
+                            for (Book book : page) {
+                                if (matchesSearch(book, lowerSearchText)) {
+                                    booksData.add(book);
+                                }
+                            }
+                        }
 
                         updateResultsInfo();
 
-                        statusLabel.setText("✅ " + allBooksData.size() + " libri caricati");
+                        booksNextCursor = response.getNextCursor();
+                        if (booksNextCursor != null) {
+                            statusLabel.setText("✅ " + allBooksData.size() + " libri caricati, altri disponibili");
+                        } else {
+                            statusLabel.setText("✅ " + allBooksData.size() + " libri caricati");
+                        }
                         statusLabel.setTextFill(Color.LIGHTGREEN);
 
                     } else {
@@ -996,9 +1080,11 @@ public class AdminPanel {
                         statusLabel.setTextFill(Color.RED);
                         showAlert("Errore", "Impossibile caricare i libri: " + response.getMessage());
                     }
+                    updateLoadMoreBooksButton();
                 }))
                 .exceptionally(throwable -> {
                     Platform.runLater(() -> {
+                        updateLoadMoreBooksButton();
                         statusLabel.setText("❌ Errore di connessione");
                         statusLabel.setTextFill(Color.RED);
                         showAlert("Errore", "Errore di connessione: " + throwable.getMessage());
@@ -1007,6 +1093,15 @@ public class AdminPanel {
                 });
     }
 
+    /**
+     * Abilita il pulsante "Carica altri" solo se esiste una pagina successiva del catalogo.
+     */
+    private void updateLoadMoreBooksButton() {
+        if (loadMoreBooksButton != null) {
+            loadMoreBooksButton.setDisable(booksNextCursor == null);
+        }
+    }
+
     /**
      * Gestisce il processo di eliminazione di un libro selezionato dalla tabella.
      * <p>
@@ -1680,7 +1775,12 @@ public class AdminPanel {
 
             createBooksTable();
 
-            container.getChildren().addAll(tableTitle, addBookButton, searchContainer, booksTable);
+            loadMoreBooksButton = new Button("⬇️ Carica altri");
+            styleButton(loadMoreBooksButton, "#4a86e8");
+            loadMoreBooksButton.setOnAction(e -> loadMoreBooks());
+            loadMoreBooksButton.setDisable(true);
+
+            container.getChildren().addAll(tableTitle, addBookButton, searchContainer, booksTable, loadMoreBooksButton);
             currentContent.getChildren().add(container);
 
             HBox statusBar = createStatusBar();
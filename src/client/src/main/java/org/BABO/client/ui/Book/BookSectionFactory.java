@@ -1,6 +1,8 @@
 package org.BABO.client.ui.Book;
 
 import org.BABO.client.service.BookService;
+import org.BABO.shared.dto.Book.BookPageResponse;
+import org.BABO.shared.dto.Book.HomeFeedResponse;
 import org.BABO.shared.model.Book;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -17,6 +19,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Factory per la creazione e gestione di sezioni di libri con layout adattivo nell'applicazione BABO.
@@ -174,6 +178,9 @@ public class BookSectionFactory {
     /** Callback specifico per risultati di ricerca */
     private Consumer<List<Book>> searchResultsCallback;
 
+    /** Risposta della home da cui leggere le sezioni, {@code null} per richiederle singolarmente */
+    private CompletableFuture<HomeFeedResponse> homeFeed;
+
     /**
      * Costruttore della factory per sezioni di libri.
      * <p>
@@ -290,6 +297,41 @@ public class BookSectionFactory {
         this.searchResultsCallback = callback;
     }
 
+    /**
+     * Imposta la risposta della home da cui leggere le sezioni create successivamente.
+     * <p>
+     * Con una risposta impostata le sezioni featured, free e new vengono popolate dalla stessa
+     * richiesta {@code /api/home} invece che da una richiesta ciascuna. Se la risposta non
+     * arriva, ogni sezione ricorre alla propria richiesta.
+     * </p>
+     *
+     * @param homeFeed la risposta della home in arrivo, o {@code null} per richiedere le
+     *                 sezioni singolarmente
+     * @see BookService#getHomeFeedAsync()
+     */
+    public void setHomeFeed(CompletableFuture<HomeFeedResponse> homeFeed) {
+        this.homeFeed = homeFeed;
+    }
+
+    /**
+     * Restituisce i libri di una sezione dalla risposta della home, se impostata e ricevuta,
+     * altrimenti con la richiesta della singola sezione.
+     *
+     * @param section la sezione da leggere dalla risposta della home
+     * @param fallback la richiesta della singola sezione
+     * @return i libri della sezione
+     */
+    private CompletableFuture<List<Book>> sectionBooks(Function<HomeFeedResponse, List<Book>> section,
+                                                       Supplier<CompletableFuture<List<Book>>> fallback) {
+        if (homeFeed == null) {
+            return fallback.get();
+        }
+        return homeFeed.thenCompose(feed -> {
+            List<Book> books = feed != null ? section.apply(feed) : null;
+            return books != null ? CompletableFuture.completedFuture(books) : fallback.get();
+        });
+    }
+
     /**
      * Crea una sezione di libri con layout FlowPane standardizzato.
      * <p>
@@ -408,19 +450,20 @@ public class BookSectionFactory {
 
         switch (sectionType) {
             case "free":
-                future = bookService.getSuggestedBooksAsync();
+                future = sectionBooks(HomeFeedResponse::getFreeBooks, bookService::getSuggestedBooksAsync);
                 specificCallback = freeBooksCallback;
                 break;
             case "new":
-                future = bookService.getNewReleasesAsync();
+                future = sectionBooks(HomeFeedResponse::getNewReleases, bookService::getNewReleasesAsync);
                 specificCallback = newBooksCallback;
                 break;
             case "featured":
-                future = bookService.getFeaturedBooksAsync();
+                future = sectionBooks(HomeFeedResponse::getFeaturedBooks, bookService::getFeaturedBooksAsync);
                 specificCallback = featuredBooksCallback;
                 break;
             default:
-                future = bookService.getAllBooksAsync();
+                // Sezione generica: solo la prima pagina del catalogo, non l'intero elenco
+                future = bookService.getBooksPageAsync(null).thenApply(BookPageResponse::getBooks);
                 specificCallback = null;
                 break;
         }
@@ -512,7 +555,7 @@ public class BookSectionFactory {
         container.getChildren().add(loadingBox);
 
         // Load featured book with callback
-        bookService.getFeaturedBooksAsync()
+        sectionBooks(HomeFeedResponse::getFeaturedBooks, bookService::getFeaturedBooksAsync)
                 .thenAccept(books -> {
                     Platform.runLater(() -> {
                         // Notifica callback
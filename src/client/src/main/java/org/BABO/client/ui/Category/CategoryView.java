@@ -167,6 +167,15 @@ public class CategoryView {
     /** Lista cache dei libri della categoria corrente per navigazione */
     private List<Book> categoryBooks = new ArrayList<>();
 
+    /** Cursore della pagina successiva della categoria, {@code null} se sono state caricate tutte */
+    private String nextCursor;
+
+    /** Griglia dei libri, creata con la prima pagina e ampliata dalle successive */
+    private FlowPane booksGrid;
+
+    /** Intestazione con il numero di libri caricati */
+    private Label resultsHeader;
+
     /** Manager di autenticazione per controllo permessi */
     private AuthenticationManager authManager;
 
@@ -280,6 +289,13 @@ public class CategoryView {
         scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
         scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
 
+        // Carica la pagina successiva quando l'utente arriva in fondo alla vista
+        scrollPane.vvalueProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue.doubleValue() >= scrollPane.getVmax() - 0.05) {
+                loadMoreBooks();
+            }
+        });
+
         return scrollPane;
     }
 
@@ -455,11 +471,13 @@ public class CategoryView {
     }
 
     /**
-     * Carica asincrono i libri della categoria tramite BookService.
+     * Carica asincrono la prima pagina dei libri della categoria tramite BookService.
      * <p>
      * Esegue una ricerca filtrata per categoria utilizzando il servizio
      * libri, gestisce stati di loading per prevenire chiamate multiple,
-     * e processa i risultati nel JavaFX Application Thread.
+     * e processa i risultati nel JavaFX Application Thread. Le pagine
+     * successive vengono richieste da {@link #loadMoreBooks()} solo quando
+     * l'utente scorre fino in fondo alla vista.
      * </p>
      *
      * <h4>Flusso di esecuzione:</h4>
@@ -478,10 +496,30 @@ public class CategoryView {
      *   <li><strong>Errore:</strong> Logging errore e reset stato</li>
      * </ul>
      *
-     * @see BookService#searchBooksByCategoryAsync(String)
+     * @see BookService#searchBooksByCategoryAsync(String, String)
      * @see #displayBooks(List)
      */
     private void loadCategoryBooks() {
+        loadCategoryPage(null);
+    }
+
+    /**
+     * Carica la pagina successiva della categoria, se ne esiste una.
+     *
+     * @see #appendBooks(List)
+     */
+    private void loadMoreBooks() {
+        if (nextCursor != null) {
+            loadCategoryPage(nextCursor);
+        }
+    }
+
+    /**
+     * Richiede una pagina dei libri della categoria e la aggiunge alla vista.
+     *
+     * @param after il cursore della pagina precedente, o {@code null} per la prima pagina
+     */
+    private void loadCategoryPage(String after) {
         if (isLoading) {
             return;
         }
@@ -489,13 +527,17 @@ public class CategoryView {
         isLoading = true;
         System.out.println("🎭 Caricamento libri per categoria: " + category.getName());
 
-        bookService.searchBooksByCategoryAsync(category.getName())
-                .thenAccept(books -> {
+        bookService.searchBooksByCategoryAsync(category.getName(), after)
+                .thenAccept(page -> {
                     Platform.runLater(() -> {
-                        if (!books.isEmpty()) {
+                        List<Book> books = page.getBooks();
+                        nextCursor = page.getNextCursor();
+                        if (after != null) {
+                            appendBooks(books);
+                        } else if (!books.isEmpty()) {
                             displayBooks(books);
-                            System.out.println("✅ Caricati " + books.size() + " libri per categoria " + category.getName());
                         }
+                        System.out.println("✅ Caricati " + books.size() + " libri per categoria " + category.getName());
                         isLoading = false;
                     });
                 })
@@ -556,13 +598,14 @@ public class CategoryView {
         this.categoryBooks = new ArrayList<>(books);
 
         // Intestazione risultati
-        Label resultsHeader = new Label(books.size() + " libri trovati");
+        resultsHeader = new Label();
+        updateResultsHeader();
         resultsHeader.setFont(Font.font("System", FontWeight.BOLD, 24));
         resultsHeader.setTextFill(Color.WHITE);
         resultsHeader.setPadding(new Insets(20, 0, 20, 0));
         content.getChildren().add(resultsHeader);
 
-        FlowPane booksGrid = new FlowPane();
+        booksGrid = new FlowPane();
         booksGrid.setHgap(20);
         booksGrid.setVgap(25);
         booksGrid.setAlignment(Pos.CENTER_LEFT);
@@ -579,6 +622,38 @@ public class CategoryView {
         content.getChildren().add(booksGrid);
     }
 
+    /**
+     * Aggiunge alla griglia i libri di una pagina successiva della categoria.
+     * <p>
+     * I libri vengono aggiunti anche alla lista usata per la navigazione
+     * contestuale nei dettagli del libro.
+     * </p>
+     *
+     * @param books i libri della pagina
+     */
+    private void appendBooks(List<Book> books) {
+        if (booksGrid == null || books.isEmpty()) {
+            return;
+        }
+
+        categoryBooks.addAll(books);
+        for (Book book : books) {
+            booksGrid.getChildren().add(createBookCard(book));
+        }
+        updateResultsHeader();
+    }
+
+    /**
+     * Aggiorna l'intestazione con il numero di libri caricati.
+     */
+    private void updateResultsHeader() {
+        String text = categoryBooks.size() + " libri trovati";
+        if (nextCursor != null) {
+            text += " (scorri per caricarne altri)";
+        }
+        resultsHeader.setText(text);
+    }
+
     /**
      * Crea una book card interattiva per un singolo libro.
      * <p>
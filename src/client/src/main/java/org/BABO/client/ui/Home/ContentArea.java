@@ -699,6 +699,9 @@ public class ContentArea {
             content.getChildren().clear();
             System.out.println("🧹 Content pulito completamente");
 
+            // Una sola richiesta per tutte le sezioni della home
+            sectionFactory.setHomeFeed(serverAvailable ? bookService.getHomeFeedAsync() : null);
+
             // Sezioni principali
             content.getChildren().addAll(
                     sectionFactory.createFeaturedSection(),
@@ -4,6 +4,7 @@ import org.BABO.client.service.ClientRatingService;
 import org.BABO.client.ui.BooksClient;
 import org.BABO.client.ui.Authentication.AuthenticationManager;
 import org.BABO.client.ui.Category.CategoryView;
+import org.BABO.shared.dto.Book.HomeFeedResponse;
 import org.BABO.shared.model.Book;
 import org.BABO.shared.model.Category;
 import org.BABO.client.service.BookService;
@@ -26,7 +27,10 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.effect.DropShadow;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Componente di integrazione per la sezione Esplora dell'applicazione BABO.
@@ -330,11 +334,15 @@ public class ExploreIntegration {
      * <p>
      * Ogni sezione viene inizializzata con placeholder e popolata
      * asincrono quando i dati sono disponibili, garantendo UI responsiva.
+     * Entrambe le classifiche sono lette da un'unica richiesta {@code /api/home};
+     * se non riesce, ogni classifica viene richiesta singolarmente.
      * </p>
      *
      * @param parent container VBox dove aggiungere le sezioni
      */
     private void createClassificheSection(VBox parent) {
+        CompletableFuture<HomeFeedResponse> homeFeed = bookService.getHomeFeedAsync();
+
         // PIÙ RECENSITI
         VBox mostReviewedSection = createChartSection(
                 "📊 Più recensiti",
@@ -342,7 +350,7 @@ public class ExploreIntegration {
         );
 
         System.out.println("🔍 DEBUG: Caricamento libri più recensiti...");
-        ratingService.getTopRatedBooksAsync()
+        rankingBooks(homeFeed, HomeFeedResponse::getMostReviewedBooks, ratingService::getTopRatedBooksAsync)
                 .thenAccept(books -> {
                     Platform.runLater(() -> {
                         System.out.println("🔍 DEBUG: Ricevuti " + books.size() + " libri più recensiti dal rating service");
@@ -372,7 +380,7 @@ public class ExploreIntegration {
         );
 
         System.out.println("🔍 DEBUG: Caricamento libri meglio valutati...");
-        ratingService.getBestRatedBooksAsync()
+        rankingBooks(homeFeed, HomeFeedResponse::getTopRatedBooks, ratingService::getBestRatedBooksAsync)
                 .thenAccept(books -> {
                     Platform.runLater(() -> {
                         System.out.println("🔍 DEBUG: Ricevuti " + books.size() + " libri meglio valutati dal rating service");
@@ -396,6 +404,24 @@ public class ExploreIntegration {
         parent.getChildren().add(topRatedSection);
     }
 
+    /**
+     * Restituisce i libri di una classifica dalla risposta della home, se ricevuta,
+     * altrimenti con la richiesta della singola classifica.
+     *
+     * @param homeFeed la risposta della home in arrivo
+     * @param ranking la classifica da leggere dalla risposta della home
+     * @param fallback la richiesta della singola classifica
+     * @return i libri della classifica
+     */
+    private static CompletableFuture<List<Book>> rankingBooks(CompletableFuture<HomeFeedResponse> homeFeed,
+                                                              Function<HomeFeedResponse, List<Book>> ranking,
+                                                              Supplier<CompletableFuture<List<Book>>> fallback) {
+        return homeFeed.thenCompose(feed -> {
+            List<Book> books = feed != null ? ranking.apply(feed) : null;
+            return books != null ? CompletableFuture.completedFuture(books) : fallback.get();
+        });
+    }
+
     /**
      * Crea una sezione classifiche con header e container per libri.
      * <p>
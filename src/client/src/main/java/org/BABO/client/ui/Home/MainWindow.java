@@ -1013,11 +1013,11 @@ public class MainWindow {
                 System.out.println("Server disponibile: " + (serverOk ? "✅" : "❌"));
 
                 if (serverOk) {
-                    // Test rapido caricamento libri
-                    bookService.getAllBooksAsync()
-                            .thenAccept(books -> {
-                                System.out.println("Test caricamento: " + books.size() + " libri disponibili");
-                                if (books.size() > 0) {
+                    // Test rapido caricamento della prima pagina del catalogo
+                    bookService.getBooksPageAsync(null)
+                            .thenAccept(page -> {
+                                System.out.println("Test caricamento: " + page.getBooks().size() + " libri nella prima pagina");
+                                if (page.getBooks().size() > 0) {
                                     System.out.println("✅ Sistema funzionante - libri caricati dal database");
                                 } else {
                                     System.out.println("⚠️ Sistema carica solo libri di fallback");
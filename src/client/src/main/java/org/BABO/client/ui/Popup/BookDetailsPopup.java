@@ -11,13 +11,16 @@ import org.BABO.client.ui.Home.IconUtils;
 import org.BABO.client.ui.Home.ImageUtils;
 import org.BABO.client.ui.Rating.RatingDialog;
 import org.BABO.client.ui.Recommendation.RecommendationDialog;
+import org.BABO.shared.dto.Book.BookDetailsResponse;
 import org.BABO.shared.dto.Library.LibraryResponse;
+import org.BABO.shared.dto.Rating.RatingResponse;
 import org.BABO.shared.model.Book;
 import org.BABO.shared.dto.Recommendation.RecommendationRequest;
 import org.BABO.shared.dto.Recommendation.RecommendationResponse;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.BABO.shared.model.BookRating;
+import org.BABO.client.service.BookService;
 import org.BABO.client.service.LibraryService;
 import org.BABO.client.service.ClientRatingService;
 import org.BABO.client.service.ClientRecommendationService;
@@ -47,6 +50,9 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Componente popup per la visualizzazione dei dettagli di un libro.
@@ -188,6 +194,19 @@ public class BookDetailsPopup {
      */
     private static ScrollPane currentRecommendationsScrollPane = null;
 
+    /**
+     * Un'istanza del servizio {@link org.BABO.client.service.BookService} usata per richiedere in un'unica risposta i dati del popup.
+     */
+    private static final BookService bookService = new BookService();
+    /**
+     * La richiesta in corso dei dati del libro visualizzato (statistiche, valutazione dell'utente, possesso, recensioni e raccomandazioni), usata al primo caricamento delle sezioni. È {@code null} se il libro non ha ISBN.
+     */
+    private static CompletableFuture<BookDetailsResponse> currentBookDetails = null;
+    /**
+     * L'ISBN del libro a cui si riferisce {@link #currentBookDetails}.
+     */
+    private static String currentBookDetailsIsbn = null;
+
     /**
      * Crea e restituisce un'istanza di {@link StackPane} per il popup dei dettagli di un singolo libro.
      * <p>
@@ -251,6 +270,57 @@ public class BookDetailsPopup {
         resetRatings();
         currentBook = book;
         currentAuthManager = authManager;
+        requestBookDetails(book);
+    }
+
+    /**
+     * Avvia la richiesta unica dei dati del libro, prima che le sezioni del popup vengano create.
+     * <p>
+     * Statistiche, valutazione dell'utente, possesso, recensioni e raccomandazioni arrivano con
+     * una sola chiamata a {@link BookService#getBookDetailsAsync(String, String)} invece di una
+     * per sezione. Le sezioni la usano solo al primo caricamento: gli aggiornamenti successivi
+     * (dopo un voto o una nuova raccomandazione) interrogano gli endpoint dedicati.
+     * </p>
+     *
+     * @param book il libro visualizzato
+     */
+    private static void requestBookDetails(Book book) {
+        if (isEmpty(book.getIsbn())) {
+            currentBookDetails = null;
+            currentBookDetailsIsbn = null;
+            return;
+        }
+
+        String username = currentAuthManager != null && currentAuthManager.isAuthenticated()
+                ? currentAuthManager.getCurrentUsername() : null;
+        currentBookDetailsIsbn = book.getIsbn();
+        currentBookDetails = bookService.getBookDetailsAsync(book.getIsbn(), username);
+    }
+
+    /**
+     * Restituisce una sezione dei dati del libro ricevuti con la richiesta unica.
+     * <p>
+     * Se la richiesta unica non riguarda il libro, è fallita o non contiene la sezione, la
+     * sezione viene richiesta all'endpoint dedicato tramite {@code request}.
+     * </p>
+     *
+     * @param book il libro di cui recuperare la sezione
+     * @param section estrae la sezione dalla risposta, {@code null} se non disponibile
+     * @param request richiede la sezione all'endpoint dedicato
+     * @param <T> il tipo della sezione
+     * @return un {@link CompletableFuture} che si risolve con la sezione
+     */
+    private static <T> CompletableFuture<T> fromBookDetails(Book book, Function<BookDetailsResponse, T> section,
+                                                            Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<BookDetailsResponse> details = currentBookDetails;
+        if (details == null || !Objects.equals(currentBookDetailsIsbn, book.getIsbn())) {
+            return request.get();
+        }
+
+        return details.thenCompose(response -> {
+            T value = response != null ? section.apply(response) : null;
+            return value != null ? CompletableFuture.completedFuture(value) : request.get();
+        });
     }
 
     /**
@@ -1075,10 +1145,16 @@ public class BookDetailsPopup {
             return;
         }
 
-        loadAverageRating(book);
+        showAverageRating(fromBookDetails(book, BookDetailsResponse::getStatistics,
+                () -> ratingService.getBookRatingStatisticsAsync(book.getIsbn())));
 
         if (authManager != null && authManager.isAuthenticated()) {
-            loadUserRating(book, authManager.getCurrentUsername());
+            String username = authManager.getCurrentUsername();
+            showUserRating(fromBookDetails(book,
+                    details -> Boolean.TRUE.equals(details.getUserRatingAvailable())
+                            ? new RatingResponse(true, "Valutazione utente recuperata", details.getUserRating())
+                            : null,
+                    () -> ratingService.getUserRatingForBookAsync(username, book.getIsbn())));
         }
     }
 
@@ -1096,7 +1172,17 @@ public class BookDetailsPopup {
      * @param book il libro per cui caricare il rating medio
      */
     private static void loadAverageRating(Book book) {
-        ratingService.getBookRatingStatisticsAsync(book.getIsbn())
+        showAverageRating(ratingService.getBookRatingStatisticsAsync(book.getIsbn()));
+    }
+
+    /**
+     * Aggiorna il rating medio e il numero di voti con le statistiche ricevute.
+     *
+     * @param statistics le statistiche di valutazione del libro
+     * @see #loadAverageRating(Book)
+     */
+    private static void showAverageRating(CompletableFuture<RatingResponse> statistics) {
+        statistics
                 .thenAccept(response -> Platform.runLater(() -> {
                     if (response.isSuccess()) {
                         averageBookRating = response.getAverageRating();
@@ -1118,6 +1204,29 @@ public class BookDetailsPopup {
                 });
     }
 
+    /**
+     * Aggiorna la sezione di valutazione con la risposta di un salvataggio.
+     * <p>
+     * La risposta contiene la valutazione salvata e le statistiche aggiornate del libro: non
+     * servono altre richieste al server. Se le statistiche mancano, il voto medio viene ricaricato.
+     * </p>
+     *
+     * @param book il libro valutato
+     * @param response la risposta del salvataggio
+     */
+    private static void applySavedRating(Book book, RatingResponse response) {
+        currentUserRating = response.getRating();
+        if (response.hasStatistics()) {
+            averageBookRating = response.getAverageRating();
+            currentBookReviewCount = response.getTotalRatings();
+            updateRatingDisplaySafe();
+            refreshRatingSection();
+        } else {
+            refreshRatingSection();
+            loadAverageRating(book);
+        }
+    }
+
     /**
      * Carica in modo asincrono il voto dato da un utente specifico a un libro.
      * <p>
@@ -1132,7 +1241,17 @@ public class BookDetailsPopup {
      * @param username il nome utente di cui caricare il voto
      */
     private static void loadUserRating(Book book, String username) {
-        ratingService.getUserRatingForBookAsync(username, book.getIsbn())
+        showUserRating(ratingService.getUserRatingForBookAsync(username, book.getIsbn()));
+    }
+
+    /**
+     * Aggiorna la sezione di valutazione con il voto dell'utente ricevuto.
+     *
+     * @param userRating la risposta con il voto dell'utente
+     * @see #loadUserRating(Book, String)
+     */
+    private static void showUserRating(CompletableFuture<RatingResponse> userRating) {
+        userRating
                 .thenAccept(response -> Platform.runLater(() -> {
                     currentUserRating = response.isSuccess() ? response.getRating() : null;
                     refreshRatingSection();
@@ -1387,8 +1506,8 @@ public class BookDetailsPopup {
      * un dialog per aggiungere un nuovo voto o per modificarne uno già presente.</li>
      * <li>In caso di errore o se l'utente non possiede il libro, mostra dei messaggi di avviso appropriati.</li>
      * </ul>
-     * Le operazioni di caricamento dei voti medio e dell'utente vengono avviate al termine dell'azione
-     * di valutazione per aggiornare l'interfaccia utente.
+     * Dopo un salvataggio l'interfaccia viene aggiornata con la valutazione e le statistiche
+     * restituite dal server; dopo un'eliminazione il voto medio e quello dell'utente vengono ricaricati.
      * </p>
      *
      * @param book il libro a cui si riferisce l'azione
@@ -1411,23 +1530,25 @@ public class BookDetailsPopup {
                 return;
             }
 
-            // Verifica prima se l'utente possiede il libro usando metodi esistenti
+            // Verifica prima se l'utente possiede il libro: il possesso ricevuto all'apertura
+            // resta valido, altrimenti viene verificato di nuovo (il libro può essere stato aggiunto)
             LibraryService libraryService = new LibraryService();
-            libraryService.doesUserOwnBookAsync(username, book.getIsbn())
+            fromBookDetails(book, details -> Boolean.TRUE.equals(details.getOwnsBook()) ? Boolean.TRUE : null,
+                    () -> libraryService.doesUserOwnBookAsync(username, book.getIsbn()))
                     .thenAccept(owns -> Platform.runLater(() -> {
                         if (owns) {
                             // Utente possiede il libro, può valutare
-                            if (currentUserRating != null) {
-                                RatingDialog.showEditRatingDialog(book, username, currentUserRating, (rating) -> {
-                                    loadUserRating(book, authManager.getCurrentUsername());
-                                    loadAverageRating(book);
-                                });
-                            } else {
-                                RatingDialog.showRatingDialog(book, username, (rating) -> {
+                            Consumer<BookRating> onRatingDeleted = (rating) -> {
+                                if (rating == null) {
                                     loadUserRating(book, authManager.getCurrentUsername());
                                     loadAverageRating(book);
-                                });
-                            }
+                                }
+                            };
+                            RatingDialog dialog = currentUserRating != null
+                                    ? new RatingDialog(book, username, currentUserRating, onRatingDeleted)
+                                    : new RatingDialog(book, username, onRatingDeleted);
+                            dialog.setOnSaveResponse(response -> applySavedRating(book, response));
+                            dialog.show();
                         } else {
                             // Utente NON possiede il libro, mostra popup di errore
                             showBookNotOwnedDialog(book, libraryService, username);
@@ -1969,7 +2090,11 @@ public class BookDetailsPopup {
         loadingLabel.setStyle("-fx-padding: 20;");
         container.getChildren().add(loadingLabel);
 
-        ratingService.getBookRatingsAsync(currentBook.getIsbn())
+        Book book = currentBook;
+        fromBookDetails(book,
+                details -> details.getReviews() != null
+                        ? new RatingResponse(true, "Recensioni recuperate", details.getReviews()) : null,
+                () -> ratingService.getBookRatingsAsync(book.getIsbn()))
                 .thenAccept(response -> Platform.runLater(() -> {
                     container.getChildren().clear();
 
@@ -2335,7 +2460,9 @@ public class BookDetailsPopup {
         recommendationsSection.getChildren().addAll(recommendationsHeader, recommendationsScrollPane);
 
         // Carica le raccomandazioni esistenti
-        loadBookRecommendations(book, recommendationsScrollPane);
+        System.out.println("📚 Caricamento raccomandazioni per: " + book.getTitle());
+        showBookRecommendations(book, recommendationsScrollPane, fromBookDetails(book,
+                BookDetailsResponse::getRecommendations, () -> requestBookRecommendations(book)));
 
         return recommendationsSection;
     }
@@ -2479,9 +2606,18 @@ public class BookDetailsPopup {
      */
     private static void loadBookRecommendations(Book targetBook, ScrollPane scrollPane) {
         System.out.println("📚 Caricamento raccomandazioni per: " + targetBook.getTitle());
+        showBookRecommendations(targetBook, scrollPane, requestBookRecommendations(targetBook));
+    }
 
+    /**
+     * Richiede le raccomandazioni di un libro; in caso di errore si risolve con una risposta di insuccesso.
+     *
+     * @param targetBook il libro per cui richiedere le raccomandazioni
+     * @return un {@link CompletableFuture} che si risolve con le raccomandazioni
+     */
+    private static CompletableFuture<RecommendationResponse> requestBookRecommendations(Book targetBook) {
         // Usa il metodo corretto getBookRecommendationsAsync
-        CompletableFuture.supplyAsync(() -> {
+        return CompletableFuture.supplyAsync(() -> {
             try {
                 // Usa il metodo corretto che esiste nel ClientRecommendationService
                 return recommendationService.getBookRecommendationsAsync(targetBook.getIsbn()).get();
@@ -2489,7 +2625,20 @@ public class BookDetailsPopup {
                 System.err.println("❌ Errore caricamento raccomandazioni: " + e.getMessage());
                 return new RecommendationResponse(false, "Errore: " + e.getMessage());
             }
-        }).thenAccept(response -> {
+        });
+    }
+
+    /**
+     * Visualizza nella {@code ScrollPane} le raccomandazioni ricevute, come descritto in
+     * {@link #loadBookRecommendations(Book, ScrollPane)}.
+     *
+     * @param targetBook il libro per cui sono state fatte le raccomandazioni
+     * @param scrollPane la {@link ScrollPane} in cui visualizzare le raccomandazioni
+     * @param recommendations le raccomandazioni del libro
+     */
+    private static void showBookRecommendations(Book targetBook, ScrollPane scrollPane,
+                                                CompletableFuture<RecommendationResponse> recommendations) {
+        recommendations.thenAccept(response -> {
             Platform.runLater(() -> {
                 // Imposta recommendedBooksDetails dalla response
                 if (response.isSuccess()) {
@@ -2514,7 +2663,9 @@ public class BookDetailsPopup {
                 if (response.isSuccess() && response.hasMultipleRecommendations()) {
                     System.out.println("🎯 Raccomandazioni trovate: " + response.getRecommendations().size());
 
-                    Map<String, List<BookRecommendation>> groupedRecs = groupRecommendationsByBook(response.getRecommendations());
+                    Map<String, List<BookRecommendation>> groupedRecs = orderByRanking(
+                            groupRecommendationsByBook(response.getRecommendations()),
+                            response.getRecommendationCounts());
 
                     HBox cardsContainer = new HBox(15);
                     cardsContainer.setAlignment(Pos.CENTER_LEFT);
@@ -2997,6 +3148,37 @@ public class BookDetailsPopup {
         });
     }
 
+    /**
+     * Riordina i gruppi di raccomandazioni secondo la classifica calcolata dal server.
+     * <p>
+     * I libri presenti in classifica vengono mostrati per primi, dal più consigliato; gli
+     * eventuali altri mantengono l'ordine originale. Se la classifica non è disponibile i
+     * gruppi vengono restituiti invariati.
+     * </p>
+     *
+     * @param groups i gruppi di raccomandazioni per ISBN
+     * @param ranking la mappa ISBN → numero di utenti in ordine di classifica, può essere {@code null}
+     * @return i gruppi nell'ordine di classifica
+     */
+    private static Map<String, List<BookRecommendation>> orderByRanking(Map<String, List<BookRecommendation>> groups,
+                                                                        Map<String, Integer> ranking) {
+        if (ranking == null || ranking.isEmpty()) {
+            return groups;
+        }
+
+        Map<String, List<BookRecommendation>> ordered = new LinkedHashMap<>();
+        for (String isbn : ranking.keySet()) {
+            List<BookRecommendation> group = groups.get(isbn);
+            if (group != null) {
+                ordered.put(isbn, group);
+            }
+        }
+        for (Map.Entry<String, List<BookRecommendation>> entry : groups.entrySet()) {
+            ordered.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return ordered;
+    }
+
     /**
      * Raggruppa una lista di raccomandazioni per il libro consigliato (identificato dall'ISBN).
      * <p>
@@ -3626,6 +3808,7 @@ public class BookDetailsPopup {
 
         resetRatings();
         currentBook = targetBook;
+        requestBookDetails(targetBook);
 
         VBox newBookContent = createBookContent(targetBook, getBookBackgroundColor(targetBook), currentAuthManager);
 
@@ -4,6 +4,7 @@ import org.BABO.client.ui.Home.ImageUtils;
 import org.BABO.shared.model.Book;
 import org.BABO.shared.model.BookRating;
 import org.BABO.shared.dto.Rating.RatingRequest;
+import org.BABO.shared.dto.Rating.RatingResponse;
 import org.BABO.client.service.ClientRatingService;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
@@ -68,6 +69,7 @@ public class RatingDialog {
     private Book book;
     private String username;
     private Consumer<BookRating> onRatingSaved;
+    private Consumer<RatingResponse> onSaveResponse;
     private ClientRatingService ratingService;
 
     // Componenti UI
@@ -691,7 +693,8 @@ public class RatingDialog {
      * <p>
      * Questo metodo valida la presenza di almeno un voto, disabilita il pulsante di salvataggio
      * e invia una richiesta asincrona al {@link ClientRatingService}. Gestisce la risposta
-     * del servizio e notifica il chiamante tramite il consumer {@link #onRatingSaved}.
+     * del servizio e notifica il chiamante tramite il consumer {@link #onRatingSaved} e, se
+     * impostato, {@link #onSaveResponse}.
      * </p>
      */
     private void saveRating() {
@@ -718,6 +721,9 @@ public class RatingDialog {
                 .thenAccept(response -> {
                     Platform.runLater(() -> {
                         if (response.isSuccess()) {
+                            if (onSaveResponse != null) {
+                                onSaveResponse.accept(response);
+                            }
                             if (onRatingSaved != null) {
                                 onRatingSaved.accept(response.getRating());
                             }
@@ -825,6 +831,20 @@ public class RatingDialog {
         alert.showAndWait();
     }
 
+    /**
+     * Imposta il consumer che riceve la risposta completa di un salvataggio riuscito.
+     * <p>
+     * La risposta contiene, oltre alla valutazione salvata, le statistiche aggiornate del
+     * libro (media e numero di valutazioni): chi la riceve può aggiornare la propria
+     * visualizzazione senza richiederle nuovamente al server. Viene chiamato prima di
+     * {@link #onRatingSaved}.
+     * </p>
+     * @param onSaveResponse Il consumer da chiamare con la risposta del salvataggio.
+     */
+    public void setOnSaveResponse(Consumer<RatingResponse> onSaveResponse) {
+        this.onSaveResponse = onSaveResponse;
+    }
+
     /**
      * Mostra il dialog.
      * <p>
@@ -3,6 +3,7 @@ package org.BABO.server;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -22,6 +23,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * <li><strong>Avvio Applicazione:</strong> Esegue l'applicazione Spring Boot.</li>
  * <li><strong>Configurazione CORS:</strong> Abilita e configura i permessi CORS
  * per garantire che il client frontend possa comunicare con il server senza restrizioni.</li>
+ * <li><strong>Job in background:</strong> Abilita i task pianificati dei servizi, come
+ * l'aggiornamento periodico dell'indice di similarità tra libri.</li>
  * </ul>
  *
  * <h3>Configurazione CORS:</h3>
@@ -41,6 +44,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * @see WebMvcConfigurer
  */
 @SpringBootApplication
+@EnableScheduling
 public class ServerApplication {
 
     /**
@@ -0,0 +1,77 @@
+package org.BABO.server.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Componente che adegua lo schema del database alle esigenze del server all'avvio.
+ * <p>
+ * Lo schema di base è fornito dal dump {@code Database/DataProva.sql}. Le estensioni richieste
+ * dai servizi sono migrazioni versionate in {@code db/migration}, applicate in ordine da
+ * {@link SchemaMigrationRunner}. Anche le correzioni dei dati (riallineamenti, copie da
+ * tabelle precedenti) sono migrazioni, eseguite una sola volta sotto il lock delle migrazioni.
+ * </p>
+ *
+ * <h3>Migrazioni:</h3>
+ * <ul>
+ * <li><strong>V1 - ID stabili dei libri:</strong> colonna {@code books.book_id BIGSERIAL} con
+ * indice univoco.</li>
+ * <li><strong>V2 - Paginazione a cursore:</strong> indici su {@code (books_title, isbn)} e
+ * {@code (LOWER(TRIM(category)), books_title, isbn)}.</li>
+ * <li><strong>V3 - Possesso dei libri:</strong> indice su {@code library_books (username, isbn)}.</li>
+ * <li><strong>V4 - Aggregati delle valutazioni:</strong> tabella {@code book_rating_stats},
+ * mantenuta dal {@link org.BABO.server.service.RatingService}.</li>
+ * <li><strong>V5 - Raccomandazioni normalizzate:</strong> tabella {@code recommendation_edges}
+ * e vista di compatibilità {@code recommendation_edges_compat}.</li>
+ * <li><strong>V6 - Indici delle query:</strong> valutazioni per libro, per utente e per data,
+ * librerie per utente in ordine di creazione.</li>
+ * <li><strong>V7 - Vincoli delle raccomandazioni:</strong> chiavi esterne di
+ * {@code recommendation_edges} verso {@code books} con {@code ON DELETE CASCADE}.</li>
+ * <li><strong>V8 - Riallineamento degli aggregati:</strong> {@code book_rating_stats} ricalcolata
+ * una sola volta da {@code assessment}, con le scritture sulle valutazioni bloccate.</li>
+ * <li><strong>V9 - Copia delle raccomandazioni:</strong> record di {@code advise} copiati in
+ * {@code recommendation_edges}.</li>
+ * <li><strong>V10 - Ordinamento del catalogo:</strong> indici della paginazione a cursore con
+ * collation {@code "C"}, al posto di quelli di V2.</li>
+ * </ul>
+ *
+ * <h3>Gestione errori:</h3>
+ * <p>
+ * Se una migrazione fallisce o il database non è raggiungibile l'avvio del server si
+ * interrompe: i servizi richiedono lo schema completo e non possono funzionare su uno schema
+ * migrato a metà. La migrazione fallita non lascia modifiche parziali e viene ritentata
+ * all'avvio successivo.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.1.0
+ * @since 1.0.0
+ * @see SchemaMigrationRunner
+ */
+@Component
+public class DatabaseSchemaInitializer {
+
+    /** Esecutore delle migrazioni versionate */
+    @Autowired
+    private SchemaMigrationRunner migrationRunner;
+
+    /**
+     * Applica le migrazioni all'avvio dell'applicazione.
+     *
+     * @throws IllegalStateException se una migrazione fallisce: il server non parte
+     */
+    @PostConstruct
+    public void initializeSchema() {
+        try {
+            int applied = migrationRunner.migrate();
+            System.out.println("✅ Schema database aggiornato (" + applied + " migrazioni applicate)");
+        } catch (SQLException | IOException | IllegalStateException e) {
+            System.err.println("❌ Errore durante le migrazioni dello schema: " + e.getMessage());
+            throw new IllegalStateException("Migrazioni dello schema non applicate", e);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.BABO.server.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Esecutore delle migrazioni versionate dello schema del database.
+ * <p>
+ * Le migrazioni sono file SQL nel classpath sotto {@code db/migration}, con nome
+ * {@code V<versione>__<descrizione>.sql}. All'avvio vengono applicate in ordine di versione
+ * quelle non ancora registrate nella tabella {@code schema_migrations}, ciascuna nella propria
+ * transazione insieme alla riga che la registra: una migrazione fallita non lascia modifiche
+ * parziali e viene ritentata all'avvio successivo.
+ * </p>
+ *
+ * <h3>Checksum:</h3>
+ * <p>
+ * Per ogni migrazione applicata viene registrato lo SHA-256 del file (con fine riga
+ * normalizzati). Se un file già applicato viene modificato, l'esecuzione si interrompe prima
+ * di applicare migrazioni successive: le modifiche allo schema vanno aggiunte come nuove
+ * versioni, così che ogni ambiente arrivi allo stesso schema.
+ * </p>
+ *
+ * <h3>Più istanze:</h3>
+ * <p>
+ * L'esecuzione è protetta da un advisory lock di PostgreSQL: se più istanze del server
+ * partono insieme, una applica le migrazioni e le altre attendono, trovandole poi già
+ * registrate.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see DatabaseSchemaInitializer
+ */
+@Component
+public class SchemaMigrationRunner {
+
+    /** Posizione dei file di migrazione nel classpath */
+    private static final String MIGRATION_LOCATION = "classpath*:db/migration/V*__*.sql";
+
+    /** Nome di un file di migrazione: versione e descrizione */
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    /** Chiave dell'advisory lock che serializza le migrazioni tra istanze */
+    private static final long MIGRATION_LOCK_KEY = 0x4241424F4D4947L;
+
+    private static final String CREATE_HISTORY_TABLE = """
+            CREATE TABLE IF NOT EXISTS schema_migrations (
+                version INTEGER PRIMARY KEY,
+                description VARCHAR NOT NULL,
+                checksum VARCHAR(64) NOT NULL,
+                applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                execution_ms BIGINT NOT NULL
+            )
+            """;
+
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Migrazione letta dal classpath. Le istanze sono immutabili.
+     */
+    static final class Migration {
+        private final int version;
+        private final String description;
+        private final String sql;
+        private final String checksum;
+
+        Migration(int version, String description, String sql) {
+            this.version = version;
+            this.description = description;
+            this.sql = sql;
+            this.checksum = sha256(sql);
+        }
+
+        int getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Applica le migrazioni non ancora registrate.
+     *
+     * @return il numero di migrazioni applicate
+     * @throws SQLException se una migrazione fallisce o il database non è accessibile
+     * @throws IOException se i file delle migrazioni non sono leggibili
+     * @throws IllegalStateException se una migrazione già applicata è stata modificata o due
+     * file hanno la stessa versione
+     */
+    public int migrate() throws SQLException, IOException {
+        List<Migration> migrations = loadMigrations();
+
+        try (Connection conn = dataSource.getConnection()) {
+            lock(conn, "SELECT pg_advisory_lock(?)");
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_HISTORY_TABLE);
+                }
+
+                Map<Integer, String> applied = appliedChecksums(conn);
+                int count = 0;
+                for (Migration migration : migrations) {
+                    String checksum = applied.get(migration.version);
+                    if (checksum == null) {
+                        apply(conn, migration);
+                        count++;
+                    } else if (!checksum.equals(migration.checksum)) {
+                        throw new IllegalStateException("La migrazione V" + migration.version + "__"
+                                + migration.description + " è stata modificata dopo essere stata applicata");
+                    }
+                }
+                return count;
+
+            } finally {
+                lock(conn, "SELECT pg_advisory_unlock(?)");
+            }
+        }
+    }
+
+    /**
+     * Legge le migrazioni dal classpath, ordinate per versione.
+     *
+     * @return le migrazioni
+     * @throws IOException se un file non è leggibile
+     * @throws IllegalStateException se due file hanno la stessa versione
+     */
+    List<Migration> loadMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver(getClass().getClassLoader())
+                .getResources(MIGRATION_LOCATION);
+
+        Map<Integer, Migration> byVersion = new HashMap<>();
+        for (Resource resource : resources) {
+            Matcher matcher = FILE_NAME.matcher(resource.getFilename() != null ? resource.getFilename() : "");
+            if (!matcher.matches()) {
+                System.err.println("⚠️ File di migrazione ignorato: " + resource.getDescription());
+                continue;
+            }
+
+            String sql;
+            try (InputStream in = resource.getInputStream()) {
+                sql = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            }
+
+            Migration migration = new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2), sql);
+            Migration duplicate = byVersion.put(migration.version, migration);
+            if (duplicate != null) {
+                throw new IllegalStateException("Versione di migrazione duplicata: V" + migration.version);
+            }
+        }
+
+        List<Migration> migrations = new ArrayList<>(byVersion.values());
+        migrations.sort(Comparator.comparingInt(Migration::getVersion));
+        return migrations;
+    }
+
+    private Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement();
+             PreparedStatement record = conn.prepareStatement(
+                     "INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+
+            stmt.execute(migration.sql);
+
+            long elapsed = System.currentTimeMillis() - start;
+            record.setInt(1, migration.version);
+            record.setString(2, migration.description);
+            record.setString(3, migration.checksum);
+            record.setLong(4, elapsed);
+            record.executeUpdate();
+
+            conn.commit();
+            System.out.println("🗄️ Migrazione V" + migration.version + "__" + migration.description
+                    + " applicata in " + elapsed + " ms");
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migrazione V" + migration.version + "__" + migration.description
+                    + " fallita: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void lock(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, MIGRATION_LOCK_KEY);
+            stmt.execute();
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
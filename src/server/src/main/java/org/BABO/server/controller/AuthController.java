@@ -1,8 +1,11 @@
 package org.BABO.server.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.BABO.server.service.BookImportService;
 import org.BABO.server.service.BookService;
-import org.BABO.shared.model.Book;
 import org.BABO.shared.model.User;
+import org.BABO.shared.dto.Book.BookPageResponse;
 import org.BABO.shared.dto.Authentication.AuthRequest;
 import org.BABO.shared.dto.Authentication.AuthResponse;
 import org.BABO.shared.dto.Authentication.RegisterRequest;
@@ -13,13 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -92,13 +89,9 @@ import java.util.Map;
  * <h3>Configurazione database diretta:</h3>
  * <p>
  * Per alcune operazioni amministrative complesse (es. recupero recensioni con join), il controller
- * accede direttamente al database PostgreSQL utilizzando le seguenti credenziali:
+ * accede direttamente al database PostgreSQL tramite il {@link DataSource} condiviso
+ * (pool HikariCP configurato in {@code application.properties}).
  * </p>
- * <pre>{@code
- * URL: jdbc:postgresql://localhost:5432/DataProva
- * User: postgres
- * Password: postgress
- * }</pre>
  *
  * <h3>Logging e monitoraggio:</h3>
  * <p>
@@ -171,6 +164,12 @@ import java.util.Map;
  *   "year": "1980",
  *   "category": "Narrativa"
  * }
+ *
+ * // Operazioni admin - Importa catalogo (file CSV o NDJSON nel corpo)
+ * POST /api/auth/admin/books/import?adminEmail=federico@admin.com
+ * Content-Type: text/csv
+ * isbn,title,author,description,year,category
+ * 9788804660347,Il Nome della Rosa,Umberto Eco,,1980,Narrativa
  * }</pre>
  *
  * <h3>Note di performance e scalabilità:</h3>
@@ -217,6 +216,14 @@ public class AuthController {
     @Autowired
     private RatingService ratingService;
 
+    /** Servizio per l'importazione massiva del catalogo */
+    @Autowired
+    private BookImportService bookImportService;
+
+    /** Mapper JSON configurato da Spring, usato per le risposte scritte in streaming */
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Endpoint per l'autenticazione utente nel sistema.
      * <p>
@@ -906,13 +913,14 @@ public class AuthController {
      * @param adminEmail email dell'amministratore che richiede la lista (verifica privilegi)
      * @return {@code ResponseEntity<?>} con:
      *         <ul>
-     *           <li><strong>200 OK:</strong> Lista utenti con metadati (success, message, users, total)</li>
+     *           <li><strong>200 OK:</strong> Lista utenti con metadati (success, message, users, total),
+     *           scritta in streaming man mano che gli utenti vengono letti dal database</li>
      *           <li><strong>403 FORBIDDEN:</strong> Privilegi amministrativi insufficienti</li>
      *           <li><strong>500 INTERNAL SERVER ERROR:</strong> Errori sistema</li>
      *         </ul>
      *
      * @see UserService#isUserAdmin(String) per la verifica privilegi
-     * @see UserService#getAllUsers() per il recupero dati
+     * @see UserService#streamAllUsers(org.BABO.server.service.RowSink) per il recupero dati
      * @since 1.0
      */
     @GetMapping("/admin/users")
@@ -926,14 +934,8 @@ public class AuthController {
                         .body(Map.of("success", false, "message", "Accesso negato: privilegi admin richiesti"));
             }
 
-            List<User> users = userService.getAllUsers();
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Utenti recuperati con successo",
-                    "users", users,
-                    "total", users.size()
-            ));
+            return StreamingJson.envelope(objectMapper, "Utenti recuperati con successo", "users",
+                    json -> userService.streamAllUsers(json::writeObject));
 
         } catch (Exception e) {
             System.err.println("❌ Errore recupero utenti admin: " + e.getMessage());
@@ -1190,14 +1192,27 @@ public class AuthController {
      *   <li>Metadati sistema (data inserimento, etc.)</li>
      * </ul>
      *
+     * <h4>Paginazione a cursore:</h4>
+     * <p>
+     * Con {@code limit} o {@code after} viene restituita una sola pagina, letta con una
+     * query keyset su {@code (books_title, isbn)}, insieme ai campi {@code hasMore} e
+     * {@code nextCursor} da usare per la richiesta successiva. Senza parametri l'intero
+     * catalogo viene scritto in streaming, man mano che i libri vengono letti dal database.
+     * </p>
+     *
      * @param adminEmail email amministratore per verifica privilegi
+     * @param limit numero massimo di libri per pagina (opzionale)
+     * @param after cursore restituito dalla pagina precedente (opzionale)
      * @return {@code ResponseEntity<?>} con lista libri e metadati
      *
-     * @see BookService#getAllBooksForAdmin()
+     * @see BookService#streamAllBooksForAdmin(org.BABO.server.service.RowSink)
+     * @see BookService#getBooksForAdminPage(String, Integer)
      * @since 1.0
      */
     @GetMapping("/admin/books")
-    public ResponseEntity<?> getAllBooksAdmin(@RequestParam("adminEmail") String adminEmail) {
+    public ResponseEntity<?> getAllBooksAdmin(@RequestParam("adminEmail") String adminEmail,
+                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                              @RequestParam(value = "after", required = false) String after) {
         try {
             System.out.println("📚 Richiesta lista libri da admin: " + adminEmail);
 
@@ -1207,15 +1222,25 @@ public class AuthController {
                         .body(Map.of("success", false, "message", "Accesso negato: privilegi admin richiesti"));
             }
 
-            List<Book> books = bookService.getAllBooksForAdmin();
+            if (limit != null || after != null) {
+                BookPageResponse page = bookService.getBooksForAdminPage(after, limit);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "Libri recuperati con successo");
+                response.put("books", page.getBooks());
+                response.put("total", page.getBooks().size());
+                response.put("hasMore", page.isHasMore());
+                response.put("nextCursor", page.getNextCursor());
+                return ResponseEntity.ok(response);
+            }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Libri recuperati con successo",
-                    "books", books,
-                    "total", books.size()
-            ));
+            return StreamingJson.envelope(objectMapper, "Libri recuperati con successo", "books",
+                    json -> bookService.streamAllBooksForAdmin(json::writeObject));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "message", "Cursore di paginazione non valido"));
         } catch (Exception e) {
             System.err.println("❌ Errore recupero libri admin: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1299,6 +1324,70 @@ public class AuthController {
         }
     }
 
+    /**
+     * Endpoint amministrativo per importare un catalogo di libri da file.
+     * <p>
+     * Il corpo della richiesta è il file stesso, in formato CSV con intestazione o NDJSON
+     * (un oggetto JSON per riga), con i campi {@code isbn}, {@code title}, {@code author},
+     * {@code description}, {@code year} e {@code category}. Il file viene letto in streaming e
+     * caricato con {@code COPY}: i libri nuovi vengono aggiunti, quelli esistenti aggiornati.
+     * </p>
+     *
+     * <h4>Esempio:</h4>
+     * <pre>{@code
+     * curl -X POST -H "Content-Type: text/csv" --data-binary @catalogo.csv \
+     *      "http://localhost:8080/api/auth/admin/books/import?adminEmail=federico@admin.com"
+     * }</pre>
+     *
+     * <p>
+     * Le righe non valide vengono scartate e riportate in {@code errors} con il numero di riga;
+     * le altre vengono comunque importate.
+     * </p>
+     *
+     * @param adminEmail email amministratore per verifica privilegi
+     * @param format {@code csv} o {@code ndjson}; se assente viene dedotto dal Content-Type
+     * @param request la richiesta, da cui viene letto il file
+     * @return {@code ResponseEntity<?>} con i conteggi dell'importazione e gli errori di riga
+     *
+     * @see BookImportService#importBooks(java.io.InputStream, BookImportService.Format)
+     * @since 1.0
+     */
+    @PostMapping("/admin/books/import")
+    public ResponseEntity<?> importBooks(@RequestParam("adminEmail") String adminEmail,
+                                         @RequestParam(value = "format", required = false) String format,
+                                         HttpServletRequest request) {
+        try {
+            System.out.println("📥 Richiesta importazione catalogo da: " + adminEmail);
+
+            // Verifica privilegi admin
+            if (!userService.isUserAdmin(adminEmail)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("success", false, "message", "Accesso negato: privilegi admin richiesti"));
+            }
+
+            String type = format != null ? format : request.getContentType();
+            BookImportService.Format importFormat = type != null && type.toLowerCase().contains("json")
+                    ? BookImportService.Format.NDJSON : BookImportService.Format.CSV;
+
+            BookImportService.ImportResult result = bookImportService.importBooks(request.getInputStream(), importFormat);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Importazione completata: " + result.getInserted() + " libri aggiunti, "
+                    + result.getUpdated() + " aggiornati, " + result.getRejected() + " righe scartate");
+            response.put("result", result);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("❌ Errore importazione catalogo: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("success", false, "message", "Importazione annullata: errore del database o del file"));
+        }
+    }
+
     /**
      * Endpoint amministrativo per eliminare un libro dal catalogo.
      * <p>
@@ -1420,15 +1509,14 @@ public class AuthController {
      * Endpoint amministrativo per recuperare tutte le recensioni e valutazioni del sistema.
      * <p>
      * Fornisce accesso amministrativo completo alle recensioni utenti per monitoring,
-     * moderazione e analisi qualitativa. Utilizza accesso diretto al database per
-     * gestire query complesse con join tra tabelle e mapping personalizzato dei risultati.
+     * moderazione e analisi qualitativa.
      * </p>
      *
      * <p>
-     * <strong>Implementazione tecnica:</strong> Questo endpoint utilizza connessione
-     * diretta al database PostgreSQL invece del RatingService per evitare problemi
-     * di mapping complesso dei dati di valutazione che includono campi multipli
-     * e strutture nested.
+     * <strong>Implementazione tecnica:</strong> Le recensioni vengono lette da
+     * {@link RatingService#streamAllRatings(org.BABO.server.service.RowSink)} con un cursore
+     * lato server e scritte nella risposta una alla volta, senza caricare in memoria
+     * l'intera tabella. La data è restituita in formato ISO-8601.
      * </p>
      *
      * <h4>Dati recensione restituiti:</h4>
@@ -1447,11 +1535,8 @@ public class AuthController {
      * le recensioni più recenti per prime.
      * </p>
      *
-     * <h4>Configurazione database utilizzata:</h4>
+     * <h4>Query utilizzata:</h4>
      * <pre>{@code
-     * URL: jdbc:postgresql://localhost:5432/DataProva
-     * User: postgres
-     * Password: postgress
      * Query: SELECT username, isbn, data, style, content, pleasantness,
      *               originality, edition, average, review
      *        FROM assessment ORDER BY data DESC
@@ -1465,14 +1550,7 @@ public class AuthController {
      *           <li><strong>500 INTERNAL SERVER ERROR:</strong> Errori database o sistema</li>
      *         </ul>
      *
-     * @throws SQLException in caso di problemi di connettività database
-     *
-     * @apiNote Questo endpoint utilizza connessione diretta al database invece
-     *          del service layer per gestire la complessità del mapping dei dati
-     *          di valutazione con campi multipli e tipi misti.
-     *
-     * @see java.sql.Connection per la gestione della connessione database
-     * @see java.sql.PreparedStatement per l'esecuzione sicura delle query
+     * @see StreamingJson
      * @since 1.0
      */
     @GetMapping("/admin/ratings")
@@ -1486,45 +1564,8 @@ public class AuthController {
                         .body(Map.of("success", false, "message", "Accesso negato: privilegi admin richiesti"));
             }
 
-            // Usa query diretta invece del metodo getAllRatings() per evitare problemi di mapping
-            List<Map<String, Object>> ratingsData = new ArrayList<>();
-
-            String query = """
-        SELECT username, isbn, data, style, content, pleasantness, originality, edition, average, review
-        FROM assessment 
-        ORDER BY data DESC
-        """;
-
-            try (Connection conn = DriverManager.getConnection(
-                    "jdbc:postgresql://localhost:5432/DataProva",
-                    "postgres",
-                    "postgress");
-                 PreparedStatement stmt = conn.prepareStatement(query)) {
-
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    Map<String, Object> ratingMap = new HashMap<>();
-                    ratingMap.put("username", rs.getString("username"));
-                    ratingMap.put("isbn", rs.getString("isbn"));
-                    ratingMap.put("data", rs.getString("data"));
-                    ratingMap.put("style", rs.getObject("style"));
-                    ratingMap.put("content", rs.getObject("content"));
-                    ratingMap.put("pleasantness", rs.getObject("pleasantness"));
-                    ratingMap.put("originality", rs.getObject("originality"));
-                    ratingMap.put("edition", rs.getObject("edition"));
-                    ratingMap.put("average", rs.getObject("average"));
-                    ratingMap.put("review", rs.getString("review"));
-                    ratingsData.add(ratingMap);
-                }
-            }
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Valutazioni recuperate con successo",
-                    "ratings", ratingsData,
-                    "total", ratingsData.size()
-            ));
+            return StreamingJson.envelope(objectMapper, "Valutazioni recuperate con successo", "ratings",
+                    json -> ratingService.streamAllRatings(rating -> StreamingJson.writeRating(json, rating)));
 
         } catch (Exception e) {
             System.err.println("❌ Errore recupero valutazioni admin: " + e.getMessage());
@@ -1,11 +1,19 @@
 package org.BABO.server.controller;
 
+import org.BABO.shared.dto.Book.BookDetailsResponse;
+import org.BABO.shared.dto.Book.BookPageResponse;
 import org.BABO.shared.model.Book;
+import org.BABO.server.index.LibrarySimilarityIndex;
+import org.BABO.server.service.BookDetailsService;
 import org.BABO.server.service.BookService;
+import org.BABO.server.service.LibrarySimilarityService;
+import org.BABO.server.service.RatingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -61,8 +69,11 @@ import java.util.List;
  * Tutti gli endpoint seguono standard RESTful con path semantici sotto {@code /api/books}:
  * </p>
  * <ul>
- *   <li><strong>GET /api/books:</strong> Catalogo completo con paginazione</li>
+ *   <li><strong>GET /api/books:</strong> Catalogo completo con paginazione a cursore ({@code limit}, {@code after})</li>
  *   <li><strong>GET /api/books/{id}:</strong> Dettagli libro specifico</li>
+ *   <li><strong>POST /api/books/batch:</strong> Dettagli di più libri a partire dagli ISBN</li>
+ *   <li><strong>GET /api/books/{isbn}/also-saved:</strong> Libri salvati dagli stessi lettori</li>
+ *   <li><strong>GET /api/books/{isbn}/details:</strong> Dati della finestra di dettaglio in un'unica risposta</li>
  *   <li><strong>GET /api/books/search:</strong> Ricerca full-text generale</li>
  *   <li><strong>GET /api/books/category:</strong> Filtraggio per categoria</li>
  *   <li><strong>GET /api/books/featured:</strong> Selezione curata in evidenza</li>
@@ -98,7 +109,7 @@ import java.util.List;
  * List<Book> books = searchResults.getBody();
  *
  * // Filtraggio per categoria specifica
- * ResponseEntity<List<Book>> categoryBooks = bookController.getBooksByCategory("Informatica");
+ * ResponseEntity<?> categoryBooks = bookController.getBooksByCategory("Informatica", 50, null);
  *
  * // Recupero libri in evidenza per homepage
  * ResponseEntity<List<Book>> featuredBooks = bookController.getFeaturedBooks();
@@ -145,6 +156,18 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    /** Servizio di similarità tra libri basato sulle librerie degli utenti */
+    @Autowired
+    private LibrarySimilarityService librarySimilarityService;
+
+    /** Servizio delle valutazioni, per la versione delle classifiche */
+    @Autowired
+    private RatingService ratingService;
+
+    /** Servizio dei dati della finestra di dettaglio */
+    @Autowired
+    private BookDetailsService bookDetailsService;
+
     /**
      * Recupera l'intero catalogo di libri disponibili nel sistema.
      * <p>
@@ -182,23 +205,57 @@ public class BookController {
      *   <li>Result set streaming per dataset molto grandi</li>
      * </ul>
      *
-     * @return {@link ResponseEntity} contenente {@link List} di {@link Book} con:
+     * <h4>Paginazione a cursore:</h4>
+     * <p>
+     * Se viene indicato {@code limit} o {@code after}, l'endpoint restituisce una
+     * {@link BookPageResponse} con al più {@code limit} libri ordinati per titolo e ISBN e il
+     * cursore {@code nextCursor} da passare come {@code after} per la pagina successiva.
+     * Senza parametri restituisce l'intero catalogo, per compatibilità con i client esistenti.
+     * </p>
+     *
+     * <h4>Richieste condizionali:</h4>
+     * <p>
+     * La risposta include un ETag legato alla versione del catalogo: se il client lo invia in
+     * {@code If-None-Match} e il catalogo non è cambiato, riceve 304 senza corpo.
+     * </p>
+     *
+     * @param limit numero massimo di libri per pagina (opzionale, massimo {@link BookService#MAX_PAGE_SIZE})
+     * @param after cursore restituito dalla pagina precedente (opzionale)
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
+     * @return {@link ResponseEntity} contenente {@link List} di {@link Book} o {@link BookPageResponse} con:
      *         <ul>
-     *           <li><strong>200 OK:</strong> Lista completa libri recuperata con successo</li>
+     *           <li><strong>200 OK:</strong> Lista libri o pagina recuperata con successo</li>
+     *           <li><strong>304 Not Modified:</strong> Il catalogo non è cambiato</li>
+     *           <li><strong>400 Bad Request:</strong> Cursore non valido</li>
      *           <li><strong>500 Internal Server Error:</strong> Errore sistema o database non disponibile</li>
      *         </ul>
-     * @apiNote Per cataloghi molto grandi (>10000 libri), considerare l'implementazione
-     *          di paginazione esplicita per ottimizzare trasferimento dati e memoria client.
-     *          L'endpoint include logging automatico del numero di libri restituiti.
+     * @apiNote L'endpoint include logging automatico del numero di libri restituiti.
      * @since 1.0.0
      * @see BookService#getAllBooks()
+     * @see BookService#getBooksPage(String, Integer)
      */
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
+    public ResponseEntity<?> getAllBooks(@RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "after", required = false) String after,
+                                         @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
+            if (limit != null || after != null) {
+                BookPageResponse page = bookService.getBooksPage(after, limit);
+                System.out.println("Ritornata pagina di " + page.getBooks().size() + " libri");
+                return ConditionalGet.ok(etag, page);
+            }
+
             List<Book> books = bookService.getAllBooks();
             System.out.println("Ritornati " + books.size() + " libri");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cursore di paginazione non valido: " + after);
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("Errore nel recupero di tutti i libri: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -310,6 +367,125 @@ public class BookController {
         }
     }
 
+    /**
+     * Recupera i dettagli di più libri in una sola richiesta.
+     * <p>
+     * Permette al client di completare un elenco di ISBN (raccomandazioni, classifiche,
+     * librerie) con un unico round trip invece di una richiesta per libro. I libri vengono
+     * restituiti nell'ordine degli ISBN richiesti; gli ISBN inesistenti vengono omessi e
+     * quelli ripetuti compaiono una sola volta.
+     * </p>
+     *
+     * <h4>Esempio di richiesta:</h4>
+     * <pre>{@code
+     * POST /api/books/batch
+     * ["8804668237", "8807881845"]
+     * }</pre>
+     *
+     * @param isbns elenco degli ISBN da risolvere, al massimo {@link BookService#MAX_BATCH_SIZE}
+     * @return {@link ResponseEntity} con:
+     *         <ul>
+     *           <li><strong>200 OK:</strong> Libri trovati, nell'ordine richiesto</li>
+     *           <li><strong>400 Bad Request:</strong> Elenco mancante o troppo lungo</li>
+     *           <li><strong>500 Internal Server Error:</strong> Errore sistema durante recupero</li>
+     *         </ul>
+     * @since 2.3.0
+     * @see BookService#getBooksByIsbns(List)
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<Book>> getBooksByIsbns(@RequestBody List<String> isbns) {
+        try {
+            if (isbns == null || isbns.size() > BookService.MAX_BATCH_SIZE) {
+                System.out.println("Richiesta batch non valida: " + (isbns == null ? "elenco mancante" : isbns.size() + " ISBN"));
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<Book> books = bookService.getBooksByIsbns(isbns);
+            System.out.println("Ritornati " + books.size() + " libri su " + isbns.size() + " ISBN richiesti");
+            return ResponseEntity.ok(books);
+        } catch (Exception e) {
+            System.err.println("Errore nel recupero multiplo dei libri: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Recupera i libri salvati più spesso dagli stessi utenti che hanno salvato il libro indicato.
+     * <p>
+     * La similarità è l'indice di Jaccard tra gli insiemi di utenti che hanno i due libri nelle
+     * proprie librerie, stimato con firme MinHash. L'indice viene ricostruito periodicamente in
+     * background: la richiesta è una ricerca in memoria seguita dalla risoluzione degli ISBN.
+     * </p>
+     *
+     * @param isbn ISBN del libro di partenza
+     * @param limit numero massimo di libri (predefinito 10)
+     * @return {@link ResponseEntity} con:
+     *         <ul>
+     *           <li><strong>200 OK:</strong> Libri simili in ordine di similarità (anche lista vuota)</li>
+     *           <li><strong>400 Bad Request:</strong> Limite fuori intervallo</li>
+     *           <li><strong>503 Service Unavailable:</strong> Indice non ancora costruito</li>
+     *         </ul>
+     * @since 2.3.0
+     * @see LibrarySimilarityService#getSimilarBooks(String, int)
+     */
+    @GetMapping("/{isbn}/also-saved")
+    public ResponseEntity<List<Book>> getAlsoSavedBooks(@PathVariable("isbn") String isbn,
+                                                        @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            if (limit < 1 || limit > librarySimilarityService.getTopK()) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<LibrarySimilarityIndex.Entry> similar = librarySimilarityService.getSimilarBooks(isbn, limit);
+            if (similar == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+
+            List<String> isbns = new ArrayList<>(similar.size());
+            for (LibrarySimilarityIndex.Entry entry : similar) {
+                isbns.add(entry.getIsbn());
+            }
+            return ResponseEntity.ok(bookService.getBooksByIsbns(isbns));
+        } catch (Exception e) {
+            System.err.println("Errore nel recupero dei libri salvati anche: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Recupera in un'unica risposta i dati della finestra di dettaglio di un libro.
+     * <p>
+     * Statistiche, recensioni e raccomandazioni del libro sono sempre incluse; se è indicato
+     * un utente, anche la sua valutazione e il possesso del libro. Le sezioni sono lette in
+     * parallelo: una sezione non disponibile vale {@code null} e non compromette le altre.
+     * </p>
+     *
+     * @param isbn ISBN del libro
+     * @param username utente che apre la finestra (opzionale)
+     * @return {@link ResponseEntity} con:
+     *         <ul>
+     *           <li><strong>200 OK:</strong> Dati del libro</li>
+     *           <li><strong>400 Bad Request:</strong> ISBN mancante</li>
+     *           <li><strong>500 Internal Server Error:</strong> Errore durante il recupero</li>
+     *         </ul>
+     * @since 2.3.0
+     * @see BookDetailsService#getBookDetails(String, String)
+     */
+    @GetMapping("/{isbn}/details")
+    public ResponseEntity<BookDetailsResponse> getBookDetails(@PathVariable("isbn") String isbn,
+                                                              @RequestParam(value = "username", required = false) String username) {
+        try {
+            if (isbn == null || isbn.trim().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok(bookDetailsService.getBookDetails(isbn.trim(), username));
+        } catch (Exception e) {
+            System.err.println("Errore nel recupero dei dettagli del libro: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Esegue ricerca full-text avanzata nel catalogo libri per titoli e autori.
      * <p>
@@ -441,13 +617,25 @@ public class BookController {
      *   <li>Lazy loading metadati non essenziali</li>
      * </ul>
      *
+     * <h4>Paginazione a cursore:</h4>
+     * <p>
+     * Con {@code limit} o {@code after} l'endpoint restituisce una {@link BookPageResponse}
+     * calcolata con una query keyset su {@code (books_title, isbn)}; senza parametri
+     * restituisce tutti i libri della categoria.
+     * </p>
+     *
      * @param categoryName nome esatto della categoria da filtrare.
      *                    Deve corrispondere esattamente a una categoria esistente nel sistema.
      *                    Case-insensitive, whitespace viene automaticamente rimosso.
-     * @return {@link ResponseEntity} contenente {@link List} di {@link Book} della categoria:
+     * @param limit numero massimo di libri per pagina (opzionale)
+     * @param after cursore restituito dalla pagina precedente (opzionale)
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
+     * @return {@link ResponseEntity} contenente {@link List} di {@link Book} della categoria
+     *         o una {@link BookPageResponse}:
      *         <ul>
      *           <li><strong>200 OK:</strong> Libri della categoria recuperati e ordinati</li>
-     *           <li><strong>400 Bad Request:</strong> Nome categoria mancante o formato non valido</li>
+     *           <li><strong>304 Not Modified:</strong> Il catalogo non è cambiato</li>
+     *           <li><strong>400 Bad Request:</strong> Nome categoria mancante, formato o cursore non valido</li>
      *           <li><strong>500 Internal Server Error:</strong> Errore durante filtraggio</li>
      *         </ul>
      * @throws IllegalArgumentException se categoryName è null o stringa vuota
@@ -456,9 +644,13 @@ public class BookController {
      *          Per categorie inesistenti restituisce lista vuota senza errore.
      * @since 1.1.0
      * @see BookService#getBooksByCategory(String)
+     * @see BookService#getBooksByCategoryPage(String, String, Integer)
      */
     @GetMapping("/category")
-    public ResponseEntity<List<Book>> getBooksByCategory(@RequestParam(value = "name", required = true) String categoryName) {
+    public ResponseEntity<?> getBooksByCategory(@RequestParam(value = "name", required = true) String categoryName,
+                                                @RequestParam(value = "limit", required = false) Integer limit,
+                                                @RequestParam(value = "after", required = false) String after,
+                                                @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             System.out.println("Ricerca per CATEGORIA richiesta: '" + categoryName + "'");
 
@@ -466,6 +658,17 @@ public class BookController {
                 return ResponseEntity.badRequest().build();
             }
 
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
+            if (limit != null || after != null) {
+                BookPageResponse page = bookService.getBooksByCategoryPage(categoryName.trim(), after, limit);
+                System.out.println("Categoria '" + categoryName + "': pagina di " + page.getBooks().size() + " libri");
+                return ConditionalGet.ok(etag, page);
+            }
+
             List<Book> books = bookService.getBooksByCategory(categoryName.trim());
             System.out.println("Categoria '" + categoryName + "': trovati " + books.size() + " libri");
 
@@ -478,7 +681,10 @@ public class BookController {
                 }
             }
 
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cursore di paginazione non valido: " + after);
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             System.err.println("Errore nella ricerca per categoria '" + categoryName + "': " + e.getMessage());
             e.printStackTrace();
@@ -520,9 +726,11 @@ public class BookController {
      *   <li>A/B testing per ottimizzare selezioni</li>
      * </ul>
      *
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
      * @return {@link ResponseEntity} contenente {@link List} di {@link Book} selezionati:
      *         <ul>
      *           <li><strong>200 OK:</strong> Selezione featured recuperata con successo</li>
+     *           <li><strong>304 Not Modified:</strong> Il catalogo non è cambiato</li>
      *           <li><strong>500 Internal Server Error:</strong> Errore durante recupero selezione</li>
      *         </ul>
      * @apiNote La selezione è ottimizzata per 10-20 libri per bilanciare varietà e performance.
@@ -532,11 +740,17 @@ public class BookController {
      * @see BookService#getFeaturedBooks()
      */
     @GetMapping("/featured")
-    public ResponseEntity<List<Book>> getFeaturedBooks() {
+    public ResponseEntity<List<Book>> getFeaturedBooks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
             List<Book> books = bookService.getFeaturedBooks();
             System.out.println("Ritornati " + books.size() + " libri in evidenza");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
         } catch (Exception e) {
             System.err.println("Errore nel recupero dei libri in evidenza: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -569,16 +783,23 @@ public class BookController {
      *   <li>Categorizzazione e tagging per discovery</li>
      * </ul>
      *
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
      * @return {@link ResponseEntity} contenente {@link List} di {@link Book} gratuiti
      * @since 1.2.0
      * @see BookService#getFreeBooks()
      */
     @GetMapping("/free")
-    public ResponseEntity<List<Book>> getFreeBooks() {
+    public ResponseEntity<List<Book>> getFreeBooks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
             List<Book> books = bookService.getFreeBooks();
             System.out.println("Ritornati " + books.size() + " libri gratuiti");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
         } catch (Exception e) {
             System.err.println("Errore nel recupero dei libri gratuiti: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -602,16 +823,23 @@ public class BookController {
      *   <li><strong>Editor Flagging:</strong> Marcatura manuale per promozione</li>
      * </ul>
      *
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
      * @return {@link ResponseEntity} contenente {@link List} di {@link Book} nuove uscite
      * @since 1.2.0
      * @see BookService#getNewReleases()
      */
     @GetMapping("/new-releases")
-    public ResponseEntity<List<Book>> getNewReleases() {
+    public ResponseEntity<List<Book>> getNewReleases(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
             List<Book> books = bookService.getNewReleases();
             System.out.println("Ritornati " + books.size() + " nuove uscite");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
         } catch (Exception e) {
             System.err.println("Errore nel recupero delle nuove uscite: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -850,9 +1078,11 @@ public class BookController {
      *   <li>Segmentazione per categoria e target audience</li>
      * </ul>
      *
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
      * @return {@link ResponseEntity} contenente {@link List} di {@link Book} ordinati per numero recensioni:
      *         <ul>
      *           <li><strong>200 OK:</strong> Lista libri più recensiti con dettagli statistici</li>
+     *           <li><strong>304 Not Modified:</strong> Catalogo e valutazioni non sono cambiati</li>
      *           <li><strong>500 Internal Server Error:</strong> Errore durante aggregazione dati</li>
      *         </ul>
      * @apiNote I risultati includono metadati arricchiti con statistiche recensioni.
@@ -862,11 +1092,17 @@ public class BookController {
      * @see BookService#getMostReviewedBooksWithDetails()
      */
     @GetMapping("/most-reviewed")
-    public ResponseEntity<List<Book>> getMostReviewedBooks() {
+    public ResponseEntity<List<Book>> getMostReviewedBooks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion(), ratingService.getRatingsVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
             List<Book> books = bookService.getMostReviewedBooksWithDetails();
             System.out.println("Ritornati " + books.size() + " libri più recensiti");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
         } catch (Exception e) {
             System.err.println("Errore nel recupero dei libri più recensiti: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -907,9 +1143,11 @@ public class BookController {
      *   <li>Score di credibilità aggregato</li>
      * </ul>
      *
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
      * @return {@link ResponseEntity} contenente {@link List} di {@link Book} ordinati per qualità valutazioni:
      *         <ul>
      *           <li><strong>200 OK:</strong> Lista libri top-rated con metadati qualità</li>
+     *           <li><strong>304 Not Modified:</strong> Catalogo e valutazioni non sono cambiati</li>
      *           <li><strong>500 Internal Server Error:</strong> Errore durante calcoli statistici</li>
      *         </ul>
      * @apiNote Ranking utilizza algoritmi statistici avanzati per robustezza.
@@ -919,11 +1157,17 @@ public class BookController {
      * @see BookService#getTopRatedBooksWithDetails()
      */
     @GetMapping("/top-rated")
-    public ResponseEntity<List<Book>> getTopRatedBooks() {
+    public ResponseEntity<List<Book>> getTopRatedBooks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion(), ratingService.getRatingsVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
             List<Book> books = bookService.getTopRatedBooksWithDetails();
             System.out.println("Ritornati " + books.size() + " libri meglio valutati");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
         } catch (Exception e) {
             System.err.println("Errore nel recupero dei libri meglio valutati: " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -0,0 +1,106 @@
+package org.BABO.server.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Supporto per le richieste GET condizionali sugli elenchi di libri.
+ * <p>
+ * L'ETag di una risposta è costruito dai numeri di versione dei dati da cui dipende (il
+ * catalogo in memoria e, per le classifiche, le valutazioni) invece che dal contenuto: si
+ * calcola senza leggere né serializzare l'elenco. I numeri di versione ripartono ad ogni avvio
+ * del server, quindi l'ETag include anche un identificativo dell'avvio.
+ * </p>
+ * <p>
+ * Il controller calcola l'ETag <em>prima</em> di leggere i dati: se una modifica avviene nel
+ * frattempo il corpo è più recente dell'ETag, e la richiesta successiva riceve comunque il
+ * nuovo elenco.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ConditionalGet {
+
+    /** Identificativo dell'avvio del server, per distinguere le versioni di avvii diversi */
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Costruisce l'ETag debole corrispondente alle versioni indicate.
+     *
+     * @param versions i numeri di versione dei dati della risposta
+     * @return l'ETag, o {@code null} se una delle versioni non è disponibile (negativa)
+     */
+    static String etag(long... versions) {
+        StringBuilder tag = new StringBuilder("W/\"").append(EPOCH);
+        for (long version : versions) {
+            if (version < 0) {
+                return null;
+            }
+            tag.append('-').append(version);
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Verifica se l'intestazione {@code If-None-Match} della richiesta contiene l'ETag corrente.
+     * Il confronto è debole, come previsto per le richieste GET.
+     *
+     * @param ifNoneMatch il valore dell'intestazione, anche {@code null}
+     * @param etag l'ETag corrente, anche {@code null}
+     * @return {@code true} se il client ha già la versione corrente
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+
+        String current = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Crea la risposta 304 Not Modified, senza corpo.
+     *
+     * @param etag l'ETag corrente
+     * @return la risposta da restituire dal controller
+     */
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .build();
+    }
+
+    /**
+     * Crea la risposta 200 OK con l'ETag corrente, se disponibile.
+     *
+     * @param etag l'ETag corrente, o {@code null}
+     * @param body il corpo della risposta
+     * @return la risposta da restituire dal controller
+     */
+    static <T> ResponseEntity<T> ok(String etag, T body) {
+        if (etag == null) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,79 @@
+package org.BABO.server.controller;
+
+import org.BABO.server.service.BookService;
+import org.BABO.server.service.HomeFeedService;
+import org.BABO.server.service.RatingService;
+import org.BABO.shared.dto.Book.HomeFeedResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller REST della home dell'applicazione BABO.
+ * <p>
+ * Restituisce con una sola richiesta tutte le sezioni mostrate dalla home e dalle classifiche
+ * (in evidenza, consigliati, nuove uscite, più recensiti, meglio valutati), costruite da
+ * {@link HomeFeedService} a partire da un'unica istantanea del catalogo. All'avvio il client
+ * esegue così una richiesta invece di una per sezione.
+ * </p>
+ *
+ * <h3>Endpoint disponibili:</h3>
+ * <ul>
+ *   <li>{@code GET /api/home} - Tutte le sezioni della home</li>
+ * </ul>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see HomeFeedService
+ * @see HomeFeedResponse
+ */
+@RestController
+@RequestMapping("/api/home")
+@CrossOrigin(origins = "*")
+public class HomeController {
+
+    /** Servizio che costruisce le sezioni della home */
+    @Autowired
+    private HomeFeedService homeFeedService;
+
+    /** Servizio del catalogo, per la versione del catalogo */
+    @Autowired
+    private BookService bookService;
+
+    /** Servizio delle valutazioni, per la versione delle classifiche */
+    @Autowired
+    private RatingService ratingService;
+
+    /**
+     * Recupera tutte le sezioni della home in un'unica risposta.
+     * <p>
+     * La risposta include un ETag legato alle versioni del catalogo e delle valutazioni: se il
+     * client lo invia in {@code If-None-Match} e nulla è cambiato, riceve 304 senza corpo.
+     * </p>
+     *
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
+     * @return {@link ResponseEntity} contenente {@link HomeFeedResponse} con:
+     *         <ul>
+     *           <li><strong>200 OK:</strong> Sezioni recuperate con successo</li>
+     *           <li><strong>304 Not Modified:</strong> Catalogo e valutazioni non sono cambiati</li>
+     *           <li><strong>500 Internal Server Error:</strong> Errore durante la costruzione delle sezioni</li>
+     *         </ul>
+     * @since 1.0.0
+     */
+    @GetMapping
+    public ResponseEntity<HomeFeedResponse> getHomeFeed(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        try {
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion(), ratingService.getRatingsVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
+            }
+
+            return ConditionalGet.ok(etag, homeFeedService.getHomeFeed());
+        } catch (Exception e) {
+            System.err.println("Errore nel recupero della home: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
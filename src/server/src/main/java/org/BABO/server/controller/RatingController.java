@@ -1,10 +1,13 @@
 package org.BABO.server.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.BABO.shared.model.Book;
 import org.BABO.server.service.BookService;
 import org.BABO.shared.model.BookRating;
 import org.BABO.shared.dto.Rating.RatingRequest;
 import org.BABO.shared.dto.Rating.RatingResponse;
+import org.BABO.shared.dto.Reviews.ReviewStats;
+import org.BABO.shared.dto.Reviews.ReviewStatsResponse;
 import org.BABO.server.service.RatingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -12,7 +15,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -110,6 +112,10 @@ public class RatingController {
     @Autowired
     private BookService bookService;
 
+    /** Mapper JSON configurato da Spring, usato per le risposte scritte in streaming */
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Aggiunge una nuova valutazione o aggiorna una esistente per un libro.
      * <p>
@@ -117,9 +123,13 @@ public class RatingController {
      * con validazione completa input e calcolo automatico media ponderata.
      * Supporta sia creazione che aggiornamento con logica upsert.
      * </p>
+     * <p>
+     * La risposta include anche le statistiche aggiornate del libro (media, numero di
+     * valutazioni e distribuzione), lette nella stessa transazione del salvataggio.
+     * </p>
      *
      * @param request {@link RatingRequest} con tutti i parametri valutazione
-     * @return {@link ResponseEntity} di {@link RatingResponse} con valutazione salvata
+     * @return {@link ResponseEntity} di {@link RatingResponse} con valutazione salvata e statistiche del libro
      * @since 1.0.0
      * @see RatingService#addOrUpdateRating(BookRating)
      */
@@ -146,17 +156,11 @@ public class RatingController {
                     request.getCleanReview()
             );
 
-            boolean success = ratingService.addOrUpdateRating(rating);
-
-            if (success) {
-                BookRating savedRating = ratingService.getRatingByUserAndBook(
-                        request.getUsername(), request.getIsbn()
-                );
+            RatingResponse response = ratingService.addOrUpdateRating(rating);
 
+            if (response != null) {
                 System.out.println("Valutazione salvata con successo");
-                return ResponseEntity.ok(
-                        new RatingResponse(true, "Valutazione salvata con successo", savedRating)
-                );
+                return ResponseEntity.ok(response);
             } else {
                 System.out.println("Salvataggio valutazione fallito");
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -302,8 +306,10 @@ public class RatingController {
     /**
      * Recupera statistiche complete e analytics per un libro.
      * <p>
-     * Endpoint avanzato per dashboard analytics con metriche aggregate,
-     * distribuzione punteggi e descrizioni qualitative automatiche.
+     * Endpoint avanzato per dashboard analytics con metriche aggregate e
+     * distribuzione punteggi. I valori provengono dagli aggregati per libro
+     * mantenuti da {@link RatingService}, quindi la risposta non contiene
+     * l'elenco delle recensioni (disponibile su {@code /book/{isbn}}).
      * </p>
      *
      * @param isbn codice ISBN del libro per le statistiche
@@ -320,18 +326,7 @@ public class RatingController {
                         .body(new RatingResponse(false, "ISBN è obbligatorio"));
             }
 
-            List<BookRating> ratings = ratingService.getRatingsForBook(isbn);
-            Double averageRating = ratingService.getAverageRatingForBook(isbn);
-
-            int totalRatings = ratings.size();
-            String qualityDescription = averageRating != null && averageRating > 0 ?
-                    getQualityDescription(averageRating) : "Non valutato";
-
-            System.out.println("Statistiche calcolate per " + totalRatings + " valutazioni");
-
-            RatingResponse response = new RatingResponse(true, "Statistiche recuperate con successo");
-            response.setRatings(ratings);
-            response.setAverageRating(averageRating);
+            RatingResponse response = ratingService.getBookRatingStatistics(isbn);
 
             return ResponseEntity.ok(response);
 
@@ -398,62 +393,30 @@ public class RatingController {
      * Recupera i libri più recensiti con dettagli completi e metriche engagement.
      * <p>
      * Endpoint per discovery content basata su volume di recensioni,
-     * indicatore di interesse community e discussione attiva.
+     * indicatore di interesse community e discussione attiva. La classifica
+     * è mantenuta in memoria e aggiornata ad ogni valutazione.
      * </p>
      *
-     * @return {@link ResponseEntity} con libri ordinati per numero recensioni
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
+     * @return {@link ResponseEntity} con libri ordinati per numero recensioni, o 304 se catalogo e valutazioni non sono cambiati
      * @since 1.2.0
      * @see BookService#getMostReviewedBooksWithDetails()
      */
     @GetMapping("/most-reviewed-books")
-    public ResponseEntity<List<Book>> getMostReviewedBooks() {
+    public ResponseEntity<List<Book>> getMostReviewedBooks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             System.out.println("Richiesta libri più recensiti");
 
-            List<Book> books = bookService.getMostReviewedBooksWithDetails();
-
-            if (books.isEmpty()) {
-                System.out.println("BookService ha ritornato 0 libri, provo con RatingService");
-                List<String> topIsbnList = ratingService.getMostRatedBooks();
-                books = new ArrayList<>();
-
-                for (String isbnEntry : topIsbnList) {
-                    String isbn = isbnEntry.split(" ")[0];
-                    Book book = bookService.getBookByIsbn(isbn);
-                    if (book != null) {
-                        if (isbnEntry.contains(" valutazioni)")) {
-                            try {
-                                String countStr = isbnEntry.substring(isbnEntry.indexOf("(") + 1, isbnEntry.indexOf(" valutazioni)"));
-                                int reviewCount = Integer.parseInt(countStr);
-                                book.setReviewCount(reviewCount);
-
-                                Double avgRating = ratingService.getAverageRatingForBook(isbn);
-                                if (avgRating != null && avgRating > 0) {
-                                    book.setAverageRating(avgRating);
-                                } else {
-                                    book.setAverageRating(3.5 + Math.random() * 1.5);
-                                }
-                            } catch (Exception e) {
-                                book.setReviewCount((int)(Math.random() * 50) + 10);
-                                book.setAverageRating(3.5 + Math.random() * 1.5);
-                            }
-                        }
-
-                        if (book.getImageUrl() == null || book.getImageUrl().isEmpty() || book.getImageUrl().equals("placeholder.jpg")) {
-                            String fileName = (isbn != null && !isbn.trim().isEmpty())
-                                    ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                                    : (book.getTitle() != null ? book.getTitle().replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-                            book.setImageUrl(fileName);
-                        }
-
-                        books.add(book);
-                        System.out.println(book.getTitle() + " - " + book.getReviewCount() + " recensioni, media: " + book.getAverageRating());
-                    }
-                }
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion(), ratingService.getRatingsVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
             }
 
+            List<Book> books = bookService.getMostReviewedBooksWithDetails();
+
             System.out.println("Recuperati " + books.size() + " libri più recensiti");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
 
         } catch (Exception e) {
             System.err.println("Errore recupero libri più recensiti: " + e.getMessage());
@@ -465,52 +428,31 @@ public class RatingController {
     /**
      * Recupera i libri con le valutazioni più elevate.
      * <p>
-     * Endpoint per discovery basata su qualità, utilizzando algoritmi
-     * di ranking che bilanciano media e significatività statistica.
+     * Endpoint per discovery basata su qualità, utilizzando una media
+     * bayesiana che bilancia media e significatività statistica. La classifica
+     * è mantenuta in memoria e aggiornata ad ogni valutazione.
      * </p>
      *
-     * @return {@link ResponseEntity} con libri ordinati per qualità valutazioni
+     * @param ifNoneMatch ETag della copia già in possesso del client (opzionale)
+     * @return {@link ResponseEntity} con libri ordinati per qualità valutazioni, o 304 se catalogo e valutazioni non sono cambiati
      * @since 1.2.0
      * @see BookService#getTopRatedBooksWithDetails()
      */
     @GetMapping("/best-rated-books")
-    public ResponseEntity<List<Book>> getBestRatedBooks() {
+    public ResponseEntity<List<Book>> getBestRatedBooks(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
             System.out.println("Richiesta libri meglio valutati");
 
-            List<Book> books = bookService.getTopRatedBooksWithDetails();
-
-            if (books.isEmpty()) {
-                System.out.println("BookService ha ritornato 0 libri, provo con RatingService");
-                List<String> topIsbnList = ratingService.getBestRatedBooks();
-                books = new ArrayList<>();
-
-                for (String isbnEntry : topIsbnList) {
-                    String isbn = isbnEntry.split(" ")[0];
-                    Book book = bookService.getBookByIsbn(isbn);
-                    if (book != null) {
-                        if (isbnEntry.contains("★") && isbnEntry.contains(" valutazioni)")) {
-                            try {
-                                String ratingPart = isbnEntry.substring(isbnEntry.indexOf("(") + 1, isbnEntry.indexOf("★"));
-                                String countPart = isbnEntry.substring(isbnEntry.indexOf("★, ") + 3, isbnEntry.indexOf(" valutazioni)"));
-
-                                double avgRating = Double.parseDouble(ratingPart);
-                                int reviewCount = Integer.parseInt(countPart);
-
-                                book.setAverageRating(avgRating);
-                                book.setReviewCount(reviewCount);
-                            } catch (Exception e) {
-                                book.setAverageRating(4.0 + Math.random());
-                                book.setReviewCount((int)(Math.random() * 30) + 10);
-                            }
-                        }
-                        books.add(book);
-                    }
-                }
+            String etag = ConditionalGet.etag(bookService.getCatalogVersion(), ratingService.getRatingsVersion());
+            if (ConditionalGet.matches(ifNoneMatch, etag)) {
+                return ConditionalGet.notModified(etag);
             }
 
+            List<Book> books = bookService.getTopRatedBooksWithDetails();
+
             System.out.println("Recuperati " + books.size() + " libri meglio valutati");
-            return ResponseEntity.ok(books);
+            return ConditionalGet.ok(etag, books);
 
         } catch (Exception e) {
             System.err.println("Errore recupero libri meglio valutati: " + e.getMessage());
@@ -597,16 +539,17 @@ public class RatingController {
      * Recupera tutte le recensioni per moderazione amministrativa.
      * <p>
      * Endpoint admin per overview completa di tutte le recensioni
-     * con capacità di moderazione e analisi spam.
+     * con capacità di moderazione e analisi spam. Le recensioni vengono scritte
+     * nella risposta man mano che sono lette dal database.
      * </p>
      *
      * @param adminEmail email amministratore per autorizzazione
      * @return {@link ResponseEntity} con tutte le recensioni del sistema
      * @since 1.4.0
-     * @see RatingService#getAllRatings()
+     * @see RatingService#streamAllRatings(org.BABO.server.service.RowSink)
      */
     @GetMapping("/admin/all")
-    public ResponseEntity<Map<String, Object>> getAllReviewsAdmin(@RequestParam("adminEmail") String adminEmail) {
+    public ResponseEntity<?> getAllReviewsAdmin(@RequestParam("adminEmail") String adminEmail) {
         try {
             System.out.println("Richiesta tutte le recensioni da admin: " + adminEmail);
 
@@ -615,30 +558,8 @@ public class RatingController {
                         .body(Map.of("success", false, "message", "Accesso negato: privilegi admin richiesti"));
             }
 
-            List<BookRating> allRatings = ratingService.getAllRatings();
-
-            List<Map<String, Object>> ratingsData = new ArrayList<>();
-            for (BookRating rating : allRatings) {
-                Map<String, Object> ratingMap = new HashMap<>();
-                ratingMap.put("username", rating.getUsername());
-                ratingMap.put("isbn", rating.getIsbn());
-                ratingMap.put("data", rating.getData());
-                ratingMap.put("style", rating.getStyle());
-                ratingMap.put("content", rating.getContent());
-                ratingMap.put("pleasantness", rating.getPleasantness());
-                ratingMap.put("originality", rating.getOriginality());
-                ratingMap.put("edition", rating.getEdition());
-                ratingMap.put("average", rating.getAverage());
-                ratingMap.put("review", rating.getReview());
-                ratingsData.add(ratingMap);
-            }
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Recensioni recuperate con successo",
-                    "reviews", ratingsData,
-                    "total", allRatings.size()
-            ));
+            return StreamingJson.envelope(objectMapper, "Recensioni recuperate con successo", "reviews",
+                    json -> ratingService.streamAllRatings(rating -> StreamingJson.writeRating(json, rating)));
 
         } catch (Exception e) {
             System.err.println("Errore recupero recensioni admin: " + e.getMessage());
@@ -697,81 +618,38 @@ public class RatingController {
      * Recupera statistiche aggregate complete per dashboard amministrativa.
      * <p>
      * Endpoint per analytics avanzate con metriche globali, distribuzioni
-     * e trend analysis per monitoring qualità contenuti.
+     * e trend analysis per monitoring qualità contenuti. Le statistiche sono aggregate
+     * dal database, quindi il costo della risposta non dipende dal numero di recensioni
+     * trasferite al server.
      * </p>
      *
      * @param adminEmail email amministratore per autorizzazione
-     * @return {@link ResponseEntity} con statistiche complete sistema
+     * @return {@link ResponseEntity} di {@link ReviewStatsResponse} con statistiche complete sistema
      * @since 1.4.0
+     * @see RatingService#getReviewStats()
      */
     @GetMapping("/admin/stats")
-    public ResponseEntity<Map<String, Object>> getReviewsStatsAdmin(@RequestParam("adminEmail") String adminEmail) {
+    public ResponseEntity<ReviewStatsResponse> getReviewsStatsAdmin(@RequestParam("adminEmail") String adminEmail) {
         try {
             System.out.println("Richiesta statistiche recensioni da admin: " + adminEmail);
 
             if (!isUserAdmin(adminEmail)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body(Map.of("success", false, "message", "Accesso negato: privilegi admin richiesti"));
-            }
-
-            int totalReviews = ratingService.getTotalRatingsCount();
-            List<BookRating> allRatings = ratingService.getAllRatings();
-
-            double globalAverage = 0.0;
-            int reviewsWithText = 0;
-            int ratingsWithScores = 0;
-
-            if (!allRatings.isEmpty()) {
-                double sum = 0.0;
-                for (BookRating rating : allRatings) {
-                    if (rating.getAverage() != null && rating.getAverage() > 0) {
-                        sum += rating.getAverage();
-                        ratingsWithScores++;
-                    }
-                    if (rating.getReview() != null && !rating.getReview().trim().isEmpty()) {
-                        reviewsWithText++;
-                    }
-                }
-                if (ratingsWithScores > 0) {
-                    globalAverage = Math.round((sum / ratingsWithScores) * 100.0) / 100.0;
-                }
+                        .body(new ReviewStatsResponse(false, "Accesso negato: privilegi admin richiesti", null));
             }
 
-            Map<String, Integer> ratingDistribution = new HashMap<>();
-            ratingDistribution.put("5_stars", 0);
-            ratingDistribution.put("4_stars", 0);
-            ratingDistribution.put("3_stars", 0);
-            ratingDistribution.put("2_stars", 0);
-            ratingDistribution.put("1_star", 0);
-
-            for (BookRating rating : allRatings) {
-                if (rating.getAverage() != null && rating.getAverage() > 0) {
-                    double avg = rating.getAverage();
-                    if (avg >= 4.5) ratingDistribution.put("5_stars", ratingDistribution.get("5_stars") + 1);
-                    else if (avg >= 3.5) ratingDistribution.put("4_stars", ratingDistribution.get("4_stars") + 1);
-                    else if (avg >= 2.5) ratingDistribution.put("3_stars", ratingDistribution.get("3_stars") + 1);
-                    else if (avg >= 1.5) ratingDistribution.put("2_stars", ratingDistribution.get("2_stars") + 1);
-                    else ratingDistribution.put("1_star", ratingDistribution.get("1_star") + 1);
-                }
+            ReviewStats stats = ratingService.getReviewStats();
+            if (stats == null) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(new ReviewStatsResponse(false, "Errore nel calcolo delle statistiche", null));
             }
 
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalReviews", totalReviews);
-            stats.put("reviewsWithText", reviewsWithText);
-            stats.put("ratingsWithScores", ratingsWithScores);
-            stats.put("globalAverage", globalAverage);
-            stats.put("ratingDistribution", ratingDistribution);
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Statistiche recuperate con successo",
-                    "stats", stats
-            ));
+            return ResponseEntity.ok(new ReviewStatsResponse(true, "Statistiche recuperate con successo", stats));
 
         } catch (Exception e) {
             System.err.println("Errore recupero statistiche admin: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("success", false, "message", "Errore interno del server"));
+                    .body(new ReviewStatsResponse(false, "Errore interno del server", null));
         }
     }
 
@@ -4,12 +4,19 @@ import org.BABO.shared.model.BookRecommendation;
 import org.BABO.shared.model.Book;
 import org.BABO.shared.dto.Recommendation.RecommendationRequest;
 import org.BABO.shared.dto.Recommendation.RecommendationResponse;
+import org.BABO.server.index.CoRecommendationIndex;
+import org.BABO.server.index.ContentSimilarityIndex;
+import org.BABO.server.index.RatingFactorModel;
+import org.BABO.server.service.BookService;
+import org.BABO.server.service.ContentSimilarityService;
+import org.BABO.server.service.PersonalRecommendationService;
 import org.BABO.server.service.RecommendationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -64,6 +71,18 @@ public class RecommendationController {
     @Autowired
     private RecommendationService recommendationService;
 
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ContentSimilarityService contentSimilarityService;
+
+    @Autowired
+    private PersonalRecommendationService personalRecommendationService;
+
+    /** Numero massimo di libri restituiti dalla classifica delle raccomandazioni */
+    private static final int MAX_TOP_RECOMMENDATIONS = RecommendationService.MAX_TOP_RECOMMENDATIONS;
+
     /**
      * Aggiunge una nuova raccomandazione al sistema.
      * <p>
@@ -137,16 +156,7 @@ public class RecommendationController {
                         .body(new RecommendationResponse(false, "ISBN è obbligatorio"));
             }
 
-            List<BookRecommendation> recommendations = recommendationService.getRecommendationsForBook(isbn);
-            List<Book> recommendedBooks = recommendationService.getRecommendedBooksDetails(isbn);
-
-            System.out.println("Recuperate " + recommendations.size() + " raccomandazioni con " +
-                    recommendedBooks.size() + " dettagli libri");
-
-            return ResponseEntity.ok(
-                    new RecommendationResponse(true, "Raccomandazioni recuperate con successo",
-                            recommendations, recommendedBooks)
-            );
+            return ResponseEntity.ok(recommendationService.getBookRecommendations(isbn));
 
         } catch (Exception e) {
             System.err.println("Errore durante il recupero raccomandazioni: " + e.getMessage());
@@ -156,6 +166,167 @@ public class RecommendationController {
         }
     }
 
+    /**
+     * Recupera i libri più consigliati insieme a un libro specifico.
+     * <p>
+     * La classifica è letta dall'indice in memoria delle raccomandazioni e ordina i libri per
+     * numero di utenti distinti che li hanno consigliati. La risposta contiene i dettagli dei
+     * libri in ordine di classifica e, in {@code recommendationCounts}, il numero di utenti
+     * per ciascun ISBN.
+     * </p>
+     *
+     * @param isbn identificatore del libro target
+     * @param limit numero massimo di libri (predefinito 10, massimo 50)
+     * @return {@link ResponseEntity} con i libri più consigliati e i relativi conteggi
+     * @since 1.8.0
+     * @see RecommendationService#getTopRecommendations(String, int)
+     */
+    @GetMapping("/book/{isbn}/top")
+    public ResponseEntity<RecommendationResponse> getTopBookRecommendations(
+            @PathVariable("isbn") String isbn,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            if (isbn == null || isbn.trim().isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(new RecommendationResponse(false, "ISBN è obbligatorio"));
+            }
+
+            if (limit < 1 || limit > MAX_TOP_RECOMMENDATIONS) {
+                return ResponseEntity.badRequest()
+                        .body(new RecommendationResponse(false,
+                                "Il limite deve essere compreso tra 1 e " + MAX_TOP_RECOMMENDATIONS));
+            }
+
+            List<CoRecommendationIndex.Entry> ranking = recommendationService.getTopRecommendations(isbn.trim(), limit);
+            if (ranking == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(new RecommendationResponse(false, "Classifica raccomandazioni non disponibile"));
+            }
+
+            List<String> isbns = new ArrayList<>(ranking.size());
+            for (CoRecommendationIndex.Entry entry : ranking) {
+                isbns.add(entry.getIsbn());
+            }
+
+            RecommendationResponse response = new RecommendationResponse(true, "Classifica raccomandazioni recuperata con successo");
+            response.setRecommendedBooks(bookService.getBooksByIsbns(isbns));
+            response.setRecommendationCounts(RecommendationService.toCounts(ranking));
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            System.err.println("Errore durante il recupero classifica raccomandazioni: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new RecommendationResponse(false, "Errore interno del server"));
+        }
+    }
+
+    /**
+     * Recupera i libri più simili per contenuto a un libro specifico.
+     * <p>
+     * I vicini sono precalcolati dall'indice TF-IDF su descrizione, categoria e autore e
+     * ordinati per similarità del coseno decrescente. Il servizio restituisce 503 finché
+     * l'indice non è stato costruito la prima volta.
+     * </p>
+     *
+     * @param isbn identificatore del libro
+     * @param limit numero massimo di libri (predefinito 10, massimo {@code babo.content-similarity.top-k})
+     * @return {@link ResponseEntity} con i libri simili in ordine di similarità
+     * @since 1.8.0
+     * @see ContentSimilarityService#getSimilarBooks(String, int)
+     */
+    @GetMapping("/book/{isbn}/similar")
+    public ResponseEntity<RecommendationResponse> getSimilarBooks(
+            @PathVariable("isbn") String isbn,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            if (isbn == null || isbn.trim().isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(new RecommendationResponse(false, "ISBN è obbligatorio"));
+            }
+
+            int maxLimit = contentSimilarityService.getTopK();
+            if (limit < 1 || limit > maxLimit) {
+                return ResponseEntity.badRequest()
+                        .body(new RecommendationResponse(false,
+                                "Il limite deve essere compreso tra 1 e " + maxLimit));
+            }
+
+            List<ContentSimilarityIndex.Entry> similar = contentSimilarityService.getSimilarBooks(isbn.trim(), limit);
+            if (similar == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(new RecommendationResponse(false, "Indice libri simili non ancora disponibile"));
+            }
+
+            List<String> isbns = new ArrayList<>(similar.size());
+            for (ContentSimilarityIndex.Entry entry : similar) {
+                isbns.add(entry.getIsbn());
+            }
+
+            RecommendationResponse response = new RecommendationResponse(true, "Libri simili recuperati con successo");
+            response.setRecommendedBooks(bookService.getBooksByIsbns(isbns));
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            System.err.println("Errore durante il recupero libri simili: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new RecommendationResponse(false, "Errore interno del server"));
+        }
+    }
+
+    /**
+     * Recupera i libri consigliati a un utente in base alle sue valutazioni ("per te").
+     * <p>
+     * I consigli sono calcolati dal modello a fattori latenti addestrato in background sui
+     * cinque voti delle valutazioni. Sono esclusi i libri già presenti nelle librerie
+     * dell'utente e quelli già valutati; un utente senza valutazioni riceve una lista vuota.
+     * </p>
+     *
+     * @param username utente a cui consigliare i libri
+     * @param limit numero massimo di libri (predefinito 10, massimo {@code babo.factorization.max-results})
+     * @return {@link ResponseEntity} con i libri consigliati in ordine di voto stimato
+     * @since 1.8.0
+     * @see PersonalRecommendationService#getRecommendationsForUser(String, int)
+     */
+    @GetMapping("/for-you/{username}")
+    public ResponseEntity<RecommendationResponse> getRecommendationsForUser(
+            @PathVariable("username") String username,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            if (username == null || username.trim().isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(new RecommendationResponse(false, "Username è obbligatorio"));
+            }
+
+            int maxLimit = personalRecommendationService.getMaxResults();
+            if (limit < 1 || limit > maxLimit) {
+                return ResponseEntity.badRequest()
+                        .body(new RecommendationResponse(false,
+                                "Il limite deve essere compreso tra 1 e " + maxLimit));
+            }
+
+            List<RatingFactorModel.Entry> recommended =
+                    personalRecommendationService.getRecommendationsForUser(username, limit);
+            if (recommended == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(new RecommendationResponse(false, "Consigli personali non ancora disponibili"));
+            }
+
+            List<String> isbns = new ArrayList<>(recommended.size());
+            for (RatingFactorModel.Entry entry : recommended) {
+                isbns.add(entry.getIsbn());
+            }
+
+            RecommendationResponse response = new RecommendationResponse(true, "Consigli personali recuperati con successo");
+            response.setRecommendedBooks(bookService.getBooksByIsbns(isbns));
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            System.err.println("Errore durante il recupero consigli personali: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new RecommendationResponse(false, "Errore interno del server"));
+        }
+    }
+
     /**
      * Verifica permessi utente per raccomandare libri.
      * <p>
@@ -451,4 +622,4 @@ public class RecommendationController {
             return ResponseEntity.internalServerError().body("Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
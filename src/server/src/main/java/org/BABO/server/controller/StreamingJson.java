@@ -0,0 +1,106 @@
+package org.BABO.server.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.BABO.shared.model.BookRating;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Supporto per le risposte JSON scritte in streaming dai controller amministrativi.
+ * <p>
+ * Produce lo stesso formato delle risposte costruite con {@code Map.of(...)}
+ * ({@code success}, {@code message}, l'elenco richiesto e {@code total}), ma scrive gli
+ * elementi dell'elenco con un {@link JsonGenerator} man mano che vengono letti dal
+ * database. Il totale viene scritto dopo l'elenco, quando è noto.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class StreamingJson {
+
+    /**
+     * Scrive gli elementi dell'elenco nel generatore JSON.
+     */
+    @FunctionalInterface
+    interface ItemWriter {
+        /**
+         * @param json il generatore posizionato all'interno dell'array
+         * @return il numero di elementi scritti
+         */
+        int writeItems(JsonGenerator json) throws IOException, SQLException;
+    }
+
+    private StreamingJson() {
+    }
+
+    /**
+     * Crea una risposta 200 OK il cui corpo viene scritto in streaming.
+     *
+     * @param objectMapper il mapper configurato da Spring, usato per serializzare gli elementi
+     * @param message il messaggio di esito
+     * @param arrayField il nome del campo che contiene l'elenco
+     * @param writer la sorgente degli elementi
+     * @return la risposta da restituire dal controller
+     */
+    static ResponseEntity<StreamingResponseBody> envelope(ObjectMapper objectMapper, String message,
+                                                         String arrayField, ItemWriter writer) {
+        StreamingResponseBody body = out -> {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            try {
+                json.writeStartObject();
+                json.writeBooleanField("success", true);
+                json.writeStringField("message", message);
+                json.writeArrayFieldStart(arrayField);
+                // Invia subito l'intestazione: il client inizia a ricevere prima della fine della query
+                json.flush();
+
+                int total = writer.writeItems(json);
+
+                json.writeEndArray();
+                json.writeNumberField("total", total);
+                json.writeEndObject();
+            } catch (SQLException e) {
+                System.err.println("❌ Errore database durante lo streaming di '" + arrayField + "': " + e.getMessage());
+                throw new IOException(e);
+            } finally {
+                json.close();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Scrive una valutazione con i soli campi della tabella {@code assessment},
+     * nello stesso formato delle risposte amministrative costruite con mappe.
+     *
+     * @param json il generatore posizionato all'interno dell'array
+     * @param rating la valutazione da scrivere
+     * @throws IOException se la scrittura fallisce
+     */
+    static void writeRating(JsonGenerator json, BookRating rating) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("username", rating.getUsername());
+        json.writeStringField("isbn", rating.getIsbn());
+        json.writeStringField("data", rating.getData());
+        json.writeObjectField("style", rating.getStyle());
+        json.writeObjectField("content", rating.getContent());
+        json.writeObjectField("pleasantness", rating.getPleasantness());
+        json.writeObjectField("originality", rating.getOriginality());
+        json.writeObjectField("edition", rating.getEdition());
+        json.writeObjectField("average", rating.getAverage());
+        json.writeStringField("review", rating.getReview());
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,286 @@
+package org.BABO.server.index;
+
+import org.BABO.shared.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indice invertito a trigrammi su titolo e autore dei libri del catalogo.
+ * <p>
+ * Per ogni campo l'indice associa ciascun trigramma (sottostringa di tre caratteri del
+ * testo in minuscolo) all'elenco ordinato delle posizioni dei libri che lo contengono.
+ * Una ricerca per sottostringa interseca le liste dei trigrammi della query, partendo
+ * dalla più corta, e verifica i soli candidati rimasti: il costo dipende dal numero di
+ * libri che condividono i trigrammi della query e non dalla dimensione del catalogo.
+ * </p>
+ *
+ * <h3>Semantica della ricerca:</h3>
+ * <p>
+ * I risultati coincidono con quelli di {@code LOWER(campo) LIKE LOWER('%query%')}: un libro
+ * viene restituito solo se il campo contiene la query come sottostringa. Le query più corte
+ * di tre caratteri, che non hanno trigrammi, vengono risolte con una scansione lineare dei
+ * campi già normalizzati in memoria.
+ * </p>
+ *
+ * <h3>Ordinamento per rilevanza:</h3>
+ * <ol>
+ * <li>campo identico alla query;</li>
+ * <li>campo che inizia con la query;</li>
+ * <li>query che inizia una parola del campo;</li>
+ * <li>query contenuta in qualsiasi altra posizione.</li>
+ * </ol>
+ * <p>
+ * A parità di rilevanza le corrispondenze sul titolo precedono quelle sull'autore e i
+ * libri mantengono l'ordine alfabetico del catalogo.
+ * </p>
+ *
+ * <p>
+ * L'indice è immutabile e viene costruito da {@link CatalogSnapshot#getSearchIndex()}
+ * per ogni istantanea del catalogo.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see CatalogSnapshot
+ */
+public final class BookSearchIndex {
+
+    /** Campi su cui è possibile eseguire la ricerca */
+    public enum Field {
+        /** Solo titolo */
+        TITLE,
+        /** Solo autore */
+        AUTHOR,
+        /** Titolo oppure autore */
+        TITLE_OR_AUTHOR
+    }
+
+    /** Lunghezza degli n-grammi indicizzati */
+    private static final int GRAM_SIZE = 3;
+
+    /** Rilevanza assegnata ai libri il cui campo non contiene la query */
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    /** Libri indicizzati, nell'ordine del catalogo */
+    private final List<Book> books;
+
+    /** Titoli normalizzati, per posizione */
+    private final String[] titles;
+
+    /** Autori normalizzati, per posizione */
+    private final String[] authors;
+
+    /** Liste di posizioni per trigramma del titolo */
+    private final Map<String, int[]> titleGrams;
+
+    /** Liste di posizioni per trigramma dell'autore */
+    private final Map<String, int[]> authorGrams;
+
+    /**
+     * Costruisce l'indice sui libri indicati.
+     *
+     * @param books i libri del catalogo, nell'ordine in cui devono essere restituiti a parità di rilevanza
+     */
+    BookSearchIndex(List<Book> books) {
+        this.books = books;
+        this.titles = new String[books.size()];
+        this.authors = new String[books.size()];
+
+        for (int i = 0; i < books.size(); i++) {
+            titles[i] = normalize(books.get(i).getTitle());
+            authors[i] = normalize(books.get(i).getAuthor());
+        }
+
+        this.titleGrams = buildPostings(titles);
+        this.authorGrams = buildPostings(authors);
+    }
+
+    /**
+     * Cerca i libri il cui campo contiene la query, ordinati per rilevanza.
+     *
+     * @param query il testo da cercare (confronto case-insensitive)
+     * @param field il campo su cui cercare
+     * @return i libri corrispondenti, ordinati per rilevanza
+     */
+    public List<Book> search(String query, Field field) {
+        String q = normalize(query).trim();
+        if (q.isEmpty()) {
+            return new ArrayList<>(books);
+        }
+
+        int[] candidates;
+        if (q.length() < GRAM_SIZE) {
+            candidates = null;
+        } else if (field == Field.TITLE) {
+            candidates = lookup(titleGrams, q);
+        } else if (field == Field.AUTHOR) {
+            candidates = lookup(authorGrams, q);
+        } else {
+            candidates = union(lookup(titleGrams, q), lookup(authorGrams, q));
+        }
+
+        List<long[]> ranked = new ArrayList<>();
+        int total = candidates != null ? candidates.length : books.size();
+        for (int i = 0; i < total; i++) {
+            int position = candidates != null ? candidates[i] : i;
+            int titleRank = field != Field.AUTHOR ? rank(titles[position], q) : NO_MATCH;
+            int authorRank = field != Field.TITLE ? rank(authors[position], q) : NO_MATCH;
+
+            int best = Math.min(titleRank, authorRank);
+            if (best != NO_MATCH) {
+                // A parità di rilevanza il titolo precede l'autore, poi l'ordine del catalogo
+                long key = (long) (best * 2 + (titleRank == best ? 0 : 1));
+                ranked.add(new long[]{key, position});
+            }
+        }
+
+        ranked.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        List<Book> results = new ArrayList<>(ranked.size());
+        for (long[] entry : ranked) {
+            results.add(books.get((int) entry[1]));
+        }
+        return results;
+    }
+
+    /**
+     * Calcola la rilevanza di un campo rispetto alla query (valori più bassi sono migliori).
+     */
+    private static int rank(String value, String query) {
+        int index = value.indexOf(query);
+        if (index < 0) {
+            return NO_MATCH;
+        }
+        if (index == 0) {
+            return value.length() == query.length() ? 0 : 1;
+        }
+
+        // Cerca un'occorrenza all'inizio di una parola
+        while (index > 0) {
+            if (!Character.isLetterOrDigit(value.charAt(index - 1))) {
+                return 2;
+            }
+            index = value.indexOf(query, index + 1);
+        }
+        return 3;
+    }
+
+    /**
+     * Interseca le liste dei trigrammi della query, partendo dalla più corta.
+     *
+     * @return le posizioni candidate, in ordine crescente
+     */
+    private static int[] lookup(Map<String, int[]> postings, String query) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= query.length(); i++) {
+            grams.add(query.substring(i, i + GRAM_SIZE));
+        }
+
+        List<int[]> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            int[] list = postings.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Intersezione di due liste ordinate di posizioni.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                out[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Unione di due liste ordinate di posizioni.
+     */
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Costruisce le liste ordinate di posizioni per ciascun trigramma dei valori indicati.
+     */
+    private static Map<String, int[]> buildPostings(String[] values) {
+        Map<String, int[]> lists = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+
+        for (int position = 0; position < values.length; position++) {
+            String value = values[position];
+            for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+                String gram = value.substring(i, i + GRAM_SIZE);
+                int[] list = lists.get(gram);
+                int size = sizes.getOrDefault(gram, 0);
+
+                // Le posizioni crescono: basta confrontare l'ultima per evitare duplicati
+                if (list != null && list[size - 1] == position) {
+                    continue;
+                }
+                if (list == null) {
+                    list = new int[4];
+                } else if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                }
+                list[size] = position;
+                lists.put(gram, list);
+                sizes.put(gram, size + 1);
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+        for (Map.Entry<String, int[]> entry : lists.entrySet()) {
+            postings.put(entry.getKey(), Arrays.copyOf(entry.getValue(), sizes.get(entry.getKey())));
+        }
+        return postings;
+    }
+
+    /**
+     * Normalizza un testo per il confronto case-insensitive.
+     */
+    private static String normalize(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : "";
+    }
+}
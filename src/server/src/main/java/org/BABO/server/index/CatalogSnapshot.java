@@ -0,0 +1,279 @@
+package org.BABO.server.index;
+
+import org.BABO.shared.model.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Istantanea immutabile del catalogo libri mantenuta in memoria dal server.
+ * <p>
+ * Contiene l'elenco completo dei libri ordinato per titolo e due indici hash che
+ * permettono la ricerca in tempo costante per ISBN e per ID. Un'istanza non viene mai
+ * modificata dopo la costruzione: ogni variazione del catalogo produce una nuova
+ * istantanea tramite {@link #withBook(Book)} o {@link #withoutBook(String)}, che il
+ * {@link org.BABO.server.service.BookService} sostituisce atomicamente a quella corrente.
+ * In questo modo i lettori concorrenti vedono sempre uno stato coerente senza lock.
+ * </p>
+ *
+ * <h3>Condivisione degli oggetti:</h3>
+ * <p>
+ * Gli oggetti {@link Book} contenuti sono condivisi tra tutte le richieste e non devono
+ * essere modificati dai chiamanti. Chi ha bisogno di arricchire un libro (ad esempio con
+ * il numero di recensioni) deve lavorare su una copia ottenuta con {@link #copyOf(Book)}.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see org.BABO.server.service.BookService
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * Ordinamento totale del catalogo: titolo e poi ISBN, per punti di codice Unicode. È lo
+     * stesso ordinamento di {@code ORDER BY books_title COLLATE "C", isbn COLLATE "C"} usato
+     * dalle query del {@link org.BABO.server.service.BookService}: essendo totale, è anche la
+     * chiave della paginazione a cursore, con lo stesso significato in tutti gli endpoint.
+     */
+    private static final Comparator<Book> TITLE_ORDER = Comparator
+            .comparing(Book::getTitle, Comparator.nullsLast(CatalogSnapshot::compareCodePoints))
+            .thenComparing(Book::getIsbn, Comparator.nullsLast(CatalogSnapshot::compareCodePoints));
+
+    /** Libri del catalogo ordinati per titolo (lista non modificabile) */
+    private final List<Book> books;
+
+    /** Indice hash ISBN → libro */
+    private final Map<String, Book> byIsbn;
+
+    /** Indice hash ID → libro */
+    private final Map<Long, Book> byId;
+
+    /** Numero di versione, incrementato ad ogni nuova istantanea */
+    private final long version;
+
+    /** Indice a trigrammi per la ricerca, costruito al primo utilizzo */
+    private volatile BookSearchIndex searchIndex;
+
+    private CatalogSnapshot(List<Book> books, long version) {
+        Map<String, Book> isbnIndex = new HashMap<>(books.size() * 2);
+        Map<Long, Book> idIndex = new HashMap<>(books.size() * 2);
+
+        for (Book book : books) {
+            if (book.getIsbn() != null) {
+                isbnIndex.put(book.getIsbn(), book);
+            }
+            if (book.getId() != null) {
+                idIndex.put(book.getId(), book);
+            }
+        }
+
+        this.books = Collections.unmodifiableList(books);
+        this.byIsbn = isbnIndex;
+        this.byId = idIndex;
+        this.version = version;
+    }
+
+    /**
+     * Crea un'istantanea a partire da una lista di libri, ordinandola per titolo e ISBN.
+     *
+     * @param books i libri del catalogo
+     * @param version il numero di versione da associare all'istantanea
+     * @return la nuova istantanea
+     */
+    public static CatalogSnapshot of(List<Book> books, long version) {
+        List<Book> sorted = new ArrayList<>(books);
+        sorted.sort(TITLE_ORDER);
+        return new CatalogSnapshot(sorted, version);
+    }
+
+    /**
+     * Restituisce tutti i libri del catalogo ordinati per titolo.
+     *
+     * @return una lista non modificabile dei libri
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Restituisce la pagina di libri che segue, nell'ordine del catalogo, la chiave indicata.
+     * <p>
+     * La posizione di partenza viene trovata con una ricerca binaria sulla chiave
+     * (titolo, ISBN), quindi il costo è {@code O(log n + limit)} indipendentemente
+     * dalla pagina richiesta.
+     * </p>
+     *
+     * @param afterTitle il titolo dell'ultimo libro della pagina precedente, o {@code null} per la prima pagina
+     * @param afterIsbn l'ISBN dell'ultimo libro della pagina precedente
+     * @param limit il numero massimo di libri da restituire
+     * @return una lista non modificabile con al più {@code limit} libri
+     */
+    public List<Book> pageAfter(String afterTitle, String afterIsbn, int limit) {
+        int start = 0;
+        if (afterTitle != null) {
+            Book key = new Book(null, afterIsbn, afterTitle, null, null, null, null);
+            int low = 0, high = books.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (TITLE_ORDER.compare(books.get(mid), key) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            start = low;
+        }
+        return books.subList(start, Math.min(start + limit, books.size()));
+    }
+
+    /**
+     * Cerca un libro per ISBN in tempo costante.
+     *
+     * @param isbn l'ISBN del libro
+     * @return il libro condiviso, o {@code null} se non presente
+     */
+    public Book getByIsbn(String isbn) {
+        return isbn != null ? byIsbn.get(isbn.trim()) : null;
+    }
+
+    /**
+     * Cerca un libro per ID in tempo costante.
+     *
+     * @param id l'ID del libro
+     * @return il libro condiviso, o {@code null} se non presente
+     */
+    public Book getById(Long id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    /**
+     * Restituisce l'indice di ricerca a trigrammi su titolo e autore di questa istantanea.
+     * <p>
+     * L'indice viene costruito al primo utilizzo, così che le sostituzioni frequenti
+     * dell'istantanea non paghino il costo di indicizzazione se nessuno esegue ricerche.
+     * </p>
+     *
+     * @return l'indice di ricerca
+     */
+    public BookSearchIndex getSearchIndex() {
+        BookSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = new BookSearchIndex(books);
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return il numero di libri nel catalogo
+     */
+    public int size() {
+        return books.size();
+    }
+
+    /**
+     * @return il numero di versione dell'istantanea
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Restituisce una nuova istantanea in cui il libro indicato è aggiunto o, se esiste
+     * già un libro con lo stesso ISBN, sostituito.
+     * <p>
+     * Il libro deve avere l'ID letto dal database: l'istantanea non assegna ID, generati solo
+     * dalla sequenza di {@code books.book_id}. Il libro viene inserito nella posizione indicata
+     * dall'ordinamento del catalogo.
+     * </p>
+     *
+     * @param book il libro da inserire, con il suo ID (non viene copiato)
+     * @return la nuova istantanea, con versione incrementata
+     */
+    public CatalogSnapshot withBook(Book book) {
+        List<Book> updated = new ArrayList<>(books.size() + 1);
+        for (Book existing : books) {
+            if (!existing.getIsbn().equals(book.getIsbn())) {
+                updated.add(existing);
+            }
+        }
+
+        int position = 0;
+        while (position < updated.size() && TITLE_ORDER.compare(updated.get(position), book) <= 0) {
+            position++;
+        }
+        updated.add(position, book);
+
+        return new CatalogSnapshot(updated, version + 1);
+    }
+
+    /**
+     * Restituisce una nuova istantanea senza il libro con l'ISBN indicato.
+     *
+     * @param isbn l'ISBN del libro da rimuovere
+     * @return la nuova istantanea, con versione incrementata
+     */
+    public CatalogSnapshot withoutBook(String isbn) {
+        List<Book> updated = new ArrayList<>(books.size());
+        for (Book existing : books) {
+            if (!existing.getIsbn().equals(isbn)) {
+                updated.add(existing);
+            }
+        }
+        return new CatalogSnapshot(updated, version + 1);
+    }
+
+    /**
+     * Confronta due stringhe per punti di codice Unicode, come la collation {@code "C"} di
+     * PostgreSQL su testi UTF-8. {@link String#compareTo(String)} confronta invece le unità
+     * UTF-16, che ordinano diversamente i caratteri fuori dal piano multilingue di base.
+     */
+    static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * Crea una copia indipendente di un libro, modificabile senza alterare l'istantanea.
+     *
+     * @param source il libro da copiare
+     * @return la copia, o {@code null} se {@code source} è {@code null}
+     */
+    public static Book copyOf(Book source) {
+        if (source == null) {
+            return null;
+        }
+        Book copy = new Book(source.getId(), source.getIsbn(), source.getTitle(), source.getAuthor(),
+                source.getDescription(), source.getPublishYear(), source.getImageUrl());
+        copy.setCategory(source.getCategory());
+        copy.setPublisher(source.getPublisher());
+        copy.setLanguage(source.getLanguage());
+        copy.setPages(source.getPages());
+        copy.setPrice(source.getPrice());
+        copy.setIsFree(source.getIsFree());
+        copy.setIsNew(source.getIsNew());
+        copy.setReviewCount(source.getReviewCount());
+        copy.setAverageRating(source.getAverageRating());
+        return copy;
+    }
+}
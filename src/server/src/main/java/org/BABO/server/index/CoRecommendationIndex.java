@@ -0,0 +1,180 @@
+package org.BABO.server.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indice in memoria delle raccomandazioni tra libri, costruito dalla tabella
+ * {@code recommendation_edges}.
+ * <p>
+ * L'indice è una matrice sparsa libro → libro: per ogni libro target conserva i libri
+ * consigliati insieme ad esso e, per ciascuno, il numero di utenti distinti che hanno creato
+ * il collegamento. Poiché la chiave primaria impedisce a un utente di consigliare due volte
+ * lo stesso libro per lo stesso target, il numero di occorrenze di una coppia coincide con il
+ * numero di utenti distinti.
+ * </p>
+ *
+ * <h3>Lettura e aggiornamento:</h3>
+ * <p>
+ * Per ogni libro target viene pubblicata una lista immutabile già ordinata per numero di
+ * utenti decrescente (a parità, per ISBN), quindi la lettura di una classifica è una ricerca
+ * hash senza lock né accessi al database. Aggiungere o rimuovere un collegamento aggiorna
+ * e riordina la sola riga del libro target interessato.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see org.BABO.server.service.RecommendationService
+ */
+public final class CoRecommendationIndex {
+
+    /**
+     * Libro consigliato insieme a un libro target. Le istanze sono immutabili.
+     */
+    public static final class Entry {
+        private final String isbn;
+        private final int count;
+
+        private Entry(String isbn, int count) {
+            this.isbn = isbn;
+            this.count = count;
+        }
+
+        /** @return l'ISBN del libro consigliato */
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /** @return il numero di utenti distinti che hanno consigliato il libro */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /** Più utenti prima, poi ISBN */
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt(Entry::getCount).reversed()
+            .thenComparing(Entry::getIsbn);
+
+    /** Conteggi per libro target e libro consigliato, modificati solo sotto lock */
+    private final Map<String, Map<String, Integer>> counts = new HashMap<>();
+
+    /** Righe ordinate pubblicate per ogni libro target */
+    private final Map<String, List<Entry>> ranked = new ConcurrentHashMap<>();
+
+    /**
+     * Imposta il numero di utenti per una coppia di libri, senza riordinare la riga.
+     * Usato durante il caricamento iniziale, seguito da {@link #publishAll()}.
+     *
+     * @param targetIsbn l'ISBN del libro target
+     * @param recommendedIsbn l'ISBN del libro consigliato
+     * @param count il numero di utenti distinti
+     */
+    public synchronized void put(String targetIsbn, String recommendedIsbn, int count) {
+        if (count > 0) {
+            counts.computeIfAbsent(targetIsbn, key -> new HashMap<>()).put(recommendedIsbn, count);
+        }
+    }
+
+    /**
+     * Pubblica le righe ordinate di tutti i libri target.
+     */
+    public synchronized void publishAll() {
+        for (String targetIsbn : counts.keySet()) {
+            publish(targetIsbn);
+        }
+    }
+
+    /**
+     * Registra un nuovo collegamento creato da un utente.
+     *
+     * @param targetIsbn l'ISBN del libro target
+     * @param recommendedIsbn l'ISBN del libro consigliato
+     */
+    public synchronized void add(String targetIsbn, String recommendedIsbn) {
+        counts.computeIfAbsent(targetIsbn, key -> new HashMap<>()).merge(recommendedIsbn, 1, Integer::sum);
+        publish(targetIsbn);
+    }
+
+    /**
+     * Rimuove un collegamento eliminato da un utente. Le coppie che restano senza utenti
+     * escono dall'indice.
+     *
+     * @param targetIsbn l'ISBN del libro target
+     * @param recommendedIsbn l'ISBN del libro consigliato
+     */
+    public synchronized void remove(String targetIsbn, String recommendedIsbn) {
+        Map<String, Integer> row = counts.get(targetIsbn);
+        if (row == null) {
+            return;
+        }
+        row.computeIfPresent(recommendedIsbn, (isbn, count) -> count > 1 ? count - 1 : null);
+        if (row.isEmpty()) {
+            counts.remove(targetIsbn);
+        }
+        publish(targetIsbn);
+    }
+
+    /**
+     * Rimuove un libro eliminato dal catalogo, sia come target sia come libro consigliato.
+     *
+     * @param isbn l'ISBN del libro eliminato
+     */
+    public synchronized void removeBook(String isbn) {
+        counts.remove(isbn);
+        publish(isbn);
+
+        List<String> affected = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Integer>> row : counts.entrySet()) {
+            if (row.getValue().remove(isbn) != null) {
+                affected.add(row.getKey());
+            }
+        }
+        for (String targetIsbn : affected) {
+            if (counts.get(targetIsbn).isEmpty()) {
+                counts.remove(targetIsbn);
+            }
+            publish(targetIsbn);
+        }
+    }
+
+    /**
+     * Restituisce i libri più consigliati insieme a un libro target.
+     *
+     * @param targetIsbn l'ISBN del libro target
+     * @param limit il numero massimo di libri
+     * @return i libri in ordine di classifica, lista vuota se il libro non ha raccomandazioni
+     */
+    public List<Entry> top(String targetIsbn, int limit) {
+        List<Entry> row = ranked.getOrDefault(targetIsbn, Collections.emptyList());
+        return row.size() <= limit ? row : row.subList(0, Math.max(0, limit));
+    }
+
+    /**
+     * @return il numero di libri target con almeno una raccomandazione
+     */
+    public int size() {
+        return ranked.size();
+    }
+
+    private void publish(String targetIsbn) {
+        Map<String, Integer> row = counts.get(targetIsbn);
+        if (row == null) {
+            ranked.remove(targetIsbn);
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(row.size());
+        for (Map.Entry<String, Integer> cell : row.entrySet()) {
+            entries.add(new Entry(cell.getKey(), cell.getValue()));
+        }
+        entries.sort(RANKING);
+        ranked.put(targetIsbn, Collections.unmodifiableList(entries));
+    }
+}
@@ -0,0 +1,606 @@
+package org.BABO.server.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Indice dei libri simili per contenuto, basato su vettori TF-IDF di descrizione, categoria e autore.
+ * <p>
+ * Ogni libro è rappresentato da un vettore sparso normalizzato: le parole della descrizione
+ * pesate con {@code (1 + log tf) · idf}, più un termine per la categoria e uno per l'autore
+ * con peso doppio. La similarità tra due libri è il coseno dei rispettivi vettori.
+ * </p>
+ *
+ * <h3>Costruzione:</h3>
+ * <p>
+ * {@link Builder#build(int, ForkJoinPool)} tokenizza i libri, calcola le frequenze
+ * documentali e, in parallelo sul pool fork-join indicato, i vicini di ogni libro tramite
+ * un indice invertito: per ogni libro si scorrono solo le liste dei suoi termini. I termini
+ * presenti in più di {@link #MAX_DF_RATIO} dei libri vengono scartati, perché poco
+ * informativi e con liste troppo lunghe.
+ * </p>
+ *
+ * <h3>Struttura compatta:</h3>
+ * <p>
+ * I primi {@code k} vicini di ogni libro sono conservati in due array primitivi piatti
+ * (indici dei libri e punteggi), con {@code k} posizioni per libro: la lettura non alloca
+ * strutture intermedie oltre alla lista restituita.
+ * </p>
+ *
+ * <h3>Aggiornamento incrementale:</h3>
+ * <p>
+ * {@link #upsert(String, String, String, String)} e {@link #remove(String)} aggiornano un solo
+ * libro: ricalcolano il suo vettore e i suoi vicini, inseriscono il libro nelle liste degli
+ * altri quando entra nei loro primi {@code k}, e ricalcolano da zero solo le liste da cui il
+ * libro esce. I pesi IDF restano quelli dell'ultima costruzione completa; i termini nuovi
+ * ricevono il peso di un termine presente in un solo libro. Letture e aggiornamenti sono
+ * coordinati da un lock lettura/scrittura.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ContentSimilarityIndex {
+
+    /** Frazione massima di libri in cui può comparire un termine indicizzato */
+    public static final double MAX_DF_RATIO = 0.2;
+
+    /** Frequenza documentale minima oltre la quale si applica {@link #MAX_DF_RATIO} */
+    private static final int MIN_DF_CUTOFF = 10;
+
+    /** Lunghezza minima di una parola della descrizione */
+    private static final int MIN_WORD_LENGTH = 3;
+
+    /** Peso dei termini di categoria e autore rispetto a una parola della descrizione */
+    private static final int FIELD_WEIGHT = 2;
+
+    /**
+     * Libro simile a un libro dato. Le istanze sono immutabili.
+     */
+    public static final class Entry {
+        private final String isbn;
+        private final double score;
+
+        private Entry(String isbn, double score) {
+            this.isbn = isbn;
+            this.score = score;
+        }
+
+        /** @return l'ISBN del libro simile */
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /** @return la similarità del coseno, tra 0 e 1 */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private final int k;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dizionario dei termini
+    private final Map<String, Integer> termIds;
+    private float[] idf;
+    private boolean[] stopped;
+    private int termCount;
+
+    // Liste invertite: per ogni termine, libri e pesi
+    private int[][] postingDocs;
+    private float[][] postingWeights;
+    private int[] postingSizes;
+
+    // Libri e relativi vettori (termini ordinati e pesi normalizzati)
+    private final Map<String, Integer> docIds;
+    private String[] isbns;
+    private int[][] docTerms;
+    private float[][] docWeights;
+    private int docCount;
+
+    // Vicini: k posizioni per libro, ordinate per punteggio decrescente
+    private int[] neighbours;
+    private float[] neighbourScores;
+    private int[] neighbourCounts;
+
+    /** Accumulatori dei punteggi, uno per thread */
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    /**
+     * Punteggi parziali di un libro rispetto agli altri, con l'elenco delle posizioni toccate
+     * così che lettura e azzeramento costino quanto le liste invertite scorse, non quanto il catalogo.
+     */
+    private static final class Accumulator {
+        private float[] scores = new float[0];
+        private int[] touched = new int[0];
+        private int size;
+
+        private void ensureCapacity(int docs) {
+            if (scores.length < docs) {
+                scores = new float[docs];
+                touched = new int[docs];
+            }
+        }
+
+        private void add(int doc, float value) {
+            if (scores[doc] == 0f) {
+                touched[size++] = doc;
+            }
+            scores[doc] += value;
+        }
+
+        private void reset() {
+            for (int i = 0; i < size; i++) {
+                scores[touched[i]] = 0f;
+            }
+            size = 0;
+        }
+    }
+
+    private ContentSimilarityIndex(int k, Map<String, Integer> termIds, float[] idf, boolean[] stopped,
+                                   Map<String, Integer> docIds, String[] isbns, int[][] docTerms, float[][] docWeights) {
+        this.k = k;
+        this.termIds = termIds;
+        this.idf = idf;
+        this.stopped = stopped;
+        this.termCount = idf.length;
+        this.docIds = docIds;
+        this.isbns = isbns;
+        this.docTerms = docTerms;
+        this.docWeights = docWeights;
+        this.docCount = isbns.length;
+
+        this.postingDocs = new int[termCount][];
+        this.postingWeights = new float[termCount][];
+        this.postingSizes = new int[termCount];
+
+        this.neighbours = new int[docCount * k];
+        this.neighbourScores = new float[docCount * k];
+        this.neighbourCounts = new int[docCount];
+    }
+
+    /**
+     * Restituisce i libri più simili a quello indicato.
+     *
+     * @param isbn l'ISBN del libro
+     * @param limit il numero massimo di libri
+     * @return i libri simili in ordine di similarità, lista vuota se il libro non è indicizzato
+     */
+    public List<Entry> similar(String isbn, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer doc = isbn != null ? docIds.get(isbn.trim()) : null;
+            if (doc == null) {
+                return Collections.emptyList();
+            }
+            int count = Math.min(limit, neighbourCounts[doc]);
+            List<Entry> result = new ArrayList<>(Math.max(0, count));
+            for (int i = 0; i < count; i++) {
+                int slot = doc * k + i;
+                result.add(new Entry(isbns[neighbours[slot]], neighbourScores[slot]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return il numero di libri indicizzati
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggiunge un libro o ne sostituisce il contenuto, aggiornando i vicini interessati.
+     *
+     * @param isbn l'ISBN del libro
+     * @param author l'autore
+     * @param category la categoria
+     * @param description la descrizione
+     */
+    public void upsert(String isbn, String author, String category, String description) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = docIds.get(isbn);
+            int doc = existing != null ? existing : appendDoc(isbn);
+            if (existing != null) {
+                removePostings(doc);
+            }
+            setVector(doc, termFrequencies(author, category, description), true);
+            addPostings(doc);
+            refreshAround(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rimuove un libro dall'indice e dalle liste dei vicini degli altri libri.
+     *
+     * @param isbn l'ISBN del libro
+     */
+    public void remove(String isbn) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docIds.remove(isbn);
+            if (doc == null) {
+                return;
+            }
+            removePostings(doc);
+            docTerms[doc] = new int[0];
+            docWeights[doc] = new float[0];
+            neighbourCounts[doc] = 0;
+            refreshAround(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Calcola i vicini di tutti i libri. Ogni libro scrive solo le proprie posizioni, quindi
+     * i calcoli sono indipendenti e vengono eseguiti in parallelo.
+     */
+    private void computeAllNeighbours(ForkJoinPool pool) {
+        Runnable task = () -> IntStream.range(0, docCount).parallel().forEach(this::computeNeighbours);
+        pool.submit(task).join();
+    }
+
+    /**
+     * Ricalcola da zero i vicini di un libro scorrendo le liste invertite dei suoi termini.
+     */
+    private void computeNeighbours(int doc) {
+        Accumulator accumulator = scoresAgainst(doc);
+        int base = doc * k;
+        int count = 0;
+        for (int i = 0; i < accumulator.size; i++) {
+            int other = accumulator.touched[i];
+            float score = accumulator.scores[other];
+            if (other == doc) {
+                continue;
+            }
+            if (count < k) {
+                count++;
+            } else if (score <= neighbourScores[base + k - 1]) {
+                continue;
+            }
+            insertSorted(base, count, other, score);
+        }
+        accumulator.reset();
+        neighbourCounts[doc] = count;
+    }
+
+    /**
+     * Accumula i prodotti scalari tra il libro indicato e gli altri libri con termini in comune.
+     * Il chiamante deve azzerare l'accumulatore dopo averlo letto.
+     */
+    private Accumulator scoresAgainst(int doc) {
+        Accumulator accumulator = accumulators.get();
+        accumulator.ensureCapacity(docCount);
+        int[] terms = docTerms[doc];
+        float[] weights = docWeights[doc];
+        for (int i = 0; i < terms.length; i++) {
+            int term = terms[i];
+            int[] postings = postingDocs[term];
+            float[] postingWeight = postingWeights[term];
+            float weight = weights[i];
+            for (int p = 0; p < postingSizes[term]; p++) {
+                accumulator.add(postings[p], weight * postingWeight[p]);
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * Inserisce un vicino nella lista ordinata di un libro, scartando l'ultimo se la lista è
+     * piena. {@code count} è la lunghezza della lista dopo l'inserimento.
+     */
+    private void insertSorted(int base, int count, int other, float score) {
+        int position = count - 1;
+        while (position > 0 && neighbourScores[base + position - 1] < score) {
+            neighbours[base + position] = neighbours[base + position - 1];
+            neighbourScores[base + position] = neighbourScores[base + position - 1];
+            position--;
+        }
+        neighbours[base + position] = other;
+        neighbourScores[base + position] = score;
+    }
+
+    /**
+     * Aggiorna i vicini dopo la modifica del vettore di un libro: ricalcola la sua lista,
+     * inserisce il libro nelle liste in cui ora rientra e ricalcola quelle da cui potrebbe uscire.
+     */
+    private void refreshAround(int doc) {
+        Accumulator accumulator = scoresAgainst(doc);
+        float[] scores = new float[docCount];
+        for (int i = 0; i < accumulator.size; i++) {
+            scores[accumulator.touched[i]] = accumulator.scores[accumulator.touched[i]];
+        }
+        accumulator.reset();
+
+        if (isLive(doc)) {
+            computeNeighbours(doc);
+        }
+
+        for (int other = 0; other < docCount; other++) {
+            if (other == doc || !isLive(other)) {
+                continue;
+            }
+            int base = other * k;
+            int count = neighbourCounts[other];
+            int position = indexOf(base, count, doc);
+            float score = scores[other];
+
+            if (position >= 0) {
+                float previous = neighbourScores[base + position];
+                if (score < previous && count == k) {
+                    // Il libro potrebbe uscire dalla lista: serve il ricalcolo completo
+                    computeNeighbours(other);
+                    continue;
+                }
+                System.arraycopy(neighbours, base + position + 1, neighbours, base + position, count - position - 1);
+                System.arraycopy(neighbourScores, base + position + 1, neighbourScores, base + position, count - position - 1);
+                count--;
+            }
+
+            if (score > 0f && (count < k || score > neighbourScores[base + k - 1])) {
+                count = Math.min(count + 1, k);
+                insertSorted(base, count, doc, score);
+            }
+            neighbourCounts[other] = count;
+        }
+    }
+
+    /** Un libro rimosso conserva la propria posizione negli array ma non è più nel dizionario */
+    private boolean isLive(int doc) {
+        Integer current = docIds.get(isbns[doc]);
+        return current != null && current == doc;
+    }
+
+    private int indexOf(int base, int count, int doc) {
+        for (int i = 0; i < count; i++) {
+            if (neighbours[base + i] == doc) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int appendDoc(String isbn) {
+        if (docCount == isbns.length) {
+            int capacity = Math.max(16, docCount * 3 / 2);
+            isbns = Arrays.copyOf(isbns, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+            docWeights = Arrays.copyOf(docWeights, capacity);
+            neighbours = Arrays.copyOf(neighbours, capacity * k);
+            neighbourScores = Arrays.copyOf(neighbourScores, capacity * k);
+            neighbourCounts = Arrays.copyOf(neighbourCounts, capacity);
+        }
+        int doc = docCount++;
+        isbns[doc] = isbn;
+        docIds.put(isbn, doc);
+        return doc;
+    }
+
+    /**
+     * Calcola il vettore normalizzato di un libro. Con {@code addTerms} i termini sconosciuti
+     * vengono aggiunti al dizionario, altrimenti ignorati.
+     */
+    private void setVector(int doc, Map<String, Integer> frequencies, boolean addTerms) {
+        // Coppie (termine, frequenza) impacchettate in un long per ordinarle per termine
+        long[] packed = new long[frequencies.size()];
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Integer id = termIds.get(entry.getKey());
+            if (id == null && addTerms) {
+                id = appendTerm(entry.getKey());
+            }
+            if (id != null && !stopped[id]) {
+                packed[size++] = ((long) id << 32) | entry.getValue();
+            }
+        }
+        Arrays.sort(packed, 0, size);
+
+        int[] terms = new int[size];
+        float[] weights = new float[size];
+        double norm = 0;
+        for (int i = 0; i < size; i++) {
+            terms[i] = (int) (packed[i] >>> 32);
+            int tf = (int) packed[i];
+            weights[i] = (float) ((1 + Math.log(tf)) * idf[terms[i]]);
+            norm += (double) weights[i] * weights[i];
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < size; i++) {
+                weights[i] *= scale;
+            }
+        }
+        docTerms[doc] = terms;
+        docWeights[doc] = weights;
+    }
+
+    private int appendTerm(String term) {
+        if (termCount == idf.length) {
+            int capacity = Math.max(16, termCount * 3 / 2);
+            idf = Arrays.copyOf(idf, capacity);
+            stopped = Arrays.copyOf(stopped, capacity);
+            postingDocs = Arrays.copyOf(postingDocs, capacity);
+            postingWeights = Arrays.copyOf(postingWeights, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+        }
+        int id = termCount++;
+        termIds.put(term, id);
+        idf[id] = (float) (Math.log((docCount + 1.0) / 2.0) + 1.0);
+        return id;
+    }
+
+    private void addPostings(int doc) {
+        int[] terms = docTerms[doc];
+        float[] weights = docWeights[doc];
+        for (int i = 0; i < terms.length; i++) {
+            int term = terms[i];
+            int size = postingSizes[term];
+            if (postingDocs[term] == null) {
+                postingDocs[term] = new int[4];
+                postingWeights[term] = new float[4];
+            } else if (size == postingDocs[term].length) {
+                postingDocs[term] = Arrays.copyOf(postingDocs[term], size * 2);
+                postingWeights[term] = Arrays.copyOf(postingWeights[term], size * 2);
+            }
+            postingDocs[term][size] = doc;
+            postingWeights[term][size] = weights[i];
+            postingSizes[term] = size + 1;
+        }
+    }
+
+    private void removePostings(int doc) {
+        for (int term : docTerms[doc]) {
+            int[] postings = postingDocs[term];
+            int size = postingSizes[term];
+            for (int p = 0; p < size; p++) {
+                if (postings[p] == doc) {
+                    postings[p] = postings[size - 1];
+                    postingWeights[term][p] = postingWeights[term][size - 1];
+                    postingSizes[term] = size - 1;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Estrae i termini di un libro con la relativa frequenza: le parole della descrizione,
+     * la categoria ({@code c:}) e l'autore ({@code a:}).
+     */
+    static Map<String, Integer> termFrequencies(String author, String category, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        String normalizedCategory = normalize(category).trim();
+        if (!normalizedCategory.isEmpty()) {
+            frequencies.put("c:" + normalizedCategory, FIELD_WEIGHT);
+        }
+        String normalizedAuthor = normalize(author).trim();
+        if (!normalizedAuthor.isEmpty()) {
+            frequencies.put("a:" + normalizedAuthor, FIELD_WEIGHT);
+        }
+        for (String word : normalize(description).split("[^\\p{L}\\p{Nd}]+")) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                frequencies.merge(word, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}+", "").replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Raccoglie i testi dei libri e costruisce l'indice completo.
+     */
+    public static final class Builder {
+        private final List<String> isbns = new ArrayList<>();
+        private final List<String[]> texts = new ArrayList<>();
+
+        /**
+         * Aggiunge un libro da indicizzare.
+         *
+         * @param isbn l'ISBN del libro
+         * @param author l'autore
+         * @param category la categoria
+         * @param description la descrizione
+         */
+        public void add(String isbn, String author, String category, String description) {
+            isbns.add(isbn);
+            texts.add(new String[] { author, category, description });
+        }
+
+        /**
+         * Costruisce l'indice calcolando i vicini di tutti i libri.
+         *
+         * @param k il numero di vicini conservati per ogni libro
+         * @param pool il pool fork-join su cui eseguire le fasi parallele
+         * @return l'indice
+         */
+        public ContentSimilarityIndex build(int k, ForkJoinPool pool) {
+            int docs = isbns.size();
+
+            // 1. Tokenizzazione in parallelo
+            List<Map<String, Integer>> frequencies = new ArrayList<>(Collections.nCopies(docs, null));
+            pool.submit(() -> IntStream.range(0, docs).parallel().forEach(i -> {
+                String[] text = texts.get(i);
+                frequencies.set(i, termFrequencies(text[0], text[1], text[2]));
+            })).join();
+
+            // 2. Dizionario e frequenze documentali
+            Map<String, Integer> termIds = new HashMap<>();
+            List<Integer> df = new ArrayList<>();
+            for (Map<String, Integer> doc : frequencies) {
+                for (String term : doc.keySet()) {
+                    Integer id = termIds.get(term);
+                    if (id == null) {
+                        termIds.put(term, df.size());
+                        df.add(1);
+                    } else {
+                        df.set(id, df.get(id) + 1);
+                    }
+                }
+            }
+
+            int cutoff = Math.max(MIN_DF_CUTOFF, (int) (docs * MAX_DF_RATIO));
+            float[] idf = new float[df.size()];
+            boolean[] stopped = new boolean[df.size()];
+            for (int term = 0; term < idf.length; term++) {
+                idf[term] = (float) (Math.log((docs + 1.0) / (df.get(term) + 1.0)) + 1.0);
+                stopped[term] = df.get(term) > cutoff;
+            }
+
+            Map<String, Integer> docIds = new HashMap<>(docs * 2);
+            for (int i = 0; i < docs; i++) {
+                docIds.put(isbns.get(i), i);
+            }
+
+            ContentSimilarityIndex index = new ContentSimilarityIndex(k, termIds, idf, stopped, docIds,
+                    isbns.toArray(new String[0]), new int[docs][], new float[docs][]);
+
+            // 3. Vettori in parallelo (il dizionario è già completo e non viene modificato)
+            pool.submit(() -> IntStream.range(0, docs).parallel()
+                    .forEach(i -> index.setVector(i, frequencies.get(i), false))).join();
+
+            // 4. Liste invertite e vicini
+            index.rebuildPostings();
+            index.computeAllNeighbours(pool);
+            return index;
+        }
+    }
+
+    private void rebuildPostings() {
+        postingDocs = new int[idf.length][];
+        postingWeights = new float[idf.length][];
+        postingSizes = new int[idf.length];
+        for (int doc = 0; doc < docCount; doc++) {
+            addPostings(doc);
+        }
+    }
+}
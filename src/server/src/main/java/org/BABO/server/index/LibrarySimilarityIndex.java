@@ -0,0 +1,280 @@
+package org.BABO.server.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indice di similarità tra libri basato sulla co-presenza nelle librerie degli utenti.
+ * <p>
+ * Due libri sono simili quando gli insiemi degli utenti che li hanno salvati si sovrappongono:
+ * la misura è l'indice di Jaccard {@code |A ∩ B| / |A ∪ B|}. Confrontare ogni coppia di libri
+ * avrebbe costo quadratico, quindi l'indice usa due approssimazioni:
+ * </p>
+ * <ul>
+ * <li><strong>MinHash:</strong> ogni libro è rappresentato da una firma di {@code numHashes}
+ * valori, il minimo di ciascuna funzione hash sugli utenti che lo possiedono. La frazione di
+ * posizioni uguali tra due firme stima l'indice di Jaccard.</li>
+ * <li><strong>LSH:</strong> la firma è divisa in {@code bands} bande; due libri diventano candidati
+ * solo se coincidono su almeno una banda intera. Solo le coppie candidate vengono confrontate.</li>
+ * </ul>
+ * <p>
+ * La costruzione è lineare nel numero di righe (utente, libro) più il numero di coppie candidate.
+ * I bucket LSH più grandi di {@code maxBucketSize} vengono ignorati, così che pochi libri
+ * presenti in quasi tutte le librerie non riportino il costo a quadratico. Al termine, per ogni
+ * libro vengono conservati i {@code topK} libri più simili: la lettura è una ricerca hash.
+ * </p>
+ *
+ * <p>
+ * Le istanze sono immutabili e si costruiscono con {@link Builder}.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class LibrarySimilarityIndex {
+
+    /**
+     * Libro simile a un libro dato. Le istanze sono immutabili.
+     */
+    public static final class Entry {
+        private final String isbn;
+        private final double similarity;
+
+        private Entry(String isbn, double similarity) {
+            this.isbn = isbn;
+            this.similarity = similarity;
+        }
+
+        /** @return l'ISBN del libro simile */
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /** @return la stima dell'indice di Jaccard tra i due libri, tra 0 e 1 */
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    /** Similarità più alta prima, poi ISBN */
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble(Entry::getSimilarity).reversed()
+            .thenComparing(Entry::getIsbn);
+
+    /** Libri simili per ogni ISBN, in ordine di similarità */
+    private final Map<String, List<Entry>> neighbours;
+
+    /** Numero di libri considerati nella costruzione */
+    private final int indexedBooks;
+
+    private LibrarySimilarityIndex(Map<String, List<Entry>> neighbours, int indexedBooks) {
+        this.neighbours = neighbours;
+        this.indexedBooks = indexedBooks;
+    }
+
+    /**
+     * Restituisce i libri più simili a quello indicato.
+     *
+     * @param isbn l'ISBN del libro
+     * @param limit il numero massimo di libri
+     * @return i libri simili in ordine di similarità, lista vuota se non ce ne sono
+     */
+    public List<Entry> similar(String isbn, int limit) {
+        List<Entry> row = isbn != null ? neighbours.getOrDefault(isbn.trim(), Collections.emptyList())
+                : Collections.<Entry>emptyList();
+        return row.size() <= limit ? row : row.subList(0, Math.max(0, limit));
+    }
+
+    /**
+     * @return il numero di libri considerati nella costruzione
+     */
+    public int getIndexedBooks() {
+        return indexedBooks;
+    }
+
+    /**
+     * @return il numero di libri con almeno un libro simile
+     */
+    public int size() {
+        return neighbours.size();
+    }
+
+    /**
+     * Costruttore incrementale dell'indice: riceve le coppie (libro, utente) una alla volta e
+     * mantiene solo le firme MinHash, non gli insiemi di utenti.
+     */
+    public static final class Builder {
+        private final int numHashes;
+        private final int bands;
+        private final long[] seeds;
+        private final Map<String, int[]> signatures = new HashMap<>();
+        private final Map<String, Integer> owners = new HashMap<>();
+
+        /**
+         * @param numHashes il numero di funzioni hash della firma
+         * @param bands il numero di bande LSH; deve dividere {@code numHashes}
+         * @throws IllegalArgumentException se i parametri non sono coerenti
+         */
+        public Builder(int numHashes, int bands) {
+            if (numHashes <= 0 || bands <= 0 || numHashes % bands != 0) {
+                throw new IllegalArgumentException("Il numero di bande deve dividere il numero di funzioni hash");
+            }
+            this.numHashes = numHashes;
+            this.bands = bands;
+            this.seeds = new long[numHashes];
+            long seed = 0x9E3779B97F4A7C15L;
+            for (int i = 0; i < numHashes; i++) {
+                seed = mix(seed + i);
+                seeds[i] = seed;
+            }
+        }
+
+        /**
+         * Registra che un utente possiede un libro. Ogni coppia deve essere fornita una sola volta.
+         *
+         * @param isbn l'ISBN del libro
+         * @param username l'utente che lo possiede
+         */
+        public void add(String isbn, String username) {
+            int[] signature = signatures.computeIfAbsent(isbn, key -> {
+                int[] empty = new int[numHashes];
+                Arrays.fill(empty, Integer.MAX_VALUE);
+                return empty;
+            });
+            owners.merge(isbn, 1, Integer::sum);
+
+            long user = fingerprint(username);
+            for (int i = 0; i < numHashes; i++) {
+                int value = (int) (mix(user ^ seeds[i]) >>> 32);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+
+        /**
+         * Costruisce l'indice.
+         *
+         * @param topK il numero di libri simili conservati per ogni libro
+         * @param minSimilarity la similarità stimata minima di un libro simile
+         * @param minOwners il numero minimo di utenti perché un libro sia indicizzato
+         * @param maxBucketSize la dimensione oltre la quale un bucket LSH viene ignorato
+         * @return l'indice
+         */
+        public LibrarySimilarityIndex build(int topK, double minSimilarity, int minOwners, int maxBucketSize) {
+            List<String> isbns = new ArrayList<>();
+            List<int[]> sigs = new ArrayList<>();
+            for (Map.Entry<String, int[]> entry : signatures.entrySet()) {
+                if (owners.get(entry.getKey()) >= minOwners) {
+                    isbns.add(entry.getKey());
+                    sigs.add(entry.getValue());
+                }
+            }
+
+            int rows = numHashes / bands;
+            int books = isbns.size();
+
+            // Per ogni banda, il bucket di ciascun libro
+            int[][][] bucketOf = new int[bands][][];
+            for (int band = 0; band < bands; band++) {
+                Map<Long, List<Integer>> buckets = new HashMap<>();
+                long[] keys = new long[books];
+                for (int i = 0; i < books; i++) {
+                    keys[i] = bandKey(sigs.get(i), band * rows, rows);
+                    buckets.computeIfAbsent(keys[i], key -> new ArrayList<>()).add(i);
+                }
+
+                Map<Long, int[]> packed = new HashMap<>(buckets.size() * 2);
+                bucketOf[band] = new int[books][];
+                for (int i = 0; i < books; i++) {
+                    int[] members = packed.computeIfAbsent(keys[i],
+                            key -> buckets.get(key).stream().mapToInt(Integer::intValue).toArray());
+                    bucketOf[band][i] = members;
+                }
+            }
+
+            Map<String, List<Entry>> neighbours = new HashMap<>();
+            Set<Integer> candidates = new HashSet<>();
+            for (int i = 0; i < books; i++) {
+                candidates.clear();
+                for (int band = 0; band < bands; band++) {
+                    int[] members = bucketOf[band][i];
+                    if (members.length > 1 && members.length <= maxBucketSize) {
+                        for (int member : members) {
+                            if (member != i) {
+                                candidates.add(member);
+                            }
+                        }
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    continue;
+                }
+
+                int[] own = sigs.get(i);
+                List<Entry> similar = new ArrayList<>(candidates.size());
+                for (int candidate : candidates) {
+                    double similarity = estimate(own, sigs.get(candidate));
+                    if (similarity >= minSimilarity) {
+                        similar.add(new Entry(isbns.get(candidate), similarity));
+                    }
+                }
+                if (similar.isEmpty()) {
+                    continue;
+                }
+
+                similar.sort(RANKING);
+                List<Entry> top = similar.size() > topK ? new ArrayList<>(similar.subList(0, topK)) : similar;
+                neighbours.put(isbns.get(i), Collections.unmodifiableList(top));
+            }
+
+            return new LibrarySimilarityIndex(neighbours, books);
+        }
+
+        private static double estimate(int[] a, int[] b) {
+            int equal = 0;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == b[i]) {
+                    equal++;
+                }
+            }
+            return (double) equal / a.length;
+        }
+
+        private static long bandKey(int[] signature, int from, int length) {
+            long key = 0x84222325CBF29CE4L;
+            for (int i = from; i < from + length; i++) {
+                key = mix(key ^ signature[i]);
+            }
+            return key;
+        }
+
+        /** Hash FNV-1a a 64 bit dello username */
+        private static long fingerprint(String username) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < username.length(); i++) {
+                hash ^= username.charAt(i);
+                hash *= 0x100000001B3L;
+            }
+            return hash;
+        }
+
+        /** Finalizzatore a 64 bit di MurmurHash3 */
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xFF51AFD7ED558CCDL;
+            value ^= value >>> 33;
+            value *= 0xC4CEB93F53D9D4FBL;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
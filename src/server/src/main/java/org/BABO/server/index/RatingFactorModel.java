@@ -0,0 +1,548 @@
+package org.BABO.server.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Modello a fattori latenti delle valutazioni utente × libro, usato per i consigli personali.
+ * <p>
+ * Ogni valutazione di {@code assessment} contiene cinque voti (stile, contenuto, gradevolezza,
+ * originalità, edizione). Il modello li stima tutti con fattori condivisi:
+ * </p>
+ * <pre>{@code
+ * voto[d](u, b) ≈ media[d] + biasUtente[u] + biasLibro[b][d] + fattoriUtente[u] · fattoriLibro[b]
+ * }</pre>
+ * <p>
+ * La preferenza di un utente per un libro è la stima del voto medio sulle cinque dimensioni;
+ * i consigli sono i libri con la stima più alta.
+ * </p>
+ *
+ * <h3>Addestramento:</h3>
+ * <p>
+ * {@link Trainer} esegue una discesa del gradiente stocastica su array {@code float} condivisi:
+ * a ogni epoca le valutazioni vengono mescolate e divise tra i thread del pool fork-join, che
+ * aggiornano i parametri senza lock (gli aggiornamenti concorrenti sullo stesso parametro sono
+ * rari e non compromettono la convergenza). L'addestramento si ferma al numero massimo di
+ * epoche o allo scadere del tempo concesso, anche a metà epoca.
+ * </p>
+ *
+ * <h3>Persistenza:</h3>
+ * <p>
+ * {@link #save(Path)} scrive il modello in un file binario tramite un file temporaneo e una
+ * rinomina atomica; {@link #load(Path)} lo rilegge. Le istanze sono immutabili.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class RatingFactorModel {
+
+    /** Numero di voti per valutazione: stile, contenuto, gradevolezza, originalità, edizione */
+    public static final int DIMENSIONS = 5;
+
+    /** Intestazione del file del modello ("BABO") */
+    private static final int FILE_MAGIC = 0x4241424F;
+
+    /** Versione del formato del file */
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Libro consigliato a un utente. Le istanze sono immutabili.
+     */
+    public static final class Entry {
+        private final String isbn;
+        private final double score;
+
+        private Entry(String isbn, double score) {
+            this.isbn = isbn;
+            this.score = score;
+        }
+
+        /** @return l'ISBN del libro consigliato */
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /** @return il voto medio stimato per l'utente */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private final int rank;
+    private final Map<String, Integer> userIds;
+    private final String[] isbns;
+    private final float[] dimensionMeans;
+    private final float[] userBias;
+    private final float[] userFactors;
+    private final float[] bookBias;
+    private final float[] bookFactors;
+
+    /** Parte del punteggio che dipende solo dal libro: media delle medie e dei bias per dimensione */
+    private final float[] bookBaseline;
+
+    private final long trainedAt;
+    private final int epochs;
+    private final long trainingMillis;
+    private final long updates;
+    private final double rmse;
+
+    private RatingFactorModel(int rank, Map<String, Integer> userIds, String[] isbns, float[] dimensionMeans,
+                              float[] userBias, float[] userFactors, float[] bookBias, float[] bookFactors,
+                              long trainedAt, int epochs, long trainingMillis, long updates, double rmse) {
+        this.rank = rank;
+        this.userIds = userIds;
+        this.isbns = isbns;
+        this.dimensionMeans = dimensionMeans;
+        this.userBias = userBias;
+        this.userFactors = userFactors;
+        this.bookBias = bookBias;
+        this.bookFactors = bookFactors;
+        this.trainedAt = trainedAt;
+        this.epochs = epochs;
+        this.trainingMillis = trainingMillis;
+        this.updates = updates;
+        this.rmse = rmse;
+
+        float meanOfMeans = 0f;
+        for (float mean : dimensionMeans) {
+            meanOfMeans += mean / DIMENSIONS;
+        }
+        this.bookBaseline = new float[isbns.length];
+        for (int b = 0; b < isbns.length; b++) {
+            float bias = 0f;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                bias += bookBias[b * DIMENSIONS + d];
+            }
+            bookBaseline[b] = meanOfMeans + bias / DIMENSIONS;
+        }
+    }
+
+    /**
+     * Restituisce i libri con il voto stimato più alto per un utente.
+     *
+     * @param username l'utente, già normalizzato in minuscolo
+     * @param limit il numero massimo di libri
+     * @param excluded gli ISBN da non consigliare (libri già posseduti o valutati)
+     * @return i libri in ordine di voto stimato, lista vuota se l'utente non ha valutazioni nel modello
+     */
+    public List<Entry> recommend(String username, int limit, Set<String> excluded) {
+        Integer user = username != null ? userIds.get(username) : null;
+        if (user == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int[] best = new int[limit];
+        float[] bestScores = new float[limit];
+        int count = 0;
+        int userOffset = user * rank;
+
+        for (int b = 0; b < isbns.length; b++) {
+            float score = bookBaseline[b] + dot(userFactors, userOffset, bookFactors, b * rank, rank);
+            if (count == limit && score <= bestScores[limit - 1]) {
+                continue;
+            }
+            if (excluded.contains(isbns[b])) {
+                continue;
+            }
+
+            int position = count < limit ? count++ : limit - 1;
+            while (position > 0 && bestScores[position - 1] < score) {
+                best[position] = best[position - 1];
+                bestScores[position] = bestScores[position - 1];
+                position--;
+            }
+            best[position] = b;
+            bestScores[position] = score;
+        }
+
+        float offset = userBias[user];
+        List<Entry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new Entry(isbns[best[i]], bestScores[i] + offset));
+        }
+        return result;
+    }
+
+    /** @return il numero di utenti nel modello */
+    public int getUserCount() {
+        return userIds.size();
+    }
+
+    /** @return il numero di libri nel modello */
+    public int getBookCount() {
+        return isbns.length;
+    }
+
+    /** @return l'istante di fine addestramento, in millisecondi dall'epoch */
+    public long getTrainedAt() {
+        return trainedAt;
+    }
+
+    /** @return il numero di epoche completate, anche parzialmente */
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /** @return la durata dell'addestramento in millisecondi */
+    public long getTrainingMillis() {
+        return trainingMillis;
+    }
+
+    /** @return il numero di valutazioni elaborate durante l'addestramento */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /** @return le valutazioni elaborate al secondo durante l'addestramento */
+    public double getThroughput() {
+        return trainingMillis > 0 ? updates * 1000.0 / trainingMillis : 0.0;
+    }
+
+    /** @return l'errore quadratico medio sui voti di addestramento all'ultima epoca */
+    public double getRmse() {
+        return rmse;
+    }
+
+    /**
+     * Salva il modello su file. Il file viene prima scritto accanto alla destinazione e poi
+     * rinominato, così che un lettore non veda mai un modello incompleto.
+     *
+     * @param path il file di destinazione
+     * @throws IOException se la scrittura fallisce
+     */
+    public void save(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(rank);
+            out.writeLong(trainedAt);
+            out.writeInt(epochs);
+            out.writeLong(trainingMillis);
+            out.writeLong(updates);
+            out.writeDouble(rmse);
+            writeFloats(out, dimensionMeans);
+
+            String[] usernames = new String[userIds.size()];
+            for (Map.Entry<String, Integer> user : userIds.entrySet()) {
+                usernames[user.getValue()] = user.getKey();
+            }
+            out.writeInt(usernames.length);
+            for (String username : usernames) {
+                out.writeUTF(username);
+            }
+            writeFloats(out, userBias);
+            writeFloats(out, userFactors);
+
+            out.writeInt(isbns.length);
+            for (String isbn : isbns) {
+                out.writeUTF(isbn);
+            }
+            writeFloats(out, bookBias);
+            writeFloats(out, bookFactors);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carica un modello salvato con {@link #save(Path)}.
+     *
+     * @param path il file del modello
+     * @return il modello
+     * @throws IOException se il file non è leggibile o non è un modello valido
+     */
+    public static RatingFactorModel load(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("File del modello non valido: " + path);
+            }
+            int version = in.readInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Versione del modello non supportata: " + version);
+            }
+
+            int rank = in.readInt();
+            long trainedAt = in.readLong();
+            int epochs = in.readInt();
+            long trainingMillis = in.readLong();
+            long updates = in.readLong();
+            double rmse = in.readDouble();
+            float[] dimensionMeans = readFloats(in, DIMENSIONS);
+
+            int users = in.readInt();
+            Map<String, Integer> userIds = new HashMap<>(users * 2);
+            for (int u = 0; u < users; u++) {
+                userIds.put(in.readUTF(), u);
+            }
+            float[] userBias = readFloats(in, users);
+            float[] userFactors = readFloats(in, users * rank);
+
+            int books = in.readInt();
+            String[] isbns = new String[books];
+            for (int b = 0; b < books; b++) {
+                isbns[b] = in.readUTF();
+            }
+            float[] bookBias = readFloats(in, books * DIMENSIONS);
+            float[] bookFactors = readFloats(in, books * rank);
+
+            return new RatingFactorModel(rank, userIds, isbns, dimensionMeans, userBias, userFactors,
+                    bookBias, bookFactors, trainedAt, epochs, trainingMillis, updates, rmse);
+        }
+    }
+
+    private static void writeFloats(DataOutputStream out, float[] values) throws IOException {
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+    }
+
+    private static float[] readFloats(DataInputStream in, int length) throws IOException {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readFloat();
+        }
+        return values;
+    }
+
+    private static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Raccoglie le valutazioni e addestra il modello.
+     */
+    public static final class Trainer {
+
+        /** Valutazioni elaborate da un thread tra due controlli del tempo residuo */
+        private static final int DEADLINE_CHECK_INTERVAL = 4096;
+
+        private final Map<String, Integer> userIds = new HashMap<>();
+        private final Map<String, Integer> bookIds = new HashMap<>();
+        private final List<String> isbns = new ArrayList<>();
+
+        private int[] ratingUsers = new int[1024];
+        private int[] ratingBooks = new int[1024];
+        private byte[] ratingValues = new byte[1024 * DIMENSIONS];
+        private int ratings;
+
+        /**
+         * Aggiunge una valutazione. I voti fuori dall'intervallo 1-5 vengono ignorati.
+         *
+         * @param username l'utente, già normalizzato in minuscolo
+         * @param isbn l'ISBN del libro
+         * @param values i cinque voti nell'ordine stile, contenuto, gradevolezza, originalità, edizione
+         */
+        public void add(String username, String isbn, int... values) {
+            if (ratings == ratingUsers.length) {
+                int capacity = ratings * 2;
+                ratingUsers = Arrays.copyOf(ratingUsers, capacity);
+                ratingBooks = Arrays.copyOf(ratingBooks, capacity);
+                ratingValues = Arrays.copyOf(ratingValues, capacity * DIMENSIONS);
+            }
+
+            ratingUsers[ratings] = userIds.computeIfAbsent(username, key -> userIds.size());
+            ratingBooks[ratings] = bookIds.computeIfAbsent(isbn, key -> {
+                isbns.add(key);
+                return isbns.size() - 1;
+            });
+            for (int d = 0; d < DIMENSIONS; d++) {
+                int value = d < values.length ? values[d] : 0;
+                ratingValues[ratings * DIMENSIONS + d] = (byte) (value >= 1 && value <= 5 ? value : 0);
+            }
+            ratings++;
+        }
+
+        /** @return il numero di valutazioni raccolte */
+        public int size() {
+            return ratings;
+        }
+
+        /**
+         * Addestra il modello.
+         *
+         * @param rank il numero di fattori latenti
+         * @param maxEpochs il numero massimo di epoche
+         * @param learningRate il passo iniziale, ridotto del 10% a ogni epoca
+         * @param regularization il peso della regolarizzazione L2
+         * @param maxMillis il tempo massimo di addestramento in millisecondi
+         * @param pool il pool fork-join su cui eseguire le epoche
+         * @return il modello addestrato
+         * @throws IllegalArgumentException se i parametri non sono validi
+         */
+        public RatingFactorModel train(int rank, int maxEpochs, float learningRate, float regularization,
+                                       long maxMillis, ForkJoinPool pool) {
+            if (rank <= 0 || maxEpochs <= 0 || learningRate <= 0f || maxMillis <= 0) {
+                throw new IllegalArgumentException("Parametri di addestramento non validi");
+            }
+
+            long start = System.currentTimeMillis();
+            long deadline = start + maxMillis;
+            int users = userIds.size();
+            int books = isbns.size();
+
+            float[] dimensionMeans = dimensionMeans();
+            float[] userBias = new float[users];
+            float[] bookBias = new float[books * DIMENSIONS];
+            Random random = new Random(42);
+            float scale = (float) (0.1 / Math.sqrt(rank));
+            float[] userFactors = gaussian(random, users * rank, scale);
+            float[] bookFactors = gaussian(random, books * rank, scale);
+
+            int[] order = new int[ratings];
+            for (int i = 0; i < ratings; i++) {
+                order[i] = i;
+            }
+
+            int threads = Math.max(1, pool.getParallelism());
+            long updates = 0;
+            double rmse = Double.NaN;
+            int epoch = 0;
+            float rate = learningRate;
+
+            while (epoch < maxEpochs && System.currentTimeMillis() < deadline && ratings > 0) {
+                shuffle(order, random);
+                float epochRate = rate;
+                double[] squaredErrors = new double[threads];
+                long[] observations = new long[threads];
+                long[] processed = new long[threads];
+
+                pool.submit(() -> IntStream.range(0, threads).parallel().forEach(thread -> {
+                    int from = (int) ((long) ratings * thread / threads);
+                    int to = (int) ((long) ratings * (thread + 1) / threads);
+                    float[] userGradient = new float[rank];
+                    double squared = 0.0;
+                    long observed = 0;
+                    long done = 0;
+
+                    for (int i = from; i < to; i++) {
+                        if ((i - from) % DEADLINE_CHECK_INTERVAL == 0 && System.currentTimeMillis() >= deadline) {
+                            break;
+                        }
+                        int r = order[i];
+                        int u = ratingUsers[r];
+                        int b = ratingBooks[r];
+                        int uOffset = u * rank;
+                        int bOffset = b * rank;
+
+                        float prediction = userBias[u] + dot(userFactors, uOffset, bookFactors, bOffset, rank);
+                        float totalError = 0f;
+                        for (int d = 0; d < DIMENSIONS; d++) {
+                            int value = ratingValues[r * DIMENSIONS + d];
+                            if (value == 0) {
+                                continue;
+                            }
+                            int biasSlot = b * DIMENSIONS + d;
+                            float error = value - (dimensionMeans[d] + bookBias[biasSlot] + prediction);
+                            bookBias[biasSlot] += epochRate * (error - regularization * bookBias[biasSlot]);
+                            totalError += error;
+                            squared += error * error;
+                            observed++;
+                        }
+
+                        userBias[u] += epochRate * (totalError - regularization * userBias[u]);
+                        for (int f = 0; f < rank; f++) {
+                            float userFactor = userFactors[uOffset + f];
+                            float bookFactor = bookFactors[bOffset + f];
+                            userGradient[f] = totalError * bookFactor - regularization * userFactor;
+                            bookFactors[bOffset + f] += epochRate * (totalError * userFactor - regularization * bookFactor);
+                        }
+                        for (int f = 0; f < rank; f++) {
+                            userFactors[uOffset + f] += epochRate * userGradient[f];
+                        }
+                        done++;
+                    }
+
+                    squaredErrors[thread] = squared;
+                    observations[thread] = observed;
+                    processed[thread] = done;
+                })).join();
+
+                double squared = 0.0;
+                long observed = 0;
+                for (int t = 0; t < threads; t++) {
+                    squared += squaredErrors[t];
+                    observed += observations[t];
+                    updates += processed[t];
+                }
+                if (observed > 0) {
+                    rmse = Math.sqrt(squared / observed);
+                }
+                rate *= 0.9f;
+                epoch++;
+            }
+
+            long end = System.currentTimeMillis();
+            return new RatingFactorModel(rank, new HashMap<>(userIds), isbns.toArray(new String[0]),
+                    dimensionMeans, userBias, userFactors, bookBias, bookFactors,
+                    end, epoch, end - start, updates, rmse);
+        }
+
+        private float[] dimensionMeans() {
+            double[] sums = new double[DIMENSIONS];
+            long[] counts = new long[DIMENSIONS];
+            for (int r = 0; r < ratings; r++) {
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    int value = ratingValues[r * DIMENSIONS + d];
+                    if (value > 0) {
+                        sums[d] += value;
+                        counts[d]++;
+                    }
+                }
+            }
+            float[] means = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                means[d] = counts[d] > 0 ? (float) (sums[d] / counts[d]) : 3f;
+            }
+            return means;
+        }
+
+        private static float[] gaussian(Random random, int length, float scale) {
+            float[] values = new float[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (float) random.nextGaussian() * scale;
+            }
+            return values;
+        }
+
+        private static void shuffle(int[] values, Random random) {
+            for (int i = values.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = values[i];
+                values[i] = values[j];
+                values[j] = swap;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.BABO.server.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Classifiche in memoria dei libri più recensiti e meglio valutati.
+ * <p>
+ * Per ogni libro valutato la classifica conserva il numero di valutazioni e la somma delle
+ * medie, e mantiene due insiemi ordinati: uno per numero di valutazioni e uno per punteggio.
+ * Ogni aggiornamento costa {@code O(log n)}; dopo ogni aggiornamento le prime
+ * {@link #CAPACITY} posizioni di entrambe le classifiche vengono pubblicate in liste
+ * immutabili, così che la lettura di una classifica non richieda lock né accessi al database.
+ * </p>
+ *
+ * <h3>Punteggio dei libri meglio valutati:</h3>
+ * <p>
+ * La classifica per qualità usa una media bayesiana: alle valutazioni reali di un libro
+ * vengono aggiunti {@code priorVotes} voti fittizi pari a {@code priorMean}, così che un
+ * libro con una sola valutazione massima non superi libri con molte valutazioni alte.
+ * I libri con meno di {@code minVotes} valutazioni sono esclusi da questa classifica.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class RatingLeaderboard {
+
+    /** Numero di posizioni pubblicate per ciascuna classifica */
+    public static final int CAPACITY = 50;
+
+    /**
+     * Posizione di un libro in classifica. Le istanze sono immutabili.
+     */
+    public static final class Entry {
+        private final String isbn;
+        private final int count;
+        private final double sumAverage;
+        private final double score;
+
+        private Entry(String isbn, int count, double sumAverage, double score) {
+            this.isbn = isbn;
+            this.count = count;
+            this.sumAverage = sumAverage;
+            this.score = score;
+        }
+
+        /** @return l'ISBN del libro */
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /** @return il numero di valutazioni ricevute */
+        public int getCount() {
+            return count;
+        }
+
+        /** @return la media aritmetica delle valutazioni */
+        public double getAverage() {
+            return sumAverage / count;
+        }
+
+        /** @return la media bayesiana usata per la classifica per qualità */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /** Più valutazioni prima, poi media più alta, poi ISBN */
+    private static final Comparator<Entry> MOST_REVIEWED = Comparator
+            .comparingInt(Entry::getCount).reversed()
+            .thenComparing(Comparator.comparingDouble(Entry::getAverage).reversed())
+            .thenComparing(Entry::getIsbn);
+
+    /** Punteggio bayesiano più alto prima, poi più valutazioni, poi ISBN */
+    private static final Comparator<Entry> TOP_RATED = Comparator
+            .comparingDouble(Entry::getScore).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::getCount).reversed())
+            .thenComparing(Entry::getIsbn);
+
+    private final int minVotes;
+    private final int priorVotes;
+    private final double priorMean;
+
+    /** Posizione corrente di ogni libro valutato */
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byCount = new TreeSet<>(MOST_REVIEWED);
+    private final TreeSet<Entry> byScore = new TreeSet<>(TOP_RATED);
+
+    /** Prime posizioni pubblicate, sostituite ad ogni aggiornamento */
+    private volatile List<Entry> topByCount = Collections.emptyList();
+    private volatile List<Entry> topByScore = Collections.emptyList();
+
+    /**
+     * Crea una classifica vuota.
+     *
+     * @param minVotes numero minimo di valutazioni per entrare nella classifica per qualità
+     * @param priorVotes numero di voti fittizi della media bayesiana
+     * @param priorMean valore dei voti fittizi della media bayesiana
+     */
+    public RatingLeaderboard(int minVotes, int priorVotes, double priorMean) {
+        this.minVotes = Math.max(1, minVotes);
+        this.priorVotes = Math.max(0, priorVotes);
+        this.priorMean = priorMean;
+    }
+
+    /**
+     * Imposta i valori di un libro, sostituendo quelli precedenti. Un numero di valutazioni
+     * pari a zero rimuove il libro da entrambe le classifiche.
+     *
+     * @param isbn l'ISBN del libro
+     * @param count il numero di valutazioni del libro
+     * @param sumAverage la somma delle medie delle valutazioni del libro
+     */
+    public synchronized void update(String isbn, int count, double sumAverage) {
+        set(isbn, count, sumAverage);
+        publish();
+    }
+
+    /**
+     * Imposta i valori di più libri con una sola pubblicazione finale.
+     *
+     * @param isbns gli ISBN dei libri
+     * @param counts i numeri di valutazioni, nello stesso ordine
+     * @param sums le somme delle medie, nello stesso ordine
+     */
+    public synchronized void updateAll(List<String> isbns, int[] counts, double[] sums) {
+        for (int i = 0; i < isbns.size(); i++) {
+            set(isbns.get(i), counts[i], sums[i]);
+        }
+        publish();
+    }
+
+    /**
+     * Restituisce i libri con più valutazioni.
+     *
+     * @param limit il numero massimo di posizioni
+     * @return le posizioni in ordine di classifica
+     */
+    public List<Entry> mostReviewed(int limit) {
+        return limit <= CAPACITY ? head(topByCount, limit) : scan(byCount, limit);
+    }
+
+    /**
+     * Restituisce i libri con la media bayesiana più alta.
+     *
+     * @param limit il numero massimo di posizioni
+     * @return le posizioni in ordine di classifica
+     */
+    public List<Entry> topRated(int limit) {
+        return limit <= CAPACITY ? head(topByScore, limit) : scan(byScore, limit);
+    }
+
+    /**
+     * @return il numero di libri con almeno una valutazione
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void set(String isbn, int count, double sumAverage) {
+        Entry previous = entries.remove(isbn);
+        if (previous != null) {
+            byCount.remove(previous);
+            byScore.remove(previous);
+        }
+        if (count <= 0) {
+            return;
+        }
+
+        double score = (priorVotes * priorMean + sumAverage) / (priorVotes + count);
+        Entry entry = new Entry(isbn, count, sumAverage, score);
+        entries.put(isbn, entry);
+        byCount.add(entry);
+        if (count >= minVotes) {
+            byScore.add(entry);
+        }
+    }
+
+    private void publish() {
+        topByCount = Collections.unmodifiableList(take(byCount, CAPACITY));
+        topByScore = Collections.unmodifiableList(take(byScore, CAPACITY));
+    }
+
+    private synchronized List<Entry> scan(TreeSet<Entry> set, int limit) {
+        return take(set, limit);
+    }
+
+    private static List<Entry> take(Collection<Entry> set, int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, set.size()));
+        Iterator<Entry> iterator = set.iterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    private static List<Entry> head(List<Entry> list, int limit) {
+        return list.size() <= limit ? list : list.subList(0, Math.max(0, limit));
+    }
+}
@@ -0,0 +1,189 @@
+package org.BABO.server.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.BABO.shared.dto.Book.BookDetailsResponse;
+import org.BABO.shared.dto.Rating.RatingResponse;
+import org.BABO.shared.dto.Recommendation.RecommendationResponse;
+import org.BABO.shared.model.BookRating;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Servizio che raccoglie in un'unica risposta i dati della finestra di dettaglio di un libro.
+ * <p>
+ * Statistiche, valutazione dell'utente, possesso del libro, recensioni e raccomandazioni sono
+ * lette in parallelo dai rispettivi servizi, ciascuna con una propria connessione del pool:
+ * il tempo della risposta è quello della sezione più lenta invece della somma delle sezioni.
+ * Le sezioni eseguono query bloccanti, quindi sono eseguite da un pool di thread dedicato
+ * grande quanto il pool di connessioni al database, con una coda limitata.
+ * </p>
+ *
+ * <h3>Errori:</h3>
+ * <p>
+ * Una sezione che fallisce, non trova posto nella coda o non termina entro
+ * {@code babo.details.timeout-ms} millisecondi dall'inizio della richiesta vale {@code null}
+ * nella risposta, senza compromettere le altre: il client la richiede all'endpoint dedicato.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see BookDetailsResponse
+ */
+@Service
+public class BookDetailsService {
+
+    /** Servizio delle valutazioni */
+    @Autowired
+    private RatingService ratingService;
+
+    /** Servizio delle librerie utente */
+    @Autowired
+    private LibraryService libraryService;
+
+    /** Servizio delle raccomandazioni */
+    @Autowired
+    private RecommendationService recommendationService;
+
+    /** Numero massimo di recensioni incluse nella risposta */
+    @Value("${babo.details.max-reviews:20}")
+    private int maxReviews;
+
+    /** Tempo massimo di attesa dell'insieme delle sezioni */
+    @Value("${babo.details.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    /** Thread usati per le sezioni, 0 per la dimensione del pool di connessioni */
+    @Value("${babo.details.parallelism:0}")
+    private int parallelism;
+
+    /** Sezioni in attesa di un thread, oltre le quali le sezioni valgono {@code null} */
+    @Value("${babo.details.queue-capacity:200}")
+    private int queueCapacity;
+
+    /** Dimensione del pool di connessioni al database */
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    /** Pool delle sezioni */
+    private ThreadPoolExecutor pool;
+
+    /**
+     * Crea il pool delle sezioni.
+     */
+    @PostConstruct
+    public void start() {
+        int threads = parallelism > 0 ? parallelism : connectionPoolSize;
+        AtomicInteger created = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "babo-details-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Ferma il pool delle sezioni, annullando quelle ancora in coda.
+     */
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Raccoglie i dati della finestra di dettaglio di un libro.
+     *
+     * @param isbn l'ISBN del libro
+     * @param username l'utente che apre la finestra, {@code null} se non autenticato
+     * @return i dati del libro, con le sezioni non disponibili a {@code null}
+     */
+    public BookDetailsResponse getBookDetails(String isbn, String username) {
+        long start = System.currentTimeMillis();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        boolean withUser = username != null && !username.trim().isEmpty();
+
+        CompletableFuture<RatingResponse> statistics = section(() -> ratingService.getBookRatingStatistics(isbn));
+        CompletableFuture<List<BookRating>> reviews = section(() -> firstReviews(isbn, username));
+        CompletableFuture<RecommendationResponse> recommendations = section(() -> recommendationService.getBookRecommendations(isbn));
+        CompletableFuture<BookRating> userRating = withUser
+                ? section(() -> ratingService.getRatingByUserAndBook(username, isbn)) : null;
+        CompletableFuture<Boolean> ownsBook = withUser
+                ? section(() -> libraryService.doesUserOwnBook(username, isbn)) : null;
+
+        BookDetailsResponse details = new BookDetailsResponse(isbn);
+        details.setStatistics(await(statistics, "statistiche", deadline));
+        details.setReviews(await(reviews, "recensioni", deadline));
+        details.setRecommendations(await(recommendations, "raccomandazioni", deadline));
+        details.setUserRating(await(userRating, "valutazione utente", deadline));
+        details.setUserRatingAvailable(userRating != null
+                && userRating.isDone() && !userRating.isCompletedExceptionally());
+        details.setOwnsBook(await(ownsBook, "possesso", deadline));
+
+        System.out.println("📖 Dettagli libro " + isbn + " raccolti in " + (System.currentTimeMillis() - start) + " ms");
+        return details;
+    }
+
+    /**
+     * Seleziona le recensioni con testo degli altri utenti, per valutazione media decrescente.
+     */
+    private List<BookRating> firstReviews(String isbn, String username) {
+        List<BookRating> reviews = new ArrayList<>();
+        for (BookRating rating : ratingService.getRatingsForBook(isbn)) {
+            if (rating.getReview() == null || rating.getReview().trim().isEmpty()) {
+                continue;
+            }
+            if (username != null && username.equals(rating.getUsername())) {
+                continue;
+            }
+            reviews.add(rating);
+        }
+
+        reviews.sort(Comparator.comparing(BookRating::getAverage,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return reviews.size() > maxReviews ? new ArrayList<>(reviews.subList(0, maxReviews)) : reviews;
+    }
+
+    private <T> CompletableFuture<T> section(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, pool);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Attende una sezione fino alla scadenza della richiesta; se fallisce o scade la sezione
+     * vale {@code null}, e se è ancora in coda non viene più eseguita.
+     */
+    private <T> T await(CompletableFuture<T> section, String name, long deadline) {
+        if (section == null) {
+            return null;
+        }
+        try {
+            return section.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            section.cancel(false);
+            return null;
+        } catch (Exception e) {
+            System.err.println("❌ Sezione " + name + " dei dettagli non disponibile: " + e);
+            section.cancel(false);
+            return null;
+        }
+    }
+}
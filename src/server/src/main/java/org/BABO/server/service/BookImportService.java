@@ -0,0 +1,601 @@
+package org.BABO.server.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Servizio di importazione massiva del catalogo da file CSV o NDJSON.
+ * <p>
+ * Il file viene letto in streaming: ogni riga è convalidata appena letta e, se valida,
+ * scritta con {@code COPY FROM STDIN} in una tabella temporanea. Al termine una sola
+ * istruzione {@code INSERT ... ON CONFLICT (isbn) DO UPDATE} unisce la tabella temporanea al
+ * catalogo: i libri nuovi vengono inseriti, quelli esistenti aggiornati. Se lo stesso ISBN
+ * compare più volte nel file vale l'ultima occorrenza. La memoria usata non dipende dalla
+ * dimensione del file.
+ * </p>
+ *
+ * <h3>Formati:</h3>
+ * <ul>
+ * <li><strong>CSV:</strong> prima riga di intestazione con i nomi delle colonne
+ * ({@code isbn, title, author, description, year, category}), separatore virgola, valori
+ * eventualmente tra doppi apici.</li>
+ * <li><strong>NDJSON:</strong> un oggetto JSON per riga con gli stessi campi.</li>
+ * </ul>
+ *
+ * <h3>Gestione errori:</h3>
+ * <p>
+ * Le righe non valide (campi obbligatori mancanti, ISBN o anno non validi, JSON malformato)
+ * vengono scartate e riportate con il numero di riga, fino a
+ * {@code babo.import.max-reported-errors}; le altre righe vengono comunque importate. Un
+ * errore del database annulla l'intera importazione.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see BookService#addBook(String, String, String, String, String, String)
+ */
+@Service
+public class BookImportService {
+
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Servizio del catalogo, la cui istantanea viene ricaricata dopo un'importazione */
+    @Autowired
+    private BookService bookService;
+
+    /** Indice dei libri simili per contenuto, ricostruito dopo un'importazione */
+    @Autowired
+    private ContentSimilarityService contentSimilarityService;
+
+    /** Mapper JSON configurato da Spring, usato per le righe NDJSON */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Errori di riga riportati al massimo nella risposta */
+    @Value("${babo.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    /** Lunghezza massima di un campo o di una riga NDJSON */
+    private static final int MAX_FIELD_LENGTH = 65536;
+
+    /** Byte accumulati prima di ogni invio al {@code COPY} */
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    /** Lunghezza massima dell'ISBN, come {@code library_books.isbn} */
+    private static final int MAX_ISBN_LENGTH = 20;
+
+    private static final Pattern YEAR = Pattern.compile("\\d{1,4}");
+
+    /** Colonne di una riga importata, nell'ordine del {@code COPY} */
+    private static final String[] FIELDS = { "isbn", "title", "author", "description", "year", "category" };
+
+    /** Nomi alternativi delle colonne, corrispondenti a quelli della tabella {@code books} */
+    private static final Map<String, String> FIELD_ALIASES = Map.of(
+            "books_title", "title",
+            "book_author", "author",
+            "publi_year", "year");
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE books_import (
+                line_no BIGINT NOT NULL,
+                isbn VARCHAR NOT NULL,
+                books_title VARCHAR NOT NULL,
+                book_author VARCHAR NOT NULL,
+                description VARCHAR,
+                publi_year VARCHAR,
+                category VARCHAR
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING =
+            "COPY books_import (line_no, isbn, books_title, book_author, description, publi_year, category) "
+                    + "FROM STDIN WITH (FORMAT csv)";
+
+    /** Unione con il catalogo: per ogni ISBN l'ultima riga del file, righe invariate escluse */
+    private static final String MERGE_STAGING = """
+            WITH latest AS (
+                SELECT DISTINCT ON (isbn) isbn, books_title, book_author, description, publi_year, category
+                FROM books_import
+                ORDER BY isbn, line_no DESC
+            ), merged AS (
+                INSERT INTO books (isbn, books_title, book_author, description, publi_year, category)
+                SELECT isbn, books_title, book_author, description, publi_year, category FROM latest
+                ON CONFLICT (isbn) DO UPDATE SET
+                    books_title = EXCLUDED.books_title,
+                    book_author = EXCLUDED.book_author,
+                    description = EXCLUDED.description,
+                    publi_year = EXCLUDED.publi_year,
+                    category = EXCLUDED.category
+                WHERE (books.books_title, books.book_author, books.description, books.publi_year, books.category)
+                      IS DISTINCT FROM
+                      (EXCLUDED.books_title, EXCLUDED.book_author, EXCLUDED.description, EXCLUDED.publi_year, EXCLUDED.category)
+                RETURNING (xmax = 0) AS inserted
+            )
+            SELECT (SELECT COUNT(*) FROM latest) AS distinct_isbns,
+                   COUNT(*) FILTER (WHERE inserted) AS inserted,
+                   COUNT(*) FILTER (WHERE NOT inserted) AS updated
+            FROM merged
+            """;
+
+    /**
+     * Formato del file da importare.
+     */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    /**
+     * Errore di una singola riga del file.
+     */
+    public static final class RowError {
+        private final long line;
+        private final String isbn;
+        private final String message;
+
+        RowError(long line, String isbn, String message) {
+            this.line = line;
+            this.isbn = isbn;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Esito di un'importazione.
+     */
+    public static final class ImportResult {
+        private long rows;
+        private long accepted;
+        private long rejected;
+        private long duplicates;
+        private long inserted;
+        private long updated;
+        private long unchanged;
+        private long elapsedMillis;
+        private boolean errorsTruncated;
+        private final List<RowError> errors = new ArrayList<>();
+
+        /** @return le righe di dati lette dal file */
+        public long getRows() {
+            return rows;
+        }
+
+        /** @return le righe valide caricate nella tabella temporanea */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /** @return le righe scartate perché non valide */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** @return le righe valide sostituite da una riga successiva con lo stesso ISBN */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /** @return i libri aggiunti al catalogo */
+        public long getInserted() {
+            return inserted;
+        }
+
+        /** @return i libri esistenti modificati */
+        public long getUpdated() {
+            return updated;
+        }
+
+        /** @return i libri esistenti già uguali alla riga importata */
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        /** @return la durata dell'importazione */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /** @return {@code true} se gli errori sono più di quelli riportati */
+        public boolean isErrorsTruncated() {
+            return errorsTruncated;
+        }
+
+        /** @return gli errori delle righe scartate, in ordine di riga */
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+
+    /** Riga di dati letta dal file, con i campi nell'ordine di {@link #FIELDS} */
+    private static final class ImportRow {
+        private final long line;
+        private final String[] values = new String[FIELDS.length];
+
+        ImportRow(long line) {
+            this.line = line;
+        }
+    }
+
+    /** Sorgente delle righe di dati di un formato */
+    private interface RowSource {
+        /**
+         * @return la riga successiva, o {@code null} a fine file
+         * @throws IOException se il file non è leggibile
+         * @throws MalformedRowException se la riga non è interpretabile
+         */
+        ImportRow next() throws IOException;
+    }
+
+    /** Riga che non può essere interpretata, dopo la quale la lettura del file si interrompe */
+    private static final class MalformedRowException extends IllegalArgumentException {
+        private final long line;
+
+        MalformedRowException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+    }
+
+    /**
+     * Importa un catalogo dal flusso indicato.
+     *
+     * @param in il contenuto del file, letto una sola volta e non chiuso
+     * @param format il formato del file
+     * @return l'esito dell'importazione
+     * @throws SQLException se il caricamento o l'unione falliscono: nessun libro viene modificato
+     * @throws IOException se il flusso non è leggibile
+     * @throws IllegalArgumentException se l'intestazione CSV non contiene le colonne obbligatorie
+     */
+    public ImportResult importBooks(InputStream in, Format format) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource source = format == Format.NDJSON ? ndjsonSource(reader) : csvSource(reader);
+        ImportResult result = new ImportResult();
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_STAGING);
+                }
+
+                CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+                try {
+                    copyRows(source, copy, result);
+                    copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+
+                if (result.accepted > 0) {
+                    try (Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery(MERGE_STAGING)) {
+                        rs.next();
+                        long distinct = rs.getLong("distinct_isbns");
+                        result.inserted = rs.getLong("inserted");
+                        result.updated = rs.getLong("updated");
+                        result.duplicates = result.accepted - distinct;
+                        result.unchanged = distinct - result.inserted - result.updated;
+                    }
+                }
+                conn.commit();
+
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        System.out.println("📥 Importazione catalogo: " + result.rows + " righe, " + result.inserted + " inseriti, "
+                + result.updated + " aggiornati, " + result.rejected + " scartate in " + result.elapsedMillis + " ms");
+
+        if (result.inserted > 0 || result.updated > 0) {
+            bookService.reloadCatalog();
+            CompletableFuture.runAsync(contentSimilarityService::rebuildIndex);
+        }
+        return result;
+    }
+
+    /**
+     * Convalida le righe della sorgente e scrive quelle valide nel {@code COPY} in formato CSV,
+     * a blocchi di {@link #COPY_BUFFER_SIZE} byte.
+     */
+    private void copyRows(RowSource source, CopyIn copy, ImportResult result) throws IOException, SQLException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_SIZE + 1024);
+        StringBuilder line = new StringBuilder();
+
+        while (true) {
+            ImportRow row;
+            try {
+                row = source.next();
+            } catch (MalformedRowException e) {
+                // riga non interpretabile: il formato non permette di proseguire in modo affidabile
+                reject(result, e.line, null, e.getMessage());
+                break;
+            }
+            if (row == null) {
+                break;
+            }
+            result.rows++;
+
+            String error = validate(row);
+            if (error != null) {
+                reject(result, row.line, row.values[0], error);
+                continue;
+            }
+
+            line.setLength(0);
+            line.append(row.line);
+            for (String value : row.values) {
+                line.append(',');
+                appendCsv(line, value);
+            }
+            line.append('\n');
+            buffer.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            result.accepted++;
+
+            if (buffer.size() >= COPY_BUFFER_SIZE) {
+                copy.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                buffer.reset();
+            }
+        }
+
+        if (buffer.size() > 0) {
+            copy.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+        }
+    }
+
+    /**
+     * Normalizza i campi di una riga e ne verifica la validità.
+     *
+     * @return il messaggio di errore, o {@code null} se la riga è valida
+     */
+    private static String validate(ImportRow row) {
+        String[] values = row.values;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values[i] != null ? values[i].trim() : "";
+        }
+
+        String isbn = values[0];
+        if (isbn.isEmpty() || values[1].isEmpty() || values[2].isEmpty()) {
+            return "ISBN, titolo e autore sono obbligatori";
+        }
+        if (isbn.length() > MAX_ISBN_LENGTH || isbn.chars().anyMatch(Character::isWhitespace)) {
+            return "ISBN non valido";
+        }
+        if (!values[4].isEmpty() && !YEAR.matcher(values[4]).matches()) {
+            return "Anno non valido: " + values[4];
+        }
+        return null;
+    }
+
+    private void reject(ImportResult result, long line, String isbn, String message) {
+        result.rejected++;
+        if (result.errors.size() < maxReportedErrors) {
+            result.errors.add(new RowError(line, isbn, message));
+        } else {
+            result.errorsTruncated = true;
+        }
+    }
+
+    /** Aggiunge un valore tra doppi apici, come richiesto dal formato CSV del {@code COPY} */
+    private static void appendCsv(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Sorgente NDJSON: un oggetto JSON per riga, righe vuote ignorate. Un oggetto malformato
+     * viene restituito come riga senza valori, così da essere scartato con il suo numero di riga.
+     */
+    private RowSource ndjsonSource(BufferedReader reader) {
+        long[] lineNumber = { 0 };
+        return () -> {
+            String text;
+            do {
+                text = reader.readLine();
+                lineNumber[0]++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+
+            ImportRow row = new ImportRow(lineNumber[0]);
+            if (text.length() > MAX_FIELD_LENGTH) {
+                return row;
+            }
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                if (node != null && node.isObject()) {
+                    node.fields().forEachRemaining(field -> {
+                        int index = fieldIndex(field.getKey());
+                        if (index >= 0 && !field.getValue().isNull()) {
+                            row.values[index] = field.getValue().asText();
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                // JSON malformato: la riga resta senza valori e viene scartata
+            }
+            return row;
+        };
+    }
+
+    /**
+     * Sorgente CSV: la prima riga è l'intestazione, le righe vuote sono ignorate.
+     */
+    private static RowSource csvSource(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return () -> null;
+        }
+
+        int[] columns = new int[header.size()];
+        boolean[] present = new boolean[FIELDS.length];
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i);
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns[i] = fieldIndex(name);
+            if (columns[i] >= 0) {
+                present[columns[i]] = true;
+            }
+        }
+        if (!present[0] || !present[1] || !present[2]) {
+            throw new IllegalArgumentException("L'intestazione CSV deve contenere le colonne isbn, title e author");
+        }
+
+        return () -> {
+            List<String> fields;
+            do {
+                fields = csv.next();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            ImportRow row = new ImportRow(csv.recordLine);
+            for (int i = 0; i < fields.size() && i < columns.length; i++) {
+                if (columns[i] >= 0) {
+                    row.values[columns[i]] = fields.get(i);
+                }
+            }
+            return row;
+        };
+    }
+
+    /**
+     * @return la posizione in {@link #FIELDS} della colonna indicata, o -1 se non è importata
+     */
+    private static int fieldIndex(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        key = FIELD_ALIASES.getOrDefault(key, key);
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lettore CSV (RFC 4180) che restituisce un record alla volta. I campi tra doppi apici
+     * possono contenere virgole, a capo e doppi apici raddoppiati.
+     */
+    private static final class CsvReader {
+        private final BufferedReader in;
+        private long line = 1;
+        /** Riga fisica di inizio dell'ultimo record letto */
+        private long recordLine;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return i campi del record successivo, o {@code null} a fine file
+         * @throws MalformedRowException se un campo tra apici non è chiuso o è troppo lungo
+         */
+        List<String> next() throws IOException {
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean inQuotes = false;
+            while (true) {
+                if (inQuotes) {
+                    if (c == -1) {
+                        throw new MalformedRowException(recordLine, "Campo tra apici non chiuso");
+                    }
+                    if (c == '"') {
+                        int next = in.read();
+                        if (next != '"') {
+                            inQuotes = false;
+                            c = next;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    append(field, c);
+                } else if (c == '"' && field.length() == 0) {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    append(field, c);
+                }
+                c = in.read();
+            }
+        }
+
+        private void append(StringBuilder field, int c) {
+            if (field.length() >= MAX_FIELD_LENGTH) {
+                throw new MalformedRowException(recordLine, "Campo troppo lungo");
+            }
+            field.append((char) c);
+        }
+    }
+}
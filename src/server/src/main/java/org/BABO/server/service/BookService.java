@@ -1,12 +1,28 @@
 package org.BABO.server.service;
 
+import org.BABO.server.index.BookSearchIndex;
+import org.BABO.server.index.CatalogSnapshot;
+import org.BABO.server.index.RatingLeaderboard;
+import org.BABO.shared.dto.Book.BookPageResponse;
 import org.BABO.shared.model.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
 import java.sql.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Servizio business per la gestione del catalogo libri, fungendo da strato di accesso dati (Repository)
@@ -27,6 +43,18 @@ import java.util.concurrent.CompletableFuture;
  * fornisce un set di libri "di riserva" per mantenere l'applicazione funzionante.</li>
  * </ul>
  *
+ * <h3>Catalogo in memoria:</h3>
+ * <p>
+ * Il catalogo viene caricato dal database una sola volta, al primo accesso, in una
+ * {@link CatalogSnapshot} immutabile con indici hash per ISBN e ID. Gli endpoint di lettura
+ * (catalogo completo, dettaglio per ID o ISBN, in evidenza, gratuiti, nuove uscite) vengono
+ * serviti dall'istantanea senza interrogare PostgreSQL; le ricerche per titolo e autore usano
+ * l'indice a trigrammi dell'istantanea ({@link BookSearchIndex}). Le operazioni admin
+ * {@link #addBook}, {@link #updateBook} e {@link #deleteBook} sostituiscono atomicamente
+ * l'istantanea dopo aver scritto sul database. Le classifiche dei libri più recensiti e
+ * meglio valutati uniscono l'istantanea alle classifiche in memoria del {@link RatingService}.
+ * </p>
+ *
  * <h3>Architettura e Design Pattern:</h3>
  * <p>
  * Il servizio segue il pattern del Repository, astraendo le operazioni di persistenza
@@ -62,118 +90,342 @@ import java.util.concurrent.CompletableFuture;
 @Service
 public class BookService {
 
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/DataProva";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "postgress";
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Servizio delle valutazioni, fonte delle classifiche dei libri più recensiti e meglio valutati */
+    @Autowired
+    private RatingService ratingService;
+
+    /** Indice dei libri simili per contenuto, aggiornato dopo ogni scrittura admin */
+    @Autowired
+    private ContentSimilarityService contentSimilarityService;
 
     /**
-     * Recupera l'intero catalogo di libri dal database PostgreSQL.
+     * Indice delle raccomandazioni, aggiornato dopo ogni eliminazione. Iniettato in modo
+     * differito perché il servizio delle raccomandazioni dipende a sua volta da questo.
+     */
+    @Autowired
+    @Lazy
+    private RecommendationService recommendationService;
+
+    /** Cache dei libri per categoria, invalidata ad ogni modifica del catalogo */
+    @Autowired
+    private QueryCache queryCache;
+
+    /** Accorpa le ricerche concorrenti dello stesso ISBN assente dal catalogo */
+    @Autowired
+    private SingleFlight singleFlight;
+
+    /** Numero di libri nelle classifiche della home */
+    private static final int LEADERBOARD_SIZE = 8;
+
+    /** Numero di libri per pagina quando il client non specifica {@code limit} */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /** Numero massimo di libri restituibili in una singola pagina */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /** Numero massimo di ISBN risolvibili con una singola chiamata a {@link #getBooksByIsbns(List)} dalle API */
+    public static final int MAX_BATCH_SIZE = 500;
+
+    /** Separatore tra titolo e ISBN nel cursore (non ammesso nei testi PostgreSQL) */
+    private static final char CURSOR_SEPARATOR = '\u0000';
+
+    /**
+     * Ordinamento del catalogo in tutte le query: titolo e ISBN per byte, cioè per punti di codice
+     * Unicode, come {@link CatalogSnapshot}. Un cursore ha così lo stesso significato nelle pagine
+     * servite dall'istantanea e in quelle lette dal database, qualunque sia la collation del database.
+     */
+    private static final String CATALOG_ORDER = "books_title COLLATE \"C\", isbn COLLATE \"C\"";
+
+    /** Istantanea corrente del catalogo, {@code null} finché non viene caricata con successo */
+    private final AtomicReference<CatalogSnapshot> catalog = new AtomicReference<>();
+
+    /** Serializza il caricamento iniziale e le sostituzioni dell'istantanea */
+    private final Object catalogLock = new Object();
+
+    /**
+     * Recupera l'intero catalogo di libri ordinato per titolo.
      * <p>
-     * Questo metodo si connette al database, esegue una query per selezionare
-     * tutti i libri e popola una lista di oggetti {@link Book}. In caso di
-     * fallimento della connessione o della query, attiva il meccanismo di
-     * fallback.
+     * I libri vengono serviti dall'istantanea in memoria del catalogo; il database viene
+     * interrogato solo al primo accesso (vedi {@link #currentCatalog()}). Se il database non
+     * è disponibile, viene restituito il set di libri di fallback.
      * </p>
      *
-     * <h4>Query SQL eseguita:</h4>
-     * <pre>{@code
-     * SELECT isbn, books_title, book_author, description, publi_year, category
-     * FROM books
-     * ORDER BY books_title
-     * }</pre>
-     *
-     * <h4>Gestione degli errori:</h4>
      * <p>
-     * Se si verifica una {@link SQLException}, il metodo stampa un messaggio di
-     * errore e invoca {@link #addFallbackBooks(List)} per caricare un set
-     * di dati predefinito.
+     * La lista restituita non è modificabile e i libri sono condivisi tra le richieste:
+     * i chiamanti che devono modificarli devono usare {@link CatalogSnapshot#copyOf(Book)}.
      * </p>
      *
-     * @return Una {@link List} di {@link Book} contenente tutti i libri trovati
-     * nel database o i libri di fallback.
+     * @return Una {@link List} di {@link Book} contenente tutti i libri del catalogo
+     * o i libri di fallback.
      * @see #addFallbackBooks(List)
      */
     public List<Book> getAllBooks() {
+        CatalogSnapshot snapshot = currentCatalog();
+        if (snapshot != null) {
+            return snapshot.getBooks();
+        }
+
+        System.out.println("📚 Uso libri di fallback...");
         List<Book> books = new ArrayList<>();
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books ORDER BY books_title";
+        addFallbackBooks(books);
+        return books;
+    }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    /**
+     * Restituisce l'istantanea corrente del catalogo, caricandola dal database al primo accesso.
+     * <p>
+     * Il caricamento è protetto da doppio controllo su {@link #catalogLock}, così che richieste
+     * concorrenti al primo avvio eseguano una sola lettura della tabella {@code books}. Un
+     * caricamento fallito non viene memorizzato: la richiesta successiva riproverà.
+     * </p>
+     *
+     * @return l'istantanea corrente, o {@code null} se il database non è raggiungibile
+     */
+    private CatalogSnapshot currentCatalog() {
+        CatalogSnapshot snapshot = catalog.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        synchronized (catalogLock) {
+            snapshot = catalog.get();
+            if (snapshot == null) {
+                snapshot = loadCatalog();
+                if (snapshot != null) {
+                    catalog.set(snapshot);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Legge l'intero catalogo dal database PostgreSQL e costruisce una nuova istantanea.
+     *
+     * <h4>Query SQL eseguita:</h4>
+     * <pre>{@code
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
+     * FROM books
+     * ORDER BY books_title COLLATE "C", isbn COLLATE "C"
+     * }</pre>
+     *
+     * @return la nuova istantanea, o {@code null} in caso di {@link SQLException}
+     */
+    private CatalogSnapshot loadCatalog() {
+        List<Book> books = new ArrayList<>();
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books ORDER BY " + CATALOG_ORDER;
+
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
-            System.out.println("📊 Connessione al database riuscita");
-
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                // Crea ID sequenziale per compatibilità
-                Long id = (long) (books.size() + 1);
-
-                // Genera nome file immagine basato su ISBN
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
-                books.add(book);
-
-                System.out.println("📖 Caricato: " + title + " (ISBN: " + isbn + ", Categoria: " + category + ") di " + author + " (" + year + ")");
+                books.add(mapResultSetToBook(rs));
             }
 
-            System.out.println("✅ Caricati " + books.size() + " libri dal database");
+            System.out.println("✅ Caricati " + books.size() + " libri dal database nel catalogo in memoria");
+            return CatalogSnapshot.of(books, 1);
 
         } catch (SQLException e) {
             System.err.println("❌ Errore durante il recupero dei libri dal database: " + e.getMessage());
             e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Restituisce il numero di versione dell'istantanea corrente del catalogo.
+     * <p>
+     * La versione cambia ad ogni scrittura sul catalogo, quindi due letture con la stessa
+     * versione restituiscono gli stessi libri. Usata dai controller per gli ETag degli elenchi.
+     * </p>
+     *
+     * @return la versione, o {@code -1} se il catalogo non è disponibile
+     */
+    public long getCatalogVersion() {
+        CatalogSnapshot snapshot = currentCatalog();
+        return snapshot != null ? snapshot.getVersion() : -1;
+    }
+
+    /**
+     * @return l'istantanea corrente del catalogo, o {@code null} se il database non è raggiungibile
+     */
+    CatalogSnapshot getCatalogSnapshot() {
+        return currentCatalog();
+    }
 
-            // Aggiungi libri di fallback se il database non è disponibile
-            System.out.println("📚 Uso libri di fallback...");
-            addFallbackBooks(books);
+    /**
+     * Recupera i libri più recensiti leggendoli da un'istantanea del catalogo già acquisita,
+     * così che siano coerenti con le altre sezioni costruite dalla stessa istantanea.
+     *
+     * @param snapshot l'istantanea del catalogo, o {@code null}
+     * @return i libri più recensiti
+     * @see #getMostReviewedBooksWithDetails()
+     */
+    List<Book> getMostReviewedBooks(CatalogSnapshot snapshot) {
+        List<Book> ranked = booksFromLeaderboard(ratingService.getMostReviewedLeaderboard(LEADERBOARD_SIZE), snapshot);
+        return ranked != null ? ranked : getMostReviewedBooksWithDetails();
+    }
+
+    /**
+     * Recupera i libri meglio valutati leggendoli da un'istantanea del catalogo già acquisita,
+     * così che siano coerenti con le altre sezioni costruite dalla stessa istantanea.
+     *
+     * @param snapshot l'istantanea del catalogo, o {@code null}
+     * @return i libri meglio valutati
+     * @see #getTopRatedBooksWithDetails()
+     */
+    List<Book> getTopRatedBooks(CatalogSnapshot snapshot) {
+        List<Book> ranked = booksFromLeaderboard(ratingService.getTopRatedLeaderboard(LEADERBOARD_SIZE), snapshot);
+        return ranked != null ? ranked : getTopRatedBooksWithDetails();
+    }
+
+    /**
+     * Ricarica dal database l'intera istantanea del catalogo, con versione incrementata.
+     * <p>
+     * Usato dopo le scritture massive (importazione del catalogo), per le quali aggiornare
+     * l'istantanea un libro alla volta costerebbe più di una nuova lettura. Il caricamento
+     * avviene sotto {@link #catalogLock}, così che nessuna scrittura singola vada persa.
+     * </p>
+     *
+     * @return {@code true} se il catalogo è stato ricaricato
+     */
+    public boolean reloadCatalog() {
+        synchronized (catalogLock) {
+            CatalogSnapshot loaded = loadCatalog();
+            if (loaded == null) {
+                return false;
+            }
+            CatalogSnapshot current = catalog.get();
+            catalog.set(current != null ? CatalogSnapshot.of(loaded.getBooks(), current.getVersion() + 1) : loaded);
+            queryCache.invalidateAll(QueryCache.Region.CATEGORY);
+            return true;
         }
+    }
 
-        return books;
+    /**
+     * Sostituisce atomicamente l'istantanea del catalogo dopo una scrittura sul database.
+     * <p>
+     * Se il catalogo non è ancora stato caricato non c'è nulla da aggiornare: il primo
+     * accesso successivo leggerà direttamente lo stato aggiornato del database.
+     * </p>
+     *
+     * @param update la trasformazione da applicare all'istantanea corrente
+     */
+    private void updateCatalog(UnaryOperator<CatalogSnapshot> update) {
+        synchronized (catalogLock) {
+            CatalogSnapshot snapshot = catalog.get();
+            if (snapshot != null) {
+                catalog.set(update.apply(snapshot));
+            }
+        }
+        queryCache.invalidateAll(QueryCache.Region.CATEGORY);
+    }
+
+    /**
+     * Converte la riga corrente di un {@link ResultSet} della tabella {@code books} in un {@link Book}.
+     * <p>
+     * Il nome del file immagine viene derivato dall'ISBN (o, in sua assenza, dal titolo)
+     * con la stessa convenzione usata dal client per le copertine locali.
+     * </p>
+     *
+     * @param rs il result set posizionato sulla riga da leggere
+     * @return il libro mappato
+     * @throws SQLException se la lettura di una colonna fallisce
+     */
+    private Book mapResultSetToBook(ResultSet rs) throws SQLException {
+        Long id = rs.getLong("book_id");
+        String isbn = rs.getString("isbn");
+        String title = rs.getString("books_title");
+        String author = rs.getString("book_author");
+        String description = rs.getString("description");
+        String year = rs.getString("publi_year");
+        String category = rs.getString("category");
+
+        // Genera nome file immagine basato su ISBN
+        String fileName = (isbn != null && !isbn.trim().isEmpty())
+                ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
+                : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
+
+        Book book = new Book(id, isbn, title, author, description, year, fileName);
+        if (category != null && !category.trim().isEmpty()) {
+            book.setCategory(category);
+        }
+        return book;
     }
 
     /**
-     * Recupera un libro specifico dal catalogo in base al suo ID.
+     * Recupera un libro specifico dal catalogo in base al suo ID stabile ({@code books.book_id}).
      * <p>
-     * Questo metodo recupera prima l'intero catalogo di libri e quindi cerca
-     * il libro corrispondente all'ID specificato.
+     * La ricerca avviene in tempo costante sull'indice per ID dell'istantanea in memoria.
+     * Se il libro non è presente nell'istantanea (ad esempio perché inserito direttamente
+     * nel database) viene eseguita una query puntuale sull'indice univoco di {@code book_id}.
      * </p>
      *
+     * <h4>Query SQL eseguita (solo se il libro non è in memoria):</h4>
+     * <pre>{@code
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
+     * FROM books
+     * WHERE book_id = ?
+     * }</pre>
+     *
      * @param id L'ID numerico del libro da recuperare.
      * @return L'oggetto {@link Book} se trovato, altrimenti {@code null}.
-     * @see #getAllBooks()
+     * @see CatalogSnapshot#getById(Long)
      */
     public Book getBookById(Long id) {
-        List<Book> allBooks = getAllBooks();
-        return allBooks.stream()
-                .filter(book -> book.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        if (id == null) {
+            return null;
+        }
+
+        CatalogSnapshot snapshot = currentCatalog();
+        Book cached = snapshot != null ? snapshot.getById(id) : null;
+        if (cached != null) {
+            return cached;
+        }
+
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books WHERE book_id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setLong(1, id);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return mapResultSetToBook(rs);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore nella ricerca per ID: " + e.getMessage());
+            return getAllBooks().stream()
+                    .filter(book -> id.equals(book.getId()))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        return null;
     }
 
     /**
      * Esegue una ricerca generica nel catalogo per titolo o autore.
      * <p>
-     * La ricerca è case-insensitive e utilizza il pattern {@code LIKE %...%}
-     * per trovare corrispondenze parziali.
+     * La ricerca è case-insensitive e trova corrispondenze parziali. Viene risolta
+     * sull'indice a trigrammi del catalogo in memoria, con i risultati ordinati per
+     * rilevanza (vedi {@link BookSearchIndex}); la query SQL con {@code LIKE %...%}
+     * viene usata solo se il catalogo non è disponibile.
      * </p>
      *
-     * <h4>Query SQL eseguita:</h4>
+     * <h4>Query SQL di riserva:</h4>
      * <pre>{@code
-     * SELECT isbn, books_title, book_author, description, publi_year, category
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
      * FROM books
      * WHERE LOWER(books_title) LIKE LOWER(?) OR LOWER(book_author) LIKE LOWER(?)
-     * ORDER BY books_title
+     * ORDER BY books_title COLLATE "C", isbn COLLATE "C"
      * }</pre>
      *
      * @param searchQuery La stringa di ricerca per titolo o autore.
@@ -183,12 +435,19 @@ public class BookService {
     public List<Book> searchBooks(String searchQuery) {
         System.out.println("🔍 Ricerca generica per: '" + searchQuery + "'");
 
+        CatalogSnapshot snapshot = currentCatalog();
+        if (snapshot != null) {
+            List<Book> results = snapshot.getSearchIndex().search(searchQuery, BookSearchIndex.Field.TITLE_OR_AUTHOR);
+            System.out.println("🔍 Ricerca generica '" + searchQuery + "': trovati " + results.size() + " risultati");
+            return results;
+        }
+
         List<Book> books = new ArrayList<>();
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                 "WHERE LOWER(books_title) LIKE LOWER(?) OR LOWER(book_author) LIKE LOWER(?) " +
-                "ORDER BY books_title";
+                "ORDER BY " + CATALOG_ORDER;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             String searchPattern = "%" + searchQuery + "%";
@@ -198,22 +457,7 @@ public class BookService {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
             }
 
@@ -230,8 +474,9 @@ public class BookService {
     /**
      * Esegue una ricerca specifica di libri basata solo sul titolo.
      * <p>
-     * Utilizza un'espressione {@code LIKE} per trovare libri il cui titolo
-     * contiene la stringa di ricerca, ignorando la distinzione tra maiuscole e minuscole.
+     * Trova i libri il cui titolo contiene la stringa di ricerca, ignorando la distinzione
+     * tra maiuscole e minuscole, tramite l'indice a trigrammi del catalogo in memoria.
+     * L'espressione {@code LIKE} sul database viene usata solo se il catalogo non è disponibile.
      * </p>
      *
      * @param titleQuery La stringa di ricerca per il titolo.
@@ -240,12 +485,19 @@ public class BookService {
     public List<Book> searchBooksByTitle(String titleQuery) {
         System.out.println("📖 Ricerca per TITOLO: '" + titleQuery + "'");
 
+        CatalogSnapshot snapshot = currentCatalog();
+        if (snapshot != null) {
+            List<Book> results = snapshot.getSearchIndex().search(titleQuery, BookSearchIndex.Field.TITLE);
+            System.out.println("📖 Ricerca titolo '" + titleQuery + "': trovati " + results.size() + " risultati");
+            return results;
+        }
+
         List<Book> books = new ArrayList<>();
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                 "WHERE LOWER(books_title) LIKE LOWER(?) " +
-                "ORDER BY books_title";
+                "ORDER BY " + CATALOG_ORDER;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             String searchPattern = "%" + titleQuery + "%";
@@ -254,25 +506,10 @@ public class BookService {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
 
-                System.out.println("📖 Trovato titolo: " + title + " (ISBN: " + isbn + ", Categoria: " + category + ", " + year + ")");
+                System.out.println("📖 Trovato titolo: " + book.getTitle() + " (ISBN: " + book.getIsbn() + ", Categoria: " + book.getCategory() + ", " + book.getPublishYear() + ")");
             }
 
             System.out.println("📖 Ricerca titolo '" + titleQuery + "': trovati " + books.size() + " risultati");
@@ -288,8 +525,9 @@ public class BookService {
     /**
      * Esegue una ricerca specifica di libri basata solo sull'autore.
      * <p>
-     * Utilizza un'espressione {@code LIKE} per trovare libri il cui autore
-     * contiene la stringa di ricerca, ignorando la distinzione tra maiuscole e minuscole.
+     * Trova i libri il cui autore contiene la stringa di ricerca, ignorando la distinzione
+     * tra maiuscole e minuscole, tramite l'indice a trigrammi del catalogo in memoria.
+     * L'espressione {@code LIKE} sul database viene usata solo se il catalogo non è disponibile.
      * </p>
      *
      * @param authorQuery La stringa di ricerca per l'autore.
@@ -298,12 +536,19 @@ public class BookService {
     public List<Book> searchBooksByAuthor(String authorQuery) {
         System.out.println("👤 Ricerca per AUTORE: '" + authorQuery + "'");
 
+        CatalogSnapshot snapshot = currentCatalog();
+        if (snapshot != null) {
+            List<Book> results = snapshot.getSearchIndex().search(authorQuery, BookSearchIndex.Field.AUTHOR);
+            System.out.println("👤 Ricerca autore '" + authorQuery + "': trovati " + results.size() + " risultati");
+            return results;
+        }
+
         List<Book> books = new ArrayList<>();
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                 "WHERE LOWER(book_author) LIKE LOWER(?) " +
-                "ORDER BY books_title";
+                "ORDER BY " + CATALOG_ORDER;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             String searchPattern = "%" + authorQuery + "%";
@@ -312,25 +557,10 @@ public class BookService {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
 
-                System.out.println("👤 Trovato autore: " + author + " - " + title + " (ISBN: " + isbn + ", Categoria: " + category + ", " + year + ")");
+                System.out.println("👤 Trovato autore: " + book.getAuthor() + " - " + book.getTitle() + " (ISBN: " + book.getIsbn() + ", Categoria: " + book.getCategory() + ", " + book.getPublishYear() + ")");
             }
 
             System.out.println("👤 Ricerca autore '" + authorQuery + "': trovati " + books.size() + " risultati");
@@ -346,7 +576,9 @@ public class BookService {
     /**
      * Esegue una ricerca di libri combinando i criteri di autore e anno di pubblicazione.
      * <p>
-     * Questo metodo costruisce la query dinamicamente per supportare la ricerca
+     * La ricerca per autore avviene sull'indice a trigrammi del catalogo in memoria e i
+     * risultati vengono poi filtrati per anno, se indicato. Se il catalogo non è disponibile,
+     * la query SQL viene costruita dinamicamente per supportare la ricerca
      * solo per autore o per autore e anno combinati.
      * </p>
      *
@@ -357,23 +589,34 @@ public class BookService {
     public List<Book> searchBooksByAuthorAndYear(String authorQuery, String year) {
         System.out.println("👤📅 Ricerca per AUTORE e ANNO: '" + authorQuery + "' (" + year + ")");
 
+        CatalogSnapshot snapshot = currentCatalog();
+        if (snapshot != null) {
+            List<Book> results = snapshot.getSearchIndex().search(authorQuery, BookSearchIndex.Field.AUTHOR);
+            if (year != null && !year.trim().isEmpty()) {
+                String wantedYear = year.trim();
+                results.removeIf(book -> !wantedYear.equals(book.getPublishYear() != null ? book.getPublishYear().trim() : null));
+            }
+            System.out.println("👤📅 Ricerca autore-anno COMPLETATA: trovati " + results.size() + " risultati totali");
+            return results;
+        }
+
         List<Book> books = new ArrayList<>();
         String query;
 
         // Costruisci query in base ai parametri
         if (year != null && !year.trim().isEmpty()) {
-            query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+            query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                     "WHERE LOWER(book_author) LIKE LOWER(?) AND CAST(publi_year AS TEXT) = ? " +
-                    "ORDER BY books_title";
+                    "ORDER BY " + CATALOG_ORDER;
             System.out.println("📊 Query con FILTRO ANNO: " + query);
         } else {
-            query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+            query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                     "WHERE LOWER(book_author) LIKE LOWER(?) " +
-                    "ORDER BY books_title";
+                    "ORDER BY " + CATALOG_ORDER;
             System.out.println("📊 Query SOLO AUTORE: " + query);
         }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             String searchPattern = "%" + authorQuery + "%";
@@ -389,27 +632,12 @@ public class BookService {
             int count = 0;
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String dbYear = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, dbYear, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
 
                 count++;
                 if (count <= 3) {
-                    System.out.println("👤📅 Risultato " + count + ": " + author + " - " + title + " (ISBN: " + isbn + ", Categoria: " + category + ", " + dbYear + ")");
+                    System.out.println("👤📅 Risultato " + count + ": " + book.getAuthor() + " - " + book.getTitle() + " (ISBN: " + book.getIsbn() + ", Categoria: " + book.getCategory() + ", " + book.getPublishYear() + ")");
                 }
             }
 
@@ -528,7 +756,26 @@ public class BookService {
      * @see #getAllBooks()
      */
     public List<Book> getFeaturedBooks() {
-        List<Book> allBooks = getAllBooks();
+        return featuredOf(getAllBooks());
+    }
+
+    /**
+     * Seleziona i libri in evidenza da un elenco del catalogo.
+     * <p>
+     * Come le altre selezioni della home ({@link #freeOf(List)}, {@link #newReleasesOf(List)}),
+     * si basa sulla posizione nell'elenco, che deve essere nell'ordine dell'istantanea del
+     * catalogo: per titolo e poi ISBN, confrontati per code point come
+     * {@code ORDER BY books_title COLLATE "C", isbn COLLATE "C"}. In precedenza l'elenco era
+     * letto con {@code ORDER BY books_title} nella collation del database: le selezioni
+     * restano per titolo, ma possono differire per titoli che quella collation ordinava
+     * ignorando maiuscole o accenti.
+     * </p>
+     *
+     * @param allBooks l'intero catalogo, in ordine di catalogo
+     * @return i libri in evidenza
+     * @see #getFeaturedBooks()
+     */
+    static List<Book> featuredOf(List<Book> allBooks) {
         int endIndex = Math.min(3, allBooks.size());
         return allBooks.subList(0, endIndex);
     }
@@ -548,8 +795,17 @@ public class BookService {
      * @see #getAllBooks()
      */
     public List<Book> getFreeBooks() {
-        List<Book> allBooks = getAllBooks();
+        return freeOf(getAllBooks());
+    }
 
+    /**
+     * Seleziona i libri gratuiti da un elenco del catalogo.
+     *
+     * @param allBooks l'intero catalogo, in ordine di catalogo
+     * @return i libri gratuiti
+     * @see #getFreeBooks()
+     */
+    static List<Book> freeOf(List<Book> allBooks) {
         int startIndex = allBooks.size() / 2;
         int endIndex = Math.min(startIndex + 24, allBooks.size());
 
@@ -575,7 +831,17 @@ public class BookService {
      * @see #getAllBooks()
      */
     public List<Book> getNewReleases() {
-        List<Book> allBooks = getAllBooks();
+        return newReleasesOf(getAllBooks());
+    }
+
+    /**
+     * Seleziona le nuove uscite da un elenco del catalogo.
+     *
+     * @param allBooks l'intero catalogo, in ordine di catalogo
+     * @return le nuove uscite
+     * @see #getNewReleases()
+     */
+    static List<Book> newReleasesOf(List<Book> allBooks) {
         if (allBooks.size() <= 24) {
             return allBooks;
         }
@@ -585,7 +851,13 @@ public class BookService {
     }
 
     /**
-     * Recupera un libro specifico dal database utilizzando il suo ISBN.
+     * Recupera un libro specifico utilizzando il suo ISBN.
+     * <p>
+     * Il libro viene cercato prima nell'indice per ISBN del catalogo in memoria e ne viene
+     * restituita una copia, che il chiamante può arricchire liberamente. Solo se il libro
+     * non è presente nell'istantanea viene eseguita la query sul database; le ricerche
+     * concorrenti dello stesso ISBN eseguono una sola query (vedi {@link SingleFlight}).
+     * </p>
      * <p>
      * Questo metodo esegue una ricerca mirata nel database basata sull'ISBN (International Standard Book Number).
      * L'ISBN viene utilizzato come identificatore univoco per trovare il libro esatto. La query
@@ -596,7 +868,7 @@ public class BookService {
      *
      * <h3>Query SQL eseguita:</h3>
      * <pre>{@code
-     * SELECT isbn, books_title, book_author, description, publi_year, category
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
      * FROM books
      * WHERE isbn = ?
      * }</pre>
@@ -617,51 +889,50 @@ public class BookService {
             return null;
         }
 
+        CatalogSnapshot snapshot = currentCatalog();
+        Book cached = snapshot != null ? snapshot.getByIsbn(isbn) : null;
+        if (cached != null) {
+            Book book = CatalogSnapshot.copyOf(cached);
+            book.setIsFree(true);
+            book.setIsNew(false);
+            return book;
+        }
+
+        // Il libro letto è condiviso tra le ricerche accorpate: ognuna ne riceve una copia
+        return CatalogSnapshot.copyOf(singleFlight.execute("babo.book-by-isbn", isbn.trim(),
+                () -> queryBookByIsbn(isbn)));
+    }
+
+    /**
+     * Legge dal database il libro con l'ISBN indicato.
+     *
+     * @param isbn La stringa ISBN del libro da cercare.
+     * @return Il libro, o {@code null} se non viene trovato o se si verifica un errore.
+     */
+    private Book queryBookByIsbn(String isbn) {
         System.out.println("🔍 Ricerca libro per ISBN: " + isbn);
 
         String query = """
-        SELECT isbn, books_title, book_author, description, publi_year, category 
+        SELECT book_id, isbn, books_title, book_author, description, publi_year, category 
         FROM books 
         WHERE isbn = ?
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                // Leggi i campi dal database aggiornato
-                String dbIsbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String publishYear = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                // Genera ID basato sull'ISBN per compatibilità
-                Long id = (long) Math.abs(dbIsbn.hashCode());
-
-                // Genera nome file immagine locale (come negli altri metodi)
-                String fileName = (dbIsbn != null && !dbIsbn.trim().isEmpty())
-                        ? dbIsbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : "placeholder.jpg";
-
-                // Crea oggetto Book con costruttore standard
-                Book book = new Book(id, dbIsbn, title, author, description, publishYear, fileName);
-
-                // Imposta categoria se presente
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
 
                 // Valori di default
                 book.setIsFree(true);
                 book.setIsNew(false);
 
-                System.out.println("✅ Libro trovato: " + title + " di " + author +
-                        " (ISBN: " + dbIsbn + ", Categoria: " + category + ")");
+                System.out.println("✅ Libro trovato: " + book.getTitle() + " di " + book.getAuthor() +
+                        " (ISBN: " + book.getIsbn() + ", Categoria: " + book.getCategory() + ")");
                 return book;
 
             } else {
@@ -676,6 +947,84 @@ public class BookService {
         }
     }
 
+    /**
+     * Recupera più libri a partire dai loro ISBN, nell'ordine richiesto.
+     * <p>
+     * Sostituisce le chiamate ripetute a {@link #getBookByIsbn(String)}: gli ISBN presenti
+     * nell'istantanea del catalogo vengono risolti in memoria, quelli mancanti con un'unica
+     * query {@code WHERE isbn = ANY(?)}. Gli ISBN non trovati vengono omessi e quelli ripetuti
+     * compaiono una sola volta, alla prima posizione. Ogni libro restituito è una copia
+     * modificabile dal chiamante.
+     * </p>
+     *
+     * <h3>Query SQL eseguita (solo per gli ISBN assenti dal catalogo):</h3>
+     * <pre>{@code
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
+     * FROM books
+     * WHERE isbn = ANY(?)
+     * }</pre>
+     *
+     * @param isbns gli ISBN da risolvere
+     * @return i libri trovati, nell'ordine degli ISBN richiesti
+     */
+    public List<Book> getBooksByIsbns(List<String> isbns) {
+        if (isbns == null || isbns.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CatalogSnapshot snapshot = currentCatalog();
+        Set<String> requested = new LinkedHashSet<>();
+        Map<String, Book> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String isbn : isbns) {
+            String key = isbn != null ? isbn.trim() : "";
+            if (key.isEmpty() || !requested.add(key)) {
+                continue;
+            }
+
+            Book cached = snapshot != null ? snapshot.getByIsbn(key) : null;
+            if (cached != null) {
+                found.put(key, cached);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category " +
+                    "FROM books WHERE isbn = ANY(?)";
+
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+
+                stmt.setArray(1, conn.createArrayOf("varchar", missing.toArray()));
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    Book book = mapResultSetToBook(rs);
+                    found.put(book.getIsbn(), book);
+                }
+
+            } catch (SQLException e) {
+                System.err.println("❌ Errore nel recupero multiplo per ISBN: " + e.getMessage());
+            }
+        }
+
+        List<Book> books = new ArrayList<>(found.size());
+        for (String isbn : requested) {
+            Book book = CatalogSnapshot.copyOf(found.get(isbn));
+            if (book != null) {
+                book.setIsFree(true);
+                book.setIsNew(false);
+                books.add(book);
+            }
+        }
+
+        System.out.println("📚 Recupero multiplo: " + books.size() + "/" + requested.size() + " libri trovati" +
+                (missing.isEmpty() ? "" : " (" + missing.size() + " cercati nel database)"));
+        return books;
+    }
+
     /**
      * Recupera una lista di libri dal database in base a una categoria specifica.
      * <p>
@@ -691,10 +1040,10 @@ public class BookService {
      *
      * <h3>Query SQL eseguita:</h3>
      * <pre>{@code
-     * SELECT isbn, books_title, book_author, description, publi_year, category
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
      * FROM books
      * WHERE LOWER(TRIM(category)) = LOWER(TRIM(?))
-     * ORDER BY books_title
+     * ORDER BY books_title COLLATE "C", isbn COLLATE "C"
      * }</pre>
      *
      * <h3>Gestione degli errori:</h3>
@@ -703,21 +1052,50 @@ public class BookService {
      * fallback a una ricerca "similare" per la stessa categoria.
      * </p>
      *
+     * <h3>Cache:</h3>
+     * <p>
+     * Il risultato della ricerca esatta è memorizzato in {@link QueryCache} con la versione
+     * corrente del catalogo: una modifica del catalogo rende irraggiungibili i risultati
+     * precedenti. I risultati del fallback non vengono memorizzati.
+     * </p>
+     *
      * @param categoryName Il nome della categoria (genere) da cercare.
      * @return Una {@link List} di {@link Book} che corrispondono alla categoria specificata.
      * @see #getBooksByCategoryLike(String)
      */
     public List<Book> getBooksByCategory(String categoryName) {
+        long version = getCatalogVersion();
+        List<Book> books = version < 0
+                ? queryBooksByCategory(categoryName)
+                : queryCache.get(QueryCache.Region.CATEGORY, QueryCache.key(version, categoryKey(categoryName)),
+                        () -> queryBooksByCategory(categoryName));
+
+        if (books == null) {
+            // Fallback: prova con ricerca LIKE se la ricerca esatta non funziona
+            System.out.println("🔄 Fallback: ricerca con LIKE per categoria");
+            books = getBooksByCategoryLike(categoryName);
+        }
+
+        return books;
+    }
+
+    /**
+     * Esegue la ricerca esatta per categoria di {@link #getBooksByCategory(String)}.
+     *
+     * @param categoryName Il nome della categoria (genere) da cercare.
+     * @return i libri della categoria, o {@code null} in caso di errore del database
+     */
+    private List<Book> queryBooksByCategory(String categoryName) {
         System.out.println("🎭 Ricerca nel DB per categoria: '" + categoryName + "'");
 
         List<Book> books = new ArrayList<>();
 
         // Query SQL che cerca ESATTAMENTE per categoria
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                 "WHERE LOWER(TRIM(category)) = LOWER(TRIM(?)) " +
-                "ORDER BY books_title";
+                "ORDER BY " + CATALOG_ORDER;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, categoryName);
@@ -726,27 +1104,12 @@ public class BookService {
             int count = 0;
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
 
                 count++;
                 if (count <= 3) {
-                    System.out.println("🎭 Risultato " + count + ": " + title + " (Categoria DB: '" + category + "')");
+                    System.out.println("🎭 Risultato " + count + ": " + book.getTitle() + " (Categoria DB: '" + book.getCategory() + "')");
                 }
             }
 
@@ -755,10 +1118,7 @@ public class BookService {
         } catch (SQLException e) {
             System.err.println("❌ Errore SQL durante la ricerca per categoria: " + e.getMessage());
             e.printStackTrace();
-
-            // Fallback: prova con ricerca LIKE se la ricerca esatta non funziona
-            System.out.println("🔄 Fallback: ricerca con LIKE per categoria");
-            books = getBooksByCategoryLike(categoryName);
+            return null;
         }
 
         return books;
@@ -777,10 +1137,10 @@ public class BookService {
      *
      * <h3>Query SQL eseguita:</h3>
      * <pre>{@code
-     * SELECT isbn, books_title, book_author, description, publi_year, category
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
      * FROM books
      * WHERE LOWER(category) LIKE LOWER(?)
-     * ORDER BY books_title
+     * ORDER BY books_title COLLATE "C", isbn COLLATE "C"
      * }</pre>
      *
      * @param categoryName La stringa di ricerca per la categoria.
@@ -789,11 +1149,11 @@ public class BookService {
     private List<Book> getBooksByCategoryLike(String categoryName) {
         List<Book> books = new ArrayList<>();
 
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books " +
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
                 "WHERE LOWER(category) LIKE LOWER(?) " +
-                "ORDER BY books_title";
+                "ORDER BY " + CATALOG_ORDER;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             String searchPattern = "%" + categoryName + "%";
@@ -802,22 +1162,7 @@ public class BookService {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
             }
 
@@ -879,21 +1224,20 @@ public class BookService {
     /**
      * Recupera una lista di libri con i dettagli delle recensioni più alte.
      * <p>
-     * Questo metodo esegue una query SQL complessa per selezionare gli 8 libri più recensiti
-     * dal database, calcolando anche il numero totale di recensioni e la media del voto.
-     * La query utilizza `INNER JOIN` e `GROUP BY` per aggregare i dati e `ORDER BY`
-     * per ordinarli in base al numero di recensioni e alla valutazione media, restituendo
-     * i libri più popolari e meglio votati.
+     * Restituisce gli 8 libri più recensiti, con numero di recensioni e media del voto,
+     * ordinati per numero di recensioni e poi per valutazione media. La classifica viene letta
+     * da {@link RatingService#getMostReviewedLeaderboard(int)}, aggiornata ad ogni valutazione,
+     * e i dettagli dei libri dall'istantanea del catalogo: nessuna query viene eseguita.
      * </p>
      *
-     * <h3>Query SQL eseguita:</h3>
+     * <h3>Query SQL eseguita se la classifica non è disponibile:</h3>
      * <pre>{@code
-     * SELECT b.isbn, b.books_title, b.book_author, b.description, b.publi_year,
+     * SELECT b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category,
      * COUNT(a.isbn) as review_count,
      * AVG(a.average) as avg_rating
      * FROM books b
      * INNER JOIN assessment a ON b.isbn = a.isbn
-     * GROUP BY b.isbn, b.books_title, b.book_author, b.description, b.publi_year
+     * GROUP BY b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category
      * ORDER BY review_count DESC, avg_rating DESC
      * LIMIT 8
      * }</pre>
@@ -913,40 +1257,35 @@ public class BookService {
     public List<Book> getMostReviewedBooksWithDetails() {
         System.out.println("🏆 Recupero libri più recensiti con dettagli");
 
+        List<Book> ranked = booksFromLeaderboard(ratingService.getMostReviewedLeaderboard(LEADERBOARD_SIZE));
+        if (ranked != null) {
+            System.out.println("✅ Recuperati " + ranked.size() + " libri più recensiti dalla classifica");
+            return ranked;
+        }
+
         List<Book> mostReviewed = new ArrayList<>();
 
         String query = """
-        SELECT b.isbn, b.books_title, b.book_author, b.description, b.publi_year, 
+        SELECT b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category,
                COUNT(a.isbn) as review_count,
                AVG(a.average) as avg_rating
         FROM books b
         INNER JOIN assessment a ON b.isbn = a.isbn
-        GROUP BY b.isbn, b.books_title, b.book_author, b.description, b.publi_year
+        GROUP BY b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category
         ORDER BY review_count DESC, avg_rating DESC
         LIMIT 8
     """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
-            Long id = 1L;
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
                 int reviewCount = rs.getInt("review_count");
                 double avgRating = rs.getDouble("avg_rating");
 
-                // Genera nome file immagine
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
                 // Crea libro con dati completi
-                Book book = new Book(id++, isbn, title, author, description, year, fileName);
+                Book book = mapResultSetToBook(rs);
                 book.setIsFree(true);
                 book.setIsNew(false);
 
@@ -956,7 +1295,7 @@ public class BookService {
 
                 mostReviewed.add(book);
 
-                System.out.println("📊 " + title + " - " + reviewCount + " recensioni, media: " + avgRating);
+                System.out.println("📊 " + book.getTitle() + " - " + reviewCount + " recensioni, media: " + avgRating);
             }
 
             System.out.println("✅ Recuperati " + mostReviewed.size() + " libri più recensiti");
@@ -967,7 +1306,10 @@ public class BookService {
 
             // Fallback: usa i featured books
             System.out.println("⚠️ Fallback ai libri featured");
-            mostReviewed = getFeaturedBooks();
+            mostReviewed = new ArrayList<>();
+            for (Book book : getFeaturedBooks()) {
+                mostReviewed.add(CatalogSnapshot.copyOf(book));
+            }
 
             // Aggiungi valutazioni simulate per il fallback
             for (Book book : mostReviewed) {
@@ -980,23 +1322,24 @@ public class BookService {
     }
 
     /**
-     * Recupera una lista di libri con la valutazione più alta dal database.
+     * Recupera una lista di libri con la valutazione più alta.
      * <p>
-     * Questo metodo esegue una query SQL complessa per selezionare gli 8 libri con la media
-     * di voto più alta, calcolando anche il numero di recensioni totali per ogni libro.
-     * La query utilizza `INNER JOIN` per collegare la tabella dei libri e quella delle
-     * valutazioni, e ordina i risultati in base al punteggio medio e al numero di
-     * recensioni per garantire che vengano restituiti i libri più popolari e meglio votati.
+     * Restituisce gli 8 libri con il punteggio più alto, con numero di recensioni e media del
+     * voto. Il punteggio è la media bayesiana calcolata da
+     * {@link RatingService#getTopRatedLeaderboard(int)}, che esclude i libri con troppe poche
+     * valutazioni ({@code babo.leaderboard.min-votes}) e impedisce che un singolo voto massimo
+     * superi libri con molte valutazioni alte. I dettagli dei libri provengono dall'istantanea
+     * del catalogo.
      * </p>
      *
-     * <h3>Query SQL eseguita:</h3>
+     * <h3>Query SQL eseguita se la classifica non è disponibile:</h3>
      * <pre>{@code
-     * SELECT b.isbn, b.books_title, b.book_author, b.description, b.publi_year,
+     * SELECT b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category,
      * COUNT(a.isbn) as review_count,
      * AVG(a.average) as avg_rating
      * FROM books b
      * INNER JOIN assessment a ON b.isbn = a.isbn
-     * GROUP BY b.isbn, b.books_title, b.book_author, b.description, b.publi_year
+     * GROUP BY b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category
      * ORDER BY avg_rating DESC, review_count DESC
      * LIMIT 8
      * }</pre>
@@ -1015,42 +1358,37 @@ public class BookService {
      * @see #getNewReleases()
      */
     public List<Book> getTopRatedBooksWithDetails() {
-        System.out.println("🏆 Recupero 6 libri con valutazione assoluta più alta");
+        System.out.println("🏆 Recupero libri con valutazione più alta");
+
+        List<Book> ranked = booksFromLeaderboard(ratingService.getTopRatedLeaderboard(LEADERBOARD_SIZE));
+        if (ranked != null) {
+            System.out.println("✅ Recuperati " + ranked.size() + " libri meglio valutati dalla classifica");
+            return ranked;
+        }
 
         List<Book> topRated = new ArrayList<>();
 
         String query = """
-        SELECT b.isbn, b.books_title, b.book_author, b.description, b.publi_year, 
+        SELECT b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category,
                COUNT(a.isbn) as review_count,
                AVG(a.average) as avg_rating
         FROM books b
         INNER JOIN assessment a ON b.isbn = a.isbn
-        GROUP BY b.isbn, b.books_title, b.book_author, b.description, b.publi_year
+        GROUP BY b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, b.category
         ORDER BY avg_rating DESC, review_count DESC
         LIMIT 8
     """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
-            Long id = 1L;
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
                 int reviewCount = rs.getInt("review_count");
                 double avgRating = rs.getDouble("avg_rating");
 
-                // Genera nome file immagine
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : (title != null ? title.replaceAll("[^a-zA-Z0-9]", "") + ".jpg" : "placeholder.jpg");
-
                 // Crea libro con dati completi
-                Book book = new Book(id++, isbn, title, author, description, year, fileName);
+                Book book = mapResultSetToBook(rs);
                 book.setIsFree(true);
                 book.setIsNew(false);
 
@@ -1060,7 +1398,7 @@ public class BookService {
 
                 topRated.add(book);
 
-                System.out.println("⭐ " + title + " - media: " + avgRating + " (" + reviewCount + " recensioni)");
+                System.out.println("⭐ " + book.getTitle() + " - media: " + avgRating + " (" + reviewCount + " recensioni)");
             }
 
             System.out.println("✅ Recuperati " + topRated.size() + " libri meglio valutati");
@@ -1071,7 +1409,10 @@ public class BookService {
 
             // Fallback: usa i new releases con valutazioni simulate
             System.out.println("⚠️ Fallback ai new releases");
-            topRated = getNewReleases();
+            topRated = new ArrayList<>();
+            for (Book book : getNewReleases()) {
+                topRated.add(CatalogSnapshot.copyOf(book));
+            }
 
             // Aggiungi valutazioni simulate per il fallback (4.0-5.0 per "meglio valutati")
             for (Book book : topRated) {
@@ -1088,6 +1429,245 @@ public class BookService {
         return topRated;
     }
 
+    /**
+     * Converte le posizioni di una classifica in copie dei libri del catalogo, arricchite con
+     * numero di recensioni e media arrotondata a un decimale.
+     *
+     * @param ranking le posizioni in classifica, o {@code null}
+     * @return i libri in ordine di classifica, o {@code null} se classifica o catalogo non sono disponibili
+     */
+    private List<Book> booksFromLeaderboard(List<RatingLeaderboard.Entry> ranking) {
+        return booksFromLeaderboard(ranking, ranking != null ? currentCatalog() : null);
+    }
+
+    /**
+     * Converte le posizioni di una classifica nei libri di un'istantanea del catalogo.
+     *
+     * @param ranking le posizioni in classifica, o {@code null} se la classifica non è disponibile
+     * @param snapshot l'istantanea da cui leggere i libri, o {@code null}
+     * @return i libri in ordine di classifica, o {@code null} se classifica o istantanea non sono disponibili
+     */
+    private List<Book> booksFromLeaderboard(List<RatingLeaderboard.Entry> ranking, CatalogSnapshot snapshot) {
+        if (ranking == null || snapshot == null) {
+            return null;
+        }
+
+        List<Book> books = new ArrayList<>(ranking.size());
+        for (RatingLeaderboard.Entry entry : ranking) {
+            Book book = CatalogSnapshot.copyOf(snapshot.getByIsbn(entry.getIsbn()));
+            if (book == null) {
+                continue;
+            }
+            book.setIsFree(true);
+            book.setIsNew(false);
+            book.setReviewCount(entry.getCount());
+            book.setAverageRating(Math.round(entry.getAverage() * 10.0) / 10.0);
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * ===============================
+     * PAGINAZIONE A CURSORE
+     * ===============================
+     */
+
+    /**
+     * Recupera una pagina del catalogo completo, ordinato per titolo e ISBN.
+     * <p>
+     * La pagina viene estratta dall'istantanea in memoria con una ricerca binaria sulla
+     * chiave del cursore, quindi il costo non dipende dalla posizione della pagina.
+     * </p>
+     *
+     * @param after il cursore restituito dalla pagina precedente, o {@code null} per la prima pagina
+     * @param limit il numero di libri desiderato, limitato a {@link #MAX_PAGE_SIZE}
+     * @return la pagina di libri con il cursore della pagina successiva
+     * @throws IllegalArgumentException se il cursore non è valido
+     */
+    public BookPageResponse getBooksPage(String after, Integer limit) {
+        int pageSize = normalizePageSize(limit);
+        String[] key = decodeCursor(after);
+
+        CatalogSnapshot snapshot = currentCatalog();
+        if (snapshot == null) {
+            snapshot = CatalogSnapshot.of(getAllBooks(), 0);
+        }
+
+        List<Book> page = snapshot.pageAfter(key != null ? key[0] : null, key != null ? key[1] : null, pageSize + 1);
+        return toPage(page, pageSize);
+    }
+
+    /**
+     * Recupera una pagina dei libri di una categoria, ordinati per titolo e ISBN.
+     *
+     * <h4>Query SQL eseguita:</h4>
+     * <pre>{@code
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
+     * FROM books
+     * WHERE LOWER(TRIM(category)) = LOWER(TRIM(?)) AND (books_title COLLATE "C", isbn COLLATE "C") > (?, ?)
+     * ORDER BY books_title COLLATE "C", isbn COLLATE "C"
+     * LIMIT ?
+     * }</pre>
+     *
+     * @param categoryName il nome della categoria
+     * @param after il cursore restituito dalla pagina precedente, o {@code null} per la prima pagina
+     * @param limit il numero di libri desiderato, limitato a {@link #MAX_PAGE_SIZE}
+     * @return la pagina di libri con il cursore della pagina successiva
+     * @throws IllegalArgumentException se il cursore non è valido
+     */
+    public BookPageResponse getBooksByCategoryPage(String categoryName, String after, Integer limit) {
+        System.out.println("🎭 Pagina categoria '" + categoryName + "'");
+        String filter = "LOWER(TRIM(category)) = LOWER(TRIM(?))";
+
+        long version = getCatalogVersion();
+        BookPageResponse page = version < 0
+                ? queryBooksPage(filter, categoryName, after, limit)
+                : queryCache.get(QueryCache.Region.CATEGORY,
+                        QueryCache.key(version, categoryKey(categoryName), after, normalizePageSize(limit)),
+                        () -> queryBooksPage(filter, categoryName, after, limit));
+        return page != null ? page : new BookPageResponse(new ArrayList<>(), null);
+    }
+
+    /**
+     * Normalizza il nome di una categoria come la condizione {@code LOWER(TRIM(category))},
+     * per le chiavi di {@link QueryCache}.
+     */
+    private static String categoryKey(String categoryName) {
+        return categoryName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Recupera una pagina dell'intero catalogo direttamente dal database, per l'area amministrativa.
+     *
+     * <h4>Query SQL eseguita:</h4>
+     * <pre>{@code
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category
+     * FROM books
+     * WHERE (books_title COLLATE "C", isbn COLLATE "C") > (?, ?)
+     * ORDER BY books_title COLLATE "C", isbn COLLATE "C"
+     * LIMIT ?
+     * }</pre>
+     *
+     * @param after il cursore restituito dalla pagina precedente, o {@code null} per la prima pagina
+     * @param limit il numero di libri desiderato, limitato a {@link #MAX_PAGE_SIZE}
+     * @return la pagina di libri con il cursore della pagina successiva
+     * @throws IllegalArgumentException se il cursore non è valido
+     */
+    public BookPageResponse getBooksForAdminPage(String after, Integer limit) {
+        System.out.println("👑 Pagina libri per admin");
+        BookPageResponse page = queryBooksPage(null, null, after, limit);
+        return page != null ? page : new BookPageResponse(new ArrayList<>(), null);
+    }
+
+    /**
+     * Esegue una query paginata a chiave (keyset) sulla tabella {@code books}.
+     * <p>
+     * La condizione {@code (books_title COLLATE "C", isbn COLLATE "C") > (?, ?)} sfrutta l'indice
+     * {@code idx_books_title_isbn_c} (o, per le categorie, {@code idx_books_category_title_isbn_c})
+     * creato dalla migrazione V10: ogni pagina legge solo le
+     * righe che restituisce, indipendentemente da quante ne precedono. Viene letta una riga
+     * in più del necessario per sapere se esiste una pagina successiva.
+     * </p>
+     *
+     * @param filter condizione aggiuntiva con un solo parametro, o {@code null}
+     * @param filterValue il valore del parametro della condizione
+     * @param after il cursore della pagina precedente, o {@code null}
+     * @param limit il numero di libri desiderato
+     * @return la pagina di libri, o {@code null} in caso di errore del database
+     */
+    private BookPageResponse queryBooksPage(String filter, String filterValue, String after, Integer limit) {
+        int pageSize = normalizePageSize(limit);
+        String[] key = decodeCursor(after);
+
+        List<String> conditions = new ArrayList<>();
+        if (filter != null) {
+            conditions.add(filter);
+        }
+        if (key != null) {
+            conditions.add("(" + CATALOG_ORDER + ") > (?, ?)");
+        }
+
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books " +
+                (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ") +
+                "ORDER BY " + CATALOG_ORDER + " LIMIT ?";
+
+        List<Book> books = new ArrayList<>();
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            int index = 1;
+            if (filter != null) {
+                stmt.setString(index++, filterValue);
+            }
+            if (key != null) {
+                stmt.setString(index++, key[0]);
+                stmt.setString(index++, key[1]);
+            }
+            stmt.setInt(index, pageSize + 1);
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                books.add(mapResultSetToBook(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore durante il recupero della pagina di libri: " + e.getMessage());
+            return null;
+        }
+
+        return toPage(books, pageSize);
+    }
+
+    /**
+     * Costruisce la risposta paginata da una lista che contiene al più {@code pageSize + 1} libri.
+     */
+    private BookPageResponse toPage(List<Book> books, int pageSize) {
+        if (books.size() <= pageSize) {
+            return new BookPageResponse(new ArrayList<>(books), null);
+        }
+        List<Book> page = new ArrayList<>(books.subList(0, pageSize));
+        return new BookPageResponse(page, encodeCursor(page.get(pageSize - 1)));
+    }
+
+    /**
+     * Riporta la dimensione di pagina richiesta nell'intervallo consentito.
+     */
+    private int normalizePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Codifica la chiave (titolo, ISBN) di un libro in un cursore opaco sicuro per gli URL.
+     */
+    private String encodeCursor(Book book) {
+        String title = book.getTitle() != null ? book.getTitle() : "";
+        String raw = title + CURSOR_SEPARATOR + book.getIsbn();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursore nella coppia {titolo, ISBN}.
+     *
+     * @return la chiave decodificata, o {@code null} se il cursore è assente
+     * @throws IllegalArgumentException se il cursore non è valido
+     */
+    private String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        int separator = raw.lastIndexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Cursore di paginazione non valido");
+        }
+        return new String[]{raw.substring(0, separator), raw.substring(separator + 1)};
+    }
+
     /**
      * ===============================
      * METODI ADMIN PER GESTIONE LIBRI
@@ -1138,9 +1718,9 @@ public class BookService {
             return false;
         }
 
-        String query = "INSERT INTO books (isbn, books_title, book_author, description, publi_year, category) VALUES (?, ?, ?, ?, ?, ?)";
+        String query = "INSERT INTO books (isbn, books_title, book_author, description, publi_year, category) VALUES (?, ?, ?, ?, ?, ?) RETURNING book_id";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
@@ -1150,10 +1730,14 @@ public class BookService {
             stmt.setString(5, year != null ? year.trim() : "");
             stmt.setString(6, category != null ? category.trim() : "");
 
-            int rowsAffected = stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
 
-            if (rowsAffected > 0) {
+            if (rs.next()) {
                 System.out.println("✅ Libro aggiunto con successo: " + title + " (ISBN: " + isbn + ")");
+                Book added = buildCatalogBook(isbn, title, author, description, year, category);
+                added.setId(rs.getLong("book_id"));
+                updateCatalog(snapshot -> snapshot.withBook(added));
+                contentSimilarityService.onBookChanged(isbn, author, category, description);
                 return true;
             } else {
                 System.err.println("❌ Nessuna riga inserita");
@@ -1181,6 +1765,8 @@ public class BookService {
      * <li>Validazione dell'ISBN per assicurare che non sia nullo o vuoto.</li>
      * <li>Esecuzione di una query SQL di tipo `DELETE` basata sull'ISBN.</li>
      * <li>Verifica se sono state eliminate righe e restituzione di un risultato booleano.</li>
+     * <li>Aggiornamento del catalogo in memoria, dell'indice di similarità e dell'indice delle
+     * raccomandazioni, le cui righe sono eliminate dal database con il libro.</li>
      * </ol>
      *
      * @param isbn L'ISBN del libro da eliminare.
@@ -1198,7 +1784,7 @@ public class BookService {
 
         String query = "DELETE FROM books WHERE isbn = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
@@ -1206,6 +1792,9 @@ public class BookService {
 
             if (rowsAffected > 0) {
                 System.out.println("✅ Libro eliminato con successo: ISBN " + isbn);
+                updateCatalog(snapshot -> snapshot.withoutBook(isbn.trim()));
+                contentSimilarityService.onBookRemoved(isbn);
+                recommendationService.onBookRemoved(isbn.trim());
                 return true;
             } else {
                 System.err.println("❌ Nessun libro trovato con ISBN: " + isbn);
@@ -1233,7 +1822,7 @@ public class BookService {
      *
      * <h3>Query SQL eseguita:</h3>
      * <pre>{@code
-     * UPDATE books SET books_title = ?, book_author = ?, description = ?, publi_year = ?, category = ? WHERE isbn = ?
+     * UPDATE books SET books_title = ?, book_author = ?, description = ?, publi_year = ?, category = ? WHERE isbn = ? RETURNING book_id
      * }</pre>
      *
      * @param isbn L'ISBN del libro da aggiornare.
@@ -1253,9 +1842,9 @@ public class BookService {
             return false;
         }
 
-        String query = "UPDATE books SET books_title = ?, book_author = ?, description = ?, publi_year = ?, category = ? WHERE isbn = ?";
+        String query = "UPDATE books SET books_title = ?, book_author = ?, description = ?, publi_year = ?, category = ? WHERE isbn = ? RETURNING book_id";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, title != null ? title.trim() : "");
@@ -1265,10 +1854,14 @@ public class BookService {
             stmt.setString(5, category != null ? category.trim() : "");
             stmt.setString(6, isbn.trim());
 
-            int rowsAffected = stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
 
-            if (rowsAffected > 0) {
+            if (rs.next()) {
                 System.out.println("✅ Libro aggiornato con successo: " + title + " (ISBN: " + isbn + ")");
+                Book updated = buildCatalogBook(isbn, title, author, description, year, category);
+                updated.setId(rs.getLong("book_id"));
+                updateCatalog(snapshot -> snapshot.withBook(updated));
+                contentSimilarityService.onBookChanged(isbn, author, category, description);
                 return true;
             } else {
                 System.err.println("❌ Nessun libro trovato con ISBN: " + isbn);
@@ -1282,6 +1875,25 @@ public class BookService {
         }
     }
 
+    /**
+     * Costruisce il {@link Book} da inserire nell'istantanea del catalogo dopo una scrittura admin,
+     * normalizzando i campi come vengono salvati nel database.
+     * <p>
+     * L'ID viene lasciato {@code null}: il chiamante imposta quello restituito dal database con
+     * {@code RETURNING book_id}, unica fonte degli ID.
+     * </p>
+     */
+    private Book buildCatalogBook(String isbn, String title, String author, String description, String year, String category) {
+        String cleanIsbn = isbn.trim();
+        Book book = new Book(null, cleanIsbn, title != null ? title.trim() : "", author != null ? author.trim() : "",
+                description != null ? description.trim() : "", year != null ? year.trim() : "",
+                cleanIsbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg");
+        if (category != null && !category.trim().isEmpty()) {
+            book.setCategory(category.trim());
+        }
+        return book;
+    }
+
     /**
      * Verifica l'esistenza di un libro nel database utilizzando il suo ISBN.
      * <p>
@@ -1303,7 +1915,7 @@ public class BookService {
     private boolean bookExistsByIsbn(String isbn) {
         String query = "SELECT COUNT(*) FROM books WHERE isbn = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
@@ -1332,7 +1944,7 @@ public class BookService {
      *
      * <h3>Query SQL eseguita:</h3>
      * <pre>{@code
-     * SELECT isbn, books_title, book_author, description, publi_year, category FROM books ORDER BY books_title
+     * SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books ORDER BY books_title COLLATE "C", isbn COLLATE "C"
      * }</pre>
      *
      * @return Una {@link List} di {@link Book} contenente tutti i libri presenti nel database.
@@ -1341,29 +1953,14 @@ public class BookService {
         System.out.println("👑 Recupero tutti i libri per admin");
 
         List<Book> books = new ArrayList<>();
-        String query = "SELECT isbn, books_title, book_author, description, publi_year, category FROM books ORDER BY books_title";
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category FROM books ORDER BY " + CATALOG_ORDER;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
             while (rs.next()) {
-                String isbn = rs.getString("isbn");
-                String title = rs.getString("books_title");
-                String author = rs.getString("book_author");
-                String description = rs.getString("description");
-                String year = rs.getString("publi_year");
-                String category = rs.getString("category");
-
-                Long id = (long) (books.size() + 1);
-                String fileName = (isbn != null && !isbn.trim().isEmpty())
-                        ? isbn.replaceAll("[^a-zA-Z0-9]", "") + ".jpg"
-                        : "placeholder.jpg";
-
-                Book book = new Book(id, isbn, title, author, description, year, fileName);
-                if (category != null && !category.trim().isEmpty()) {
-                    book.setCategory(category);
-                }
+                Book book = mapResultSetToBook(rs);
                 books.add(book);
             }
 
@@ -1376,4 +1973,26 @@ public class BookService {
 
         return books;
     }
+    /**
+     * Legge l'intero catalogo per l'area amministrativa consegnando un libro alla volta.
+     * <p>
+     * A differenza di {@link #getAllBooksForAdmin()} non costruisce la lista completa: le righe
+     * vengono lette con un cursore lato server a blocchi di {@link StreamingQuery#FETCH_SIZE}
+     * e passate al destinatario appena mappate, così che la memoria usata resti costante
+     * anche con cataloghi molto grandi.
+     * </p>
+     *
+     * @param sink il destinatario dei libri, nell'ordine per titolo e ISBN
+     * @return il numero di libri consegnati
+     * @throws SQLException se la lettura dal database fallisce
+     * @throws java.io.IOException se il destinatario fallisce
+     */
+    public int streamAllBooksForAdmin(RowSink<Book> sink) throws SQLException, java.io.IOException {
+        String query = "SELECT book_id, isbn, books_title, book_author, description, publi_year, category " +
+                "FROM books ORDER BY " + CATALOG_ORDER;
+
+        int count = StreamingQuery.stream(dataSource, query, this::mapResultSetToBook, sink);
+        System.out.println("✅ Inviati in streaming " + count + " libri per admin");
+        return count;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package org.BABO.server.service;
+
+import org.BABO.server.index.ContentSimilarityIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Servizio dei libri simili per contenuto: vicini TF-IDF calcolati da descrizione, categoria
+ * e autore dei libri.
+ * <p>
+ * Un job in background legge periodicamente i testi del catalogo con un cursore lato server e
+ * costruisce un {@link ContentSimilarityIndex} su un pool fork-join dedicato. Il nuovo indice
+ * sostituisce atomicamente il precedente.
+ * </p>
+ *
+ * <h3>Aggiornamento incrementale:</h3>
+ * <p>
+ * {@link BookService} notifica ogni libro aggiunto, modificato o eliminato: la modifica viene
+ * applicata subito all'indice corrente, senza attendere la ricostruzione successiva. Le
+ * modifiche ricevute durante una ricostruzione vengono riapplicate al nuovo indice prima che
+ * sostituisca il precedente, così che nessuna vada persa.
+ * </p>
+ * <p>
+ * I testi sono letti direttamente dalla tabella {@code books} e non tramite
+ * {@link BookService}, che dipende da questo servizio.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see ContentSimilarityIndex
+ */
+@Service
+public class ContentSimilarityService {
+
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Libri simili conservati per ogni libro */
+    @Value("${babo.content-similarity.top-k:20}")
+    private int topK;
+
+    /** Thread del pool fork-join usato per la costruzione, 0 per il numero di processori */
+    @Value("${babo.content-similarity.parallelism:0}")
+    private int parallelism;
+
+    /** Ultimo indice costruito, {@code null} fino alla prima costruzione completata */
+    private volatile ContentSimilarityIndex index;
+
+    /** Serializza le modifiche incrementali e la sostituzione dell'indice */
+    private final Object updateLock = new Object();
+
+    /** Modifiche ricevute durante la ricostruzione in corso, {@code null} se non ce n'è una */
+    private List<Consumer<ContentSimilarityIndex>> pendingChanges;
+
+    /** Pool fork-join della costruzione, creato alla prima ricostruzione */
+    private ForkJoinPool pool;
+
+    /**
+     * Ricostruisce l'indice dai testi del catalogo.
+     * <p>
+     * Eseguito in background all'avvio e poi a intervalli regolari, oppure dopo
+     * un'importazione del catalogo; due ricostruzioni non vengono mai eseguite insieme. In caso
+     * di errore l'indice precedente resta in uso.
+     * </p>
+     */
+    @Scheduled(initialDelayString = "${babo.content-similarity.initial-delay-ms:15000}",
+            fixedDelayString = "${babo.content-similarity.refresh-ms:3600000}")
+    public synchronized void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        String query = "SELECT isbn, book_author, category, description FROM books WHERE isbn IS NOT NULL";
+
+        synchronized (updateLock) {
+            pendingChanges = new ArrayList<>();
+        }
+
+        try {
+            ContentSimilarityIndex.Builder builder = new ContentSimilarityIndex.Builder();
+            int rows = StreamingQuery.stream(dataSource, query,
+                    rs -> new String[] { rs.getString("isbn").trim(), rs.getString("book_author"),
+                            rs.getString("category"), rs.getString("description") },
+                    row -> builder.add(row[0], row[1], row[2], row[3]));
+
+            ContentSimilarityIndex built = builder.build(topK, pool());
+
+            synchronized (updateLock) {
+                for (Consumer<ContentSimilarityIndex> change : pendingChanges) {
+                    change.accept(built);
+                }
+                index = built;
+            }
+
+            System.out.println("📖 Indice libri simili per contenuto aggiornato: " + rows + " libri in "
+                    + (System.currentTimeMillis() - start) + " ms");
+
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.err.println("❌ Errore aggiornamento indice libri simili per contenuto: " + e.getMessage());
+        } finally {
+            synchronized (updateLock) {
+                pendingChanges = null;
+            }
+        }
+    }
+
+    /**
+     * Aggiorna l'indice dopo l'aggiunta o la modifica di un libro.
+     *
+     * @param isbn l'ISBN del libro
+     * @param author l'autore
+     * @param category la categoria
+     * @param description la descrizione
+     */
+    public void onBookChanged(String isbn, String author, String category, String description) {
+        if (isbn == null) {
+            return;
+        }
+        String key = isbn.trim();
+        apply(target -> target.upsert(key, author, category, description));
+    }
+
+    /**
+     * Aggiorna l'indice dopo l'eliminazione di un libro.
+     *
+     * @param isbn l'ISBN del libro
+     */
+    public void onBookRemoved(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        String key = isbn.trim();
+        apply(target -> target.remove(key));
+    }
+
+    /**
+     * Restituisce i libri più simili per contenuto a quello indicato.
+     *
+     * @param isbn l'ISBN del libro
+     * @param limit il numero massimo di libri
+     * @return i libri simili in ordine di similarità, o {@code null} se l'indice non è ancora pronto
+     */
+    public List<ContentSimilarityIndex.Entry> getSimilarBooks(String isbn, int limit) {
+        ContentSimilarityIndex current = index;
+        return current != null ? current.similar(isbn, limit) : null;
+    }
+
+    /**
+     * @return il numero massimo di libri simili disponibili per ogni libro
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /** Applica una modifica all'indice corrente e, se è in corso una ricostruzione, la accoda */
+    private void apply(Consumer<ContentSimilarityIndex> change) {
+        synchronized (updateLock) {
+            ContentSimilarityIndex current = index;
+            if (current != null) {
+                change.accept(current);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,159 @@
+package org.BABO.server.service;
+
+import jakarta.annotation.PreDestroy;
+import org.BABO.server.index.CatalogSnapshot;
+import org.BABO.shared.dto.Book.HomeFeedResponse;
+import org.BABO.shared.model.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Servizio che costruisce in un'unica risposta tutte le sezioni della home.
+ * <p>
+ * Le sezioni del catalogo (in evidenza, consigliati, nuove uscite) sono selezionate dalla
+ * stessa istantanea del catalogo, da cui vengono letti anche i libri delle due classifiche.
+ * Le classifiche sono costruite in parallelo, perché in assenza della classifica in memoria
+ * ricorrono a un'aggregazione sul database.
+ * </p>
+ *
+ * <h3>Cache:</h3>
+ * <p>
+ * L'ultima risposta costruita viene riusata finché la versione del catalogo e quella delle
+ * valutazioni non cambiano, e comunque per non più di {@code babo.home.cache-ms}
+ * millisecondi: all'avvio dell'interfaccia le richieste ravvicinate di più client costano
+ * una sola costruzione.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see BookService
+ * @see RatingService
+ */
+@Service
+public class HomeFeedService {
+
+    /** Servizio del catalogo, da cui vengono selezionate le sezioni */
+    @Autowired
+    private BookService bookService;
+
+    /** Servizio delle valutazioni, per la versione delle classifiche */
+    @Autowired
+    private RatingService ratingService;
+
+    /** Durata massima di validità della risposta in cache */
+    @Value("${babo.home.cache-ms:30000}")
+    private long cacheMillis;
+
+    /** Thread usati per le classifiche, 0 per il numero di processori */
+    @Value("${babo.home.parallelism:0}")
+    private int parallelism;
+
+    /** Ultima risposta costruita, {@code null} finché non ne è stata costruita una */
+    private volatile CachedFeed cached;
+
+    /** Serializza le costruzioni, così che richieste concorrenti ne eseguano una sola */
+    private final Object buildLock = new Object();
+
+    /** Pool delle classifiche, creato alla prima costruzione */
+    private ForkJoinPool pool;
+
+    /**
+     * Risposta costruita con le versioni dei dati da cui è stata letta. Le istanze sono immutabili.
+     */
+    private static final class CachedFeed {
+        private final long catalogVersion;
+        private final long ratingsVersion;
+        private final long builtAt;
+        private final HomeFeedResponse feed;
+
+        private CachedFeed(long catalogVersion, long ratingsVersion, long builtAt, HomeFeedResponse feed) {
+            this.catalogVersion = catalogVersion;
+            this.ratingsVersion = ratingsVersion;
+            this.builtAt = builtAt;
+            this.feed = feed;
+        }
+
+        private boolean isValid(long catalogVersion, long ratingsVersion, long now, long maxAge) {
+            return this.catalogVersion == catalogVersion && this.ratingsVersion == ratingsVersion
+                    && now - builtAt < maxAge;
+        }
+    }
+
+    /**
+     * Restituisce tutte le sezioni della home.
+     * <p>
+     * La risposta restituita può essere condivisa tra più richieste e non va modificata.
+     * </p>
+     *
+     * @return le sezioni della home
+     */
+    public HomeFeedResponse getHomeFeed() {
+        long catalogVersion = bookService.getCatalogVersion();
+        long ratingsVersion = ratingService.getRatingsVersion();
+
+        CachedFeed current = cached;
+        if (current != null && current.isValid(catalogVersion, ratingsVersion, System.currentTimeMillis(), cacheMillis)) {
+            return current.feed;
+        }
+
+        synchronized (buildLock) {
+            current = cached;
+            if (current != null && current.isValid(catalogVersion, ratingsVersion, System.currentTimeMillis(), cacheMillis)) {
+                return current.feed;
+            }
+
+            long start = System.currentTimeMillis();
+            HomeFeedResponse feed = buildFeed();
+            cached = new CachedFeed(catalogVersion, ratingsVersion, System.currentTimeMillis(), feed);
+
+            System.out.println("🏠 Home costruita in " + (System.currentTimeMillis() - start) + " ms: " + feed);
+            return feed;
+        }
+    }
+
+    /**
+     * Costruisce tutte le sezioni da un'unica istantanea del catalogo.
+     */
+    private HomeFeedResponse buildFeed() {
+        CatalogSnapshot snapshot = bookService.getCatalogSnapshot();
+
+        CompletableFuture<List<Book>> mostReviewed = CompletableFuture.supplyAsync(
+                () -> bookService.getMostReviewedBooks(snapshot), pool());
+        CompletableFuture<List<Book>> topRated = CompletableFuture.supplyAsync(
+                () -> bookService.getTopRatedBooks(snapshot), pool());
+
+        List<Book> allBooks = snapshot != null ? snapshot.getBooks() : bookService.getAllBooks();
+
+        HomeFeedResponse feed = new HomeFeedResponse();
+        feed.setFeaturedBooks(BookService.featuredOf(allBooks));
+        feed.setFreeBooks(BookService.freeOf(allBooks));
+        feed.setNewReleases(BookService.newReleasesOf(allBooks));
+        feed.setMostReviewedBooks(mostReviewed.join());
+        feed.setTopRatedBooks(topRated.join());
+        return feed;
+    }
+
+    /**
+     * Ferma il pool delle classifiche, se è stato creato.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+}
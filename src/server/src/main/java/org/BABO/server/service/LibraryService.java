@@ -1,8 +1,10 @@
 package org.BABO.server.service;
 
 import org.BABO.shared.model.Book;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -50,9 +52,25 @@ import java.util.List;
 @Service
 public class LibraryService {
 
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/DataProva";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "postgress";
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Coda di scrittura differita, usata per aggiunte e rimozioni se abilitata */
+    @Autowired
+    private WriteBehindQueue writeQueue;
+
+    /**
+     * Aggiunta di un libro tramite la coda di scrittura differita: i controlli su libreria e
+     * catalogo sono nella stessa istruzione, così che possa essere eseguita in batch.
+     */
+    private static final String QUEUED_ADD_BOOK = """
+            INSERT INTO library_books (username, library_name, isbn)
+            SELECT ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM user_libraries WHERE username = ? AND name = ?)
+              AND EXISTS (SELECT 1 FROM books WHERE isbn = ?)
+            ON CONFLICT DO NOTHING
+            """;
 
     /**
      * Crea una nuova libreria personale per un utente.
@@ -71,7 +89,7 @@ public class LibraryService {
 
         String query = "INSERT INTO user_libraries (username, name) VALUES (?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -110,7 +128,7 @@ public class LibraryService {
         List<String> libraries = new ArrayList<>();
         String query = "SELECT name FROM user_libraries WHERE username = ? ORDER BY created_at DESC";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -148,7 +166,7 @@ public class LibraryService {
         List<Book> books = new ArrayList<>();
 
         String query = """
-        SELECT b.isbn, b.books_title, b.book_author, b.description, b.publi_year, 
+        SELECT b.book_id, b.isbn, b.books_title, b.book_author, b.description, b.publi_year, 
                b.category, b.publisher
         FROM library_books lb
         JOIN books b ON lb.isbn = b.isbn
@@ -156,7 +174,7 @@ public class LibraryService {
         ORDER BY lb.added_at DESC
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -195,7 +213,7 @@ public class LibraryService {
                 book.setImageUrl(localImageFileName);
                 System.out.println("Impostato file immagine locale: " + localImageFileName + " per ISBN: " + isbn);
 
-                book.setId((long) Math.abs(isbn.hashCode()));
+                book.setId(rs.getLong("book_id"));
                 book.setIsFree(true);
                 book.setIsNew(false);
 
@@ -218,6 +236,10 @@ public class LibraryService {
      * Verifica esistenza libreria e libro nel catalogo prima dell'inserimento
      * per garantire integrità referenziale.
      * </p>
+     * <p>
+     * Con la scrittura differita abilitata l'inserimento, con i controlli, viene eseguito in
+     * batch da {@link WriteBehindQueue}; il metodo ritorna dopo il commit.
+     * </p>
      *
      * @param username proprietario della libreria
      * @param libraryName nome libreria di destinazione
@@ -228,6 +250,23 @@ public class LibraryService {
     public boolean addBookToLibrary(String username, String libraryName, String isbn) {
         System.out.println("Aggiunta libro (ISBN: " + isbn + ") alla libreria '" + libraryName + "'");
 
+        if (writeQueue.isEnabled()) {
+            String user = username.toLowerCase().trim();
+            String library = libraryName.trim();
+            String code = isbn.trim();
+            try {
+                int inserted = writeQueue.execute(new WriteBehindQueue.StatementMutation(
+                        QUEUED_ADD_BOOK, user, library, code, user, library, code));
+                if (inserted == 0) {
+                    System.out.println("Libro non aggiunto: libreria o libro inesistente, o libro già presente");
+                }
+                return inserted > 0;
+            } catch (SQLException e) {
+                System.err.println("Errore durante l'aggiunta libro: " + e.getMessage());
+                return false;
+            }
+        }
+
         if (!libraryExists(username, libraryName)) {
             System.out.println("Libreria '" + libraryName + "' non trovata per l'utente " + username);
             return false;
@@ -240,7 +279,7 @@ public class LibraryService {
 
         String query = "INSERT INTO library_books (username, library_name, isbn) VALUES (?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -281,7 +320,21 @@ public class LibraryService {
 
         String query = "DELETE FROM library_books WHERE username = ? AND library_name = ? AND isbn = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        if (writeQueue.isEnabled()) {
+            try {
+                int removed = writeQueue.execute(new WriteBehindQueue.StatementMutation(
+                        query, username.toLowerCase().trim(), libraryName.trim(), isbn.trim()));
+                if (removed == 0) {
+                    System.out.println("Libro non trovato nella libreria specificata");
+                }
+                return removed > 0;
+            } catch (SQLException e) {
+                System.err.println("Errore durante la rimozione libro: " + e.getMessage());
+                return false;
+            }
+        }
+
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -322,7 +375,7 @@ public class LibraryService {
         String deleteBooksQuery = "DELETE FROM library_books WHERE username = ? AND library_name = ?";
         String deleteLibraryQuery = "DELETE FROM user_libraries WHERE username = ? AND name = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
 
             conn.setAutoCommit(false);
 
@@ -380,7 +433,7 @@ public class LibraryService {
         String updateLibraryQuery = "UPDATE user_libraries SET name = ? WHERE username = ? AND name = ?";
         String updateBooksQuery = "UPDATE library_books SET library_name = ? WHERE username = ? AND library_name = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
 
             conn.setAutoCommit(false);
 
@@ -426,32 +479,34 @@ public class LibraryService {
 
     /**
      * Verifica se un utente possiede un libro in qualsiasi sua libreria.
+     * <p>
+     * La verifica è una singola query {@code EXISTS} servita dall'indice
+     * {@code (username, isbn)} di {@code library_books}: si ferma alla prima riga trovata
+     * e non dipende dal numero di librerie dell'utente né dal numero di libri contenuti.
+     * </p>
      *
      * @param username utente da verificare
      * @param isbn codice ISBN del libro
-     * @return true se l'utente possiede il libro, false altrimenti
+     * @return true se l'utente possiede il libro, false altrimenti o in caso di errore
      * @since 1.2.0
      */
     public boolean doesUserOwnBook(String username, String isbn) {
         System.out.println("Verifica possesso libro ISBN: " + isbn + " per utente: " + username);
 
-        String query = """
-        SELECT COUNT(*) as book_count 
-        FROM library_books 
-        WHERE username = ? AND isbn = ?
-    """;
+        if (username == null || isbn == null) {
+            return false;
+        }
+
+        String query = "SELECT EXISTS (SELECT 1 FROM library_books WHERE username = ? AND isbn = ?)";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
             stmt.setString(2, isbn.trim());
 
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                int count = rs.getInt("book_count");
-                boolean owns = count > 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                boolean owns = rs.next() && rs.getBoolean(1);
                 System.out.println(owns ? "Utente possiede il libro" : "Utente NON possiede il libro");
                 return owns;
             }
@@ -476,7 +531,7 @@ public class LibraryService {
 
         StringBuilder stats = new StringBuilder();
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
 
             String librariesQuery = "SELECT COUNT(*) as total_libraries FROM user_libraries WHERE username = ?";
             try (PreparedStatement stmt = conn.prepareStatement(librariesQuery)) {
@@ -533,7 +588,7 @@ public class LibraryService {
 
         String query = "SELECT COUNT(*) as total_books FROM library_books WHERE username = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -559,7 +614,7 @@ public class LibraryService {
      * @since 1.0.0
      */
     public boolean isDatabaseAvailable() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
             return true;
         } catch (SQLException e) {
             System.err.println("Database non disponibile: " + e.getMessage());
@@ -576,7 +631,7 @@ public class LibraryService {
     public String testDatabaseStructure() {
         StringBuilder result = new StringBuilder();
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
 
             result.append("Test struttura database:\n\n");
 
@@ -651,7 +706,7 @@ public class LibraryService {
     private boolean libraryExists(String username, String libraryName) {
         String query = "SELECT 1 FROM user_libraries WHERE username = ? AND name = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -672,7 +727,7 @@ public class LibraryService {
     private boolean bookExists(String isbn) {
         String query = "SELECT 1 FROM books WHERE isbn = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
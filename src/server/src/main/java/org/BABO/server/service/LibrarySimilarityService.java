@@ -0,0 +1,120 @@
+package org.BABO.server.service;
+
+import org.BABO.server.index.LibrarySimilarityIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Servizio "chi ha salvato questo libro ha salvato anche": similarità tra libri calcolata
+ * dalla co-presenza nelle librerie degli utenti.
+ * <p>
+ * Un job in background legge periodicamente le coppie distinte (libro, utente) di
+ * {@code library_books} con un cursore lato server e costruisce un
+ * {@link LibrarySimilarityIndex} (firme MinHash e indice LSH). Il nuovo indice sostituisce
+ * atomicamente il precedente; le richieste leggono sempre l'ultimo indice completo, senza
+ * accessi al database.
+ * </p>
+ *
+ * <h3>Configurazione:</h3>
+ * <p>
+ * I parametri sono definiti in {@code application.properties} con prefisso
+ * {@code babo.similarity}: dimensione della firma, numero di bande LSH, numero di libri simili
+ * conservati, soglie minime e intervallo di aggiornamento.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see LibrarySimilarityIndex
+ */
+@Service
+public class LibrarySimilarityService {
+
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Numero di funzioni hash della firma MinHash */
+    @Value("${babo.similarity.num-hashes:128}")
+    private int numHashes;
+
+    /** Numero di bande LSH, deve dividere {@code num-hashes} */
+    @Value("${babo.similarity.bands:64}")
+    private int bands;
+
+    /** Libri simili conservati per ogni libro */
+    @Value("${babo.similarity.top-k:20}")
+    private int topK;
+
+    /** Similarità stimata minima di un libro simile */
+    @Value("${babo.similarity.min-similarity:0.1}")
+    private double minSimilarity;
+
+    /** Utenti minimi perché un libro sia indicizzato */
+    @Value("${babo.similarity.min-owners:2}")
+    private int minOwners;
+
+    /** Dimensione oltre la quale un bucket LSH viene ignorato */
+    @Value("${babo.similarity.max-bucket-size:500}")
+    private int maxBucketSize;
+
+    /** Ultimo indice costruito, {@code null} fino al primo aggiornamento completato */
+    private volatile LibrarySimilarityIndex index;
+
+    /**
+     * Ricostruisce l'indice dalle librerie degli utenti.
+     * <p>
+     * Eseguito in background all'avvio e poi a intervalli regolari. In caso di errore
+     * l'indice precedente resta in uso.
+     * </p>
+     */
+    @Scheduled(initialDelayString = "${babo.similarity.initial-delay-ms:10000}",
+            fixedDelayString = "${babo.similarity.refresh-ms:900000}")
+    public void refreshIndex() {
+        long start = System.currentTimeMillis();
+        String query = "SELECT DISTINCT isbn, LOWER(TRIM(username)) AS username FROM library_books";
+
+        try {
+            LibrarySimilarityIndex.Builder builder = new LibrarySimilarityIndex.Builder(numHashes, bands);
+            int rows = StreamingQuery.stream(dataSource, query,
+                    rs -> new String[] { rs.getString("isbn"), rs.getString("username") },
+                    row -> builder.add(row[0], row[1]));
+
+            LibrarySimilarityIndex built = builder.build(topK, minSimilarity, minOwners, maxBucketSize);
+            index = built;
+
+            System.out.println("📚 Indice \"salvati anche\" aggiornato: " + built.getIndexedBooks() + " libri, "
+                    + rows + " righe, " + built.size() + " con libri simili in "
+                    + (System.currentTimeMillis() - start) + " ms");
+
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.err.println("❌ Errore aggiornamento indice \"salvati anche\": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restituisce i libri più spesso salvati dagli stessi utenti che hanno salvato il libro indicato.
+     *
+     * @param isbn l'ISBN del libro
+     * @param limit il numero massimo di libri
+     * @return i libri simili in ordine di similarità, o {@code null} se l'indice non è ancora pronto
+     */
+    public List<LibrarySimilarityIndex.Entry> getSimilarBooks(String isbn, int limit) {
+        LibrarySimilarityIndex current = index;
+        return current != null ? current.similar(isbn, limit) : null;
+    }
+
+    /**
+     * @return il numero massimo di libri simili disponibili per ogni libro
+     */
+    public int getTopK() {
+        return topK;
+    }
+}
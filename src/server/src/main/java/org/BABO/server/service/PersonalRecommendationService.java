@@ -0,0 +1,223 @@
+package org.BABO.server.service;
+
+import jakarta.annotation.PostConstruct;
+import org.BABO.server.index.RatingFactorModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Servizio dei consigli personali "per te", basati sulle valutazioni degli utenti.
+ * <p>
+ * Un job in background legge tutte le valutazioni di {@code assessment} con un cursore lato
+ * server e addestra un {@link RatingFactorModel} sui cinque voti di ogni valutazione. Il
+ * modello addestrato viene salvato su file e sostituisce atomicamente il precedente; all'avvio
+ * del server viene caricato l'ultimo modello salvato, così che i consigli siano disponibili
+ * senza attendere un nuovo addestramento.
+ * </p>
+ * <p>
+ * Dai consigli di un utente sono esclusi i libri già presenti nelle sue librerie e quelli che
+ * ha già valutato.
+ * </p>
+ *
+ * <h3>Configurazione:</h3>
+ * <p>
+ * I parametri sono definiti in {@code application.properties} con prefisso
+ * {@code babo.factorization}: file del modello, fattori latenti, epoche, passo,
+ * regolarizzazione, tempo massimo di addestramento e intervallo tra gli addestramenti.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see RatingFactorModel
+ */
+@Service
+public class PersonalRecommendationService {
+
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** File in cui viene salvato il modello */
+    @Value("${babo.factorization.model-path:data/rating-model.bin}")
+    private String modelPath;
+
+    /** Numero di fattori latenti */
+    @Value("${babo.factorization.rank:16}")
+    private int rank;
+
+    /** Numero massimo di epoche */
+    @Value("${babo.factorization.max-epochs:30}")
+    private int maxEpochs;
+
+    /** Passo iniziale della discesa del gradiente */
+    @Value("${babo.factorization.learning-rate:0.005}")
+    private float learningRate;
+
+    /** Peso della regolarizzazione L2 */
+    @Value("${babo.factorization.regularization:0.05}")
+    private float regularization;
+
+    /** Tempo massimo di un addestramento */
+    @Value("${babo.factorization.max-training-ms:120000}")
+    private long maxTrainingMillis;
+
+    /** Thread usati per l'addestramento, 0 per il numero di processori */
+    @Value("${babo.factorization.parallelism:0}")
+    private int parallelism;
+
+    /** Numero massimo di libri consigliati per richiesta */
+    @Value("${babo.factorization.max-results:50}")
+    private int maxResults;
+
+    /** Ultimo modello disponibile, {@code null} finché non ne è stato caricato o addestrato uno */
+    private volatile RatingFactorModel model;
+
+    /** Pool fork-join dell'addestramento, creato al primo addestramento */
+    private ForkJoinPool pool;
+
+    /**
+     * Carica all'avvio l'ultimo modello salvato, se presente.
+     */
+    @PostConstruct
+    public void loadModel() {
+        Path path = Paths.get(modelPath);
+        if (!Files.exists(path)) {
+            System.out.println("ℹ️ Nessun modello consigli personali in " + path.toAbsolutePath()
+                    + ": verrà addestrato in background");
+            return;
+        }
+
+        try {
+            RatingFactorModel loaded = RatingFactorModel.load(path);
+            model = loaded;
+            System.out.println("✅ Modello consigli personali caricato: " + loaded.getUserCount() + " utenti, "
+                    + loaded.getBookCount() + " libri");
+        } catch (IOException e) {
+            System.err.println("❌ Errore caricamento modello consigli personali: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Addestra un nuovo modello dalle valutazioni e lo salva su file.
+     * <p>
+     * Eseguito in background poco dopo l'avvio e poi a intervalli regolari. In caso di errore
+     * il modello precedente resta in uso.
+     * </p>
+     */
+    @Scheduled(initialDelayString = "${babo.factorization.initial-delay-ms:30000}",
+            fixedDelayString = "${babo.factorization.retrain-ms:21600000}")
+    public void trainModel() {
+        String query = "SELECT LOWER(TRIM(username)) AS username, isbn, style, content, pleasantness, " +
+                "originality, edition FROM assessment";
+
+        try {
+            RatingFactorModel.Trainer trainer = new RatingFactorModel.Trainer();
+            StreamingQuery.stream(dataSource, query,
+                    rs -> new Object[] { rs.getString("username"), rs.getString("isbn").trim(), new int[] {
+                            rs.getInt("style"), rs.getInt("content"), rs.getInt("pleasantness"),
+                            rs.getInt("originality"), rs.getInt("edition") } },
+                    row -> trainer.add((String) row[0], (String) row[1], (int[]) row[2]));
+
+            if (trainer.size() == 0) {
+                System.out.println("ℹ️ Nessuna valutazione: addestramento consigli personali rimandato");
+                return;
+            }
+
+            RatingFactorModel trained = trainer.train(rank, maxEpochs, learningRate, regularization,
+                    maxTrainingMillis, pool());
+            model = trained;
+
+            System.out.println(String.format(
+                    "🧠 Modello consigli personali addestrato: %d valutazioni, %d utenti, %d libri, "
+                            + "%d epoche in %d ms (%.0f valutazioni/s), RMSE %.3f",
+                    trainer.size(), trained.getUserCount(), trained.getBookCount(), trained.getEpochs(),
+                    trained.getTrainingMillis(), trained.getThroughput(), trained.getRmse()));
+
+            trained.save(Paths.get(modelPath));
+
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.err.println("❌ Errore addestramento consigli personali: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restituisce i libri consigliati a un utente in base alle sue valutazioni.
+     *
+     * @param username l'utente
+     * @param limit il numero massimo di libri
+     * @return i libri in ordine di voto stimato (lista vuota se l'utente non ha ancora valutazioni),
+     * o {@code null} se il modello non è disponibile o i libri dell'utente non sono leggibili
+     */
+    public List<RatingFactorModel.Entry> getRecommendationsForUser(String username, int limit) {
+        RatingFactorModel current = model;
+        if (current == null || username == null) {
+            return null;
+        }
+
+        String user = username.toLowerCase().trim();
+        Set<String> excluded = getOwnedOrRatedIsbns(user);
+        return excluded != null ? current.recommend(user, limit, excluded) : null;
+    }
+
+    /**
+     * @return il numero massimo di libri consigliati per richiesta
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Legge gli ISBN dei libri presenti nelle librerie dell'utente o da lui valutati.
+     *
+     * @param username l'utente, già normalizzato
+     * @return gli ISBN, o {@code null} in caso di errore
+     */
+    private Set<String> getOwnedOrRatedIsbns(String username) {
+        String query = "SELECT isbn FROM library_books WHERE username = ? " +
+                "UNION SELECT isbn FROM assessment WHERE username = ?";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, username);
+            stmt.setString(2, username);
+
+            Set<String> isbns = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    isbns.add(rs.getString("isbn").trim());
+                }
+            }
+            return isbns;
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore lettura libri dell'utente " + username + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,285 @@
+package org.BABO.server.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.BABO.shared.dto.Book.BookPageResponse;
+import org.BABO.shared.dto.Rating.RatingResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache in memoria dei risultati delle query ripetute più spesso.
+ * <p>
+ * I risultati sono divisi in regioni ({@link Region}), ciascuna con un proprio limite di peso e
+ * una propria durata. Il peso di un risultato è il numero di elementi che contiene, così che le
+ * pagine di categoria non occupino quanto una statistica. Ogni regione è una cache Caffeine:
+ * l'ammissione W-TinyLFU conserva i risultati richiesti più spesso invece degli ultimi letti,
+ * e una scansione di categorie poco visitate non scarta quelle più richieste.
+ * </p>
+ *
+ * <h3>Invalidazione:</h3>
+ * <p>
+ * I servizi che scrivono invalidano le voci interessate dopo il commit: le valutazioni di un
+ * libro dopo ogni salvataggio o eliminazione, le raccomandazioni di un libro dopo ogni aggiunta
+ * o rimozione, le categorie dopo ogni modifica del catalogo. Il risultato di una lettura in
+ * corso durante un'invalidazione della regione non viene memorizzato, né condiviso con le
+ * richieste arrivate dopo l'invalidazione. Le pagine di categoria
+ * includono inoltre nella chiave la versione del catalogo, così che una lettura iniziata prima
+ * di una scrittura non possa essere servita dopo.
+ * </p>
+ *
+ * <h3>Letture concorrenti:</h3>
+ * <p>
+ * Le letture mancate della stessa chiave sono accorpate da {@link SingleFlight}, anche con la
+ * cache disattivata: alla scadenza di una voce molto richiesta il database riceve una sola
+ * query, e le richieste concorrenti ne attendono il risultato.
+ * </p>
+ *
+ * <h3>Metriche:</h3>
+ * <p>
+ * Richieste riuscite e mancate, inserimenti, scarti e dimensione di ogni regione sono esposti
+ * su {@code /actuator/metrics} come {@code cache.gets}, {@code cache.puts},
+ * {@code cache.evictions} e {@code cache.size}, con il tag {@code cache} uguale al nome della
+ * regione. Le letture accorpate sono contate dalle metriche di {@link SingleFlight}, con il
+ * tag {@code group} uguale al nome della regione.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Service
+public class QueryCache {
+
+    /**
+     * Regioni della cache.
+     */
+    public enum Region {
+        /** Libri e pagine di una categoria */
+        CATEGORY("babo.category"),
+        /** Statistiche delle valutazioni di un libro */
+        RATING_STATS("babo.rating-stats"),
+        /** Raccomandazioni ricevute da un libro */
+        RECOMMENDATIONS("babo.recommendations");
+
+        private final String cacheName;
+
+        Region(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        /**
+         * @return il nome della regione nelle metriche
+         */
+        public String getCacheName() {
+            return cacheName;
+        }
+    }
+
+    /** Registro delle metriche esposte su {@code /actuator/metrics} */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Accorpa le letture mancate della stessa chiave */
+    @Autowired
+    private SingleFlight singleFlight;
+
+    /** Abilita la cache; se disattivata ogni lettura interroga il database */
+    @Value("${babo.cache.enabled:true}")
+    private boolean enabled;
+
+    /** Peso massimo della regione delle categorie (libri) */
+    @Value("${babo.cache.category.max-weight:50000}")
+    private long categoryMaxWeight;
+
+    /** Durata delle voci della regione delle categorie */
+    @Value("${babo.cache.category.ttl-ms:300000}")
+    private long categoryTtlMillis;
+
+    /** Peso massimo della regione delle statistiche delle valutazioni */
+    @Value("${babo.cache.rating-stats.max-weight:20000}")
+    private long ratingStatsMaxWeight;
+
+    /** Durata delle voci della regione delle statistiche delle valutazioni */
+    @Value("${babo.cache.rating-stats.ttl-ms:60000}")
+    private long ratingStatsTtlMillis;
+
+    /** Peso massimo della regione delle raccomandazioni */
+    @Value("${babo.cache.recommendations.max-weight:50000}")
+    private long recommendationsMaxWeight;
+
+    /** Durata delle voci della regione delle raccomandazioni */
+    @Value("${babo.cache.recommendations.ttl-ms:120000}")
+    private long recommendationsTtlMillis;
+
+    /** Cache di ciascuna regione, vuota se la cache è disattivata */
+    private final Map<Region, Cache<Object, Object>> regions = new EnumMap<>(Region.class);
+
+    /**
+     * Invalidazioni di ciascuna regione, anche con la cache disattivata: separano le letture
+     * iniziate prima di una scrittura da quelle iniziate dopo
+     */
+    private final Map<Region, AtomicLong> invalidations = new EnumMap<>(Region.class);
+
+    /**
+     * Crea le regioni e ne registra le metriche.
+     */
+    @PostConstruct
+    public void start() {
+        for (Region region : Region.values()) {
+            invalidations.put(region, new AtomicLong());
+        }
+        if (!enabled) {
+            System.out.println("ℹ️ Cache dei risultati disattivata");
+            return;
+        }
+
+        regions.put(Region.CATEGORY, build(Region.CATEGORY, categoryMaxWeight, categoryTtlMillis));
+        regions.put(Region.RATING_STATS, build(Region.RATING_STATS, ratingStatsMaxWeight, ratingStatsTtlMillis));
+        regions.put(Region.RECOMMENDATIONS, build(Region.RECOMMENDATIONS, recommendationsMaxWeight, recommendationsTtlMillis));
+        System.out.println("✅ Cache dei risultati attiva: " + regions.keySet());
+    }
+
+    /**
+     * Costruisce la chiave di una voce composta da più parti, anche {@code null}.
+     *
+     * @param parts le parti della chiave
+     * @return la chiave
+     */
+    public static Object key(Object... parts) {
+        return Arrays.asList(parts);
+    }
+
+    /**
+     * Restituisce il risultato memorizzato per la chiave o, se assente, lo calcola con
+     * {@code loader} e lo memorizza.
+     * <p>
+     * Le richieste concorrenti della stessa chiave attendono un unico calcolo, anche con la cache
+     * disattivata, e ne ricevono l'eventuale eccezione (vedi {@link SingleFlight}). Una richiesta
+     * arrivata dopo un'invalidazione della regione non attende un calcolo iniziato prima, ma ne
+     * avvia uno nuovo: chi ha appena scritto legge sempre i propri dati. Un risultato
+     * {@code null} non viene memorizzato: i loader restituiscono {@code null} in caso di errore
+     * del database, così che l'errore non venga servito dalla cache. Il risultato può essere
+     * condiviso tra più richieste e non va modificato.
+     * </p>
+     *
+     * @param region la regione
+     * @param key la chiave
+     * @param loader calcola il risultato, {@code null} se non va memorizzato
+     * @param <V> il tipo del risultato
+     * @return il risultato, anche {@code null}
+     * @throws IllegalStateException se l'attesa del calcolo in corso scade
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Region region, Object key, Supplier<V> loader) {
+        AtomicLong regionInvalidations = invalidations.get(region);
+        long generation = regionInvalidations.get();
+        // Il numero di invalidazioni fa parte della chiave del calcolo: dopo una scrittura le
+        // richieste non si uniscono ai calcoli iniziati prima
+        Object flightKey = key(key, generation);
+
+        Cache<Object, Object> cache = regions.get(region);
+        if (cache == null) {
+            return singleFlight.execute(region.getCacheName(), flightKey, loader);
+        }
+
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (V) cached;
+        }
+        return singleFlight.execute(region.getCacheName(), flightKey,
+                () -> load(regionInvalidations, generation, cache, key, loader));
+    }
+
+    /**
+     * Calcola il risultato e lo memorizza, salvo che la regione sia stata invalidata dopo
+     * l'inizio della richiesta.
+     */
+    private <V> V load(AtomicLong regionInvalidations, long generation, Cache<Object, Object> cache,
+                       Object key, Supplier<V> loader) {
+        V result = loader.get();
+        if (result != null) {
+            // Non sostituisce il risultato di un calcolo avviato dopo un'invalidazione
+            cache.asMap().putIfAbsent(key, result);
+            // Le invalidazioni incrementano il contatore prima di scartare le voci: se il
+            // contatore non è cambiato, un'invalidazione successiva scarterà questa voce;
+            // altrimenti viene scartata solo questa voce, non quella di un calcolo successivo
+            if (regionInvalidations.get() != generation) {
+                cache.asMap().remove(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scarta la voce di una chiave. Le richieste successive non attendono i calcoli della
+     * regione già in corso.
+     *
+     * @param region la regione
+     * @param key la chiave
+     */
+    public void invalidate(Region region, Object key) {
+        if (key == null) {
+            return;
+        }
+        invalidations.get(region).incrementAndGet();
+        Cache<Object, Object> cache = regions.get(region);
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Scarta tutte le voci di una regione. Le richieste successive non attendono i calcoli
+     * della regione già in corso.
+     *
+     * @param region la regione
+     */
+    public void invalidateAll(Region region) {
+        invalidations.get(region).incrementAndGet();
+        Cache<Object, Object> cache = regions.get(region);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private Cache<Object, Object> build(Region region, long maxWeight, long ttlMillis) {
+        Cache<Object, Object> cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Object key, Object value) -> weightOf(value))
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, region.getCacheName());
+    }
+
+    /**
+     * Peso di un risultato: il numero di elementi che contiene, più uno.
+     */
+    private static int weightOf(Object value) {
+        int elements = 0;
+        if (value instanceof Collection<?> collection) {
+            elements = collection.size();
+        } else if (value instanceof BookPageResponse page) {
+            List<?> books = page.getBooks();
+            elements = books != null ? books.size() : 0;
+        } else if (value instanceof RatingResponse response) {
+            List<?> ratings = response.getRatings();
+            elements = ratings != null ? ratings.size() : 0;
+        }
+        return elements + 1;
+    }
+}
@@ -1,14 +1,23 @@
 package org.BABO.server.service;
 
+import org.BABO.server.index.RatingLeaderboard;
 import org.BABO.shared.dto.Rating.RatingResponse;
+import org.BABO.shared.dto.Reviews.ReviewStats;
 import org.BABO.shared.model.BookRating;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Servizio per la gestione completa delle valutazioni e recensioni dei libri.
@@ -51,33 +60,140 @@ import java.util.List;
 @Service
 public class RatingService {
 
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/DataProva";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "postgress";
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Valutazioni minime per entrare nella classifica dei libri meglio valutati */
+    @Value("${babo.leaderboard.min-votes:2}")
+    private int leaderboardMinVotes;
+
+    /** Voti fittizi aggiunti a ogni libro nella media bayesiana della classifica */
+    @Value("${babo.leaderboard.prior-votes:3}")
+    private int leaderboardPriorVotes;
+
+    /** Valore dei voti fittizi della media bayesiana */
+    @Value("${babo.leaderboard.prior-mean:3.0}")
+    private double leaderboardPriorMean;
+
+    /** Classifiche in memoria, caricate da {@code book_rating_stats} al primo utilizzo */
+    private volatile RatingLeaderboard leaderboard;
+
+    /** Lock per il caricamento delle classifiche */
+    private final Object leaderboardLock = new Object();
+
+    /**
+     * Coordina le scritture con il caricamento delle classifiche: ogni transazione su
+     * {@code assessment} tiene il lock in lettura fino al commit, il caricamento lo tiene in
+     * scrittura. Così nessuna valutazione può essere confermata tra la lettura di
+     * {@code book_rating_stats} e la pubblicazione delle classifiche caricate.
+     */
+    private final ReadWriteLock leaderboardGuard = new ReentrantReadWriteLock();
+
+    /**
+     * Versione delle valutazioni, incrementata alla fine di ogni transazione su
+     * {@code assessment} e ad ogni nuovo caricamento delle classifiche.
+     */
+    private final AtomicLong ratingsVersion = new AtomicLong(1);
+
+    /** Coda di scrittura differita, usata per i salvataggi delle valutazioni se abilitata */
+    @Autowired
+    private WriteBehindQueue writeQueue;
+
+    /** Cache delle statistiche dei libri, invalidata alla fine di ogni transazione su {@code assessment} */
+    @Autowired
+    private QueryCache queryCache;
+
+    /** Tentativi di salvataggio di una valutazione in caso di inserimento concorrente */
+    private static final int UPSERT_ATTEMPTS = 2;
+
+    /** SQLState con cui un salvataggio in coda segnala un inserimento concorrente da ripetere */
+    private static final String CONCURRENT_RATING_STATE = "40001";
+
+    /**
+     * Inserimento o aggiornamento di una valutazione in un'unica istruzione. La CTE
+     * {@code previous} blocca la valutazione esistente prima della scrittura (l'inserimento
+     * legge da essa) e ne restituisce i punteggi; {@code inserted} distingue un inserimento da
+     * un aggiornamento.
+     */
+    private static final String UPSERT_RATING = """
+        WITH previous AS (
+            SELECT style, content, pleasantness, originality, edition, average
+            FROM assessment
+            WHERE username = ? AND isbn = ?
+            FOR UPDATE
+        ), saved AS (
+            INSERT INTO assessment (username, isbn, data, style, content, pleasantness, originality, edition, average, review)
+            SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?
+            FROM (SELECT COUNT(*) FROM previous) AS locked
+            ON CONFLICT (username, isbn) DO UPDATE SET
+                data = EXCLUDED.data,
+                style = EXCLUDED.style,
+                content = EXCLUDED.content,
+                pleasantness = EXCLUDED.pleasantness,
+                originality = EXCLUDED.originality,
+                edition = EXCLUDED.edition,
+                average = EXCLUDED.average,
+                review = EXCLUDED.review
+            RETURNING username, isbn, data, style, content, pleasantness, originality, edition, average, review,
+                      (xmax = 0) AS inserted
+        )
+        SELECT saved.*,
+               previous.style AS previous_style, previous.content AS previous_content,
+               previous.pleasantness AS previous_pleasantness, previous.originality AS previous_originality,
+               previous.edition AS previous_edition, previous.average AS previous_average
+        FROM saved
+        LEFT JOIN previous ON TRUE
+    """;
 
     /**
      * Aggiunge una nuova valutazione o aggiorna una esistente per un libro da parte di un utente.
      * <p>
-     * Questo metodo agisce come un "upsert": verifica prima se l'utente ha già valutato il libro.
-     * In caso affermativo, aggiorna la valutazione esistente; altrimenti, ne inserisce una nuova.
+     * La scrittura è un'unica istruzione {@code INSERT ... ON CONFLICT DO UPDATE} che blocca la
+     * eventuale valutazione precedente e ne restituisce i punteggi; nella stessa transazione
+     * viene aggiornata la riga aggregata del libro. La risposta contiene la valutazione salvata
+     * e le statistiche aggiornate del libro, così che il client non debba richiederle.
+     * </p>
+     * <p>
+     * Se un'altra richiesta inserisce la stessa valutazione tra la lettura e la scrittura, la
+     * transazione viene annullata e ripetuta una volta, così da applicare agli aggregati la
+     * differenza corretta.
+     * </p>
+     * <p>
+     * Con la scrittura differita abilitata il salvataggio viene eseguito da
+     * {@link WriteBehindQueue} nella transazione di un batch; il metodo ritorna dopo il commit.
      * </p>
      *
      * @param rating L'oggetto {@link BookRating} contenente tutti i dati della valutazione.
-     * @return {@code true} se l'operazione di inserimento o aggiornamento ha avuto successo, {@code false} altrimenti.
+     * @return La risposta con la valutazione salvata e le statistiche del libro, o {@code null}
+     * se la valutazione è incompleta o il salvataggio fallisce.
      * @since 1.0.0
      */
-    public boolean addOrUpdateRating(BookRating rating) {
+    public RatingResponse addOrUpdateRating(BookRating rating) {
         System.out.println("⭐ Aggiunta/aggiornamento valutazione per ISBN: " + rating.getIsbn() + " da: " + rating.getUsername());
 
         if (!rating.isComplete()) {
             System.out.println("❌ Valutazione incompleta: " + rating);
-            return false;
+            return null;
         }
 
-        if (ratingExists(rating.getUsername(), rating.getIsbn())) {
-            return updateExistingRating(rating);
-        } else {
-            return insertNewRating(rating);
+        try {
+            for (int attempt = 1; attempt <= UPSERT_ATTEMPTS; attempt++) {
+                RatingResponse response = writeQueue.isEnabled()
+                        ? saveRatingQueued(rating) : saveRatingDirect(rating);
+                if (response != null) {
+                    System.out.println("✅ Valutazione salvata: " + response.getRating().getDisplayRating());
+                    return response;
+                }
+                System.out.println("🔁 Valutazione inserita in parallelo, nuovo tentativo (" + attempt + ")");
+            }
+            System.err.println("❌ Salvataggio valutazione non riuscito dopo " + UPSERT_ATTEMPTS + " tentativi");
+            return null;
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore durante il salvataggio valutazione: " + e.getMessage());
+            e.printStackTrace();
+            return null;
         }
     }
 
@@ -98,7 +214,7 @@ public class RatingService {
             WHERE username = ? AND isbn = ?
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -143,7 +259,7 @@ public class RatingService {
             ORDER BY data DESC
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
@@ -186,7 +302,7 @@ public class RatingService {
             ORDER BY data DESC
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -218,22 +334,41 @@ public class RatingService {
     public boolean deleteRating(String username, String isbn) {
         System.out.println("🗑️ Eliminazione valutazione per utente: " + username + " e ISBN: " + isbn);
 
-        String query = "DELETE FROM assessment WHERE username = ? AND isbn = ?";
+        String query = "DELETE FROM assessment WHERE username = ? AND isbn = ? " +
+                "RETURNING style, content, pleasantness, originality, edition, average";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            leaderboardGuard.readLock().lock();
 
-            stmt.setString(1, username.toLowerCase().trim());
-            stmt.setString(2, isbn.trim());
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, username.toLowerCase().trim());
+                stmt.setString(2, isbn.trim());
 
-            int result = stmt.executeUpdate();
+                RatingDelta delta = new RatingDelta();
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    delta.subtract(rs);
+                }
 
-            if (result > 0) {
+                if (delta.isEmpty()) {
+                    conn.rollback();
+                    System.out.println("❌ Nessuna valutazione trovata da eliminare");
+                    return false;
+                }
+
+                applyRatingDelta(conn, isbn.trim(), delta);
+                conn.commit();
                 System.out.println("✅ Valutazione eliminata con successo");
                 return true;
-            } else {
-                System.out.println("❌ Nessuna valutazione trovata da eliminare");
-                return false;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                invalidateLeaderboard();
+                throw e;
+            } finally {
+                releaseWriteGuard(isbn);
+                conn.setAutoCommit(true);
             }
 
         } catch (SQLException e) {
@@ -246,7 +381,9 @@ public class RatingService {
     /**
      * Calcola il punteggio medio complessivo per un libro basato su tutte le valutazioni ricevute.
      * <p>
-     * Il risultato è arrotondato a due cifre decimali per una migliore leggibilità.
+     * Il risultato è arrotondato a due cifre decimali per una migliore leggibilità. La media
+     * viene ricavata dalla riga aggregata del libro in {@code book_rating_stats}, senza
+     * leggere le singole valutazioni.
      * </p>
      *
      * @param isbn L'ISBN del libro di cui calcolare la media.
@@ -256,9 +393,10 @@ public class RatingService {
     public Double getAverageRatingForBook(String isbn) {
         System.out.println("📊 Calcolo media valutazioni per ISBN: " + isbn);
 
-        String query = "SELECT AVG(average) as avg_rating FROM assessment WHERE isbn = ?";
+        String query = "SELECT sum_average / rating_count AS avg_rating FROM book_rating_stats " +
+                "WHERE isbn = ? AND rating_count > 0";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, isbn.trim());
@@ -286,8 +424,20 @@ public class RatingService {
     /**
      * Fornisce un report statistico completo per un libro.
      * <p>
-     * Include la media totale, la distribuzione delle valutazioni (da 1 a 5 stelle),
-     * le medie per ogni categoria (stile, contenuto, etc.) e la lista di tutte le recensioni.
+     * Include la media totale, il numero di valutazioni, la distribuzione delle valutazioni
+     * (da 1 a 5 stelle) e le medie per ogni categoria (stile, contenuto, etc.). I valori sono
+     * letti dalla riga aggregata del libro in {@code book_rating_stats}, aggiornata ad ogni
+     * scrittura: il costo non dipende dal numero di recensioni. L'elenco delle recensioni non
+     * è incluso ed è disponibile tramite {@link #getRatingsForBook(String)}.
+     * </p>
+     * <p>
+     * Se la tabella degli aggregati non è accessibile, le statistiche vengono ricalcolate
+     * dalle singole valutazioni.
+     * </p>
+     * <p>
+     * Le statistiche lette dagli aggregati sono memorizzate in {@link QueryCache} fino alla
+     * prossima transazione sulle valutazioni del libro. La risposta può essere condivisa tra
+     * più richieste e non va modificata.
      * </p>
      *
      * @param isbn L'ISBN del libro per cui generare le statistiche.
@@ -295,8 +445,58 @@ public class RatingService {
      * @since 1.0.0
      */
     public RatingResponse getBookRatingStatistics(String isbn) {
-        System.out.println("📈 Calcolo statistiche complete per ISBN: " + isbn);
+        RatingResponse response = queryCache.get(QueryCache.Region.RATING_STATS, isbn.trim(),
+                () -> queryBookRatingStatistics(isbn));
+        return response != null ? response : computeBookRatingStatistics(isbn);
+    }
+
+    /**
+     * Legge le statistiche di un libro dalla riga aggregata in {@code book_rating_stats}.
+     *
+     * @param isbn L'ISBN del libro.
+     * @return Le statistiche del libro, o {@code null} se la tabella degli aggregati non è accessibile.
+     */
+    private RatingResponse queryBookRatingStatistics(String isbn) {
+        System.out.println("📈 Recupero statistiche complete per ISBN: " + isbn);
+
+        String query = """
+            SELECT rating_count, sum_average, sum_style, sum_content, sum_pleasantness, sum_originality, sum_edition,
+                   stars_1, stars_2, stars_3, stars_4, stars_5
+            FROM book_rating_stats
+            WHERE isbn = ?
+        """;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
 
+            stmt.setString(1, isbn.trim());
+            ResultSet rs = stmt.executeQuery();
+
+            RatingResponse response = rs.next() ? mapStatistics(rs) : null;
+            if (response == null) {
+                return new RatingResponse(true, "Nessuna valutazione trovata", new ArrayList<>(), 0.0);
+            }
+
+            System.out.println("✅ Statistiche recuperate: media " + response.getAverageRating()
+                    + " su " + response.getTotalRatings() + " valutazioni");
+            return response;
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore lettura aggregati valutazioni, ricalcolo dalle recensioni: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Calcola le statistiche di un libro scorrendo tutte le sue valutazioni.
+     * <p>
+     * Usato solo come fallback di {@link #getBookRatingStatistics(String)}.
+     * </p>
+     *
+     * @param isbn L'ISBN del libro.
+     * @return Le statistiche calcolate, con l'elenco delle valutazioni.
+     */
+    private RatingResponse computeBookRatingStatistics(String isbn) {
         List<BookRating> ratings = getRatingsForBook(isbn);
 
         if (ratings.isEmpty()) {
@@ -329,8 +529,6 @@ public class RatingService {
         breakdown.setAverageOriginality(Math.round((totalOriginality / ratings.size()) * 100.0) / 100.0);
         breakdown.setAverageEdition(Math.round((totalEdition / ratings.size()) * 100.0) / 100.0);
 
-        System.out.println("✅ Statistiche calcolate: media " + averageRating + " su " + ratings.size() + " valutazioni");
-
         RatingResponse response = new RatingResponse(true, "Statistiche recuperate", ratings, averageRating, breakdown);
         response.setTotalRatings(ratings.size());
 
@@ -344,7 +542,7 @@ public class RatingService {
      * @since 1.0.0
      */
     public boolean isDatabaseAvailable() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
             return true;
         } catch (SQLException e) {
             System.err.println("❌ Database non disponibile: " + e.getMessage());
@@ -364,7 +562,7 @@ public class RatingService {
     public int getTotalRatingsCount() {
         String query = "SELECT COUNT(*) as total FROM assessment";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
@@ -379,6 +577,129 @@ public class RatingService {
         return 0;
     }
 
+    /**
+     * Calcola le statistiche globali delle recensioni per la dashboard amministrativa.
+     * <p>
+     * Totali, media e distribuzione per stelle vengono calcolati dal database con un'unica
+     * aggregazione su {@code assessment}, senza trasferire al server le singole valutazioni
+     * né il testo delle recensioni. Gli utenti più attivi sono ottenuti con una seconda query
+     * raggruppata sulla stessa connessione, i libri meglio valutati dalla classifica in memoria.
+     * </p>
+     *
+     * <p>
+     * La distribuzione conta le sole valutazioni con media positiva, arrotondata alla stella
+     * più vicina (indice 0 = 1 stella, indice 4 = 5 stelle). Le recensioni recenti sono
+     * quelle degli ultimi 30 giorni.
+     * </p>
+     *
+     * @return le statistiche aggregate, o {@code null} in caso di errore del database
+     * @since 1.4.0
+     */
+    public ReviewStats getReviewStats() {
+        String totalsQuery = """
+            SELECT COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE review IS NOT NULL AND TRIM(review) <> '') AS with_text,
+                   COUNT(DISTINCT username) AS users,
+                   AVG(average) FILTER (WHERE average > 0) AS global_average,
+                   COUNT(*) FILTER (WHERE average > 0 AND average < 1.5) AS stars_1,
+                   COUNT(*) FILTER (WHERE average >= 1.5 AND average < 2.5) AS stars_2,
+                   COUNT(*) FILTER (WHERE average >= 2.5 AND average < 3.5) AS stars_3,
+                   COUNT(*) FILTER (WHERE average >= 3.5 AND average < 4.5) AS stars_4,
+                   COUNT(*) FILTER (WHERE average >= 4.5) AS stars_5,
+                   COUNT(*) FILTER (WHERE data >= NOW() - INTERVAL '30 days') AS recent
+            FROM assessment
+        """;
+        String activeUsersQuery = """
+            SELECT username, COUNT(*) AS rating_count
+            FROM assessment
+            GROUP BY username
+            ORDER BY rating_count DESC, username
+            LIMIT 5
+        """;
+
+        ReviewStats stats = new ReviewStats();
+
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            try (ResultSet rs = stmt.executeQuery(totalsQuery)) {
+                if (rs.next()) {
+                    stats.setTotalReviews(rs.getInt("total"));
+                    stats.setTotalReviewsWithText(rs.getInt("with_text"));
+                    stats.setTotalUsers(rs.getInt("users"));
+                    stats.setAverageRating(Math.round(rs.getDouble("global_average") * 100.0) / 100.0);
+                    stats.setRecentReviewsCount(rs.getInt("recent"));
+
+                    int[] distribution = new int[5];
+                    for (int stars = 1; stars <= 5; stars++) {
+                        distribution[stars - 1] = rs.getInt("stars_" + stars);
+                    }
+                    stats.setRatingsDistribution(distribution);
+                }
+            }
+
+            List<String> activeUsers = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery(activeUsersQuery)) {
+                while (rs.next()) {
+                    activeUsers.add(rs.getString("username"));
+                }
+            }
+            stats.setMostActiveUsers(activeUsers);
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore nel calcolo statistiche recensioni: " + e.getMessage());
+            return null;
+        }
+
+        stats.setTopRatedBooks(getBestRatedBooksIsbn(5));
+        return stats;
+    }
+
+    /**
+     * Restituisce la versione corrente delle valutazioni.
+     * <p>
+     * Due letture delle classifiche con la stessa versione restituiscono le stesse posizioni.
+     * Usata dai controller per gli ETag delle classifiche.
+     * </p>
+     *
+     * @return la versione delle valutazioni
+     */
+    public long getRatingsVersion() {
+        return ratingsVersion.get();
+    }
+
+    /**
+     * Restituisce le prime posizioni della classifica dei libri più recensiti.
+     * <p>
+     * La classifica è mantenuta in memoria e aggiornata ad ogni scrittura di una valutazione:
+     * la lettura non accede al database. I libri sono ordinati per numero di valutazioni e,
+     * a parità, per media.
+     * </p>
+     *
+     * @param limit il numero massimo di libri
+     * @return le posizioni in classifica, o {@code null} se la classifica non è disponibile
+     */
+    public List<RatingLeaderboard.Entry> getMostReviewedLeaderboard(int limit) {
+        RatingLeaderboard current = currentLeaderboard();
+        return current != null ? current.mostReviewed(limit) : null;
+    }
+
+    /**
+     * Restituisce le prime posizioni della classifica dei libri meglio valutati.
+     * <p>
+     * I libri sono ordinati per media bayesiana: alle valutazioni reali vengono aggiunti
+     * {@code babo.leaderboard.prior-votes} voti pari a {@code babo.leaderboard.prior-mean}, e
+     * sono esclusi i libri con meno di {@code babo.leaderboard.min-votes} valutazioni.
+     * </p>
+     *
+     * @param limit il numero massimo di libri
+     * @return le posizioni in classifica, o {@code null} se la classifica non è disponibile
+     */
+    public List<RatingLeaderboard.Entry> getTopRatedLeaderboard(int limit) {
+        RatingLeaderboard current = currentLeaderboard();
+        return current != null ? current.topRated(limit) : null;
+    }
+
     /**
      * Recupera una lista dei libri che hanno ricevuto il maggior numero di valutazioni.
      * <p>
@@ -390,6 +711,11 @@ public class RatingService {
      * @since 1.0.0
      */
     public List<String> getMostRatedBooks() {
+        List<RatingLeaderboard.Entry> ranking = getMostReviewedLeaderboard(10);
+        if (ranking != null) {
+            return formatRanking(ranking, entry -> entry.getIsbn() + " (" + entry.getCount() + " valutazioni)");
+        }
+
         List<String> topBooks = new ArrayList<>();
         String query = """
             SELECT isbn, COUNT(*) as rating_count
@@ -399,7 +725,7 @@ public class RatingService {
             LIMIT 10
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
@@ -428,7 +754,7 @@ public class RatingService {
      */
     public String testAssessmentTable() {
         StringBuilder result = new StringBuilder();
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
             result.append("🔍 Test tabella assessment:\n\n");
             String checkTable = "SELECT COUNT(*) as count FROM information_schema.tables WHERE table_schema = 'public' AND table_name = 'assessment'";
             try (PreparedStatement stmt = conn.prepareStatement(checkTable)) {
@@ -469,6 +795,12 @@ public class RatingService {
      * @since 1.0.0
      */
     public List<String> getBestRatedBooks() {
+        List<RatingLeaderboard.Entry> ranking = getTopRatedLeaderboard(10);
+        if (ranking != null) {
+            return formatRanking(ranking, entry -> entry.getIsbn() + " (" + String.format("%.1f", entry.getAverage())
+                    + "★, " + entry.getCount() + " valutazioni)");
+        }
+
         List<String> topBooks = new ArrayList<>();
         String query = """
             SELECT isbn, AVG(average) as avg_rating, COUNT(*) as rating_count
@@ -479,7 +811,7 @@ public class RatingService {
             LIMIT 10
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
@@ -511,6 +843,11 @@ public class RatingService {
     public List<String> getBestRatedBooksIsbn(int limit) {
         System.out.println("⭐ Recupero " + limit + " ISBN libri meglio valutati");
 
+        List<RatingLeaderboard.Entry> ranking = getTopRatedLeaderboard(limit);
+        if (ranking != null) {
+            return formatRanking(ranking, RatingLeaderboard.Entry::getIsbn);
+        }
+
         List<String> topIsbnList = new ArrayList<>();
         String query = """
         SELECT isbn, AVG(average) as avg_rating, COUNT(*) as rating_count
@@ -522,7 +859,7 @@ public class RatingService {
         LIMIT ?
     """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setInt(1, limit);
@@ -553,7 +890,7 @@ public class RatingService {
 
         String query = "SELECT COUNT(*) as total_ratings FROM assessment WHERE username = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -592,7 +929,7 @@ public class RatingService {
 
         String query = "UPDATE assessment SET review = NULL WHERE id = (SELECT id FROM assessment WHERE review IS NOT NULL ORDER BY data DESC LIMIT 1)";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement()) {
 
             int result = stmt.executeUpdate(query);
@@ -627,7 +964,7 @@ public class RatingService {
 
         String query = "UPDATE assessment SET review = NULL WHERE username = ? AND review IS NOT NULL";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
@@ -662,7 +999,7 @@ public class RatingService {
             ORDER BY data DESC
         """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             ResultSet rs = stmt.executeQuery();
@@ -679,6 +1016,28 @@ public class RatingService {
         return allRatings;
     }
 
+    /**
+     * Legge tutte le valutazioni consegnandole una alla volta al destinatario indicato.
+     * <p>
+     * Versione in streaming di {@link #getAllRatings()}: le righe vengono lette con un cursore
+     * lato server e passate al destinatario appena mappate, senza caricare in memoria
+     * l'intera tabella {@code assessment}.
+     * </p>
+     *
+     * @param sink il destinatario delle valutazioni, dalla più recente
+     * @return il numero di valutazioni consegnate
+     * @throws SQLException se la lettura dal database fallisce
+     * @throws java.io.IOException se il destinatario fallisce
+     */
+    public int streamAllRatings(RowSink<BookRating> sink) throws SQLException, java.io.IOException {
+        String query = "SELECT username, isbn, data, style, content, pleasantness, originality, edition, average, review " +
+                "FROM assessment ORDER BY data DESC";
+
+        int count = StreamingQuery.stream(dataSource, query, this::mapResultSetToRating, sink);
+        System.out.println("✅ Inviate in streaming " + count + " valutazioni");
+        return count;
+    }
+
     /**
      * ===============================
      * METODI PRIVATI DI SUPPORTO
@@ -686,94 +1045,377 @@ public class RatingService {
      */
 
     /**
-     * Inserisce una nuova valutazione nel database.
+     * Esegue un tentativo di salvataggio di una valutazione in una transazione propria.
      *
      * @param rating L'oggetto {@link BookRating} da persistere.
-     * @return {@code true} se l'inserimento ha successo, {@code false} altrimenti.
+     * @return La valutazione salvata con le statistiche aggiornate del libro, o {@code null} se
+     * il tentativo va ripetuto.
+     * @throws SQLException se il salvataggio fallisce
      */
-    private boolean insertNewRating(BookRating rating) {
-        String query = """
-        INSERT INTO assessment (username, isbn, data, style, content, pleasantness, originality, edition, average, review)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-    """;
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, rating.getUsername().toLowerCase().trim());
-            stmt.setString(2, rating.getIsbn().trim());
-            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setInt(4, rating.getStyle());
-            stmt.setInt(5, rating.getContent());
-            stmt.setInt(6, rating.getPleasantness());
-            stmt.setInt(7, rating.getOriginality());
-            stmt.setInt(8, rating.getEdition());
-            stmt.setDouble(9, rating.getAverage());
-            if (rating.getReview() != null && !rating.getReview().trim().isEmpty()) {
-                stmt.setString(10, rating.getReview().trim());
-            } else {
-                stmt.setNull(10, java.sql.Types.VARCHAR);
+    private RatingResponse saveRatingDirect(BookRating rating) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            leaderboardGuard.readLock().lock();
+
+            try {
+                RatingResponse response = writeRating(conn, rating);
+                if (response == null) {
+                    conn.rollback();
+                    return null;
+                }
+                conn.commit();
+                return response;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                invalidateLeaderboard();
+                throw e;
+            } finally {
+                releaseWriteGuard(rating.getIsbn());
+                conn.setAutoCommit(true);
             }
-            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Esegue un tentativo di salvataggio di una valutazione tramite la coda di scrittura
+     * differita, nella transazione del batch. Il lock delle classifiche resta in lettura fino
+     * alla fine di quella transazione.
+     *
+     * @param rating L'oggetto {@link BookRating} da persistere.
+     * @return La valutazione salvata con le statistiche aggiornate del libro, o {@code null} se
+     * il tentativo va ripetuto.
+     * @throws SQLException se il salvataggio fallisce
+     */
+    private RatingResponse saveRatingQueued(BookRating rating) throws SQLException {
+        try {
+            return writeQueue.execute(new WriteBehindQueue.Mutation<RatingResponse>() {
+                @Override
+                public RatingResponse execute(Connection conn) throws SQLException {
+                    leaderboardGuard.readLock().lock();
+                    RatingResponse response = writeRating(conn, rating);
+                    if (response == null) {
+                        throw new SQLException("Valutazione inserita in parallelo", CONCURRENT_RATING_STATE);
+                    }
+                    return response;
+                }
+
+                @Override
+                public void afterCompletion(boolean committed) {
+                    if (!committed) {
+                        invalidateLeaderboard();
+                    }
+                    releaseWriteGuard(rating.getIsbn());
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Errore durante l'inserimento valutazione: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            if (CONCURRENT_RATING_STATE.equals(e.getSQLState())) {
+                return null;
+            }
+            throw e;
         }
     }
 
     /**
-     * Aggiorna una valutazione esistente nel database.
+     * Salva una valutazione e aggiorna la riga aggregata del libro nella transazione in corso,
+     * senza confermarla.
      *
-     * @param rating L'oggetto {@link BookRating} con i dati aggiornati.
-     * @return {@code true} se l'aggiornamento ha successo, {@code false} altrimenti.
+     * @param conn la connessione della transazione in corso
+     * @param rating L'oggetto {@link BookRating} da persistere.
+     * @return La valutazione salvata con le statistiche aggiornate del libro, o {@code null} se
+     * la valutazione è stata inserita da un'altra transazione dopo la lettura: la transazione
+     * va annullata e il tentativo ripetuto.
+     * @throws SQLException se il salvataggio fallisce
      */
-    private boolean updateExistingRating(BookRating rating) {
-        String query = """
-        UPDATE assessment 
-        SET data = ?, style = ?, content = ?, pleasantness = ?, originality = ?, edition = ?, average = ?, review = ?
-        WHERE username = ? AND isbn = ?
-    """;
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setInt(2, rating.getStyle());
-            stmt.setInt(3, rating.getContent());
-            stmt.setInt(4, rating.getPleasantness());
-            stmt.setInt(5, rating.getOriginality());
-            stmt.setInt(6, rating.getEdition());
-            stmt.setDouble(7, rating.getAverage());
+    private RatingResponse writeRating(Connection conn, BookRating rating) throws SQLException {
+        String username = rating.getUsername().toLowerCase().trim();
+        String isbn = rating.getIsbn().trim();
+
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_RATING)) {
+            stmt.setString(1, username);
+            stmt.setString(2, isbn);
+            stmt.setString(3, username);
+            stmt.setString(4, isbn);
+            stmt.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setInt(6, rating.getStyle());
+            stmt.setInt(7, rating.getContent());
+            stmt.setInt(8, rating.getPleasantness());
+            stmt.setInt(9, rating.getOriginality());
+            stmt.setInt(10, rating.getEdition());
+            stmt.setDouble(11, rating.getAverage());
             if (rating.getReview() != null && !rating.getReview().trim().isEmpty()) {
-                stmt.setString(8, rating.getReview().trim());
+                stmt.setString(12, rating.getReview().trim());
             } else {
-                stmt.setNull(8, java.sql.Types.VARCHAR);
+                stmt.setNull(12, java.sql.Types.VARCHAR);
             }
-            stmt.setString(9, rating.getUsername().toLowerCase().trim());
-            stmt.setString(10, rating.getIsbn().trim());
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("❌ Errore durante l'aggiornamento valutazione: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Nessuna riga restituita dal salvataggio della valutazione");
+            }
+
+            RatingDelta delta = new RatingDelta();
+            if (!rs.getBoolean("inserted")) {
+                rs.getInt("previous_style");
+                if (rs.wasNull()) {
+                    // Aggiornata una valutazione inserita dopo la lettura: i punteggi
+                    // sostituiti non sono noti, il tentativo va ripetuto
+                    return null;
+                }
+                delta.subtract(rs, "previous_");
+            }
+            delta.add(rating);
+
+            BookRating saved = mapResultSetToRating(rs);
+            RatingResponse statistics = applyRatingDelta(conn, isbn, delta);
+
+            RatingResponse response = new RatingResponse(true, "Valutazione salvata con successo", saved);
+            if (statistics != null) {
+                response.setAverageRating(statistics.getAverageRating());
+                response.setTotalRatings(statistics.getTotalRatings());
+                response.setBreakdown(statistics.getBreakdown());
+            }
+            return response;
         }
     }
 
     /**
-     * Controlla se un utente ha già lasciato una valutazione per un libro.
+     * Applica una variazione alla riga aggregata di un libro in {@code book_rating_stats},
+     * creandola se non esiste. Deve essere eseguito nella transazione che modifica {@code assessment}.
+     * <p>
+     * I nuovi valori vengono riportati nelle classifiche in memoria mentre la riga è ancora
+     * bloccata dalla transazione, così che scritture concorrenti sullo stesso libro le
+     * aggiornino nello stesso ordine in cui aggiornano il database.
+     * </p>
      *
-     * @param username L'identificativo dell'utente.
-     * @param isbn L'ISBN del libro.
-     * @return {@code true} se esiste già una valutazione, {@code false} altrimenti.
+     * @param conn la connessione della transazione in corso
+     * @param isbn l'ISBN del libro
+     * @param delta la variazione da applicare
+     * @return le statistiche del libro dopo la variazione, o {@code null} se non ha più valutazioni
+     * @throws SQLException se l'aggiornamento fallisce
      */
-    private boolean ratingExists(String username, String isbn) {
-        String query = "SELECT 1 FROM assessment WHERE username = ? AND isbn = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, username.toLowerCase().trim());
-            stmt.setString(2, isbn.trim());
+    private RatingResponse applyRatingDelta(Connection conn, String isbn, RatingDelta delta) throws SQLException {
+        String query = """
+        INSERT INTO book_rating_stats (isbn, rating_count, sum_average, sum_style, sum_content,
+                                       sum_pleasantness, sum_originality, sum_edition,
+                                       stars_1, stars_2, stars_3, stars_4, stars_5)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (isbn) DO UPDATE SET
+            rating_count = book_rating_stats.rating_count + EXCLUDED.rating_count,
+            sum_average = book_rating_stats.sum_average + EXCLUDED.sum_average,
+            sum_style = book_rating_stats.sum_style + EXCLUDED.sum_style,
+            sum_content = book_rating_stats.sum_content + EXCLUDED.sum_content,
+            sum_pleasantness = book_rating_stats.sum_pleasantness + EXCLUDED.sum_pleasantness,
+            sum_originality = book_rating_stats.sum_originality + EXCLUDED.sum_originality,
+            sum_edition = book_rating_stats.sum_edition + EXCLUDED.sum_edition,
+            stars_1 = book_rating_stats.stars_1 + EXCLUDED.stars_1,
+            stars_2 = book_rating_stats.stars_2 + EXCLUDED.stars_2,
+            stars_3 = book_rating_stats.stars_3 + EXCLUDED.stars_3,
+            stars_4 = book_rating_stats.stars_4 + EXCLUDED.stars_4,
+            stars_5 = book_rating_stats.stars_5 + EXCLUDED.stars_5
+        RETURNING rating_count, sum_average, sum_style, sum_content, sum_pleasantness, sum_originality, sum_edition,
+                  stars_1, stars_2, stars_3, stars_4, stars_5
+    """;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, isbn);
+            stmt.setInt(2, delta.count);
+            stmt.setDouble(3, delta.sumAverage);
+            for (int i = 0; i < delta.sumScores.length; i++) {
+                stmt.setLong(4 + i, delta.sumScores[i]);
+            }
+            for (int i = 0; i < delta.stars.length; i++) {
+                stmt.setInt(9 + i, delta.stars[i]);
+            }
+
             ResultSet rs = stmt.executeQuery();
-            return rs.next();
+            if (!rs.next()) {
+                return null;
+            }
+            RatingLeaderboard current = leaderboard;
+            if (current != null) {
+                current.update(isbn, rs.getInt("rating_count"), rs.getDouble("sum_average"));
+            }
+            return mapStatistics(rs);
+        }
+    }
+
+    /**
+     * Converte una riga di {@code book_rating_stats} nelle statistiche del libro.
+     *
+     * @param rs il ResultSet posizionato sulla riga aggregata
+     * @return le statistiche, o {@code null} se il libro non ha valutazioni
+     * @throws SQLException se la lettura della riga fallisce
+     */
+    private static RatingResponse mapStatistics(ResultSet rs) throws SQLException {
+        int count = rs.getInt("rating_count");
+        if (count <= 0) {
+            return null;
+        }
+
+        double averageRating = roundAverage(rs.getDouble("sum_average"), count);
+        RatingResponse.RatingBreakdown breakdown = new RatingResponse.RatingBreakdown(
+                rs.getInt("stars_5"), rs.getInt("stars_4"), rs.getInt("stars_3"), rs.getInt("stars_2"), rs.getInt("stars_1"));
+        breakdown.setAverageStyle(roundAverage(rs.getLong("sum_style"), count));
+        breakdown.setAverageContent(roundAverage(rs.getLong("sum_content"), count));
+        breakdown.setAveragePleasantness(roundAverage(rs.getLong("sum_pleasantness"), count));
+        breakdown.setAverageOriginality(roundAverage(rs.getLong("sum_originality"), count));
+        breakdown.setAverageEdition(roundAverage(rs.getLong("sum_edition"), count));
+
+        RatingResponse response = new RatingResponse(true, "Statistiche recuperate", null, averageRating, breakdown);
+        response.setTotalRatings(count);
+        return response;
+    }
+
+    /**
+     * Restituisce le classifiche in memoria, caricandole da {@code book_rating_stats} al primo
+     * utilizzo. Un caricamento fallito non viene memorizzato e sarà ritentato alla richiesta successiva.
+     *
+     * @return le classifiche, o {@code null} se il database non è accessibile
+     */
+    private RatingLeaderboard currentLeaderboard() {
+        RatingLeaderboard current = leaderboard;
+        if (current == null) {
+            synchronized (leaderboardLock) {
+                current = leaderboard;
+                if (current == null) {
+                    leaderboardGuard.writeLock().lock();
+                    try {
+                        current = loadLeaderboard();
+                        leaderboard = current;
+                        if (current != null) {
+                            ratingsVersion.incrementAndGet();
+                        }
+                    } finally {
+                        leaderboardGuard.writeLock().unlock();
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Costruisce le classifiche leggendo le righe aggregate di tutti i libri valutati.
+     *
+     * @return le classifiche, o {@code null} in caso di errore del database
+     */
+    private RatingLeaderboard loadLeaderboard() {
+        String query = "SELECT isbn, rating_count, sum_average FROM book_rating_stats WHERE rating_count > 0";
+
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            List<String> isbns = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            List<Double> sums = new ArrayList<>();
+            while (rs.next()) {
+                isbns.add(rs.getString("isbn"));
+                counts.add(rs.getInt("rating_count"));
+                sums.add(rs.getDouble("sum_average"));
+            }
+
+            RatingLeaderboard loaded = new RatingLeaderboard(leaderboardMinVotes, leaderboardPriorVotes, leaderboardPriorMean);
+            loaded.updateAll(isbns,
+                    counts.stream().mapToInt(Integer::intValue).toArray(),
+                    sums.stream().mapToDouble(Double::doubleValue).toArray());
+
+            System.out.println("🏆 Classifiche valutazioni caricate: " + loaded.size() + " libri");
+            return loaded;
+
         } catch (SQLException e) {
-            System.err.println("❌ Errore verifica esistenza valutazione: " + e.getMessage());
-            return false;
+            System.err.println("❌ Errore caricamento classifiche valutazioni: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Scarta le classifiche in memoria, che saranno ricaricate dal database alla prossima lettura.
+     * <p>
+     * Usato quando una transazione fallisce dopo aver già aggiornato le classifiche.
+     * </p>
+     */
+    private void invalidateLeaderboard() {
+        leaderboard = null;
+        ratingsVersion.incrementAndGet();
+    }
+
+    /**
+     * Rilascia il lock in lettura preso da una transazione su {@code assessment}, dopo il commit
+     * o il rollback, incrementa la versione delle valutazioni e scarta le statistiche in cache
+     * del libro. Entrambi avvengono anche per le transazioni annullate: una versione in più
+     * costa al più una risposta completa.
+     *
+     * @param isbn l'ISBN del libro valutato nella transazione
+     */
+    private void releaseWriteGuard(String isbn) {
+        leaderboardGuard.readLock().unlock();
+        ratingsVersion.incrementAndGet();
+        queryCache.invalidate(QueryCache.Region.RATING_STATS, isbn.trim());
+    }
+
+    /**
+     * Converte le posizioni di una classifica nel formato testuale indicato.
+     */
+    private static List<String> formatRanking(List<RatingLeaderboard.Entry> ranking,
+                                              Function<RatingLeaderboard.Entry, String> format) {
+        List<String> result = new ArrayList<>(ranking.size());
+        for (RatingLeaderboard.Entry entry : ranking) {
+            result.add(format.apply(entry));
+        }
+        return result;
+    }
+
+    /**
+     * Arrotonda a due cifre decimali la media ottenuta da una somma e un conteggio.
+     */
+    private static double roundAverage(double sum, int count) {
+        return Math.round((sum / count) * 100.0) / 100.0;
+    }
+
+    /**
+     * Variazione da applicare alla riga aggregata di un libro: numero di valutazioni,
+     * somme dei punteggi (media e cinque categorie) e distribuzione per stelle.
+     */
+    private static final class RatingDelta {
+        private int count;
+        private double sumAverage;
+        /** Somme di stile, contenuto, piacevolezza, originalità ed edizione */
+        private final long[] sumScores = new long[5];
+        /** Conteggi per 1..5 stelle, calcolate come in {@link BookRating#getStarRating()} */
+        private final int[] stars = new int[5];
+
+        void add(BookRating rating) {
+            apply(1, rating.getStyle(), rating.getContent(), rating.getPleasantness(),
+                    rating.getOriginality(), rating.getEdition(), rating.getAverage());
+        }
+
+        void subtract(ResultSet rs) throws SQLException {
+            subtract(rs, "");
+        }
+
+        /** Sottrae i punteggi letti dalle colonne con il prefisso indicato */
+        void subtract(ResultSet rs, String prefix) throws SQLException {
+            apply(-1, rs.getInt(prefix + "style"), rs.getInt(prefix + "content"), rs.getInt(prefix + "pleasantness"),
+                    rs.getInt(prefix + "originality"), rs.getInt(prefix + "edition"), rs.getDouble(prefix + "average"));
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        private void apply(int sign, int style, int content, int pleasantness, int originality, int edition, double average) {
+            count += sign;
+            sumAverage += sign * average;
+            sumScores[0] += sign * style;
+            sumScores[1] += sign * content;
+            sumScores[2] += sign * pleasantness;
+            sumScores[3] += sign * originality;
+            sumScores[4] += sign * edition;
+            int star = (int) Math.round(average);
+            if (star >= 1 && star <= 5) {
+                stars[star - 1] += sign;
+            }
         }
     }
 
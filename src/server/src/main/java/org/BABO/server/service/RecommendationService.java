@@ -1,14 +1,22 @@
 package org.BABO.server.service;
 
+import org.BABO.server.index.CoRecommendationIndex;
 import org.BABO.shared.model.BookRecommendation;
 import org.BABO.shared.model.Book;
 import org.BABO.shared.dto.Recommendation.RecommendationRequest;
+import org.BABO.shared.dto.Recommendation.RecommendationResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Servizio server per la gestione completa delle raccomandazioni di libri tra utenti.
@@ -26,26 +34,37 @@ import java.util.List;
  * <li><strong>Gestione Transazionale:</strong> Operazioni atomiche con rollback automatico in caso di errore</li>
  * <li><strong>Validazione Dati:</strong> Controlli di esistenza libri e validità richieste</li>
  * <li><strong>Recupero Dettagli:</strong> Integrazione con BookService per dettagli completi libri raccomandati</li>
+ * <li><strong>Classifica Raccomandazioni:</strong> Indice in memoria libro → libri consigliati, ordinato per numero di utenti e aggiornato ad ogni aggiunta o rimozione</li>
  * <li><strong>Analytics:</strong> Statistiche uso sistema e conteggi per dashboard amministrative</li>
  * </ul>
  *
  * <h3>Struttura Database:</h3>
  * <p>
- * Il servizio opera sulla tabella {@code advise} con la seguente struttura:
+ * Il servizio opera sulla tabella {@code recommendation_edges}, con una riga per ogni
+ * raccomandazione:
  * </p>
  * <ul>
- * <li>{@code id} (BIGSERIAL PRIMARY KEY) - Identificativo univoco del record</li>
  * <li>{@code username} (VARCHAR) - Nome utente che effettua la raccomandazione</li>
- * <li>{@code isbn} (VARCHAR) - ISBN del libro target per cui si raccomandano altri libri</li>
- * <li>{@code isbn1} (VARCHAR, nullable) - Primo libro raccomandato</li>
- * <li>{@code isbn2} (VARCHAR, nullable) - Secondo libro raccomandato</li>
- * <li>{@code isbn3} (VARCHAR, nullable) - Terzo libro raccomandato</li>
+ * <li>{@code target_isbn} (VARCHAR) - ISBN del libro target per cui si raccomandano altri libri</li>
+ * <li>{@code recommended_isbn} (VARCHAR) - ISBN del libro raccomandato</li>
+ * <li>{@code created_at} (TIMESTAMP) - Data di inserimento</li>
  * </ul>
+ * <p>
+ * La chiave primaria {@code (username, target_isbn, recommended_isbn)} impedisce i duplicati
+ * e serve le letture per utente; l'indice {@code (target_isbn, recommended_isbn)} serve le
+ * letture per libro e le classifiche. Inserimenti e rimozioni sono singole istruzioni, senza
+ * lock di riga sui record degli altri libri dell'utente.
+ * </p>
  *
- * <h3>Vincoli di Unique:</h3>
+ * <h3>Compatibilità con {@code advise}:</h3>
  * <p>
- * La tabella implementa un vincolo UNIQUE sulla coppia (username, isbn) per garantire
- * che ogni utente possa avere un solo set di raccomandazioni per ogni libro target.
+ * La tabella originale {@code advise} (un record per utente e libro target, con i tre slot
+ * {@code isbn1}, {@code isbn2}, {@code isbn3}) viene copiata in {@code recommendation_edges}
+ * dalla migrazione V9. Finché {@code babo.recommendations.dual-read} è attivo, le letture usano la vista
+ * {@code recommendation_edges_compat}, unione delle due tabelle, così che i record scritti in
+ * {@code advise} da versioni precedenti del server restino visibili; ogni scrittura trasferisce
+ * prima il record {@code advise} interessato nella nuova tabella. Al termine del periodo di
+ * compatibilità la proprietà va disattivata e {@code advise} non viene più letta.
  * </p>
  *
  * <h3>Sistema di Autorizzazione:</h3>
@@ -59,10 +78,12 @@ import java.util.List;
  * </ol>
  *
  * <h3>Configurazione Database:</h3>
+ * <p>
+ * Le connessioni sono ottenute dal {@link DataSource} condiviso (pool HikariCP) configurato
+ * in {@code application.properties}; URL e credenziali sono esternalizzati tramite le
+ * variabili {@code BABO_DB_URL}, {@code BABO_DB_USER} e {@code BABO_DB_PASSWORD}.
+ * </p>
  * <pre>{@code
- * URL: jdbc:postgresql://localhost:5432/DataProva
- * User: postgres
- * Password: postgress
  * Limite raccomandazioni per libro: 3
  * }</pre>
  *
@@ -127,18 +148,16 @@ import java.util.List;
 @Service
 public class RecommendationService {
 
-    /** URL di connessione al database PostgreSQL */
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/DataProva";
-
-    /** Username per l'autenticazione database */
-    private static final String DB_USER = "postgres";
-
-    /** Password per l'autenticazione database */
-    private static final String DB_PASSWORD = "postgress";
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
 
     /** Limite massimo di raccomandazioni per libro per utente */
     private static final int MAX_RECOMMENDATIONS_PER_BOOK = 3;
 
+    /** Numero massimo di libri nella classifica delle raccomandazioni di un libro */
+    public static final int MAX_TOP_RECOMMENDATIONS = 50;
+
     /** Servizio per operazioni sui libri */
     @Autowired
     private BookService bookService;
@@ -147,6 +166,27 @@ public class RecommendationService {
     @Autowired
     private LibraryService libraryService;
 
+    /** Cache delle raccomandazioni per libro, invalidata ad ogni aggiunta o rimozione */
+    @Autowired
+    private QueryCache queryCache;
+
+    /** Se attivo, le letture includono anche i record della tabella originale {@code advise} */
+    @Value("${babo.recommendations.dual-read:true}")
+    private boolean dualRead;
+
+    /** Indice delle raccomandazioni tra libri, caricato dal database al primo utilizzo */
+    private volatile CoRecommendationIndex coRecommendationIndex;
+
+    /** Lock per il caricamento dell'indice */
+    private final Object coRecommendationLock = new Object();
+
+    /**
+     * Coordina le scritture delle raccomandazioni con il caricamento dell'indice: ogni scrittura
+     * tiene il lock in lettura fino a conferma e aggiornamento dell'indice, il caricamento lo
+     * tiene in scrittura. Così nessun collegamento viene contato due volte o perso.
+     */
+    private final ReadWriteLock coRecommendationGuard = new ReentrantReadWriteLock();
+
     /**
      * Verifica se un utente è autorizzato a raccomandare libri per un libro target specifico.
      * <p>
@@ -157,43 +197,27 @@ public class RecommendationService {
      * </p>
      *
      * <p>
-     * Il processo di verifica include:
+     * La verifica è delegata a {@link LibraryService#doesUserOwnBook(String, String)}, che
+     * risponde con una singola query indicizzata su {@code library_books} senza caricare
+     * le librerie dell'utente né i libri che contengono.
      * </p>
-     * <ol>
-     * <li>Recupero di tutte le librerie dell'utente tramite {@link LibraryService}</li>
-     * <li>Scansione di ogni libreria per verificare presenza del libro target</li>
-     * <li>Confronto ISBN per identificazione esatta del libro</li>
-     * </ol>
      *
      * @param username il nome utente da verificare per le autorizzazioni
      * @param targetBookIsbn il codice ISBN del libro target per cui si vogliono fare raccomandazioni
      * @return {@code true} se l'utente possiede il libro target in almeno una libreria,
      * {@code false} se non lo possiede o in caso di errori di verifica
      *
-     * @throws IllegalArgumentException se username o targetBookIsbn sono null o vuoti
+     * @apiNote La verifica viene effettuata confrontando gli ISBN in modo case-sensitive,
+     * con lo username normalizzato come in fase di inserimento.
      *
-     * @apiNote La verifica viene effettuata confrontando gli ISBN in modo case-sensitive.
-     * Il metodo ha performance O(n*m) dove n è il numero di librerie e m il numero
-     * medio di libri per libreria.
-     *
-     * @see LibraryService#getUserLibraries(String)
-     * @see LibraryService#getBooksInLibrary(String, String)
+     * @see LibraryService#doesUserOwnBook(String, String)
      */
     public boolean canUserRecommend(String username, String targetBookIsbn) {
         System.out.println("🔍 Verifica permessi raccomandazione per utente: " + username + ", ISBN: " + targetBookIsbn);
 
-        // Verifica se l'utente ha il libro target nelle sue librerie
-        List<String> userLibraries = libraryService.getUserLibraries(username);
-
-        for (String libraryName : userLibraries) {
-            List<Book> booksInLibrary = libraryService.getBooksInLibrary(username, libraryName);
-            boolean hasBook = booksInLibrary.stream()
-                    .anyMatch(book -> targetBookIsbn.equals(book.getIsbn()));
-
-            if (hasBook) {
-                System.out.println("✅ Utente " + username + " ha il libro " + targetBookIsbn + " nella libreria: " + libraryName);
-                return true;
-            }
+        if (libraryService.doesUserOwnBook(username, targetBookIsbn)) {
+            System.out.println("✅ Utente " + username + " ha il libro " + targetBookIsbn + " nelle sue librerie");
+            return true;
         }
 
         System.out.println("❌ Utente " + username + " non ha il libro " + targetBookIsbn + " nelle sue librerie");
@@ -277,8 +301,21 @@ public class RecommendationService {
             return false;
         }
 
-        // Aggiungi raccomandazione al database
-        boolean result = insertRecommendation(request);
+        // Aggiungi raccomandazione al database e all'indice
+        boolean result;
+        coRecommendationGuard.readLock().lock();
+        try {
+            result = insertRecommendation(request);
+            CoRecommendationIndex index = coRecommendationIndex;
+            if (result && index != null) {
+                index.add(request.getTargetBookIsbn(), request.getRecommendedBookIsbn());
+            }
+            if (result) {
+                queryCache.invalidate(QueryCache.Region.RECOMMENDATIONS, request.getTargetBookIsbn());
+            }
+        } finally {
+            coRecommendationGuard.readLock().unlock();
+        }
 
         // Debug stato finale
         if (result) {
@@ -292,71 +329,59 @@ public class RecommendationService {
     }
 
     /**
-     * Inserisce una nuova raccomandazione nel database utilizzando gestione transazionale completa.
+     * Inserisce una nuova raccomandazione come riga di {@code recommendation_edges}.
      * <p>
-     * Metodo interno che gestisce l'inserimento effettivo nel database utilizzando transazioni
-     * per garantire consistenza dei dati. Implementa pattern di UPSERT con gestione dei conflitti
-     * e utilizza locking per prevenire race conditions in ambiente multi-utente.
+     * Il controllo del limite per libro e l'inserimento sono una sola istruzione
+     * {@code INSERT ... SELECT ... WHERE}: nessun lock di riga viene preso in lettura e le
+     * raccomandazioni di utenti o libri diversi non si serializzano tra loro. I duplicati sono
+     * scartati dalla chiave primaria ({@code ON CONFLICT DO NOTHING}).
      * </p>
-     *
      * <p>
-     * La strategia di inserimento segue questo approccio:
+     * Durante il periodo di doppia lettura il record {@code advise} dell'utente per il libro
+     * target, se esiste, viene prima trasferito in {@code recommendation_edges} nella stessa
+     * transazione, così che limite e duplicati siano verificati su un'unica tabella.
      * </p>
-     * <ol>
-     * <li><strong>Transazione atomica:</strong> Disabilita auto-commit per operazioni multiple</li>
-     * <li><strong>SELECT FOR UPDATE:</strong> Lock ottimistico per prevenire race conditions</li>
-     * <li><strong>Conditional logic:</strong> UPDATE se record esiste, INSERT se non esiste</li>
-     * <li><strong>Rollback automatico:</strong> In caso di errori tutti i cambiamenti vengono annullati</li>
-     * </ol>
      *
      * @param request la richiesta di raccomandazione contenente i dati da inserire
-     * @return {@code true} se l'inserimento è completato con successo,
-     * {@code false} in caso di errori SQL, conflitti di concorrenza o violazioni vincoli
+     * @return {@code true} se la raccomandazione è stata inserita, {@code false} se era già
+     * presente, se il limite è raggiunto o in caso di errori SQL
      *
-     * @implNote Utilizza SELECT FOR UPDATE per prevenire race conditions e garantisce
-     * che le operazioni siano atomiche. In caso di errore, esegue rollback automatico
-     * di tutte le modifiche effettuate nella transazione.
+     * @implNote Il limite è verificato nella stessa istruzione dell'inserimento; solo due
+     * richieste simultanee dello stesso utente per lo stesso libro potrebbero superarlo di uno,
+     * caso già filtrato dal controllo preliminare di {@link #addRecommendation(RecommendationRequest)}.
      *
-     * @see #updateExistingRecommendationWithId(Connection, RecommendationRequest, ResultSet, Long)
-     * @see #createNewRecommendationWithUpsert(Connection, RecommendationRequest)
+     * @see #migrateLegacyRecommendations(Connection, String, String)
      */
     private boolean insertRecommendation(RecommendationRequest request) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-
-            // Usa una transazione per evitare race conditions
+        String insertQuery = """
+            INSERT INTO recommendation_edges (username, target_isbn, recommended_isbn)
+            SELECT ?, ?, ?
+            WHERE (SELECT COUNT(*) FROM recommendation_edges WHERE username = ? AND target_isbn = ?) < ?
+            ON CONFLICT DO NOTHING
+            """;
+
+        try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
 
-            try {
-                // Prima controlla se esiste già un record per questo utente e libro target
-                String selectQuery = "SELECT id, isbn1, isbn2, isbn3 FROM advise WHERE username = ? AND isbn = ? FOR UPDATE";
-
-                try (PreparedStatement selectStmt = conn.prepareStatement(selectQuery)) {
-                    selectStmt.setString(1, request.getUsername());
-                    selectStmt.setString(2, request.getTargetBookIsbn());
-
-                    ResultSet rs = selectStmt.executeQuery();
-
-                    if (rs.next()) {
-                        // Record esiste, aggiorna aggiungendo la nuova raccomandazione
-                        Long recordId = rs.getLong("id");
-                        boolean result = updateExistingRecommendationWithId(conn, request, rs, recordId);
-                        if (result) {
-                            conn.commit();
-                        } else {
-                            conn.rollback();
-                        }
-                        return result;
-                    } else {
-                        // Record non esiste, creane uno nuovo
-                        boolean result = createNewRecommendationWithUpsert(conn, request);
-                        if (result) {
-                            conn.commit();
-                        } else {
-                            conn.rollback();
-                        }
-                        return result;
-                    }
+            try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+                if (dualRead) {
+                    migrateLegacyRecommendations(conn, request.getUsername(), request.getTargetBookIsbn());
+                }
+
+                stmt.setString(1, request.getUsername());
+                stmt.setString(2, request.getTargetBookIsbn());
+                stmt.setString(3, request.getRecommendedBookIsbn());
+                stmt.setString(4, request.getUsername());
+                stmt.setString(5, request.getTargetBookIsbn());
+                stmt.setInt(6, MAX_RECOMMENDATIONS_PER_BOOK);
+
+                boolean inserted = stmt.executeUpdate() > 0;
+                conn.commit();
+
+                if (!inserted) {
+                    System.out.println("❌ Raccomandazione già presente o limite raggiunto");
                 }
+                return inserted;
 
             } catch (SQLException e) {
                 conn.rollback();
@@ -372,152 +397,39 @@ public class RecommendationService {
     }
 
     /**
-     * Aggiorna un record di raccomandazione esistente aggiungendo una nuova raccomandazione.
-     * <p>
-     * Metodo interno che gestisce l'aggiornamento di record già presenti nella tabella advise.
-     * Trova il primo slot disponibile (isbn1, isbn2, o isbn3) e inserisce la nuova raccomandazione,
-     * verificando preventivamente che non sia un duplicato.
-     * </p>
-     *
-     * <p>
-     * La logica di aggiornamento segue questo approccio:
-     * </p>
-     * <ol>
-     * <li><strong>Controllo duplicati:</strong> Verifica che la raccomandazione non esista già</li>
-     * <li><strong>Ricerca slot libero:</strong> Identifica primo campo isbn disponibile</li>
-     * <li><strong>Aggiornamento mirato:</strong> UPDATE solo del campo specifico necessario</li>
-     * <li><strong>Validazione risultato:</strong> Verifica che l'aggiornamento sia avvenuto</li>
-     * </ol>
-     *
-     * @param conn la connessione database attiva (deve essere in transazione)
-     * @param request la richiesta contenente i dati della nuova raccomandazione
-     * @param rs il ResultSet posizionato sui dati del record esistente
-     * @param recordId l'ID univoco del record da aggiornare
-     * @return {@code true} se l'aggiornamento è completato con successo,
-     * {@code false} se tutti gli slot sono occupati, la raccomandazione è duplicata
-     * o si verificano errori SQL
-     *
-     * @throws SQLException se si verificano errori durante l'accesso al database
-     *
-     * @implNote Il metodo legge lo stato attuale degli slot dal ResultSet e determina
-     * dinamicamente quale UPDATE SQL eseguire basandosi sui campi disponibili.
-     */
-    private boolean updateExistingRecommendationWithId(Connection conn, RecommendationRequest request, ResultSet rs, Long recordId) throws SQLException {
-        String isbn1 = rs.getString("isbn1");
-        String isbn2 = rs.getString("isbn2");
-        String isbn3 = rs.getString("isbn3");
-
-        System.out.println("🔍 Stato attuale (ID: " + recordId + "): isbn1=" + isbn1 + ", isbn2=" + isbn2 + ", isbn3=" + isbn3);
-
-        // Controlla se la raccomandazione esiste già
-        if (request.getRecommendedBookIsbn().equals(isbn1) ||
-                request.getRecommendedBookIsbn().equals(isbn2) ||
-                request.getRecommendedBookIsbn().equals(isbn3)) {
-            return false;
-        }
-
-        // Trova il primo slot libero
-        String updateQuery;
-        int paramIndex;
-
-        if (isbn1 == null || isbn1.trim().isEmpty()) {
-            updateQuery = "UPDATE advise SET isbn1 = ? WHERE id = ?";
-            paramIndex = 1;
-        } else if (isbn2 == null || isbn2.trim().isEmpty()) {
-            updateQuery = "UPDATE advise SET isbn2 = ? WHERE id = ?";
-            paramIndex = 2;
-        } else if (isbn3 == null || isbn3.trim().isEmpty()) {
-            updateQuery = "UPDATE advise SET isbn3 = ? WHERE id = ?";
-            paramIndex = 3;
-        } else {
-            System.out.println("❌ Tutti gli slot per le raccomandazioni sono occupati");
-            return false;
-        }
-
-        System.out.println("📝 Aggiornamento slot " + paramIndex + " con ISBN: " + request.getRecommendedBookIsbn() + " (Record ID: " + recordId + ")");
-
-        try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
-            updateStmt.setString(1, request.getRecommendedBookIsbn());
-            updateStmt.setLong(2, recordId);
-
-            int updated = updateStmt.executeUpdate();
-            if (updated > 0) {
-                System.out.println("✅ Raccomandazione aggiunta al slot " + paramIndex);
-                return true;
-            } else {
-                System.out.println("❌ Nessuna riga aggiornata per slot " + paramIndex);
-                return false;
-            }
-        }
-    }
-
-    /**
-     * Crea un nuovo record di raccomandazione utilizzando pattern UPSERT con gestione conflitti.
+     * Trasferisce il record {@code advise} di un utente per un libro target nelle righe di
+     * {@code recommendation_edges}, eliminandolo dalla tabella originale.
      * <p>
-     * Metodo interno che gestisce la creazione di nuovi record nella tabella advise utilizzando
-     * la clausola PostgreSQL ON CONFLICT per gestire eventuali race conditions. Questo approccio
-     * garantisce atomicità anche in presenza di inserimenti concorrenti.
+     * Usato durante il periodo di doppia lettura prima di ogni scrittura: la scrittura opera
+     * così solo sulla nuova tabella, e una raccomandazione rimossa non può ricomparire dal
+     * record originale. È un'unica istruzione e non fa nulla se il record non esiste.
      * </p>
      *
-     * <p>
-     * La strategia UPSERT implementata:
-     * </p>
-     * <ol>
-     * <li><strong>INSERT tentativo:</strong> Prova inserimento nuovo record</li>
-     * <li><strong>ON CONFLICT gestione:</strong> Se esiste già, aggiorna solo se slot è vuoto</li>
-     * <li><strong>RETURNING clausola:</strong> Restituisce stato finale per verifica</li>
-     * <li><strong>Fallback manuale:</strong> Se necessario, esegue aggiornamento esplicito</li>
-     * </ol>
-     *
-     * @param conn la connessione database attiva (deve essere in transazione)
-     * @param request la richiesta contenente i dati della nuova raccomandazione
-     * @return {@code true} se la creazione è completata con successo,
-     * {@code false} in caso di conflitti non risolti o errori SQL
-     *
-     * @throws SQLException se si verificano errori durante l'accesso al database
-     *
-     * @implNote Utilizza la clausola PostgreSQL specifica ON CONFLICT che potrebbe non essere
-     * portabile su altri database. La query RETURNING permette di verificare lo stato
-     * finale dell'operazione e gestire eventuali conflitti residui.
+     * @param conn la connessione, nella transazione della scrittura
+     * @param username l'utente
+     * @param targetBookIsbn l'ISBN del libro target
+     * @throws SQLException se il trasferimento fallisce
      */
-    private boolean createNewRecommendationWithUpsert(Connection conn, RecommendationRequest request) throws SQLException {
-        System.out.println("📝 Creazione nuovo record per utente: " + request.getUsername() + ", libro: " + request.getTargetBookIsbn());
-
-        // Usa INSERT ON CONFLICT per gestire eventuali race conditions
-        String upsertQuery = """
-        INSERT INTO advise (username, isbn, isbn1, isbn2, isbn3) 
-        VALUES (?, ?, ?, NULL, NULL) 
-        ON CONFLICT (username, isbn) 
-        DO UPDATE SET isbn1 = COALESCE(advise.isbn1, EXCLUDED.isbn1)
-        RETURNING id, isbn1, isbn2, isbn3
-        """;
-
-        try (PreparedStatement upsertStmt = conn.prepareStatement(upsertQuery)) {
-            upsertStmt.setString(1, request.getUsername());
-            upsertStmt.setString(2, request.getTargetBookIsbn());
-            upsertStmt.setString(3, request.getRecommendedBookIsbn());
-
-            ResultSet rs = upsertStmt.executeQuery();
-
-            if (rs.next()) {
-                Long recordId = rs.getLong("id");
-                String isbn1 = rs.getString("isbn1");
-                String isbn2 = rs.getString("isbn2");
-                String isbn3 = rs.getString("isbn3");
-
-                System.out.println("✅ Record creato/aggiornato con ID: " + recordId);
-                System.out.println("🔍 Stato finale: isbn1=" + isbn1 + ", isbn2=" + isbn2 + ", isbn3=" + isbn3);
-
-                // Se il primo slot non è quello che abbiamo appena inserito, potrebbe essere un conflitto
-                if (!request.getRecommendedBookIsbn().equals(isbn1)) {
-                    System.out.println("⚠️ Possibile conflitto rilevato, tento aggiornamento manuale");
-                    return updateExistingRecommendationWithId(conn, request, rs, recordId);
-                }
-
-                return true;
-            } else {
-                System.out.println("❌ Nessun record restituito dall'UPSERT");
-                return false;
+    private void migrateLegacyRecommendations(Connection conn, String username, String targetBookIsbn) throws SQLException {
+        String migrateQuery = """
+            WITH moved AS (
+                DELETE FROM advise WHERE username = ? AND isbn = ?
+                RETURNING username, isbn, isbn1, isbn2, isbn3
+            )
+            INSERT INTO recommendation_edges (username, target_isbn, recommended_isbn)
+            SELECT m.username, m.isbn, r.recommended_isbn
+            FROM moved m
+            CROSS JOIN LATERAL (VALUES (m.isbn1), (m.isbn2), (m.isbn3)) AS r(recommended_isbn)
+            WHERE r.recommended_isbn IS NOT NULL AND r.recommended_isbn <> ''
+            ON CONFLICT DO NOTHING
+            """;
+
+        try (PreparedStatement stmt = conn.prepareStatement(migrateQuery)) {
+            stmt.setString(1, username);
+            stmt.setString(2, targetBookIsbn);
+            int migrated = stmt.executeUpdate();
+            if (migrated > 0) {
+                System.out.println("🔀 Trasferite " + migrated + " raccomandazioni da advise per " + username + " / " + targetBookIsbn);
             }
         }
     }
@@ -530,16 +442,6 @@ public class RecommendationService {
      * sviluppo, testing e risoluzione di problemi in produzione.
      * </p>
      *
-     * <p>
-     * Le informazioni loggate includono:
-     * </p>
-     * <ul>
-     * <li>ID del record nel database</li>
-     * <li>Username e ISBN del libro target</li>
-     * <li>Stato di tutti e tre gli slot di raccomandazione (isbn1, isbn2, isbn3)</li>
-     * <li>Messaggi informativi se non esistono raccomandazioni</li>
-     * </ul>
-     *
      * @param username il nome utente per cui verificare lo stato delle raccomandazioni
      * @param targetBookIsbn l'ISBN del libro target per cui verificare le raccomandazioni
      *
@@ -548,35 +450,15 @@ public class RecommendationService {
      * del servizio.
      */
     private void debugRecommendationState(String username, String targetBookIsbn) {
-        String query = "SELECT id, isbn1, isbn2, isbn3 FROM advise WHERE username = ? AND isbn = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, username);
-            stmt.setString(2, targetBookIsbn);
-
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Long id = rs.getLong("id");
-                String isbn1 = rs.getString("isbn1");
-                String isbn2 = rs.getString("isbn2");
-                String isbn3 = rs.getString("isbn3");
-
-                System.out.println("🔍 DEBUG - Stato attuale raccomandazioni:");
-                System.out.println("   ID: " + id);
-                System.out.println("   Username: " + username);
-                System.out.println("   Target ISBN: " + targetBookIsbn);
-                System.out.println("   isbn1: " + isbn1);
-                System.out.println("   isbn2: " + isbn2);
-                System.out.println("   isbn3: " + isbn3);
-            } else {
-                System.out.println("🔍 DEBUG - Nessun record trovato per " + username + " / " + targetBookIsbn);
-            }
+        List<String> recommended = new ArrayList<>();
+        for (BookRecommendation rec : getUserRecommendationsForBook(username, targetBookIsbn)) {
+            recommended.add(rec.getRecommendedBookIsbn());
+        }
 
-        } catch (SQLException e) {
-            System.err.println("❌ Errore debug: " + e.getMessage());
+        if (recommended.isEmpty()) {
+            System.out.println("🔍 DEBUG - Nessuna raccomandazione trovata per " + username + " / " + targetBookIsbn);
+        } else {
+            System.out.println("🔍 DEBUG - Raccomandazioni di " + username + " per " + targetBookIsbn + ": " + recommended);
         }
     }
 
@@ -584,8 +466,8 @@ public class RecommendationService {
      * Conta il numero di raccomandazioni attive che un utente ha effettuato per un libro specifico.
      * <p>
      * Questo metodo è utilizzato per verificare il rispetto del limite massimo di raccomandazioni
-     * per libro per utente. Conta solo gli slot effettivamente occupati (non NULL) nel record
-     * dell'utente per il libro target specificato.
+     * per libro per utente. Conta le righe di {@code recommendation_edges} dell'utente per il
+     * libro target specificato.
      * </p>
      *
      * @param username il nome utente di cui contare le raccomandazioni
@@ -593,27 +475,23 @@ public class RecommendationService {
      * @return il numero di raccomandazioni attive (0-3), 0 se l'utente non ha mai
      * fatto raccomandazioni per questo libro o in caso di errori
      *
-     * @apiNote Il conteggio considera solo i campi isbn1, isbn2, isbn3 non NULL.
-     * Utilizzato per verificare il limite MAX_RECOMMENDATIONS_PER_BOOK prima
-     * di permettere nuove raccomandazioni.
+     * @apiNote Il conteggio è servito dalla chiave primaria {@code (username, target_isbn,
+     * recommended_isbn)}. Utilizzato per verificare il limite MAX_RECOMMENDATIONS_PER_BOOK
+     * prima di permettere nuove raccomandazioni.
      */
     public int getRecommendationsCountForUser(String username, String targetBookIsbn) {
-        String query = "SELECT isbn1, isbn2, isbn3 FROM advise WHERE username = ? AND isbn = ?";
+        String query = "SELECT COUNT(*) FROM " + edgeSource() + " WHERE username = ? AND target_isbn = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username);
             stmt.setString(2, targetBookIsbn);
 
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                int count = 0;
-                if (rs.getString("isbn1") != null) count++;
-                if (rs.getString("isbn2") != null) count++;
-                if (rs.getString("isbn3") != null) count++;
-                return count;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
             }
 
         } catch (SQLException e) {
@@ -635,7 +513,7 @@ public class RecommendationService {
      * Il calcolo include:
      * </p>
      * <ul>
-     * <li>Tutte le raccomandazioni attive dell'utente (slot non NULL)</li>
+     * <li>Tutte le raccomandazioni attive dell'utente (una riga per raccomandazione)</li>
      * <li>Raccomandazioni per qualsiasi libro target</li>
      * <li>Aggregazione tramite query SQL ottimizzata</li>
      * </ul>
@@ -652,25 +530,19 @@ public class RecommendationService {
     public int getUserRecommendationsCount(String username) {
         System.out.println("📊 Conteggio raccomandazioni per utente: " + username);
 
-        String query = """
-        SELECT 
-            SUM(CASE WHEN isbn1 IS NOT NULL THEN 1 ELSE 0 END) +
-            SUM(CASE WHEN isbn2 IS NOT NULL THEN 1 ELSE 0 END) +
-            SUM(CASE WHEN isbn3 IS NOT NULL THEN 1 ELSE 0 END) as total_recommendations
-        FROM advise 
-        WHERE username = ?
-    """;
+        String query = "SELECT COUNT(*) AS total_recommendations FROM " + edgeSource() + " WHERE username = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, username.toLowerCase().trim());
-            ResultSet rs = stmt.executeQuery();
 
-            if (rs.next()) {
-                int count = rs.getInt("total_recommendations");
-                System.out.println("✅ Raccomandazioni totali per " + username + ": " + count);
-                return count;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    int count = rs.getInt("total_recommendations");
+                    System.out.println("✅ Raccomandazioni totali per " + username + ": " + count);
+                    return count;
+                }
             }
 
         } catch (SQLException e) {
@@ -694,9 +566,8 @@ public class RecommendationService {
      * Il processo di recupero include:
      * </p>
      * <ol>
-     * <li>Query database per tutti i record con il libro target specificato</li>
-     * <li>Scansione di tutti e tre gli slot di raccomandazione per ogni record</li>
-     * <li>Creazione di oggetti BookRecommendation per ogni raccomandazione attiva</li>
+     * <li>Query indicizzata su {@code target_isbn} per tutte le raccomandazioni del libro</li>
+     * <li>Creazione di un oggetto BookRecommendation per ogni riga</li>
      * <li>Aggregazione in una lista unificata</li>
      * </ol>
      *
@@ -706,41 +577,45 @@ public class RecommendationService {
      *
      * @throws IllegalArgumentException se targetBookIsbn è null o vuoto
      *
-     * @apiNote Ogni slot non NULL genera un oggetto BookRecommendation separato, quindi
+     * @apiNote Ogni riga genera un oggetto BookRecommendation separato, quindi
      * un singolo utente può contribuire con fino a 3 raccomandazioni per libro.
      * I risultati non sono ordinati e potrebbero contenere duplicati se più utenti
      * raccomandano lo stesso libro.
      *
+     * @implNote Il risultato è memorizzato in {@link QueryCache} fino alla prossima aggiunta o
+     * rimozione di una raccomandazione per il libro; gli errori non vengono memorizzati. La
+     * lista può essere condivisa tra più richieste e non va modificata.
+     *
      * @see BookRecommendation
      * @see #createRecommendation(String, String, String)
      */
     public List<BookRecommendation> getRecommendationsForBook(String targetBookIsbn) {
+        List<BookRecommendation> recommendations = queryCache.get(QueryCache.Region.RECOMMENDATIONS, targetBookIsbn,
+                () -> queryRecommendationsForBook(targetBookIsbn));
+        return recommendations != null ? recommendations : new ArrayList<>();
+    }
+
+    /**
+     * Legge dal database le raccomandazioni ricevute da un libro.
+     *
+     * @param targetBookIsbn l'ISBN del libro target
+     * @return le raccomandazioni, o {@code null} in caso di errore del database
+     */
+    private List<BookRecommendation> queryRecommendationsForBook(String targetBookIsbn) {
         System.out.println("📚 Recupero raccomandazioni per libro: " + targetBookIsbn);
 
         List<BookRecommendation> recommendations = new ArrayList<>();
-        String query = "SELECT username, isbn1, isbn2, isbn3 FROM advise WHERE isbn = ?";
+        String query = "SELECT username, recommended_isbn FROM " + edgeSource() + " WHERE target_isbn = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, targetBookIsbn);
-            ResultSet rs = stmt.executeQuery();
 
-            while (rs.next()) {
-                String username = rs.getString("username");
-                String isbn1 = rs.getString("isbn1");
-                String isbn2 = rs.getString("isbn2");
-                String isbn3 = rs.getString("isbn3");
-
-                // Crea una raccomandazione per ogni ISBN non nullo
-                if (isbn1 != null) {
-                    recommendations.add(createRecommendation(username, targetBookIsbn, isbn1));
-                }
-                if (isbn2 != null) {
-                    recommendations.add(createRecommendation(username, targetBookIsbn, isbn2));
-                }
-                if (isbn3 != null) {
-                    recommendations.add(createRecommendation(username, targetBookIsbn, isbn3));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    recommendations.add(createRecommendation(rs.getString("username"), targetBookIsbn,
+                            rs.getString("recommended_isbn")));
                 }
             }
 
@@ -748,6 +623,7 @@ public class RecommendationService {
 
         } catch (SQLException e) {
             System.err.println("❌ Errore recupero raccomandazioni: " + e.getMessage());
+            return null;
         }
 
         return recommendations;
@@ -779,151 +655,92 @@ public class RecommendationService {
     }
 
     /**
-     * Rimuove una raccomandazione specifica e ricompatta i dati per mantenere consistenza.
+     * Rimuove una raccomandazione specifica.
      * <p>
-     * Questo metodo gestisce la rimozione di singole raccomandazioni implementando una
-     * logica di ricompattamento che mantiene tutti i valori rimanenti negli slot iniziali
-     * per ottimizzare lo spazio e mantenere consistenza nei dati.
+     * La rimozione è una singola {@code DELETE} sulla chiave primaria di
+     * {@code recommendation_edges}; durante il periodo di doppia lettura il record
+     * {@code advise} corrispondente viene prima trasferito nella nuova tabella, nella stessa
+     * transazione, così che la raccomandazione rimossa non ricompaia dalla tabella originale.
      * </p>
      *
-     * <p>
-     * Il processo di rimozione include:
-     * </p>
-     * <ol>
-     * <li><strong>Ricerca record:</strong> Localizza il record contenente la raccomandazione</li>
-     * <li><strong>Identificazione target:</strong> Trova quale slot contiene la raccomandazione da rimuovere</li>
-     * <li><strong>Ricompattamento:</strong> Sposta i valori rimanenti nei primi slot disponibili</li>
-     * <li><strong>Aggiornamento/Eliminazione:</strong> UPDATE record se rimangono raccomandazioni, DELETE se vuoto</li>
-     * </ol>
-     *
      * @param username il nome dell'utente proprietario della raccomandazione da rimuovere
      * @param targetBookIsbn l'ISBN del libro target da cui rimuovere la raccomandazione
      * @param recommendedBookIsbn l'ISBN del libro raccomandato da rimuovere
      * @return {@code true} se la raccomandazione è stata rimossa con successo,
      * {@code false} se non è stata trovata o si sono verificati errori
+     */
+    public boolean removeRecommendation(String username, String targetBookIsbn, String recommendedBookIsbn) {
+        coRecommendationGuard.readLock().lock();
+        try {
+            boolean removed = deleteRecommendationEdge(username, targetBookIsbn, recommendedBookIsbn);
+            CoRecommendationIndex index = coRecommendationIndex;
+            if (removed && index != null) {
+                index.remove(targetBookIsbn, recommendedBookIsbn);
+            }
+            if (removed) {
+                queryCache.invalidate(QueryCache.Region.RECOMMENDATIONS, targetBookIsbn);
+            }
+            return removed;
+        } finally {
+            coRecommendationGuard.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggiorna l'indice e la cache dopo l'eliminazione di un libro dal catalogo.
+     * <p>
+     * Le raccomandazioni in cui il libro compare, come target o come libro consigliato, sono
+     * già state eliminate dal database dal vincolo {@code ON DELETE CASCADE} di
+     * {@code recommendation_edges}. La rimozione dall'indice è idempotente, quindi non
+     * richiede di coordinarsi con un caricamento concorrente.
+     * </p>
      *
-     * @throws IllegalArgumentException se uno qualsiasi dei parametri è null o vuoto
+     * @param isbn l'ISBN del libro eliminato
+     */
+    public void onBookRemoved(String isbn) {
+        CoRecommendationIndex index = coRecommendationIndex;
+        if (index != null) {
+            index.removeBook(isbn);
+        }
+        // Il libro può comparire tra le raccomandazioni di qualunque altro libro
+        queryCache.invalidateAll(QueryCache.Region.RECOMMENDATIONS);
+    }
+
+    /**
+     * Elimina la riga di {@code recommendation_edges} della raccomandazione.
      *
-     * @apiNote La rimozione include ricompattamento automatico: se si rimuove isbn1,
-     * isbn2 diventa isbn1 e isbn3 diventa isbn2. Se tutte le raccomandazioni
-     * vengono rimosse, l'intero record viene eliminato dal database.
+     * @return {@code true} se la raccomandazione è stata trovata e rimossa
+     * @see #removeRecommendation(String, String, String)
      */
-    public boolean removeRecommendation(String username, String targetBookIsbn, String recommendedBookIsbn) {
+    private boolean deleteRecommendationEdge(String username, String targetBookIsbn, String recommendedBookIsbn) {
         System.out.println("🗑️ Rimozione raccomandazione: " + recommendedBookIsbn +
                 " per " + targetBookIsbn + " da " + username);
 
-        String selectQuery = "SELECT id, isbn1, isbn2, isbn3 FROM advise WHERE username = ? AND isbn = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement selectStmt = conn.prepareStatement(selectQuery)) {
+        String deleteQuery = "DELETE FROM recommendation_edges WHERE username = ? AND target_isbn = ? AND recommended_isbn = ?";
 
-            selectStmt.setString(1, username);
-            selectStmt.setString(2, targetBookIsbn);
-
-            ResultSet rs = selectStmt.executeQuery();
-
-            if (rs.next()) {
-                Long recordId = rs.getLong("id");
-                String isbn1 = rs.getString("isbn1");
-                String isbn2 = rs.getString("isbn2");
-                String isbn3 = rs.getString("isbn3");
-
-                System.out.println("🔍 Stato prima rimozione: isbn1=" + isbn1 + ", isbn2=" + isbn2 + ", isbn3=" + isbn3);
-
-                String newIsbn1 = null;
-                String newIsbn2 = null;
-                String newIsbn3 = null;
-
-                List<String> remainingRecommendations = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
 
-                if (isbn1 != null && !isbn1.equals(recommendedBookIsbn)) {
-                    remainingRecommendations.add(isbn1);
-                }
-                if (isbn2 != null && !isbn2.equals(recommendedBookIsbn)) {
-                    remainingRecommendations.add(isbn2);
-                }
-                if (isbn3 != null && !isbn3.equals(recommendedBookIsbn)) {
-                    remainingRecommendations.add(isbn3);
+            try (PreparedStatement stmt = conn.prepareStatement(deleteQuery)) {
+                if (dualRead) {
+                    migrateLegacyRecommendations(conn, username, targetBookIsbn);
                 }
 
-                // Se la raccomandazione non è stata trovata
-                int originalCount = 0;
-                if (isbn1 != null) originalCount++;
-                if (isbn2 != null) originalCount++;
-                if (isbn3 != null) originalCount++;
+                stmt.setString(1, username);
+                stmt.setString(2, targetBookIsbn);
+                stmt.setString(3, recommendedBookIsbn);
 
-                if (remainingRecommendations.size() == originalCount) {
-                    System.out.println("⚠️ Raccomandazione non trovata per rimozione");
-                    return false;
-                }
+                boolean deleted = stmt.executeUpdate() > 0;
+                conn.commit();
 
-                // Riassegna i valori ricompattati
-                if (remainingRecommendations.size() > 0) {
-                    newIsbn1 = remainingRecommendations.get(0);
-                }
-                if (remainingRecommendations.size() > 1) {
-                    newIsbn2 = remainingRecommendations.get(1);
-                }
-                if (remainingRecommendations.size() > 2) {
-                    newIsbn3 = remainingRecommendations.get(2);
-                }
+                System.out.println(deleted ? "✅ Raccomandazione rimossa" : "⚠️ Raccomandazione non trovata per rimozione");
+                return deleted;
 
-                System.out.println("🔄 Stato dopo ricompattamento: isbn1=" + newIsbn1 + ", isbn2=" + newIsbn2 + ", isbn3=" + newIsbn3);
-
-                // Se tutte le raccomandazioni sono state rimosse, elimina il record
-                if (remainingRecommendations.isEmpty()) {
-                    String deleteQuery = "DELETE FROM advise WHERE id = ?";
-                    try (PreparedStatement deleteStmt = conn.prepareStatement(deleteQuery)) {
-                        deleteStmt.setLong(1, recordId);
-                        int deleted = deleteStmt.executeUpdate();
-                        if (deleted > 0) {
-                            System.out.println("✅ Record completamente rimosso (nessuna raccomandazione rimanente)");
-                            return true;
-                        }
-                    }
-                } else {
-                    // Aggiorna il record con i valori ricompattati
-                    String updateQuery;
-                    if (newIsbn2 == null && newIsbn3 == null) {
-                        // Solo isbn1 rimane
-                        updateQuery = "UPDATE advise SET isbn1 = ?, isbn2 = NULL, isbn3 = NULL WHERE id = ?";
-                    } else if (newIsbn3 == null) {
-                        // isbn1 e isbn2 rimangono
-                        updateQuery = "UPDATE advise SET isbn1 = ?, isbn2 = ?, isbn3 = NULL WHERE id = ?";
-                    } else {
-                        // Tutti e tre rimangono
-                        updateQuery = "UPDATE advise SET isbn1 = ?, isbn2 = ?, isbn3 = ? WHERE id = ?";
-                    }
-
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
-                        updateStmt.setString(1, newIsbn1);
-
-                        if (newIsbn2 != null || newIsbn3 != null) {
-                            updateStmt.setString(2, newIsbn2);
-                        }
-
-                        if (newIsbn3 != null) {
-                            updateStmt.setString(3, newIsbn3);
-                            updateStmt.setLong(4, recordId);
-                        } else if (newIsbn2 != null) {
-                            updateStmt.setLong(3, recordId);
-                        } else {
-                            updateStmt.setLong(2, recordId);
-                        }
-
-                        int updated = updateStmt.executeUpdate();
-                        if (updated > 0) {
-                            System.out.println("✅ Raccomandazione rimossa e valori ricompattati");
-                            return true;
-                        } else {
-                            System.out.println("❌ Errore nell'aggiornamento del record");
-                            return false;
-                        }
-                    }
-                }
-            } else {
-                System.out.println("⚠️ Nessuna raccomandazione trovata per questo utente e libro");
-                return false;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
         } catch (SQLException e) {
@@ -931,8 +748,6 @@ public class RecommendationService {
             e.printStackTrace();
             return false;
         }
-
-        return false;
     }
 
     /**
@@ -951,29 +766,20 @@ public class RecommendationService {
      *
      * @throws IllegalArgumentException se username o targetBookIsbn sono null o vuoti
      *
-     * @apiNote I risultati sono sempre ordinati per slot (isbn1, isbn2, isbn3) e ogni
-     * slot non NULL genera un oggetto BookRecommendation separato.
+     * @apiNote I risultati sono ordinati per ISBN del libro raccomandato e ogni riga
+     * genera un oggetto BookRecommendation separato.
      */
     public List<BookRecommendation> getUserRecommendationsForBook(String username, String targetBookIsbn) {
         List<BookRecommendation> recommendations = new ArrayList<>();
-        String query = "SELECT isbn1, isbn2, isbn3 FROM advise WHERE username = ? AND isbn = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        String query = "SELECT recommended_isbn FROM " + edgeSource() +
+                " WHERE username = ? AND target_isbn = ? ORDER BY recommended_isbn";
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, username);
             stmt.setString(2, targetBookIsbn);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String isbn1 = rs.getString("isbn1");
-                String isbn2 = rs.getString("isbn2");
-                String isbn3 = rs.getString("isbn3");
-                if (isbn1 != null) {
-                    recommendations.add(createRecommendation(username, targetBookIsbn, isbn1));
-                }
-                if (isbn2 != null) {
-                    recommendations.add(createRecommendation(username, targetBookIsbn, isbn2));
-                }
-                if (isbn3 != null) {
-                    recommendations.add(createRecommendation(username, targetBookIsbn, isbn3));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    recommendations.add(createRecommendation(username, targetBookIsbn, rs.getString("recommended_isbn")));
                 }
             }
         } catch (SQLException e) {
@@ -995,10 +801,11 @@ public class RecommendationService {
      * Il processo di arricchimento include:
      * </p>
      * <ol>
-     * <li>Recupero di tutte le raccomandazioni per il libro target</li>
+     * <li>Recupero dei libri raccomandati per il libro target dall'indice in memoria, già
+     * ordinati per numero di utenti (con lettura dal database se l'indice non è disponibile)</li>
      * <li>Estrazione degli ISBN dei libri raccomandati</li>
-     * <li>Risoluzione di ogni ISBN in oggetto Book completo tramite BookService</li>
-     * <li>Filtraggio di libri non trovati o errori</li>
+     * <li>Risoluzione di tutti gli ISBN in oggetti Book completi con una sola chiamata a BookService</li>
+     * <li>Filtraggio di libri non trovati e di ISBN ripetuti</li>
      * </ol>
      *
      * @param targetBookIsbn l'ISBN del libro per cui recuperare i dettagli dei libri raccomandati
@@ -1011,30 +818,148 @@ public class RecommendationService {
      * o libri eliminati) vengono automaticamente filtrati dalla lista risultante.
      * Gli errori di risoluzione vengono loggati ma non interrompono l'elaborazione.
      *
-     * @see BookService#getBookByIsbn(String)
+     * @see BookService#getBooksByIsbns(List)
      * @see #getRecommendationsForBook(String)
      */
     public List<Book> getRecommendedBooksDetails(String targetBookIsbn) {
+        List<CoRecommendationIndex.Entry> ranking = getTopRecommendations(targetBookIsbn, Integer.MAX_VALUE);
+        if (ranking != null) {
+            List<String> isbns = new ArrayList<>(ranking.size());
+            for (CoRecommendationIndex.Entry entry : ranking) {
+                isbns.add(entry.getIsbn());
+            }
+            return bookService.getBooksByIsbns(isbns);
+        }
+
         List<BookRecommendation> recommendations = getRecommendationsForBook(targetBookIsbn);
-        List<Book> recommendedBooks = new ArrayList<>();
+        List<String> isbns = new ArrayList<>(recommendations.size());
         for (BookRecommendation rec : recommendations) {
-            try {
-                Book book = bookService.getBookByIsbn(rec.getRecommendedBookIsbn());
-                if (book != null) {
-                    recommendedBooks.add(book);
+            isbns.add(rec.getRecommendedBookIsbn());
+        }
+        return bookService.getBooksByIsbns(isbns);
+    }
+
+    /**
+     * Costruisce la risposta con tutte le raccomandazioni per un libro target.
+     * <p>
+     * La risposta include le raccomandazioni, i dettagli dei libri raccomandati e, se l'indice
+     * è disponibile, il numero di utenti che hanno consigliato ciascun libro.
+     * </p>
+     *
+     * @param targetBookIsbn l'ISBN del libro target
+     * @return la risposta con raccomandazioni e dettagli dei libri
+     * @see #getRecommendationsForBook(String)
+     * @see #getRecommendedBooksDetails(String)
+     */
+    public RecommendationResponse getBookRecommendations(String targetBookIsbn) {
+        List<BookRecommendation> recommendations = getRecommendationsForBook(targetBookIsbn);
+        List<Book> recommendedBooks = getRecommendedBooksDetails(targetBookIsbn);
+
+        System.out.println("Recuperate " + recommendations.size() + " raccomandazioni con " +
+                recommendedBooks.size() + " dettagli libri");
+
+        RecommendationResponse response = new RecommendationResponse(true, "Raccomandazioni recuperate con successo",
+                recommendations, recommendedBooks);
+        List<CoRecommendationIndex.Entry> ranking = getTopRecommendations(targetBookIsbn, MAX_TOP_RECOMMENDATIONS);
+        if (ranking != null) {
+            response.setRecommendationCounts(toCounts(ranking));
+        }
+        return response;
+    }
+
+    /**
+     * Converte una classifica nella mappa ISBN → numero di utenti, mantenendone l'ordine.
+     *
+     * @param ranking la classifica restituita da {@link #getTopRecommendations(String, int)}
+     * @return la mappa ISBN → numero di utenti
+     */
+    public static Map<String, Integer> toCounts(List<CoRecommendationIndex.Entry> ranking) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (CoRecommendationIndex.Entry entry : ranking) {
+            counts.put(entry.getIsbn(), entry.getCount());
+        }
+        return counts;
+    }
+
+    /**
+     * Restituisce i libri più consigliati insieme a un libro target, ordinati per numero di
+     * utenti distinti che li hanno raccomandati.
+     * <p>
+     * La classifica è letta dall'indice in memoria, aggiornato ad ogni
+     * {@link #addRecommendation(RecommendationRequest)} e
+     * {@link #removeRecommendation(String, String, String)}: la lettura non accede al database.
+     * </p>
+     *
+     * @param targetBookIsbn l'ISBN del libro target
+     * @param limit il numero massimo di libri
+     * @return i libri in ordine di classifica, o {@code null} se l'indice non è disponibile
+     * @see CoRecommendationIndex
+     */
+    public List<CoRecommendationIndex.Entry> getTopRecommendations(String targetBookIsbn, int limit) {
+        CoRecommendationIndex index = currentCoRecommendationIndex();
+        return index != null ? index.top(targetBookIsbn, limit) : null;
+    }
+
+    /**
+     * Restituisce l'indice delle raccomandazioni, caricandolo dal database al primo utilizzo.
+     * Un caricamento fallito non viene memorizzato e sarà ritentato alla richiesta successiva.
+     *
+     * @return l'indice, o {@code null} se il database non è accessibile
+     */
+    private CoRecommendationIndex currentCoRecommendationIndex() {
+        CoRecommendationIndex current = coRecommendationIndex;
+        if (current == null) {
+            synchronized (coRecommendationLock) {
+                current = coRecommendationIndex;
+                if (current == null) {
+                    coRecommendationGuard.writeLock().lock();
+                    try {
+                        current = loadCoRecommendationIndex();
+                        coRecommendationIndex = current;
+                    } finally {
+                        coRecommendationGuard.writeLock().unlock();
+                    }
                 }
-            } catch (Exception e) {
-                System.err.println("⚠️ Errore recupero dettagli libro " + rec.getRecommendedBookIsbn() + ": " + e.getMessage());
             }
         }
-        return recommendedBooks;
+        return current;
+    }
+
+    /**
+     * Costruisce l'indice con un'unica aggregazione che conta gli utenti per ogni coppia
+     * (libro target, libro consigliato). Ogni riga è unica per utente e coppia, quindi il
+     * numero di righe coincide con il numero di utenti distinti.
+     *
+     * @return l'indice, o {@code null} in caso di errore del database
+     */
+    private CoRecommendationIndex loadCoRecommendationIndex() {
+        String query = "SELECT target_isbn, recommended_isbn, COUNT(*) AS users FROM " + edgeSource() +
+                " GROUP BY target_isbn, recommended_isbn";
+
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+
+            CoRecommendationIndex loaded = new CoRecommendationIndex();
+            while (rs.next()) {
+                loaded.put(rs.getString("target_isbn"), rs.getString("recommended_isbn"), rs.getInt("users"));
+            }
+            loaded.publishAll();
+
+            System.out.println("🔗 Indice raccomandazioni caricato: " + loaded.size() + " libri");
+            return loaded;
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore caricamento indice raccomandazioni: " + e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Verifica lo stato di connessione al database.
      * <p>
-     * Questo metodo tenta di stabilire una connessione al database utilizzando i parametri
-     * di configurazione predefiniti (DB_URL, DB_USER, DB_PASSWORD). Viene utilizzato
+     * Questo metodo tenta di ottenere una connessione dal pool condiviso ({@link DataSource}).
+     * Viene utilizzato
      * principalmente per controlli di salute del servizio e per garantire che il sistema
      * sia operativo prima di tentare altre operazioni.
      * </p>
@@ -1042,11 +967,11 @@ public class RecommendationService {
      * @return {@code true} se la connessione al database ha successo,
      * {@code false} in caso di qualsiasi errore SQL che impedisca la connessione.
      *
-     * @apiNote La connessione viene immediatamente chiusa dopo il test, quindi non
-     * mantiene risorse aperte.
+     * @apiNote La connessione viene restituita al pool immediatamente dopo il test, quindi
+     * non mantiene risorse occupate.
      */
     public boolean isDatabaseAvailable() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
             return true;
         } catch (SQLException e) {
             return false;
@@ -1056,55 +981,39 @@ public class RecommendationService {
     /**
      * Calcola e restituisce una stringa formattata con le statistiche sulle raccomandazioni.
      * <p>
-     * Questo metodo esegue due query aggregate sul database per ottenere metriche di alto livello
-     * sull'uso del sistema di raccomandazioni. Le statistiche includono il numero totale di
-     * record nella tabella 'advise' e il conteggio di tutte le raccomandazioni effettivamente
-     * attive (ovvero, gli slot non nulli).
+     * Questo metodo esegue un'unica query aggregata sul database per ottenere metriche di alto
+     * livello sull'uso del sistema di raccomandazioni. Le statistiche includono il numero di
+     * record, cioè le coppie distinte (utente, libro target), e il numero di raccomandazioni
+     * attive, cioè le righe di {@code recommendation_edges}.
      * </p>
      *
      * <p>
      * Il risultato viene formattato in una stringa di testo che mostra:
      * </p>
      * <ul>
-     * <li>Il numero totale di record (righe) nella tabella.</li>
-     * <li>Il numero totale di raccomandazioni attive (valori non nulli).</li>
+     * <li>Il numero totale di record (coppie utente, libro target).</li>
+     * <li>Il numero totale di raccomandazioni attive.</li>
      * <li>La media di raccomandazioni per record (calcolata solo se ci sono record).</li>
      * </ul>
      *
      * @return una {@code String} contenente le statistiche formattate. In caso di errore SQL,
      * restituisce una stringa di errore descrittiva.
      *
-     * @implNote Le query utilizzano funzioni aggregate SQL (COUNT e SUM con CASE) per calcoli
-     * efficienti a livello di database.
+     * @implNote Entrambi i conteggi sono aggregati semplici calcolati in una sola lettura.
      */
     public String getRecommendationStats() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-
-            // Conta record totali
-            String countQuery = "SELECT COUNT(*) as total_records FROM advise";
-            int totalRecords = 0;
+        String query = "SELECT COUNT(DISTINCT (username, target_isbn)) AS total_records, " +
+                "COUNT(*) AS active_recommendations FROM " + edgeSource();
 
-            try (PreparedStatement stmt = conn.prepareStatement(countQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    totalRecords = rs.getInt("total_records");
-                }
-            }
-
-            // Conta raccomandazioni attive
-            String activeQuery = "SELECT " +
-                    "SUM(CASE WHEN isbn1 IS NOT NULL THEN 1 ELSE 0 END) + " +
-                    "SUM(CASE WHEN isbn2 IS NOT NULL THEN 1 ELSE 0 END) + " +
-                    "SUM(CASE WHEN isbn3 IS NOT NULL THEN 1 ELSE 0 END) as active_recommendations " +
-                    "FROM advise";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
 
+            int totalRecords = 0;
             int activeRecommendations = 0;
-
-            try (PreparedStatement stmt = conn.prepareStatement(activeQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    activeRecommendations = rs.getInt("active_recommendations");
-                }
+            if (rs.next()) {
+                totalRecords = rs.getInt("total_records");
+                activeRecommendations = rs.getInt("active_recommendations");
             }
 
             return String.format(
@@ -1122,6 +1031,17 @@ public class RecommendationService {
         }
     }
 
+    /**
+     * Restituisce la tabella o vista da cui leggere le raccomandazioni: durante il periodo di
+     * doppia lettura la vista che unisce {@code recommendation_edges} e {@code advise}.
+     *
+     * @return il nome della relazione, con colonne {@code username}, {@code target_isbn} e
+     * {@code recommended_isbn}
+     */
+    private String edgeSource() {
+        return dualRead ? "recommendation_edges_compat" : "recommendation_edges";
+    }
+
     /**
      * Restituisce il limite massimo di raccomandazioni per libro per utente.
      * <p>
@@ -0,0 +1,29 @@
+package org.BABO.server.service;
+
+import java.io.IOException;
+
+/**
+ * Destinatario delle righe prodotte dalle letture in streaming dei servizi.
+ * <p>
+ * I metodi {@code stream*} dei servizi consegnano ogni riga letta dal database a un
+ * {@code RowSink} non appena viene mappata, senza accumularla in una lista. Tipicamente
+ * il destinatario scrive la riga direttamente nella risposta HTTP; per questo può
+ * sollevare {@link IOException}, che interrompe la lettura.
+ * </p>
+ *
+ * @param <T> il tipo delle righe consegnate
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface RowSink<T> {
+
+    /**
+     * Riceve una riga letta dal database.
+     *
+     * @param row la riga mappata
+     * @throws IOException se la scrittura della riga fallisce
+     */
+    void accept(T row) throws IOException;
+}
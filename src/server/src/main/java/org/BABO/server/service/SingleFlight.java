@@ -0,0 +1,144 @@
+package org.BABO.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Accorpa le letture identiche e concorrenti in un'unica esecuzione.
+ * <p>
+ * La prima richiesta di una chiave esegue il calcolo nel proprio thread; le richieste della
+ * stessa chiave che arrivano mentre il calcolo è in corso non interrogano il database ma ne
+ * attendono il risultato. Terminato il calcolo la chiave viene liberata, e la richiesta
+ * successiva esegue un nuovo calcolo: il risultato non viene memorizzato. Quando si apre un
+ * libro molto richiesto, o scade una voce di {@link QueryCache}, il database riceve così una
+ * query per libro invece di una per richiesta.
+ * </p>
+ *
+ * <h3>Errori:</h3>
+ * <p>
+ * Un'eccezione del calcolo viene rilanciata a tutte le richieste in attesa. Una richiesta che
+ * attende più di {@code babo.single-flight.timeout-ms} millisecondi riceve una
+ * {@link IllegalStateException}, mentre il calcolo prosegue per le altre.
+ * </p>
+ *
+ * <h3>Metriche:</h3>
+ * <p>
+ * Per ogni gruppo di chiavi sono esposti su {@code /actuator/metrics}, con il tag {@code group},
+ * i calcoli eseguiti ({@code babo.single.flight.executions}), le richieste accorpate a un calcolo
+ * in corso ({@code babo.single.flight.deduplicated}) e le attese scadute
+ * ({@code babo.single.flight.timeouts}).
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see QueryCache
+ */
+@Service
+public class SingleFlight {
+
+    /** Registro delle metriche esposte su {@code /actuator/metrics} */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Tempo massimo di attesa di un calcolo in corso */
+    @Value("${babo.single-flight.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    /** Calcoli in corso, per gruppo e chiave */
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /** Contatori di ciascun gruppo, creati al primo utilizzo */
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Contatori di un gruppo di chiavi.
+     */
+    private static final class Meters {
+        private final Counter executions;
+        private final Counter deduplicated;
+        private final Counter timeouts;
+
+        private Meters(MeterRegistry registry, String group) {
+            this.executions = registry.counter("babo.single.flight.executions", "group", group);
+            this.deduplicated = registry.counter("babo.single.flight.deduplicated", "group", group);
+            this.timeouts = registry.counter("babo.single.flight.timeouts", "group", group);
+        }
+    }
+
+    /**
+     * Esegue {@code loader} o, se per la stessa chiave è già in corso un calcolo, ne attende
+     * il risultato.
+     * <p>
+     * Il risultato può essere condiviso tra più richieste e non va modificato.
+     * </p>
+     *
+     * @param group il gruppo della chiave, usato anche come tag delle metriche
+     * @param key la chiave, anche composta con {@link QueryCache#key(Object...)}
+     * @param loader calcola il risultato
+     * @param <V> il tipo del risultato
+     * @return il risultato, anche {@code null}
+     * @throws IllegalStateException se l'attesa del calcolo in corso scade o viene interrotta
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String group, Object key, Supplier<V> loader) {
+        Meters groupMeters = meters.computeIfAbsent(group, g -> new Meters(meterRegistry, g));
+        Object flightKey = Arrays.asList(group, key);
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            groupMeters.deduplicated.increment();
+            return (V) await(running, groupMeters, group, key);
+        }
+
+        groupMeters.executions.increment();
+        try {
+            V result = loader.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * Attende il calcolo in corso, rilanciandone l'eventuale eccezione.
+     */
+    private Object await(CompletableFuture<Object> running, Meters groupMeters, String group, Object key) {
+        try {
+            return running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            groupMeters.timeouts.increment();
+            System.err.println("⏱️ Attesa scaduta per " + group + " " + key + " dopo " + timeoutMillis + " ms");
+            throw new IllegalStateException("Attesa del calcolo in corso scaduta per " + group + " " + key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attesa del calcolo in corso interrotta per " + group + " " + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.BABO.server.service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Esecuzione di query di sola lettura con cursore lato server.
+ * <p>
+ * Il driver PostgreSQL carica in memoria l'intero risultato di una query, a meno che la
+ * connessione non sia fuori da autocommit e lo statement non abbia un {@code fetchSize}:
+ * in quel caso usa un cursore e legge le righe a blocchi di {@link #FETCH_SIZE}. Questa
+ * classe applica entrambe le condizioni e consegna le righe una alla volta a un
+ * {@link RowSink}, così che la memoria usata non dipenda dalla dimensione della tabella.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class StreamingQuery {
+
+    /** Numero di righe lette dal database per ogni blocco del cursore */
+    static final int FETCH_SIZE = 500;
+
+    /**
+     * Converte la riga corrente di un {@link ResultSet} in un oggetto.
+     *
+     * @param <T> il tipo dell'oggetto prodotto
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private StreamingQuery() {
+    }
+
+    /**
+     * Esegue la query e consegna ogni riga al destinatario indicato.
+     *
+     * @param dataSource il pool da cui ottenere la connessione
+     * @param sql la query da eseguire (senza parametri)
+     * @param mapper la conversione da riga a oggetto
+     * @param sink il destinatario delle righe
+     * @param <T> il tipo delle righe
+     * @return il numero di righe consegnate
+     * @throws SQLException se la query fallisce
+     * @throws IOException se il destinatario fallisce
+     */
+    static <T> int stream(DataSource dataSource, String sql, RowMapper<T> mapper, RowSink<T> sink)
+            throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(FETCH_SIZE);
+
+                int count = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        sink.accept(mapper.map(rs));
+                        count++;
+                    }
+                }
+                conn.commit();
+                return count;
+
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.BABO.server.service;
 
 import org.BABO.shared.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,11 +56,11 @@ import java.util.List;
  * </ul>
  *
  * <h3>Configurazione Database:</h3>
- * <pre>{@code
- * URL: jdbc:postgresql://localhost:5432/DataProva
- * User: postgres
- * Password: postgress
- * }</pre>
+ * <p>
+ * Le connessioni sono ottenute dal {@link DataSource} condiviso (pool HikariCP) configurato
+ * in {@code application.properties}; URL e credenziali sono esternalizzati tramite le
+ * variabili {@code BABO_DB_URL}, {@code BABO_DB_USER} e {@code BABO_DB_PASSWORD}.
+ * </p>
  *
  * <h3>Amministratori Sistema:</h3>
  * <p>
@@ -138,14 +140,9 @@ import java.util.List;
 @Service
 public class UserService {
 
-    /** URL di connessione al database PostgreSQL */
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/DataProva";
-
-    /** Username per l'autenticazione database */
-    private static final String DB_USER = "postgres";
-
-    /** Password per l'autenticazione database */
-    private static final String DB_PASSWORD = "postgress";
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
 
     /**
      * Autentica un utente utilizzando email e password con verifica hash sicura.
@@ -185,7 +182,7 @@ public class UserService {
         String query = "SELECT * FROM users WHERE email = ? AND password = ?";
         String hashedPassword = hashPassword(password);
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, email.toLowerCase().trim());
@@ -278,7 +275,7 @@ public class UserService {
         String query = "INSERT INTO users (name, surname, cf, email, username, password) VALUES (?, ?, ?, ?, ?, ?) RETURNING *";
         String hashedPassword = hashPassword(password);
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, name.trim());
@@ -337,7 +334,7 @@ public class UserService {
     public boolean userExists(String email, String username) {
         String query = "SELECT COUNT(*) FROM users WHERE email = ? OR username = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, email.toLowerCase().trim());
@@ -376,7 +373,7 @@ public class UserService {
     public User getUserById(String userId) {
         String query = "SELECT * FROM users WHERE id = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setLong(1, Long.parseLong(userId)); // Converte String a Long per il DB
@@ -421,7 +418,7 @@ public class UserService {
     public User getUserByEmail(String email) {
         String query = "SELECT * FROM users WHERE email = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, email.toLowerCase().trim());
@@ -478,7 +475,7 @@ public class UserService {
     public User updateUserProfile(String userId, String name, String surname, String cf) {
         String query = "UPDATE users SET name = ?, surname = ?, cf = ? WHERE id = ? RETURNING *";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, name.trim());
@@ -549,7 +546,7 @@ public class UserService {
         String hashedOldPassword = hashPassword(oldPassword);
         String hashedNewPassword = hashPassword(newPassword);
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
 
             // Verifica password attuale
             try (PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
@@ -669,7 +666,7 @@ public class UserService {
         String query = "UPDATE users SET password = ? WHERE email = ?";
         String hashedNewPassword = hashPassword(newPassword);
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, hashedNewPassword);
@@ -743,7 +740,7 @@ public class UserService {
     public boolean updateUserEmail(String userId, String newEmail) {
         String query = "UPDATE users SET email = ? WHERE id = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             stmt.setString(1, newEmail.toLowerCase().trim());
@@ -848,7 +845,7 @@ public class UserService {
         ORDER BY id DESC
     """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             ResultSet rs = stmt.executeQuery();
@@ -900,6 +897,35 @@ public class UserService {
         return users;
     }
 
+    /**
+     * Legge tutti gli utenti registrati consegnandoli uno alla volta al destinatario indicato.
+     * <p>
+     * Versione in streaming di {@link #getAllUsers()} per i pannelli amministrativi: le righe
+     * vengono lette con un cursore lato server e non vengono accumulate in una lista, né
+     * registrate singolarmente nel log.
+     * </p>
+     *
+     * @param sink il destinatario degli utenti, ordinati per ID decrescente
+     * @return il numero di utenti consegnati
+     * @throws SQLException se la lettura dal database fallisce
+     * @throws java.io.IOException se il destinatario fallisce
+     */
+    public int streamAllUsers(RowSink<User> sink) throws SQLException, java.io.IOException {
+        String query = "SELECT id, name, surname, cf, email, username FROM users ORDER BY id DESC";
+
+        int count = StreamingQuery.stream(dataSource, query, rs -> new User(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5),
+                rs.getString(6)
+        ), sink);
+
+        System.out.println("✅ Inviati in streaming " + count + " utenti");
+        return count;
+    }
+
     /**
      * Elimina definitivamente un utente dal sistema.
      * <p>
@@ -946,7 +972,7 @@ public class UserService {
 
         String query = "DELETE FROM users WHERE id = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
             long userIdLong;
@@ -991,7 +1017,7 @@ public class UserService {
      *          e diagnostica di sistema.
      */
     public boolean isDatabaseAvailable() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = dataSource.getConnection()) {
             return true;
         } catch (SQLException e) {
             return false;
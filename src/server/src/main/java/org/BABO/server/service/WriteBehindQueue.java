@@ -0,0 +1,457 @@
+package org.BABO.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coda di scrittura differita che raggruppa le modifiche di librerie e valutazioni in batch.
+ * <p>
+ * Le modifiche inviate dai servizi vengono accodate e applicate da un unico thread: le
+ * modifiche arrivate entro {@code babo.write-behind.max-delay-ms} dalla prima, fino a
+ * {@code babo.write-behind.max-batch-size}, sono eseguite in una sola transazione. Le istruzioni
+ * consecutive con lo stesso SQL vengono inviate come batch JDBC. Sotto carico (import, molti
+ * utenti che salvano insieme) il costo di connessione e commit viene così diviso tra tutte le
+ * modifiche del batch.
+ * </p>
+ *
+ * <h3>Durabilità:</h3>
+ * <p>
+ * Ogni modifica restituisce un {@link CompletableFuture} completato solo dopo il commit della
+ * transazione che la contiene: chi attende il risultato risponde al client quando la modifica
+ * è già salvata. Se la transazione di un batch fallisce, le sue modifiche vengono ripetute una
+ * alla volta, così che un errore di una sola non faccia fallire le altre.
+ * </p>
+ *
+ * <h3>Metriche:</h3>
+ * <ul>
+ * <li>{@code babo.write.behind.batch.size}: modifiche per batch</li>
+ * <li>{@code babo.write.behind.flush}: durata di un batch, dalla connessione al commit</li>
+ * <li>{@code babo.write.behind.latency}: attesa di una modifica dall'accodamento al commit</li>
+ * <li>{@code babo.write.behind.fallbacks}: batch ripetuti una modifica alla volta</li>
+ * <li>{@code babo.write.behind.queue}: modifiche in coda</li>
+ * </ul>
+ *
+ * <p>
+ * La coda è disattivata per default ({@code babo.write-behind.enabled=false}): in quel caso i
+ * servizi eseguono le scritture direttamente.
+ * </p>
+ *
+ * @author BABO Development Team
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see LibraryService
+ * @see RatingService
+ */
+@Service
+public class WriteBehindQueue {
+
+    /** Pool di connessioni condiviso, configurato in {@code application.properties} */
+    @Autowired
+    private DataSource dataSource;
+
+    /** Registro delle metriche esposte su {@code /actuator/metrics} */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Abilita la scrittura differita */
+    @Value("${babo.write-behind.enabled:false}")
+    private boolean enabled;
+
+    /** Modifiche massime per batch */
+    @Value("${babo.write-behind.max-batch-size:200}")
+    private int maxBatchSize;
+
+    /** Attesa massima di altre modifiche dopo la prima di un batch */
+    @Value("${babo.write-behind.max-delay-ms:5}")
+    private long maxDelayMillis;
+
+    /** Modifiche massime in coda */
+    @Value("${babo.write-behind.capacity:10000}")
+    private int capacity;
+
+    /** Attesa massima di un posto libero quando la coda è piena */
+    @Value("${babo.write-behind.offer-timeout-ms:1000}")
+    private long offerTimeoutMillis;
+
+    private BlockingQueue<Pending<?>> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private DistributionSummary batchSizes;
+    private Timer flushTimer;
+    private Timer latencyTimer;
+    private Counter fallbacks;
+
+    /**
+     * Modifica eseguita dalla coda su una connessione in transazione.
+     *
+     * @param <T> il risultato della modifica
+     */
+    public interface Mutation<T> {
+
+        /**
+         * Esegue la modifica. Non deve confermare né annullare la transazione.
+         *
+         * @param conn la connessione della transazione del batch
+         * @return il risultato, consegnato dopo il commit
+         * @throws SQLException se la modifica fallisce
+         */
+        T execute(Connection conn) throws SQLException;
+
+        /**
+         * Chiamato, dallo stesso thread, alla fine di ogni transazione in cui la modifica è
+         * stata eseguita.
+         *
+         * @param committed {@code true} se la transazione è stata confermata
+         */
+        default void afterCompletion(boolean committed) {
+        }
+    }
+
+    /**
+     * Istruzione SQL con parametri; istruzioni consecutive con lo stesso SQL vengono inviate
+     * come un unico batch JDBC. Il risultato è il numero di righe modificate.
+     */
+    public static final class StatementMutation implements Mutation<Integer> {
+        private final String sql;
+        private final Object[] params;
+
+        /**
+         * @param sql l'istruzione
+         * @param params i parametri, nell'ordine dei segnaposto
+         */
+        public StatementMutation(String sql, Object... params) {
+            this.sql = sql;
+            this.params = params;
+        }
+
+        @Override
+        public Integer execute(Connection conn) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bind(stmt);
+                return stmt.executeUpdate();
+            }
+        }
+
+        private void bind(PreparedStatement stmt) throws SQLException {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+        }
+    }
+
+    /** Modifica in coda con il suo future */
+    private static final class Pending<T> {
+        private final Mutation<T> mutation;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        private boolean executed;
+        private T result;
+
+        Pending(Mutation<T> mutation) {
+            this.mutation = mutation;
+        }
+
+        void execute(Connection conn) throws SQLException {
+            executed = true;
+            result = mutation.execute(conn);
+        }
+
+        @SuppressWarnings("unchecked")
+        void executed(int updateCount) {
+            executed = true;
+            result = (T) Integer.valueOf(updateCount);
+        }
+
+        void finish(boolean committed) {
+            if (executed) {
+                executed = false;
+                try {
+                    mutation.afterCompletion(committed);
+                } catch (RuntimeException e) {
+                    System.err.println("❌ Errore al termine di una scrittura differita: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Avvia il thread della coda, se la scrittura differita è abilitata.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(capacity);
+        batchSizes = DistributionSummary.builder("babo.write.behind.batch.size")
+                .description("Modifiche per batch della scrittura differita")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("babo.write.behind.flush")
+                .description("Durata di un batch della scrittura differita")
+                .register(meterRegistry);
+        latencyTimer = Timer.builder("babo.write.behind.latency")
+                .description("Attesa di una modifica dall'accodamento al commit")
+                .register(meterRegistry);
+        fallbacks = meterRegistry.counter("babo.write.behind.fallbacks");
+        meterRegistry.gauge("babo.write.behind.queue", queue, BlockingQueue::size);
+
+        running = true;
+        flusher = new Thread(this::run, "babo-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        System.out.println("✅ Scrittura differita attiva: batch fino a " + maxBatchSize + " modifiche, attesa "
+                + maxDelayMillis + " ms");
+    }
+
+    /**
+     * Ferma il thread della coda dopo aver applicato le modifiche ancora in coda.
+     */
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return {@code true} se la scrittura differita è abilitata
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accoda una modifica.
+     *
+     * @param mutation la modifica
+     * @param <T> il risultato della modifica
+     * @return il future completato dopo il commit, o in errore se la modifica fallisce o la
+     * coda è piena
+     */
+    public <T> CompletableFuture<T> submit(Mutation<T> mutation) {
+        Pending<T> pending = new Pending<>(mutation);
+        if (!running) {
+            pending.future.completeExceptionally(new SQLException("Scrittura differita non attiva"));
+            return pending.future;
+        }
+
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                pending.future.completeExceptionally(new SQLException("Coda di scrittura piena"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(new SQLException("Accodamento interrotto", e));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Accoda una modifica e ne attende il commit.
+     *
+     * @param mutation la modifica
+     * @param <T> il risultato della modifica
+     * @return il risultato della modifica
+     * @throws SQLException se la modifica fallisce, la coda è piena o l'attesa viene interrotta
+     */
+    public <T> T execute(Mutation<T> mutation) throws SQLException {
+        try {
+            return submit(mutation).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Scrittura differita fallita: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attesa della scrittura interrotta", e);
+        }
+    }
+
+    /**
+     * Ciclo del thread della coda: raccoglie un batch e lo applica, fino all'arresto e allo
+     * svuotamento della coda.
+     */
+    private void run() {
+        List<Pending<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+
+            } catch (InterruptedException e) {
+                // il batch raccolto viene comunque applicato
+                flush(batch);
+            } catch (RuntimeException e) {
+                System.err.println("❌ Errore nella scrittura differita: " + e.getMessage());
+                for (Pending<?> pending : batch) {
+                    if (!pending.future.isDone()) {
+                        pending.finish(false);
+                        pending.future.completeExceptionally(e);
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Applica un batch in una transazione; se fallisce, ripete le modifiche una alla volta.
+     * <p>
+     * Qualunque errore di una modifica, anche non SQL, annulla la transazione e chiama
+     * {@link Mutation#afterCompletion(boolean)} prima di completare il future: le modifiche che
+     * tengono risorse fino alla fine della transazione (ad esempio un lock) le rilasciano sempre.
+     * </p>
+     */
+    private void flush(List<Pending<?>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        batchSizes.record(batch.size());
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try {
+                    executeAll(conn, batch);
+                    conn.commit();
+                    complete(batch);
+                    return;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    for (Pending<?> pending : batch) {
+                        pending.finish(false);
+                    }
+                    if (batch.size() == 1) {
+                        batch.get(0).future.completeExceptionally(e);
+                        return;
+                    }
+                    fallbacks.increment();
+                    System.err.println("⚠️ Batch di " + batch.size() + " scritture fallito, ripetizione singola: "
+                            + e.getMessage());
+                }
+
+                for (Pending<?> pending : batch) {
+                    List<Pending<?>> single = List.of(pending);
+                    try {
+                        executeAll(conn, single);
+                        conn.commit();
+                        complete(single);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        pending.finish(false);
+                        pending.future.completeExceptionally(e);
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("❌ Errore connessione scrittura differita: " + e.getMessage());
+            for (Pending<?> pending : batch) {
+                if (!pending.future.isDone()) {
+                    pending.finish(false);
+                    pending.future.completeExceptionally(e);
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Esegue le modifiche in ordine, inviando come batch JDBC le istruzioni consecutive con lo
+     * stesso SQL.
+     */
+    private static void executeAll(Connection conn, List<Pending<?>> batch) throws SQLException {
+        int i = 0;
+        while (i < batch.size()) {
+            Pending<?> pending = batch.get(i);
+            if (!(pending.mutation instanceof StatementMutation statement)) {
+                pending.execute(conn);
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < batch.size() && batch.get(end).mutation instanceof StatementMutation next
+                    && next.sql.equals(statement.sql)) {
+                end++;
+            }
+            if (end - i == 1) {
+                pending.execute(conn);
+                i++;
+                continue;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(statement.sql)) {
+                for (int j = i; j < end; j++) {
+                    ((StatementMutation) batch.get(j).mutation).bind(stmt);
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                for (int j = i; j < end; j++) {
+                    batch.get(j).executed(counts[j - i]);
+                }
+            }
+            i = end;
+        }
+    }
+
+    /** Completa le modifiche di una transazione confermata */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void complete(List<Pending<?>> committed) {
+        long now = System.nanoTime();
+        for (Pending pending : committed) {
+            pending.finish(true);
+            latencyTimer.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+            pending.future.complete(pending.result);
+        }
+    }
+}
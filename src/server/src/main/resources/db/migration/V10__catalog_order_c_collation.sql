@@ -0,0 +1,9 @@
+-- Paginazione a cursore con lo stesso ordinamento dell'istantanea del catalogo: titolo e ISBN
+-- per byte (collation "C"), indipendente dalla collation del database.
+CREATE INDEX IF NOT EXISTS idx_books_title_isbn_c ON books (books_title COLLATE "C", isbn COLLATE "C");
+CREATE INDEX IF NOT EXISTS idx_books_category_title_isbn_c
+    ON books (LOWER(TRIM(category)), books_title COLLATE "C", isbn COLLATE "C");
+
+-- Indici di V2, con la collation del database: non più usati dalle query.
+DROP INDEX IF EXISTS idx_books_title_isbn;
+DROP INDEX IF EXISTS idx_books_category_title_isbn;
@@ -0,0 +1,4 @@
+-- ID stabili dei libri: assegnati una sola volta e mai più modificati, così che l'ID
+-- esposto dalle API identifichi lo stesso libro tra richieste e sessioni diverse.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS book_id BIGSERIAL;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_books_book_id ON books (book_id);
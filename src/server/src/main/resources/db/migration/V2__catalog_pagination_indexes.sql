@@ -0,0 +1,3 @@
+-- Paginazione a cursore del catalogo amministrativo e delle categorie (query keyset).
+CREATE INDEX IF NOT EXISTS idx_books_title_isbn ON books (books_title, isbn);
+CREATE INDEX IF NOT EXISTS idx_books_category_title_isbn ON books (LOWER(TRIM(category)), books_title, isbn);
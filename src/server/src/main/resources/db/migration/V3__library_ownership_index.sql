@@ -0,0 +1,2 @@
+-- Verifica di possesso di un libro (EXISTS su username e isbn), che abilita le raccomandazioni.
+CREATE INDEX IF NOT EXISTS idx_library_books_username_isbn ON library_books (username, isbn);
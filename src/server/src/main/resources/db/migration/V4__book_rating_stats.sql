@@ -0,0 +1,17 @@
+-- Aggregati delle valutazioni: una riga per libro, mantenuta da RatingService nella stessa
+-- transazione di ogni scrittura su assessment e riallineata ad ogni avvio.
+CREATE TABLE IF NOT EXISTS book_rating_stats (
+    isbn VARCHAR PRIMARY KEY,
+    rating_count INTEGER NOT NULL DEFAULT 0,
+    sum_average DOUBLE PRECISION NOT NULL DEFAULT 0,
+    sum_style BIGINT NOT NULL DEFAULT 0,
+    sum_content BIGINT NOT NULL DEFAULT 0,
+    sum_pleasantness BIGINT NOT NULL DEFAULT 0,
+    sum_originality BIGINT NOT NULL DEFAULT 0,
+    sum_edition BIGINT NOT NULL DEFAULT 0,
+    stars_1 INTEGER NOT NULL DEFAULT 0,
+    stars_2 INTEGER NOT NULL DEFAULT 0,
+    stars_3 INTEGER NOT NULL DEFAULT 0,
+    stars_4 INTEGER NOT NULL DEFAULT 0,
+    stars_5 INTEGER NOT NULL DEFAULT 0
+);
@@ -0,0 +1,20 @@
+-- Raccomandazioni normalizzate: una riga per raccomandazione al posto degli slot isbn1..isbn3
+-- di advise. La chiave primaria serve le letture per utente, l'indice quelle per libro.
+CREATE TABLE IF NOT EXISTS recommendation_edges (
+    username VARCHAR NOT NULL,
+    target_isbn VARCHAR NOT NULL,
+    recommended_isbn VARCHAR NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (username, target_isbn, recommended_isbn)
+);
+CREATE INDEX IF NOT EXISTS idx_recommendation_edges_target ON recommendation_edges (target_isbn, recommended_isbn);
+
+-- Periodo di doppia lettura: unione della nuova tabella con i record di advise.
+CREATE INDEX IF NOT EXISTS idx_advise_isbn ON advise (isbn);
+CREATE OR REPLACE VIEW recommendation_edges_compat AS
+SELECT username, target_isbn, recommended_isbn FROM recommendation_edges
+UNION
+SELECT a.username, a.isbn, r.recommended_isbn
+FROM advise a
+CROSS JOIN LATERAL (VALUES (a.isbn1), (a.isbn2), (a.isbn3)) AS r(recommended_isbn)
+WHERE r.recommended_isbn IS NOT NULL AND r.recommended_isbn <> '';
@@ -0,0 +1,13 @@
+-- Indici delle query dei servizi non coperti dalle chiavi primarie del dump.
+
+-- Valutazioni di un libro (WHERE isbn = ? ORDER BY data DESC) e aggregati per libro.
+CREATE INDEX IF NOT EXISTS idx_assessment_isbn_data ON assessment (isbn, data DESC);
+
+-- Valutazioni di un utente in ordine cronologico (WHERE username = ? ORDER BY data DESC).
+CREATE INDEX IF NOT EXISTS idx_assessment_username_data ON assessment (username, data DESC);
+
+-- Valutazioni più recenti e conteggio degli ultimi 30 giorni.
+CREATE INDEX IF NOT EXISTS idx_assessment_data ON assessment (data DESC);
+
+-- Librerie di un utente (WHERE username = ? ORDER BY created_at DESC).
+CREATE INDEX IF NOT EXISTS idx_user_libraries_username_created ON user_libraries (username, created_at DESC);
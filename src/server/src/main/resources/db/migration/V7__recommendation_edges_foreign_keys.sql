@@ -0,0 +1,18 @@
+-- Chiavi esterne di recommendation_edges verso books, come quelle di advise: eliminare un libro
+-- elimina le raccomandazioni in cui compare, come target o come libro consigliato.
+
+-- Raccomandazioni di libri già eliminati, rimaste senza vincolo.
+DELETE FROM recommendation_edges e
+WHERE NOT EXISTS (SELECT 1 FROM books b WHERE b.isbn = e.target_isbn)
+   OR NOT EXISTS (SELECT 1 FROM books b WHERE b.isbn = e.recommended_isbn);
+
+ALTER TABLE recommendation_edges
+    ADD CONSTRAINT recommendation_edges_target_isbn_fkey
+    FOREIGN KEY (target_isbn) REFERENCES books (isbn) ON DELETE CASCADE;
+
+ALTER TABLE recommendation_edges
+    ADD CONSTRAINT recommendation_edges_recommended_isbn_fkey
+    FOREIGN KEY (recommended_isbn) REFERENCES books (isbn) ON DELETE CASCADE;
+
+-- Il vincolo su recommended_isbn richiede un indice per le eliminazioni a cascata.
+CREATE INDEX IF NOT EXISTS idx_recommendation_edges_recommended ON recommendation_edges (recommended_isbn);
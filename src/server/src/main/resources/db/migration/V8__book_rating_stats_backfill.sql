@@ -0,0 +1,34 @@
+-- Riallineamento unico di book_rating_stats con assessment. Da qui in avanti gli aggregati sono
+-- mantenuti solo da RatingService, nella stessa transazione di ogni scrittura su assessment.
+
+-- Blocca le scritture su assessment fino al commit della migrazione: le istanze che stanno
+-- aggiornando gli aggregati terminano prima della lettura, le altre attendono la fine.
+LOCK TABLE assessment IN SHARE MODE;
+
+INSERT INTO book_rating_stats (isbn, rating_count, sum_average, sum_style, sum_content,
+                               sum_pleasantness, sum_originality, sum_edition,
+                               stars_1, stars_2, stars_3, stars_4, stars_5)
+SELECT isbn, COUNT(*), SUM(average), SUM(style), SUM(content),
+       SUM(pleasantness), SUM(originality), SUM(edition),
+       COUNT(*) FILTER (WHERE FLOOR(average + 0.5) = 1),
+       COUNT(*) FILTER (WHERE FLOOR(average + 0.5) = 2),
+       COUNT(*) FILTER (WHERE FLOOR(average + 0.5) = 3),
+       COUNT(*) FILTER (WHERE FLOOR(average + 0.5) = 4),
+       COUNT(*) FILTER (WHERE FLOOR(average + 0.5) = 5)
+FROM assessment
+GROUP BY isbn
+ON CONFLICT (isbn) DO UPDATE SET
+    rating_count = EXCLUDED.rating_count,
+    sum_average = EXCLUDED.sum_average,
+    sum_style = EXCLUDED.sum_style,
+    sum_content = EXCLUDED.sum_content,
+    sum_pleasantness = EXCLUDED.sum_pleasantness,
+    sum_originality = EXCLUDED.sum_originality,
+    sum_edition = EXCLUDED.sum_edition,
+    stars_1 = EXCLUDED.stars_1,
+    stars_2 = EXCLUDED.stars_2,
+    stars_3 = EXCLUDED.stars_3,
+    stars_4 = EXCLUDED.stars_4,
+    stars_5 = EXCLUDED.stars_5;
+
+DELETE FROM book_rating_stats s WHERE NOT EXISTS (SELECT 1 FROM assessment a WHERE a.isbn = s.isbn);
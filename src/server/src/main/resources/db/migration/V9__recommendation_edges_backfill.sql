@@ -0,0 +1,9 @@
+-- Copia unica dei record di advise in recommendation_edges. I record scritti in advise dopo
+-- la copia, da versioni precedenti del server, restano visibili tramite la vista
+-- recommendation_edges_compat e vengono trasferiti alla prima scrittura dell'utente sul libro.
+INSERT INTO recommendation_edges (username, target_isbn, recommended_isbn)
+SELECT a.username, a.isbn, r.recommended_isbn
+FROM advise a
+CROSS JOIN LATERAL (VALUES (a.isbn1), (a.isbn2), (a.isbn3)) AS r(recommended_isbn)
+WHERE r.recommended_isbn IS NOT NULL AND r.recommended_isbn <> ''
+ON CONFLICT DO NOTHING;
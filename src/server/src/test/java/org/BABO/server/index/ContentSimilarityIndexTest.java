@@ -0,0 +1,115 @@
+package org.BABO.server.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test dei vicini TF-IDF calcolati da {@link ContentSimilarityIndex}.
+ */
+class ContentSimilarityIndexTest {
+
+    private final ForkJoinPool serial = new ForkJoinPool(1);
+    private final ForkJoinPool parallel = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        serial.shutdownNow();
+        parallel.shutdownNow();
+    }
+
+    private static ContentSimilarityIndex.Builder catalogue() {
+        ContentSimilarityIndex.Builder builder = new ContentSimilarityIndex.Builder();
+        builder.add("hobbit", "J.R.R. Tolkien", "Fantasy",
+                "Un hobbit parte con i nani verso la montagna del drago per recuperare il tesoro");
+        builder.add("anelli", "J.R.R. Tolkien", "Fantasy",
+                "Un hobbit deve distruggere l'anello del potere prima che Sauron conquisti la Terra di Mezzo");
+        builder.add("silmarillion", "J.R.R. Tolkien", "Fantasy",
+                "Le leggende della Terra di Mezzo e la guerra degli elfi per i gioielli di Fëanor");
+        builder.add("drago", "Christopher Paolini", "Fantasy",
+                "Un ragazzo trova l'uovo di un drago e diventa cavaliere");
+        builder.add("roma", "Mary Beard", "Storia",
+                "La storia di Roma antica dalla fondazione all'impero, tra senato e legioni");
+        builder.add("impero", "Edward Gibbon", "Storia",
+                "Il declino e la caduta dell'impero romano, dalle legioni al senato");
+        builder.add("rinascimento", "Jacob Burckhardt", "Storia",
+                "La civiltà del Rinascimento in Italia, tra signorie, arte e umanesimo");
+        builder.add("cucina", "Pellegrino Artusi", "Cucina",
+                "La scienza in cucina e l'arte di mangiar bene, ricette della tradizione");
+        return builder;
+    }
+
+    private static String describe(ContentSimilarityIndex index, String isbn) {
+        StringBuilder text = new StringBuilder();
+        for (ContentSimilarityIndex.Entry entry : index.similar(isbn, 10)) {
+            text.append(entry.getIsbn()).append('=').append(entry.getScore()).append(' ');
+        }
+        return text.toString();
+    }
+
+    @Test
+    void neighboursAreDeterministicAcrossBuildsAndParallelism() {
+        ContentSimilarityIndex first = catalogue().build(3, serial);
+        ContentSimilarityIndex second = catalogue().build(3, serial);
+        ContentSimilarityIndex concurrent = catalogue().build(3, parallel);
+
+        for (String isbn : List.of("hobbit", "anelli", "silmarillion", "drago", "roma", "impero", "rinascimento", "cucina")) {
+            assertThat(describe(second, isbn)).as(isbn).isEqualTo(describe(first, isbn));
+            assertThat(describe(concurrent, isbn)).as(isbn).isEqualTo(describe(first, isbn));
+        }
+    }
+
+    @Test
+    void ranksBooksSharingTermsFirst() {
+        ContentSimilarityIndex index = catalogue().build(3, serial);
+
+        List<ContentSimilarityIndex.Entry> hobbit = index.similar("hobbit", 3);
+        assertThat(hobbit).hasSize(3);
+        assertThat(hobbit.get(0).getIsbn()).isEqualTo("anelli");
+        assertThat(hobbit).extracting(ContentSimilarityIndex.Entry::getIsbn).doesNotContain("roma", "impero", "cucina");
+        assertThat(hobbit).extracting(ContentSimilarityIndex.Entry::getScore).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+
+        assertThat(index.similar("roma", 1)).extracting(ContentSimilarityIndex.Entry::getIsbn).containsExactly("impero");
+        assertThat(index.similar("hobbit", 1)).hasSize(1);
+        assertThat(index.similar("sconosciuto", 3)).isEmpty();
+    }
+
+    @Test
+    void scoresAreCosinesBetweenZeroAndOne() {
+        ContentSimilarityIndex index = catalogue().build(5, serial);
+
+        for (String isbn : List.of("hobbit", "roma", "cucina")) {
+            for (ContentSimilarityIndex.Entry entry : index.similar(isbn, 5)) {
+                assertThat(entry.getScore()).isGreaterThan(0.0).isLessThanOrEqualTo(1.0 + 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void removeDropsTheBookFromOtherLists() {
+        ContentSimilarityIndex index = catalogue().build(3, serial);
+
+        index.remove("anelli");
+
+        assertThat(index.size()).isEqualTo(7);
+        assertThat(index.similar("anelli", 3)).isEmpty();
+        for (String isbn : List.of("hobbit", "silmarillion", "drago")) {
+            assertThat(index.similar(isbn, 3)).extracting(ContentSimilarityIndex.Entry::getIsbn).doesNotContain("anelli");
+        }
+    }
+
+    @Test
+    void upsertAddsTheBookToItsNeighbours() {
+        ContentSimilarityIndex index = catalogue().build(3, serial);
+
+        index.upsert("caduta", "Edward Gibbon", "Storia",
+                "Il declino dell'impero romano, il senato e le legioni ai confini");
+
+        assertThat(index.similar("caduta", 1)).extracting(ContentSimilarityIndex.Entry::getIsbn).containsExactly("impero");
+        assertThat(index.similar("impero", 3)).extracting(ContentSimilarityIndex.Entry::getIsbn).contains("caduta");
+    }
+}
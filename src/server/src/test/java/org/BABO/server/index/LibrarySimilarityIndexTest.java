@@ -0,0 +1,122 @@
+package org.BABO.server.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Test delle stime MinHash e della selezione dei candidati LSH di {@link LibrarySimilarityIndex}.
+ */
+class LibrarySimilarityIndexTest {
+
+    /** Scarto ammesso sulla stima di Jaccard: circa tre deviazioni standard con 128 funzioni hash */
+    private static final double TOLERANCE = 0.13;
+
+    /**
+     * Registra gli utenti {@code prefix + from} ... {@code prefix + (to - 1)} come possessori del libro.
+     */
+    private static void own(LibrarySimilarityIndex.Builder builder, String isbn, String prefix, int from, int to) {
+        for (int u = from; u < to; u++) {
+            builder.add(isbn, prefix + u);
+        }
+    }
+
+    private static Optional<Double> similarity(LibrarySimilarityIndex index, String isbn, String other) {
+        return index.similar(isbn, Integer.MAX_VALUE).stream()
+                .filter(entry -> entry.getIsbn().equals(other))
+                .map(LibrarySimilarityIndex.Entry::getSimilarity)
+                .findFirst();
+    }
+
+    @Test
+    void estimatesKnownJaccardWithinTolerance() {
+        // Bande da due righe: le coppie con Jaccard >= 1/3 diventano candidate quasi sempre
+        LibrarySimilarityIndex.Builder builder = new LibrarySimilarityIndex.Builder(128, 64);
+        own(builder, "A", "u", 0, 100);
+        own(builder, "B", "u", 0, 50);      // A ∩ B = 50, A ∪ B = 150 → 1/3
+        own(builder, "B", "v", 0, 50);
+        own(builder, "C", "u", 0, 80);      // A ∩ C = 80, A ∪ C = 120 → 2/3
+        own(builder, "C", "w", 0, 20);
+
+        LibrarySimilarityIndex index = builder.build(10, 0.05, 1, 100);
+
+        assertThat(similarity(index, "A", "B")).hasValueSatisfying(s -> assertThat(s).isCloseTo(1.0 / 3, within(TOLERANCE)));
+        assertThat(similarity(index, "A", "C")).hasValueSatisfying(s -> assertThat(s).isCloseTo(2.0 / 3, within(TOLERANCE)));
+        assertThat(similarity(index, "B", "A")).isEqualTo(similarity(index, "A", "B"));
+        assertThat(index.similar("A", 10)).extracting(LibrarySimilarityIndex.Entry::getIsbn).startsWith("C", "B");
+    }
+
+    @Test
+    void identicalOwnersAreExactAndDisjointOwnersAreNotReported() {
+        LibrarySimilarityIndex.Builder builder = new LibrarySimilarityIndex.Builder(128, 64);
+        own(builder, "A", "u", 0, 40);
+        own(builder, "A2", "u", 0, 40);
+        own(builder, "Z", "z", 0, 40);
+
+        LibrarySimilarityIndex index = builder.build(10, 0.1, 1, 100);
+
+        assertThat(similarity(index, "A", "A2")).contains(1.0);
+        assertThat(similarity(index, "A", "Z")).isEmpty();
+        assertThat(index.similar("Z", 10)).isEmpty();
+    }
+
+    @Test
+    void candidatesMustMatchAWholeBand() {
+        // Una sola banda: sono candidati solo i libri con firma identica
+        LibrarySimilarityIndex.Builder builder = new LibrarySimilarityIndex.Builder(64, 1);
+        own(builder, "A", "u", 0, 40);
+        own(builder, "A2", "u", 0, 40);
+        own(builder, "B", "u", 0, 20);      // Jaccard 0.5 con A
+        own(builder, "B", "v", 0, 20);
+
+        LibrarySimilarityIndex index = builder.build(10, 0.0, 1, 100);
+
+        assertThat(index.similar("A", 10)).extracting(LibrarySimilarityIndex.Entry::getIsbn).containsExactly("A2");
+        assertThat(index.similar("B", 10)).isEmpty();
+    }
+
+    @Test
+    void skipsBucketsLargerThanTheCap() {
+        LibrarySimilarityIndex.Builder builder = new LibrarySimilarityIndex.Builder(32, 8);
+        for (int book = 0; book < 5; book++) {
+            own(builder, "B" + book, "u", 0, 30);
+        }
+
+        LibrarySimilarityIndex capped = builder.build(10, 0.0, 1, 4);
+        LibrarySimilarityIndex uncapped = builder.build(10, 0.0, 1, 5);
+
+        assertThat(capped.size()).isZero();
+        assertThat(uncapped.size()).isEqualTo(5);
+        assertThat(uncapped.similar("B0", 10)).hasSize(4);
+    }
+
+    @Test
+    void keepsTopKAndSkipsBooksWithFewOwners() {
+        LibrarySimilarityIndex.Builder builder = new LibrarySimilarityIndex.Builder(32, 8);
+        for (int book = 0; book < 6; book++) {
+            own(builder, "B" + book, "u", 0, 30);
+        }
+        own(builder, "RARE", "u", 0, 2);
+
+        LibrarySimilarityIndex index = builder.build(3, 0.0, 5, 100);
+
+        assertThat(index.getIndexedBooks()).isEqualTo(6);
+        assertThat(index.similar("RARE", 10)).isEmpty();
+        List<LibrarySimilarityIndex.Entry> top = index.similar("B0", 10);
+        assertThat(top).hasSize(3);
+        assertThat(index.similar("B0", 2)).hasSize(2);
+        // A parità di similarità l'ordine è per ISBN
+        assertThat(top).extracting(LibrarySimilarityIndex.Entry::getIsbn).containsExactly("B1", "B2", "B3");
+    }
+
+    @Test
+    void rejectsBandsThatDoNotDivideTheSignature() {
+        assertThatThrownBy(() -> new LibrarySimilarityIndex.Builder(10, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
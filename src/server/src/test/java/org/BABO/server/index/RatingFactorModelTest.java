@@ -0,0 +1,141 @@
+package org.BABO.server.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Test dell'addestramento e della persistenza di {@link RatingFactorModel}.
+ */
+class RatingFactorModelTest {
+
+    /** Un solo thread: con il seme fisso l'addestramento è riproducibile */
+    private final ForkJoinPool pool = new ForkJoinPool(1);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Due gruppi di utenti con gusti opposti su due gruppi di libri. A ogni utente manca la
+     * valutazione di un libro del proprio gruppo ({@code f3} o {@code s3}).
+     */
+    private static List<Object[]> syntheticRatings() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int u = 0; u < 6; u++) {
+            boolean fantasyReader = u < 3;
+            String user = (fantasyReader ? "fantasy" : "storia") + u;
+            for (int b = 0; b < 3; b++) {
+                int fantasyVote = fantasyReader ? 5 : 1;
+                int historyVote = fantasyReader ? 1 : 5;
+                rows.add(new Object[] { user, "f" + b, new int[] { fantasyVote, fantasyVote, fantasyVote, fantasyVote, 4 } });
+                rows.add(new Object[] { user, "s" + b, new int[] { historyVote, historyVote, historyVote, historyVote, 4 } });
+            }
+        }
+        // I libri f3 e s3 sono valutati solo da un utente diverso, coerente con il proprio gruppo
+        rows.add(new Object[] { "fantasy9", "f3", new int[] { 5, 5, 5, 5, 4 } });
+        rows.add(new Object[] { "fantasy9", "f0", new int[] { 5, 5, 5, 5, 4 } });
+        rows.add(new Object[] { "fantasy9", "s0", new int[] { 1, 1, 1, 1, 4 } });
+        rows.add(new Object[] { "storia9", "s3", new int[] { 5, 5, 5, 5, 4 } });
+        rows.add(new Object[] { "storia9", "s0", new int[] { 5, 5, 5, 5, 4 } });
+        rows.add(new Object[] { "storia9", "f0", new int[] { 1, 1, 1, 1, 4 } });
+        return rows;
+    }
+
+    private static RatingFactorModel.Trainer synthetic() {
+        RatingFactorModel.Trainer trainer = new RatingFactorModel.Trainer();
+        for (Object[] row : syntheticRatings()) {
+            trainer.add((String) row[0], (String) row[1], (int[]) row[2]);
+        }
+        return trainer;
+    }
+
+    /**
+     * Errore quadratico medio della stima più semplice: la media di ciascuna dimensione.
+     */
+    private static double meanOnlyRmse(List<Object[]> rows) {
+        double[] means = new double[RatingFactorModel.DIMENSIONS];
+        for (Object[] row : rows) {
+            int[] values = (int[]) row[2];
+            for (int d = 0; d < means.length; d++) {
+                means[d] += (double) values[d] / rows.size();
+            }
+        }
+        double squared = 0.0;
+        for (Object[] row : rows) {
+            int[] values = (int[]) row[2];
+            for (int d = 0; d < means.length; d++) {
+                squared += (values[d] - means[d]) * (values[d] - means[d]);
+            }
+        }
+        return Math.sqrt(squared / (rows.size() * means.length));
+    }
+
+    private RatingFactorModel train(RatingFactorModel.Trainer trainer, int epochs) {
+        return trainer.train(4, epochs, 0.05f, 0.01f, 30_000, pool);
+    }
+
+    @Test
+    void trainingReducesRmse() {
+        RatingFactorModel.Trainer trainer = synthetic();
+
+        RatingFactorModel oneEpoch = train(trainer, 1);
+        RatingFactorModel trained = train(trainer, 200);
+
+        assertThat(oneEpoch.getEpochs()).isEqualTo(1);
+        assertThat(trained.getEpochs()).isEqualTo(200);
+        assertThat(trained.getUpdates()).isEqualTo(200L * trainer.size());
+        assertThat(trained.getRmse()).isLessThan(oneEpoch.getRmse() / 2);
+        assertThat(trained.getRmse()).isLessThan(meanOnlyRmse(syntheticRatings()) / 2);
+    }
+
+    @Test
+    void recommendsUnratedBooksOfTheUsersTaste() {
+        RatingFactorModel model = train(synthetic(), 200);
+
+        List<RatingFactorModel.Entry> fantasy = model.recommend("fantasy0", 1, Set.of("f0", "f1", "f2", "s0", "s1", "s2"));
+        List<RatingFactorModel.Entry> history = model.recommend("storia4", 1, Set.of("f0", "f1", "f2", "s0", "s1", "s2"));
+
+        assertThat(fantasy).extracting(RatingFactorModel.Entry::getIsbn).containsExactly("f3");
+        assertThat(history).extracting(RatingFactorModel.Entry::getIsbn).containsExactly("s3");
+        assertThat(model.recommend("sconosciuto", 3, Set.of())).isEmpty();
+        assertThat(model.recommend("fantasy0", 0, Set.of())).isEmpty();
+    }
+
+    @Test
+    void savedModelLoadsWithTheSameRecommendations(@TempDir Path dir) throws Exception {
+        RatingFactorModel model = train(synthetic(), 50);
+        Path file = dir.resolve("model.bin");
+
+        model.save(file);
+        RatingFactorModel loaded = RatingFactorModel.load(file);
+
+        assertThat(loaded.getUserCount()).isEqualTo(model.getUserCount());
+        assertThat(loaded.getBookCount()).isEqualTo(model.getBookCount());
+        assertThat(loaded.getRmse()).isEqualTo(model.getRmse());
+        List<RatingFactorModel.Entry> expected = model.recommend("storia3", 8, Set.of());
+        List<RatingFactorModel.Entry> actual = loaded.recommend("storia3", 8, Set.of());
+        assertThat(actual).extracting(RatingFactorModel.Entry::getIsbn)
+                .containsExactlyElementsOf(expected.stream().map(RatingFactorModel.Entry::getIsbn).toList());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getScore()).isCloseTo(expected.get(i).getScore(), within(1e-6));
+        }
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThatThrownBy(() -> synthetic().train(0, 10, 0.05f, 0.01f, 1000, pool))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
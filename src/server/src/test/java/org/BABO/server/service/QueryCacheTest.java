@@ -0,0 +1,137 @@
+package org.BABO.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test della coerenza tra invalidazioni e calcoli in corso di {@link QueryCache}.
+ */
+class QueryCacheTest {
+
+    private static final QueryCache.Region REGION = QueryCache.Region.RATING_STATS;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private QueryCache cache(boolean enabled) {
+        SingleFlight singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "meterRegistry", registry);
+        ReflectionTestUtils.setField(singleFlight, "timeoutMillis", 5000L);
+
+        QueryCache cache = new QueryCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", registry);
+        ReflectionTestUtils.setField(cache, "singleFlight", singleFlight);
+        ReflectionTestUtils.setField(cache, "enabled", enabled);
+        for (String field : new String[] { "categoryMaxWeight", "ratingStatsMaxWeight", "recommendationsMaxWeight" }) {
+            ReflectionTestUtils.setField(cache, field, 1000L);
+        }
+        for (String field : new String[] { "categoryTtlMillis", "ratingStatsTtlMillis", "recommendationsTtlMillis" }) {
+            ReflectionTestUtils.setField(cache, field, 60_000L);
+        }
+        cache.start();
+        return cache;
+    }
+
+    /**
+     * Avvia in un altro thread una lettura il cui calcolo resta in corso fino a {@code release}.
+     */
+    private Future<String> blockedLoad(QueryCache cache, String result, CountDownLatch started, CountDownLatch release) {
+        return executor.submit(() -> cache.get(REGION, "k", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void callerAfterInvalidateDoesNotReceiveTheOldFlight(boolean enabled) throws Exception {
+        QueryCache cache = cache(enabled);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> old = blockedLoad(cache, "vecchio", started, release);
+        started.await();
+
+        cache.invalidate(REGION, "k");
+        String fresh = cache.get(REGION, "k", () -> "nuovo");
+        release.countDown();
+
+        assertThat(fresh).isEqualTo("nuovo");
+        assertThat(old.get(5, TimeUnit.SECONDS)).isEqualTo("vecchio");
+        if (enabled) {
+            // Il calcolo precedente, terminato dopo, non sostituisce il risultato più recente
+            assertThat(cache.get(REGION, "k", () -> "ricalcolato")).isEqualTo("nuovo");
+        }
+    }
+
+    @Test
+    void resultOfAFlightStartedBeforeInvalidateIsNotCached() throws Exception {
+        QueryCache cache = cache(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> old = blockedLoad(cache, "vecchio", started, release);
+        started.await();
+        cache.invalidateAll(REGION);
+        release.countDown();
+
+        assertThat(old.get(5, TimeUnit.SECONDS)).isEqualTo("vecchio");
+        assertThat(cache.get(REGION, "k", () -> "nuovo")).isEqualTo("nuovo");
+    }
+
+    @Test
+    void cachesUntilInvalidated() {
+        QueryCache cache = cache(true);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get(REGION, "k", () -> "v" + loads.incrementAndGet())).isEqualTo("v1");
+        assertThat(cache.get(REGION, "k", () -> "v" + loads.incrementAndGet())).isEqualTo("v1");
+
+        cache.invalidate(REGION, "k");
+        assertThat(cache.get(REGION, "k", () -> "v" + loads.incrementAndGet())).isEqualTo("v2");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidationIsPerRegion() {
+        QueryCache cache = cache(true);
+        cache.get(REGION, "k", () -> "statistiche");
+        cache.get(QueryCache.Region.CATEGORY, "k", () -> "categoria");
+
+        cache.invalidateAll(QueryCache.Region.CATEGORY);
+
+        assertThat(cache.get(REGION, "k", () -> "ricalcolato")).isEqualTo("statistiche");
+        assertThat(cache.get(QueryCache.Region.CATEGORY, "k", () -> "ricalcolata")).isEqualTo("ricalcolata");
+    }
+
+    @Test
+    void nullResultsAreNotCached() {
+        QueryCache cache = cache(true);
+
+        assertThat(cache.get(REGION, "k", () -> (String) null)).isNull();
+        assertThat(cache.get(REGION, "k", () -> "valore")).isEqualTo("valore");
+    }
+}
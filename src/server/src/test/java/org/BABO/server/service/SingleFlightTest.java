@@ -0,0 +1,157 @@
+package org.BABO.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test dell'accorpamento delle letture concorrenti di {@link SingleFlight}.
+ */
+class SingleFlightTest {
+
+    private static final String GROUP = "test";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "meterRegistry", registry);
+        ReflectionTestUtils.setField(singleFlight, "timeoutMillis", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double counter(String name) {
+        return registry.counter(name, "group", GROUP).count();
+    }
+
+    /**
+     * Avvia in un altro thread un calcolo che resta in corso fino a {@code release}.
+     */
+    private Future<String> blockedFlight(Object key, String result, CountDownLatch started, CountDownLatch release) {
+        return executor.submit(() -> singleFlight.execute(GROUP, key, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Attende che {@code count} richieste si siano accodate a un calcolo in corso.
+     */
+    private void awaitDeduplicated(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter("babo.single.flight.deduplicated") < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger secondLoads = new AtomicInteger();
+
+        Future<String> first = blockedFlight("k", "risultato", started, release);
+        started.await();
+        Future<String> second = executor.submit(() -> singleFlight.execute(GROUP, "k", () -> {
+            secondLoads.incrementAndGet();
+            return "altro";
+        }));
+        awaitDeduplicated(1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("risultato");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("risultato");
+        assertThat(secondLoads).hasValue(0);
+        assertThat(counter("babo.single.flight.executions")).isEqualTo(1.0);
+        assertThat(counter("babo.single.flight.deduplicated")).isEqualTo(1.0);
+    }
+
+    @Test
+    void resultIsNotMemoized() {
+        assertThat(singleFlight.execute(GROUP, "k", () -> "primo")).isEqualTo("primo");
+        assertThat(singleFlight.execute(GROUP, "k", () -> "secondo")).isEqualTo("secondo");
+        assertThat(counter("babo.single.flight.executions")).isEqualTo(2.0);
+    }
+
+    @Test
+    void failureIsRethrownToWaiters() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = executor.submit(() -> singleFlight.execute(GROUP, "k", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalArgumentException("calcolo fallito");
+        }));
+        started.await();
+        Future<String> second = executor.submit(() -> singleFlight.execute(GROUP, "k", () -> "altro"));
+        awaitDeduplicated(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(singleFlight.execute(GROUP, "k", () -> "dopo")).isEqualTo("dopo");
+    }
+
+    @Test
+    void waiterTimesOutWhileTheFlightContinues() throws Exception {
+        ReflectionTestUtils.setField(singleFlight, "timeoutMillis", 50L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = blockedFlight("k", "risultato", started, release);
+        started.await();
+
+        assertThatThrownBy(() -> singleFlight.execute(GROUP, "k", () -> "altro"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(counter("babo.single.flight.timeouts")).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("risultato");
+    }
+
+    @Test
+    void differentGroupsDoNotShareFlights() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = blockedFlight("k", "risultato", started, release);
+        started.await();
+
+        assertThat(singleFlight.execute("altro-gruppo", "k", () -> "indipendente")).isEqualTo("indipendente");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("risultato");
+    }
+}
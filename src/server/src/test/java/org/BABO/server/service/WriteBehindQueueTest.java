@@ -0,0 +1,107 @@
+package org.BABO.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test della gestione degli errori di {@link WriteBehindQueue}.
+ */
+class WriteBehindQueueTest {
+
+    private final ReadWriteLock guard = new ReentrantReadWriteLock();
+    private Connection connection;
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = mock(Connection.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        queue = new WriteBehindQueue();
+        ReflectionTestUtils.setField(queue, "dataSource", dataSource);
+        ReflectionTestUtils.setField(queue, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(queue, "maxDelayMillis", 50L);
+        ReflectionTestUtils.setField(queue, "capacity", 100);
+        ReflectionTestUtils.setField(queue, "offerTimeoutMillis", 1000L);
+        queue.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    /**
+     * Modifica che, come la scrittura delle valutazioni, tiene il lock in lettura dall'esecuzione
+     * alla fine della transazione.
+     */
+    private WriteBehindQueue.Mutation<Integer> guarded(boolean fail) {
+        return new WriteBehindQueue.Mutation<>() {
+            @Override
+            public Integer execute(Connection conn) {
+                guard.readLock().lock();
+                if (fail) {
+                    throw new IllegalStateException("modifica non valida");
+                }
+                return 1;
+            }
+
+            @Override
+            public void afterCompletion(boolean committed) {
+                guard.readLock().unlock();
+            }
+        };
+    }
+
+    private boolean guardReleased() throws InterruptedException {
+        if (guard.writeLock().tryLock(1, TimeUnit.SECONDS)) {
+            guard.writeLock().unlock();
+            return true;
+        }
+        return false;
+    }
+
+    @Test
+    void runtimeExceptionRollsBackAndReleasesGuard() throws Exception {
+        CompletableFuture<Integer> failed = queue.submit(guarded(true));
+
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        verify(connection, atLeastOnce()).rollback();
+        assertThat(guardReleased()).isTrue();
+    }
+
+    @Test
+    void runtimeExceptionInBatchDoesNotFailOtherMutations() throws Exception {
+        CompletableFuture<Integer> first = queue.submit(guarded(false));
+        CompletableFuture<Integer> failed = queue.submit(guarded(true));
+        CompletableFuture<Integer> last = queue.submit(guarded(false));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(last.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(guardReleased()).isTrue();
+    }
+}
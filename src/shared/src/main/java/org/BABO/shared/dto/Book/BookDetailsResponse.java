@@ -0,0 +1,195 @@
+package org.BABO.shared.dto.Book;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.BABO.shared.dto.Rating.RatingResponse;
+import org.BABO.shared.dto.Recommendation.RecommendationResponse;
+import org.BABO.shared.model.BookRating;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) che raccoglie in un'unica risposta tutti i dati mostrati dalla
+ * finestra di dettaglio di un libro.
+ * <p>
+ * Le sezioni sono indipendenti: una sezione che non è stato possibile recuperare vale
+ * {@code null} e il client la richiede con l'endpoint dedicato. Le sezioni legate all'utente
+ * (valutazione e possesso del libro) valgono {@code null} anche quando la richiesta non indica
+ * un utente. Poiché la valutazione dell'utente vale {@code null} anche se l'utente non ha
+ * valutato il libro, {@link #getUserRatingAvailable()} indica se la sezione è stata recuperata.
+ * </p>
+ */
+public class BookDetailsResponse {
+
+    /**
+     * L'ISBN del libro.
+     */
+    @JsonProperty("isbn")
+    private String isbn;
+
+    /**
+     * Le statistiche delle valutazioni del libro.
+     */
+    @JsonProperty("statistics")
+    private RatingResponse statistics;
+
+    /**
+     * La valutazione dell'utente per il libro, {@code null} se non l'ha valutato.
+     */
+    @JsonProperty("userRating")
+    private BookRating userRating;
+
+    /**
+     * Se la valutazione dell'utente è stata recuperata, anche quando l'utente non ha valutato il libro.
+     */
+    @JsonProperty("userRatingAvailable")
+    private Boolean userRatingAvailable;
+
+    /**
+     * Se l'utente possiede il libro in almeno una delle sue librerie.
+     */
+    @JsonProperty("ownsBook")
+    private Boolean ownsBook;
+
+    /**
+     * La prima pagina delle recensioni degli altri utenti, con testo, per valutazione media decrescente.
+     */
+    @JsonProperty("reviews")
+    private List<BookRating> reviews;
+
+    /**
+     * Le raccomandazioni per il libro, con i dettagli dei libri raccomandati.
+     */
+    @JsonProperty("recommendations")
+    private RecommendationResponse recommendations;
+
+    /**
+     * Costruttore di default.
+     * <p>
+     * Necessario per la deserializzazione JSON da parte di librerie come Jackson.
+     * </p>
+     */
+    public BookDetailsResponse() {
+    }
+
+    /**
+     * @param isbn L'ISBN del libro.
+     */
+    public BookDetailsResponse(String isbn) {
+        this.isbn = isbn;
+    }
+
+    // Getters
+
+    /**
+     * @return L'ISBN del libro.
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * @return Le statistiche delle valutazioni del libro.
+     */
+    public RatingResponse getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return La valutazione dell'utente per il libro.
+     */
+    public BookRating getUserRating() {
+        return userRating;
+    }
+
+    /**
+     * @return Se la valutazione dell'utente è stata recuperata.
+     */
+    public Boolean getUserRatingAvailable() {
+        return userRatingAvailable;
+    }
+
+    /**
+     * @return Se l'utente possiede il libro.
+     */
+    public Boolean getOwnsBook() {
+        return ownsBook;
+    }
+
+    /**
+     * @return La prima pagina delle recensioni degli altri utenti.
+     */
+    public List<BookRating> getReviews() {
+        return reviews;
+    }
+
+    /**
+     * @return Le raccomandazioni per il libro.
+     */
+    public RecommendationResponse getRecommendations() {
+        return recommendations;
+    }
+
+    // Setters
+
+    /**
+     * @param isbn L'ISBN del libro.
+     */
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    /**
+     * @param statistics Le statistiche delle valutazioni del libro.
+     */
+    public void setStatistics(RatingResponse statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param userRating La valutazione dell'utente per il libro.
+     */
+    public void setUserRating(BookRating userRating) {
+        this.userRating = userRating;
+    }
+
+    /**
+     * @param userRatingAvailable Se la valutazione dell'utente è stata recuperata.
+     */
+    public void setUserRatingAvailable(Boolean userRatingAvailable) {
+        this.userRatingAvailable = userRatingAvailable;
+    }
+
+    /**
+     * @param ownsBook Se l'utente possiede il libro.
+     */
+    public void setOwnsBook(Boolean ownsBook) {
+        this.ownsBook = ownsBook;
+    }
+
+    /**
+     * @param reviews La prima pagina delle recensioni degli altri utenti.
+     */
+    public void setReviews(List<BookRating> reviews) {
+        this.reviews = reviews;
+    }
+
+    /**
+     * @param recommendations Le raccomandazioni per il libro.
+     */
+    public void setRecommendations(RecommendationResponse recommendations) {
+        this.recommendations = recommendations;
+    }
+
+    @Override
+    public String toString() {
+        return "BookDetailsResponse{" +
+                "isbn='" + isbn + '\'' +
+                ", statistics=" + (statistics != null) +
+                ", userRating=" + (userRating != null) +
+                ", userRatingAvailable=" + userRatingAvailable +
+                ", ownsBook=" + ownsBook +
+                ", reviews=" + (reviews != null ? reviews.size() : 0) +
+                ", recommendations=" + (recommendations != null) +
+                '}';
+    }
+}
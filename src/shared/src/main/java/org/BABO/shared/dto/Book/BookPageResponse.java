@@ -0,0 +1,115 @@
+package org.BABO.shared.dto.Book;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.BABO.shared.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) che rappresenta una pagina di libri ottenuta con paginazione a cursore.
+ * <p>
+ * Le liste di libri vengono restituite in pagine ordinate per titolo e ISBN. Ogni pagina
+ * contiene, se esistono altri libri, un cursore opaco da passare come parametro {@code after}
+ * alla richiesta successiva per ottenere la pagina seguente. Il cursore identifica l'ultimo
+ * libro restituito e non una posizione numerica: inserimenti o eliminazioni tra due richieste
+ * non causano libri duplicati o saltati.
+ * </p>
+ */
+public class BookPageResponse {
+
+    /**
+     * I libri contenuti nella pagina.
+     */
+    @JsonProperty("books")
+    private List<Book> books;
+
+    /**
+     * Il cursore da usare per richiedere la pagina successiva, {@code null} se questa è l'ultima.
+     */
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    /**
+     * Indica se esistono altri libri dopo quelli di questa pagina.
+     */
+    @JsonProperty("hasMore")
+    private boolean hasMore;
+
+    /**
+     * Costruttore di default.
+     * <p>
+     * Necessario per la deserializzazione JSON da parte di librerie come Jackson.
+     * </p>
+     */
+    public BookPageResponse() {
+        this.books = new ArrayList<>();
+    }
+
+    /**
+     * Costruttore completo.
+     *
+     * @param books I libri della pagina.
+     * @param nextCursor Il cursore della pagina successiva, o {@code null} se non ce ne sono altre.
+     */
+    public BookPageResponse(List<Book> books, String nextCursor) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters
+
+    /**
+     * @return I libri della pagina.
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * @return Il cursore della pagina successiva, o {@code null} se questa è l'ultima.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return {@code true} se esistono altre pagine.
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    // Setters
+
+    /**
+     * @param books I libri della pagina.
+     */
+    public void setBooks(List<Book> books) {
+        this.books = books;
+    }
+
+    /**
+     * @param nextCursor Il cursore della pagina successiva.
+     */
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param hasMore {@code true} se esistono altre pagine.
+     */
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "BookPageResponse{" +
+                "books=" + (books != null ? books.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,147 @@
+package org.BABO.shared.dto.Book;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.BABO.shared.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) che raccoglie tutte le sezioni della home in un'unica risposta.
+ * <p>
+ * Le sezioni del catalogo (in evidenza, consigliati, nuove uscite) sono costruite dalla stessa
+ * istantanea del catalogo, e le classifiche dalla stessa versione delle valutazioni: il client
+ * riceve con una sola richiesta sezioni coerenti tra loro.
+ * </p>
+ */
+public class HomeFeedResponse {
+
+    /**
+     * I libri in evidenza.
+     */
+    @JsonProperty("featuredBooks")
+    private List<Book> featuredBooks;
+
+    /**
+     * I libri consigliati (gratuiti).
+     */
+    @JsonProperty("freeBooks")
+    private List<Book> freeBooks;
+
+    /**
+     * Le nuove uscite.
+     */
+    @JsonProperty("newReleases")
+    private List<Book> newReleases;
+
+    /**
+     * La classifica dei libri più recensiti.
+     */
+    @JsonProperty("mostReviewedBooks")
+    private List<Book> mostReviewedBooks;
+
+    /**
+     * La classifica dei libri meglio valutati.
+     */
+    @JsonProperty("topRatedBooks")
+    private List<Book> topRatedBooks;
+
+    /**
+     * Costruttore di default.
+     * <p>
+     * Necessario per la deserializzazione JSON da parte di librerie come Jackson.
+     * </p>
+     */
+    public HomeFeedResponse() {
+        this.featuredBooks = new ArrayList<>();
+        this.freeBooks = new ArrayList<>();
+        this.newReleases = new ArrayList<>();
+        this.mostReviewedBooks = new ArrayList<>();
+        this.topRatedBooks = new ArrayList<>();
+    }
+
+    // Getters
+
+    /**
+     * @return I libri in evidenza.
+     */
+    public List<Book> getFeaturedBooks() {
+        return featuredBooks;
+    }
+
+    /**
+     * @return I libri consigliati (gratuiti).
+     */
+    public List<Book> getFreeBooks() {
+        return freeBooks;
+    }
+
+    /**
+     * @return Le nuove uscite.
+     */
+    public List<Book> getNewReleases() {
+        return newReleases;
+    }
+
+    /**
+     * @return La classifica dei libri più recensiti.
+     */
+    public List<Book> getMostReviewedBooks() {
+        return mostReviewedBooks;
+    }
+
+    /**
+     * @return La classifica dei libri meglio valutati.
+     */
+    public List<Book> getTopRatedBooks() {
+        return topRatedBooks;
+    }
+
+    // Setters
+
+    /**
+     * @param featuredBooks I libri in evidenza.
+     */
+    public void setFeaturedBooks(List<Book> featuredBooks) {
+        this.featuredBooks = featuredBooks;
+    }
+
+    /**
+     * @param freeBooks I libri consigliati (gratuiti).
+     */
+    public void setFreeBooks(List<Book> freeBooks) {
+        this.freeBooks = freeBooks;
+    }
+
+    /**
+     * @param newReleases Le nuove uscite.
+     */
+    public void setNewReleases(List<Book> newReleases) {
+        this.newReleases = newReleases;
+    }
+
+    /**
+     * @param mostReviewedBooks La classifica dei libri più recensiti.
+     */
+    public void setMostReviewedBooks(List<Book> mostReviewedBooks) {
+        this.mostReviewedBooks = mostReviewedBooks;
+    }
+
+    /**
+     * @param topRatedBooks La classifica dei libri meglio valutati.
+     */
+    public void setTopRatedBooks(List<Book> topRatedBooks) {
+        this.topRatedBooks = topRatedBooks;
+    }
+
+    @Override
+    public String toString() {
+        return "HomeFeedResponse{" +
+                "featuredBooks=" + (featuredBooks != null ? featuredBooks.size() : 0) +
+                ", freeBooks=" + (freeBooks != null ? freeBooks.size() : 0) +
+                ", newReleases=" + (newReleases != null ? newReleases.size() : 0) +
+                ", mostReviewedBooks=" + (mostReviewedBooks != null ? mostReviewedBooks.size() : 0) +
+                ", topRatedBooks=" + (topRatedBooks != null ? topRatedBooks.size() : 0) +
+                '}';
+    }
+}
@@ -6,6 +6,7 @@ import org.BABO.shared.model.BookRecommendation;
 import org.BABO.shared.model.Book;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Transfer Object (DTO) che incapsula la risposta per le operazioni relative alle raccomandazioni.
@@ -72,6 +73,13 @@ public class RecommendationResponse {
     @JsonProperty("maxRecommendations")
     private Integer maxRecommendations;
 
+    /**
+     * Per ogni libro raccomandato (ISBN), il numero di utenti distinti che lo hanno consigliato.
+     * Le chiavi seguono l'ordine di classifica, dal libro più consigliato.
+     */
+    @JsonProperty("recommendationCounts")
+    private Map<String, Integer> recommendationCounts;
+
     // Costruttori
 
     /**
@@ -219,6 +227,14 @@ public class RecommendationResponse {
         return maxRecommendations;
     }
 
+    /**
+     * Restituisce il numero di utenti che hanno consigliato ciascun libro, in ordine di classifica.
+     * @return La mappa ISBN → numero di utenti, o {@code null} se non presente.
+     */
+    public Map<String, Integer> getRecommendationCounts() {
+        return recommendationCounts;
+    }
+
     // Setters
 
     /**
@@ -285,6 +301,14 @@ public class RecommendationResponse {
         this.maxRecommendations = maxRecommendations;
     }
 
+    /**
+     * Imposta il numero di utenti che hanno consigliato ciascun libro.
+     * @param recommendationCounts La mappa ISBN → numero di utenti, in ordine di classifica.
+     */
+    public void setRecommendationCounts(Map<String, Integer> recommendationCounts) {
+        this.recommendationCounts = recommendationCounts;
+    }
+
     // Metodi di utilità
 
     /**